@@ -0,0 +1,181 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AhoCorasick {
+    private final int patternCount;
+    private final int[] lowSymbols = new int[256];
+    private final Map<Integer, Integer> highSymbols = new HashMap<>();
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final int[][] outputs;
+
+    public AhoCorasick(List<int[]> patterns) {
+        patternCount = patterns.size();
+        int nextSymbol = 1;
+        for (int[] pattern : patterns) {
+            for (int c : pattern) {
+                if (c < 256) {
+                    if (lowSymbols[c] == 0) {
+                        lowSymbols[c] = nextSymbol++;
+                    }
+                } else if (!highSymbols.containsKey(c)) {
+                    highSymbols.put(c, nextSymbol++);
+                }
+            }
+        }
+        alphabetSize = nextSymbol;
+
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> nodeOutputs = new ArrayList<>();
+        trie.add(new int[alphabetSize]);
+        nodeOutputs.add(new ArrayList<>());
+        for (int id = 0; id < patterns.size(); id++) {
+            int node = 0;
+            for (int c : patterns.get(id)) {
+                int symbol = symbol(c);
+                int next = trie.get(node)[symbol];
+                if (next == 0) {
+                    next = trie.size();
+                    trie.add(new int[alphabetSize]);
+                    nodeOutputs.add(new ArrayList<>());
+                    trie.get(node)[symbol] = next;
+                }
+                node = next;
+            }
+            nodeOutputs.get(node).add(id);
+        }
+
+        int nodeCount = trie.size();
+        transitions = new int[nodeCount * alphabetSize];
+        int[] fail = new int[nodeCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 1; symbol < alphabetSize; symbol++) {
+            int child = trie.get(0)[symbol];
+            transitions[symbol] = child;
+            if (child != 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            nodeOutputs.get(node).addAll(nodeOutputs.get(fail[node]));
+            for (int symbol = 1; symbol < alphabetSize; symbol++) {
+                int child = trie.get(node)[symbol];
+                int fallback = transitions[fail[node] * alphabetSize + symbol];
+                if (child != 0) {
+                    fail[child] = fallback;
+                    transitions[node * alphabetSize + symbol] = child;
+                    queue.add(child);
+                } else {
+                    transitions[node * alphabetSize + symbol] = fallback;
+                }
+            }
+        }
+
+        outputs = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            List<Integer> ids = nodeOutputs.get(node);
+            outputs[node] = ids.isEmpty() ? null : ids.stream().distinct().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static AhoCorasick forStrings(List<String> patterns) {
+        List<int[]> converted = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            converted.add(pattern.chars().toArray());
+        }
+        return new AhoCorasick(converted);
+    }
+
+    public static AhoCorasick forBytes(List<byte[]> patterns) {
+        List<int[]> converted = new ArrayList<>(patterns.size());
+        for (byte[] pattern : patterns) {
+            int[] symbols = new int[pattern.length];
+            for (int i = 0; i < pattern.length; i++) {
+                symbols[i] = pattern[i] & 0xFF;
+            }
+            converted.add(symbols);
+        }
+        return new AhoCorasick(converted);
+    }
+
+    private int symbol(int c) {
+        if (c < 256) {
+            return lowSymbols[c];
+        }
+        Integer symbol = highSymbols.get(c);
+        return symbol != null ? symbol : 0;
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    public long[] newHitSet() {
+        return new long[Math.max(1, (patternCount + 63) >>> 6)];
+    }
+
+    public boolean scan(CharSequence text, long[] hits) {
+        Arrays.fill(hits, 0L);
+        boolean any = false;
+        int state = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            int symbol = c < 256 ? lowSymbols[c] : symbol(c);
+            state = transitions[state * alphabetSize + symbol];
+            int[] found = outputs[state];
+            if (found != null) {
+                for (int id : found) {
+                    hits[id >>> 6] |= 1L << id;
+                }
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    public boolean scan(byte[] data, int offset, int length, long[] hits) {
+        Arrays.fill(hits, 0L);
+        boolean any = false;
+        int state = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            state = transitions[state * alphabetSize + lowSymbols[data[i] & 0xFF]];
+            int[] found = outputs[state];
+            if (found != null) {
+                for (int id : found) {
+                    hits[id >>> 6] |= 1L << id;
+                }
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    public boolean scan(ByteBuffer buffer, int from, int to, long[] hits) {
+        Arrays.fill(hits, 0L);
+        boolean any = false;
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            state = transitions[state * alphabetSize + lowSymbols[buffer.get(i) & 0xFF]];
+            int[] found = outputs[state];
+            if (found != null) {
+                for (int id : found) {
+                    hits[id >>> 6] |= 1L << id;
+                }
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    public static boolean isHit(long[] hits, int id) {
+        return (hits[id >>> 6] & (1L << id)) != 0;
+    }
+}
@@ -0,0 +1,360 @@
+import javax.swing.text.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AnsiParser {
+    public interface SegmentSink {
+        void segment(CharSequence text, int start, int end, int styleId);
+    }
+
+    private static final int STATE_GROUND = 0;
+    private static final int STATE_ESCAPE = 1;
+    private static final int STATE_CSI = 2;
+    private static final int MAX_PARAMS = 16;
+
+    private static final int FLAG_BOLD = 1;
+    private static final int FLAG_ITALIC = 2;
+    private static final int FLAG_UNDERLINE = 4;
+    private static final int FLAG_STRIKETHROUGH = 8;
+
+    private static final int COLOR_SET = 0x1000000;
+    private static final int[] BASIC_COLORS = {
+        0x000000, 0xFF0000, 0x00FF00, 0xFFFF00, 0x0000FF, 0xFF00FF, 0x00FFFF, 0xFFFFFF
+    };
+    private static final int[] BRIGHT_COLORS = {
+        0x808080, 0xFF5555, 0x55FF55, 0xFFFF55, 0x5555FF, 0xFF55FF, 0x55FFFF, 0xFFFFFF
+    };
+    private static final int[] CUBE_LEVELS = {0, 95, 135, 175, 215, 255};
+    private static final int MAX_EXACT_STYLES = 1024;
+    private static final int MAX_STYLES = 4096;
+
+    private final Color defaultForeground;
+    private final Color defaultBackground;
+    private final List<AttributeSet> styles = new ArrayList<>();
+    private long[] styleKeys = new long[64];
+    private int[] styleSlots = new int[64];
+    private int styleCount = 0;
+
+    private int state = STATE_GROUND;
+    private final int[] params = new int[MAX_PARAMS];
+    private int paramCount = 0;
+    private boolean paramStarted = false;
+    private boolean privateSequence = false;
+
+    private int foreground = 0;
+    private int background = 0;
+    private int flags = 0;
+    private int currentStyle;
+
+    public AnsiParser(Color defaultForeground, Color defaultBackground) {
+        this.defaultForeground = defaultForeground;
+        this.defaultBackground = defaultBackground;
+        Arrays.fill(styleSlots, -1);
+        currentStyle = lookupStyle();
+    }
+
+    public void parse(CharSequence text, SegmentSink sink) {
+        int length = text.length();
+        int segmentStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            switch (state) {
+                case STATE_GROUND:
+                    if (c == '\u001B') {
+                        if (i > segmentStart) {
+                            sink.segment(text, segmentStart, i, currentStyle);
+                        }
+                        state = STATE_ESCAPE;
+                    }
+                    break;
+                case STATE_ESCAPE:
+                    if (c == '[') {
+                        state = STATE_CSI;
+                        paramCount = 0;
+                        paramStarted = false;
+                        privateSequence = false;
+                        params[0] = 0;
+                    } else if (c == '\u001B') {
+                        state = STATE_ESCAPE;
+                    } else {
+                        state = STATE_GROUND;
+                    }
+                    segmentStart = c < 0x20 && c != '\u001B' ? i : i + 1;
+                    break;
+                case STATE_CSI:
+                    if (c >= '0' && c <= '9') {
+                        if (paramCount < MAX_PARAMS) {
+                            if (!paramStarted) {
+                                params[paramCount] = 0;
+                                paramStarted = true;
+                            }
+                            int value = params[paramCount] * 10 + (c - '0');
+                            params[paramCount] = Math.min(value, 0xFFFF);
+                        }
+                    } else if (c == ';' || c == ':') {
+                        if (paramCount < MAX_PARAMS) {
+                            if (!paramStarted) {
+                                params[paramCount] = 0;
+                            }
+                            paramCount++;
+                        }
+                        paramStarted = false;
+                    } else if (c >= 0x3C && c <= 0x3F) {
+                        privateSequence = true;
+                    } else if (c >= 0x40 && c <= 0x7E) {
+                        if (paramStarted && paramCount < MAX_PARAMS) {
+                            paramCount++;
+                        }
+                        if (c == 'm' && !privateSequence) {
+                            applySgr();
+                        }
+                        state = STATE_GROUND;
+                        segmentStart = i + 1;
+                    } else if (c == '\u001B') {
+                        state = STATE_ESCAPE;
+                        segmentStart = i + 1;
+                    } else if (c < 0x20 || c > 0x7E) {
+                        state = STATE_GROUND;
+                        segmentStart = i;
+                    }
+                    if (state == STATE_CSI) {
+                        segmentStart = i + 1;
+                    }
+                    break;
+            }
+        }
+        if (state == STATE_GROUND && segmentStart < length) {
+            sink.segment(text, segmentStart, length, currentStyle);
+        }
+    }
+
+    public void reset() {
+        state = STATE_GROUND;
+        foreground = 0;
+        background = 0;
+        flags = 0;
+        currentStyle = lookupStyle();
+    }
+
+    public int getCurrentStyleId() {
+        return currentStyle;
+    }
+
+    public AttributeSet getStyle(int styleId) {
+        return styleId >= 0 && styleId < styles.size() ? styles.get(styleId) : styles.get(0);
+    }
+
+    public int getStyleCount() {
+        return styles.size();
+    }
+
+    private void applySgr() {
+        if (paramCount == 0) {
+            params[0] = 0;
+            paramCount = 1;
+        }
+        for (int i = 0; i < paramCount; i++) {
+            int code = params[i];
+            if (code == 0) {
+                foreground = 0;
+                background = 0;
+                flags = 0;
+            } else if (code == 1) {
+                flags |= FLAG_BOLD;
+            } else if (code == 3) {
+                flags |= FLAG_ITALIC;
+            } else if (code == 4) {
+                flags |= FLAG_UNDERLINE;
+            } else if (code == 9) {
+                flags |= FLAG_STRIKETHROUGH;
+            } else if (code == 22) {
+                flags &= ~FLAG_BOLD;
+            } else if (code == 23) {
+                flags &= ~FLAG_ITALIC;
+            } else if (code == 24) {
+                flags &= ~FLAG_UNDERLINE;
+            } else if (code == 29) {
+                flags &= ~FLAG_STRIKETHROUGH;
+            } else if (code >= 30 && code <= 37) {
+                foreground = COLOR_SET | BASIC_COLORS[code - 30];
+            } else if (code == 38 || code == 48) {
+                int consumed = 0;
+                int color = -1;
+                if (i + 2 < paramCount && params[i + 1] == 5) {
+                    color = xterm256(params[i + 2]);
+                    consumed = 2;
+                } else if (i + 4 < paramCount && params[i + 1] == 2) {
+                    color = (clamp(params[i + 2]) << 16) | (clamp(params[i + 3]) << 8) | clamp(params[i + 4]);
+                    consumed = 4;
+                } else {
+                    consumed = paramCount - i - 1;
+                }
+                if (color >= 0) {
+                    if (code == 38) {
+                        foreground = COLOR_SET | color;
+                    } else {
+                        background = COLOR_SET | color;
+                    }
+                }
+                i += consumed;
+            } else if (code == 39) {
+                foreground = 0;
+            } else if (code >= 40 && code <= 47) {
+                background = COLOR_SET | BASIC_COLORS[code - 40];
+            } else if (code == 49) {
+                background = 0;
+            } else if (code >= 90 && code <= 97) {
+                foreground = COLOR_SET | BRIGHT_COLORS[code - 90];
+            } else if (code >= 100 && code <= 107) {
+                background = COLOR_SET | BRIGHT_COLORS[code - 100];
+            }
+        }
+        currentStyle = lookupStyle();
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static int xterm256(int index) {
+        if (index < 0 || index > 255) {
+            return -1;
+        }
+        if (index < 8) {
+            return BASIC_COLORS[index];
+        }
+        if (index < 16) {
+            return BRIGHT_COLORS[index - 8];
+        }
+        if (index < 232) {
+            int cube = index - 16;
+            return (CUBE_LEVELS[cube / 36] << 16) | (CUBE_LEVELS[(cube / 6) % 6] << 8) | CUBE_LEVELS[cube % 6];
+        }
+        int gray = 8 + (index - 232) * 10;
+        return (gray << 16) | (gray << 8) | gray;
+    }
+
+    private int lookupStyle() {
+        int id = findStyle(styleKey(flags, background, foreground));
+        if (id >= 0) {
+            return id;
+        }
+        if (styles.size() < MAX_EXACT_STYLES) {
+            return addStyle(flags, background, foreground);
+        }
+        int quantizedForeground = quantize(foreground);
+        int quantizedBackground = quantize(background);
+        id = findStyle(styleKey(flags, quantizedBackground, quantizedForeground));
+        if (id >= 0) {
+            return id;
+        }
+        if (styles.size() < MAX_STYLES) {
+            return addStyle(flags, quantizedBackground, quantizedForeground);
+        }
+        id = findStyle(styleKey(flags, 0, quantizedForeground));
+        if (id < 0) {
+            id = findStyle(styleKey(0, 0, quantizedForeground));
+        }
+        return Math.max(id, 0);
+    }
+
+    private static long styleKey(int flags, int background, int foreground) {
+        return ((long) flags << 50) | ((long) background << 25) | foreground;
+    }
+
+    private int findStyle(long key) {
+        int mask = styleKeys.length - 1;
+        int slot = (int) (mix(key) & mask);
+        while (styleSlots[slot] >= 0) {
+            if (styleKeys[slot] == key) {
+                return styleSlots[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int addStyle(int flags, int background, int foreground) {
+        long key = styleKey(flags, background, foreground);
+        int mask = styleKeys.length - 1;
+        int slot = (int) (mix(key) & mask);
+        while (styleSlots[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        int id = styles.size();
+        styles.add(buildStyle(flags, background, foreground));
+        styleKeys[slot] = key;
+        styleSlots[slot] = id;
+        styleCount++;
+        if (styleCount * 2 > styleKeys.length) {
+            growStyleTable();
+        }
+        return id;
+    }
+
+    private static int quantize(int color) {
+        if (color == 0) {
+            return 0;
+        }
+        return COLOR_SET | (nearestCubeLevel((color >> 16) & 0xFF) << 16)
+            | (nearestCubeLevel((color >> 8) & 0xFF) << 8) | nearestCubeLevel(color & 0xFF);
+    }
+
+    private static int nearestCubeLevel(int value) {
+        int best = CUBE_LEVELS[0];
+        for (int level : CUBE_LEVELS) {
+            if (Math.abs(level - value) < Math.abs(best - value)) {
+                best = level;
+            }
+        }
+        return best;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private void growStyleTable() {
+        long[] oldKeys = styleKeys;
+        int[] oldSlots = styleSlots;
+        styleKeys = new long[oldKeys.length * 2];
+        styleSlots = new int[oldSlots.length * 2];
+        Arrays.fill(styleSlots, -1);
+        int mask = styleKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] < 0) {
+                continue;
+            }
+            int slot = (int) (mix(oldKeys[i]) & mask);
+            while (styleSlots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            styleKeys[slot] = oldKeys[i];
+            styleSlots[slot] = oldSlots[i];
+        }
+    }
+
+    private AttributeSet buildStyle(int flags, int background, int foreground) {
+        SimpleAttributeSet attr = new SimpleAttributeSet();
+        StyleConstants.setForeground(attr, foreground == 0 ? defaultForeground : new Color(foreground & 0xFFFFFF));
+        StyleConstants.setBackground(attr, background == 0 ? defaultBackground : new Color(background & 0xFFFFFF));
+        if ((flags & FLAG_BOLD) != 0) {
+            StyleConstants.setBold(attr, true);
+        }
+        if ((flags & FLAG_ITALIC) != 0) {
+            StyleConstants.setItalic(attr, true);
+        }
+        if ((flags & FLAG_UNDERLINE) != 0) {
+            StyleConstants.setUnderline(attr, true);
+        }
+        if ((flags & FLAG_STRIKETHROUGH) != 0) {
+            StyleConstants.setStrikeThrough(attr, true);
+        }
+        return attr.copyAttributes();
+    }
+}
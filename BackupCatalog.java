@@ -0,0 +1,382 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.zip.ZipFile;
+
+public class BackupCatalog {
+    public static final String CATALOG_FILE = "catalog.jsonl";
+    public static final String TYPE_ZIP = "zip";
+    public static final String TYPE_INCREMENTAL = "incremental";
+    private static final String OP_ADD = "add";
+    private static final String OP_REMOVE = "remove";
+    private static final String OP_RESTORE = "restore";
+    private static final String OP_VERIFY = "verify";
+    private static final int COMPACT_THRESHOLD = 256;
+    private static final Gson GSON = new Gson();
+    private static final Map<String, BackupCatalog> CATALOGS = new ConcurrentHashMap<>();
+
+    private final File backupDir;
+    private final Path catalogPath;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private int obsoleteRecords;
+
+    public static class Entry {
+        public String id;
+        public long time;
+        public long size;
+        public long storedSize;
+        public int fileCount;
+        public String type;
+        public String checksum;
+        public String server;
+        public long lastRestored;
+        public int sourceFiles;
+        public String verifyStatus;
+        public String verifyMessage;
+        public long verifiedAt;
+        public String target;
+
+        public boolean isIncremental() {
+            return TYPE_INCREMENTAL.equals(type);
+        }
+
+        public boolean isRemote() {
+            return target != null && !BackupTarget.TYPE_LOCAL.equals(target);
+        }
+    }
+
+    private static class Record {
+        String op;
+        String id;
+        long time;
+        Entry entry;
+        String status;
+        String message;
+    }
+
+    public static class Filter {
+        public long fromTime;
+        public long toTime = Long.MAX_VALUE;
+        public long minSize;
+        public long maxSize = Long.MAX_VALUE;
+
+        public boolean matches(Entry entry) {
+            return entry.time >= fromTime && entry.time <= toTime && entry.size >= minSize && entry.size <= maxSize;
+        }
+    }
+
+    private BackupCatalog(File backupDir) {
+        this.backupDir = backupDir;
+        this.catalogPath = new File(backupDir, CATALOG_FILE).toPath();
+    }
+
+    public static BackupCatalog forDirectory(File backupDir) {
+        String key = backupDir.getAbsoluteFile().toPath().normalize().toString();
+        return CATALOGS.computeIfAbsent(key, k -> {
+            BackupCatalog catalog = new BackupCatalog(backupDir);
+            catalog.load();
+            return catalog;
+        });
+    }
+
+    public synchronized List<Entry> list(Filter filter, String sortBy) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (filter == null || filter.matches(entry)) {
+                result.add(entry);
+            }
+        }
+        switch (sortBy) {
+            case "size":
+                result.sort(Comparator.comparingLong((Entry e) -> e.size).reversed());
+                break;
+            case "name":
+                result.sort((e1, e2) -> e1.id.compareToIgnoreCase(e2.id));
+                break;
+            case "time":
+            default:
+                result.sort(Comparator.comparingLong((Entry e) -> e.time).reversed());
+                break;
+        }
+        return result;
+    }
+
+    public synchronized Entry get(String id) {
+        return entries.get(id);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void add(Entry entry) throws IOException {
+        Record record = new Record();
+        record.op = OP_ADD;
+        record.id = entry.id;
+        record.time = System.currentTimeMillis();
+        record.entry = entry;
+        append(record);
+        if (entries.put(entry.id, entry) != null) {
+            obsoleteRecords++;
+        }
+    }
+
+    public synchronized void remove(String id) throws IOException {
+        if (!entries.containsKey(id)) {
+            return;
+        }
+        Record record = new Record();
+        record.op = OP_REMOVE;
+        record.id = id;
+        record.time = System.currentTimeMillis();
+        append(record);
+        entries.remove(id);
+        obsoleteRecords += 2;
+        if (obsoleteRecords > COMPACT_THRESHOLD && obsoleteRecords > entries.size()) {
+            compact();
+        }
+    }
+
+    public synchronized void markRestored(String id) throws IOException {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return;
+        }
+        Record record = new Record();
+        record.op = OP_RESTORE;
+        record.id = id;
+        record.time = System.currentTimeMillis();
+        append(record);
+        entry.lastRestored = record.time;
+        obsoleteRecords++;
+    }
+
+    public synchronized void markVerified(String id, String status, String message) throws IOException {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return;
+        }
+        Record record = new Record();
+        record.op = OP_VERIFY;
+        record.id = id;
+        record.time = System.currentTimeMillis();
+        record.status = status;
+        record.message = message;
+        append(record);
+        entry.verifyStatus = status;
+        entry.verifyMessage = message;
+        entry.verifiedAt = record.time;
+        obsoleteRecords++;
+    }
+
+    public static Entry describe(File backupFile, String server) throws IOException {
+        Entry entry = new Entry();
+        entry.id = backupFile.getName();
+        entry.server = server;
+        entry.storedSize = backupFile.length();
+        entry.checksum = sha256(backupFile);
+        if (IncrementalBackupStore.isManifest(entry.id)) {
+            IncrementalBackupStore.Manifest manifest = IncrementalBackupStore.readManifest(backupFile);
+            entry.type = TYPE_INCREMENTAL;
+            entry.time = manifest.createdAt > 0 ? manifest.createdAt : backupFile.lastModified();
+            entry.size = manifest.totalSize;
+            entry.fileCount = manifest.entries.size();
+        } else {
+            entry.type = TYPE_ZIP;
+            entry.time = backupFile.lastModified();
+            entry.size = backupFile.length();
+            try (ZipFile zip = new ZipFile(backupFile)) {
+                entry.fileCount = zip.size();
+            }
+        }
+        return entry;
+    }
+
+    public static String sha256(File file) throws IOException {
+        return sha256(file, null);
+    }
+
+    public static String sha256(File file, LongConsumer progress) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[131072];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, len);
+                if (progress != null) {
+                    progress.accept(len);
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    public static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(catalogPath)) {
+            rebuild();
+            return;
+        }
+        try {
+            String content = new String(Files.readAllBytes(catalogPath), StandardCharsets.UTF_8);
+            boolean damaged = !content.isEmpty() && !content.endsWith("\n");
+            for (String line : content.split("\n")) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Record record;
+                try {
+                    record = GSON.fromJson(line, Record.class);
+                } catch (JsonParseException e) {
+                    Logger.warn("Ignoring damaged backup catalog record in " + catalogPath, "BackupCatalog");
+                    damaged = true;
+                    continue;
+                }
+                if (record == null || record.op == null || record.id == null) {
+                    continue;
+                }
+                apply(record);
+            }
+            if (damaged) {
+                compact();
+            }
+        } catch (IOException e) {
+            Logger.error("Failed to read backup catalog " + catalogPath + ": " + e.getMessage(), "BackupCatalog");
+            rebuild();
+        }
+    }
+
+    private void apply(Record record) {
+        switch (record.op) {
+            case OP_ADD:
+                if (record.entry != null) {
+                    record.entry.id = record.id;
+                    if (entries.put(record.id, record.entry) != null) {
+                        obsoleteRecords++;
+                    }
+                }
+                break;
+            case OP_REMOVE:
+                if (entries.remove(record.id) != null) {
+                    obsoleteRecords += 2;
+                }
+                break;
+            case OP_RESTORE:
+                Entry entry = entries.get(record.id);
+                if (entry != null) {
+                    entry.lastRestored = record.time;
+                    obsoleteRecords++;
+                }
+                break;
+            case OP_VERIFY:
+                Entry verified = entries.get(record.id);
+                if (verified != null) {
+                    verified.verifyStatus = record.status;
+                    verified.verifyMessage = record.message;
+                    verified.verifiedAt = record.time;
+                    obsoleteRecords++;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void rebuild() {
+        entries.clear();
+        obsoleteRecords = 0;
+        File[] files = backupDir.listFiles((d, name) ->
+            name.toLowerCase().endsWith(".zip") || IncrementalBackupStore.isManifest(name));
+        if (files != null) {
+            for (File file : files) {
+                if (!file.isFile() || file.length() == 0) {
+                    continue;
+                }
+                try {
+                    Entry entry = describe(file, backupDir.getName());
+                    entries.put(entry.id, entry);
+                } catch (IOException e) {
+                    Logger.warn("Skipping unreadable backup while building catalog: " + file.getName(), "BackupCatalog");
+                }
+            }
+        }
+        if (backupDir.isDirectory()) {
+            try {
+                compact();
+                Logger.info("Built backup catalog with " + entries.size() + " entries: " + catalogPath, "BackupCatalog");
+            } catch (IOException e) {
+                Logger.error("Failed to write backup catalog " + catalogPath + ": " + e.getMessage(), "BackupCatalog");
+            }
+        }
+    }
+
+    private void append(Record record) throws IOException {
+        Files.createDirectories(backupDir.toPath());
+        byte[] line = (GSON.toJson(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(catalogPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private void compact() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (Entry entry : entries.values()) {
+            Record record = new Record();
+            record.op = OP_ADD;
+            record.id = entry.id;
+            record.time = entry.time;
+            record.entry = entry;
+            content.append(GSON.toJson(record)).append('\n');
+        }
+        Path temp = catalogPath.resolveSibling(CATALOG_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        try {
+            Files.move(temp, catalogPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, catalogPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        obsoleteRecords = 0;
+    }
+}
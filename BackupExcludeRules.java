@@ -0,0 +1,191 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+public class BackupExcludeRules implements DirectoryScanner.Exclusion {
+    public static final String DEFAULT_RULES = String.join("\n",
+        "# 每行一条规则 (gitignore 语法): * 匹配任意字符, ** 匹配任意层目录",
+        "# 以 / 结尾只匹配目录, 以 / 开头或包含 / 的规则相对服务端根目录, ! 开头表示重新包含",
+        "*.log",
+        "*.tmp",
+        "*.temp",
+        "cache/",
+        "logs/",
+        "backup/",
+        "session/",
+        "crash-reports/",
+        "forwarding/",
+        "plugins/translations",
+        "plugins/dynmap/web/tiles/",
+        "bluemap/web/maps/");
+    private static final String[] MANDATORY_RULES = {
+        BackupRestorer.STAGING_DIR_NAME + "/",
+        BackupRestorer.OLD_DIR_NAME + "/",
+        BackupSnapshot.STAGING_DIR_NAME + "/",
+        "/MSH/backup/"
+    };
+
+    private final String source;
+    private final Map<String, List<Rule>> names = new HashMap<>();
+    private final Map<String, List<Rule>> paths = new HashMap<>();
+    private final Map<String, List<Rule>> suffixes = new HashMap<>();
+    private final List<Rule> patterns = new ArrayList<>();
+    private int ruleCount;
+
+    private static final class Rule {
+        final int index;
+        final boolean negate;
+        final boolean directoryOnly;
+        final Pattern pattern;
+
+        Rule(int index, boolean negate, boolean directoryOnly, Pattern pattern) {
+            this.index = index;
+            this.negate = negate;
+            this.directoryOnly = directoryOnly;
+            this.pattern = pattern;
+        }
+    }
+
+    private BackupExcludeRules(String source) {
+        this.source = source;
+    }
+
+    public static BackupExcludeRules defaults() {
+        return compile(DEFAULT_RULES);
+    }
+
+    public static BackupExcludeRules compile(String text) {
+        BackupExcludeRules rules = new BackupExcludeRules(text);
+        String[] lines = text.split("\\r?\\n");
+        for (int i = 0; i < lines.length; i++) {
+            try {
+                rules.add(lines[i]);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("第 " + (i + 1) + " 行规则无效: " + lines[i].trim(), e);
+            }
+        }
+        for (String mandatory : MANDATORY_RULES) {
+            rules.add(mandatory);
+        }
+        return rules;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public boolean isExcluded(String relativePath, boolean directory) {
+        String path = relativePath.replace('\\', '/').toLowerCase(Locale.ROOT);
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        Rule match = best(null, names.get(name), directory);
+        match = best(match, paths.get(path), directory);
+        for (int dot = name.indexOf('.'); dot >= 0; dot = name.indexOf('.', dot + 1)) {
+            match = best(match, suffixes.get(name.substring(dot)), directory);
+        }
+        for (Rule rule : patterns) {
+            if ((match == null || rule.index > match.index) && (directory || !rule.directoryOnly)
+                    && rule.pattern.matcher(path).matches()) {
+                match = rule;
+            }
+        }
+        return match != null && !match.negate;
+    }
+
+    private void add(String line) {
+        String rule = line.trim();
+        if (rule.isEmpty() || rule.startsWith("#")) {
+            return;
+        }
+        boolean negate = rule.startsWith("!");
+        if (negate) {
+            rule = rule.substring(1);
+        }
+        boolean directoryOnly = rule.endsWith("/");
+        while (rule.endsWith("/")) {
+            rule = rule.substring(0, rule.length() - 1);
+        }
+        boolean anchored = rule.contains("/");
+        while (rule.startsWith("/")) {
+            rule = rule.substring(1);
+        }
+        if (rule.isEmpty()) {
+            return;
+        }
+        rule = rule.toLowerCase(Locale.ROOT);
+        int index = ruleCount++;
+        if (!hasGlob(rule)) {
+            register(anchored ? paths : names, rule, new Rule(index, negate, directoryOnly, null));
+        } else if (!anchored && rule.startsWith("*.") && !hasGlob(rule.substring(1))) {
+            register(suffixes, rule.substring(1), new Rule(index, negate, directoryOnly, null));
+        } else {
+            String regex = (anchored ? "" : "(?:.*/)?") + globToRegex(rule);
+            patterns.add(new Rule(index, negate, directoryOnly, Pattern.compile(regex)));
+        }
+    }
+
+    private static void register(Map<String, List<Rule>> map, String key, Rule rule) {
+        map.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
+    }
+
+    private static Rule best(Rule current, List<Rule> candidates, boolean directory) {
+        if (candidates == null) {
+            return current;
+        }
+        for (Rule rule : candidates) {
+            if ((current == null || rule.index > current.index) && (directory || !rule.directoryOnly)) {
+                current = rule;
+            }
+        }
+        return current;
+    }
+
+    private static boolean hasGlob(String rule) {
+        return rule.indexOf('*') >= 0 || rule.indexOf('?') >= 0 || rule.indexOf('[') >= 0;
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i);
+            if (glob.startsWith("**/", i)) {
+                regex.append("(?:.*/)?");
+                i += 3;
+            } else if (glob.startsWith("/**", i) && i + 3 == glob.length()) {
+                regex.append("(?:/.*)?");
+                i += 3;
+            } else if (glob.startsWith("**", i)) {
+                regex.append(".*");
+                i += 2;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+                i++;
+            } else if (c == '?') {
+                regex.append("[^/]");
+                i++;
+            } else if (c == '[') {
+                int end = glob.indexOf(']', i + 2);
+                if (end < 0) {
+                    regex.append("\\[");
+                    i++;
+                    continue;
+                }
+                String body = glob.substring(i + 1, end);
+                if (body.startsWith("!")) {
+                    body = "^" + body.substring(1);
+                }
+                regex.append('[').append(body.replace("\\", "\\\\")).append(']');
+                i = end + 1;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                i++;
+            }
+        }
+        return regex.toString();
+    }
+}
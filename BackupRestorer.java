@@ -0,0 +1,414 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class BackupRestorer {
+    public static final String STAGING_DIR_NAME = ".msh-restore";
+    public static final String OLD_DIR_NAME = ".msh-restore-old";
+    public static final String PHASE_VERIFY = "verify";
+    public static final String PHASE_EXTRACT = "extract";
+    public static final String PHASE_SWAP = "swap";
+    private static final int BUFFER_SIZE = 262144;
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+
+    private final int workers;
+    private final List<Path> protectedPaths = new ArrayList<>();
+    private final AtomicLong restoredBytes = new AtomicLong();
+    private final AtomicInteger restoredFiles = new AtomicInteger();
+    private long startNanos;
+    private long endNanos;
+
+    public interface ProgressListener {
+        void onProgress(String phase, long done, long total, String path);
+    }
+
+    public BackupRestorer(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    public void protect(File path) {
+        protectedPaths.add(path.getAbsoluteFile().toPath().normalize());
+    }
+
+    public long getRestoredBytes() {
+        return restoredBytes.get();
+    }
+
+    public int getRestoredFiles() {
+        return restoredFiles.get();
+    }
+
+    public double getThroughputMBps() {
+        long elapsed = endNanos - startNanos;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return restoredBytes.get() / (1024.0 * 1024.0) / (elapsed / 1_000_000_000.0);
+    }
+
+    public void restoreZip(File zipFile, String expectedChecksum, File destDir, ProgressListener listener) throws IOException {
+        if (!zipFile.isFile() || !zipFile.canRead()) {
+            throw new IOException("Backup file does not exist or cannot be read");
+        }
+        startNanos = System.nanoTime();
+        Path staging = prepareStaging(destDir);
+        try {
+            verifyChecksum(zipFile, expectedChecksum, listener);
+            extractZip(zipFile, staging, listener);
+            swap(staging, destDir.toPath().toAbsolutePath().normalize(), listener);
+        } finally {
+            deleteQuietly(staging);
+            endNanos = System.nanoTime();
+        }
+    }
+
+    public void restoreIncremental(File manifestFile, File backupDir, String expectedChecksum, File destDir,
+                                   ProgressListener listener) throws IOException {
+        startNanos = System.nanoTime();
+        Path staging = prepareStaging(destDir);
+        try {
+            verifyChecksum(manifestFile, expectedChecksum, listener);
+            Progress progress = new Progress(listener, PHASE_EXTRACT, 0);
+            IncrementalBackupStore.RestoreResult result = new IncrementalBackupStore(backupDir).restore(manifestFile, staging.toFile(), (done, total, path) -> {
+                progress.total = total;
+                progress.set(done, path);
+            });
+            progress.finish();
+            restoredBytes.set(result.getRestoredBytes());
+            restoredFiles.set(result.getRestoredFiles());
+            swap(staging, destDir.toPath().toAbsolutePath().normalize(), listener);
+        } finally {
+            deleteQuietly(staging);
+            endNanos = System.nanoTime();
+        }
+    }
+
+    private Path prepareStaging(File destDir) throws IOException {
+        if (destDir == null || !destDir.isDirectory()) {
+            throw new IOException("Destination directory does not exist");
+        }
+        Path dest = destDir.toPath().toAbsolutePath().normalize();
+        Path staging = dest.resolve(STAGING_DIR_NAME);
+        deleteTree(staging);
+        deleteTree(dest.resolve(OLD_DIR_NAME));
+        Files.createDirectories(staging);
+        return staging;
+    }
+
+    private void verifyChecksum(File file, String expectedChecksum, ProgressListener listener) throws IOException {
+        if (expectedChecksum == null || expectedChecksum.isEmpty()) {
+            Logger.warn("No catalog checksum for " + file.getName() + ", skipping archive verification", "BackupRestorer");
+            return;
+        }
+        Progress progress = new Progress(listener, PHASE_VERIFY, file.length());
+        String actual = BackupCatalog.sha256(file, bytes -> progress.add(bytes, file.getName()));
+        progress.finish();
+        if (!actual.equalsIgnoreCase(expectedChecksum)) {
+            throw new IOException("Backup checksum mismatch for " + file.getName() + ", the file may be corrupted");
+        }
+    }
+
+    private void extractZip(File zipFile, Path staging, ProgressListener listener) throws IOException {
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            List<ZipEntry> files = new ArrayList<>();
+            List<Path> targets = new ArrayList<>();
+            Set<Path> dirs = new LinkedHashSet<>();
+            long total = 0;
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                Path target = resolveEntry(staging, entry.getName());
+                if (target == null) {
+                    Logger.warn("Skipping unsafe backup entry: " + entry.getName(), "BackupRestorer");
+                    continue;
+                }
+                if (entry.isDirectory()) {
+                    dirs.add(target);
+                } else {
+                    dirs.add(target.getParent());
+                    files.add(entry);
+                    targets.add(target);
+                    total += Math.max(0, entry.getSize());
+                }
+            }
+            for (Path dir : dirs) {
+                Files.createDirectories(dir);
+            }
+
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                order.add(i);
+            }
+            order.sort(Comparator.comparingLong((Integer i) -> files.get(i).getSize()).reversed());
+
+            Progress progress = new Progress(listener, PHASE_EXTRACT, total);
+            AtomicInteger next = new AtomicInteger();
+            AtomicBoolean failed = new AtomicBoolean();
+            ExecutorService pool = Executors.newFixedThreadPool(workers, Thread.ofVirtual().name("backup-restore-", 0).factory());
+            try {
+                List<Future<Void>> futures = new ArrayList<>();
+                for (int w = 0; w < workers; w++) {
+                    futures.add(pool.submit(() -> {
+                        byte[] buffer = new byte[BUFFER_SIZE];
+                        CRC32 crc = new CRC32();
+                        int index;
+                        while (!failed.get() && (index = next.getAndIncrement()) < order.size()) {
+                            int i = order.get(index);
+                            try {
+                                extractEntry(zip, files.get(i), targets.get(i), buffer, crc, progress);
+                            } catch (IOException e) {
+                                failed.set(true);
+                                throw e;
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof IOException) {
+                            throw (IOException) cause;
+                        }
+                        throw new IOException("Restore worker failed: " + cause, cause);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failed.set(true);
+                        throw new IOException("Restore interrupted", e);
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            progress.finish();
+        }
+    }
+
+    private void extractEntry(ZipFile zip, ZipEntry entry, Path target, byte[] buffer, CRC32 crc,
+                              Progress progress) throws IOException {
+        crc.reset();
+        long written = 0;
+        try (InputStream in = zip.getInputStream(entry);
+             OutputStream out = Files.newOutputStream(target)) {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, len);
+                out.write(buffer, 0, len);
+                written += len;
+                progress.add(len, entry.getName());
+            }
+        }
+        if (entry.getSize() >= 0 && written != entry.getSize()) {
+            throw new IOException("Size mismatch for " + entry.getName() + ": expected " + entry.getSize() + ", got " + written);
+        }
+        if (entry.getCrc() != -1 && crc.getValue() != entry.getCrc()) {
+            throw new IOException("CRC mismatch for " + entry.getName() + ", the backup may be corrupted");
+        }
+        if (entry.getLastModifiedTime() != null) {
+            Files.setLastModifiedTime(target, entry.getLastModifiedTime());
+        }
+        restoredBytes.addAndGet(written);
+        restoredFiles.incrementAndGet();
+    }
+
+    static boolean isSafeEntryName(String name) {
+        if (name == null || name.isEmpty() || name.startsWith("/") || name.startsWith("\\")
+                || (name.length() > 1 && name.charAt(1) == ':')) {
+            return false;
+        }
+        for (String segment : name.replace('\\', '/').split("/")) {
+            if (segment.equals("..")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Path resolveEntry(Path staging, String name) {
+        if (!isSafeEntryName(name)) {
+            return null;
+        }
+        String first = name.replace('\\', '/').split("/", 2)[0];
+        if (first.equals(STAGING_DIR_NAME) || first.equals(OLD_DIR_NAME)) {
+            return null;
+        }
+        try {
+            Path target = staging.resolve(name).normalize();
+            return target.startsWith(staging) && !target.equals(staging) ? target : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private void swap(Path staging, Path destDir, ProgressListener listener) throws IOException {
+        Progress progress = new Progress(listener, PHASE_SWAP, 0);
+        progress.finish();
+        Path oldDir = destDir.resolve(OLD_DIR_NAME);
+        Files.createDirectories(oldDir);
+        List<Path[]> movedAside = new ArrayList<>();
+        List<Path> installed = new ArrayList<>();
+        try {
+            swapDirectory(staging, destDir, oldDir, movedAside, installed);
+        } catch (IOException e) {
+            Logger.error("Restore swap failed, rolling back: " + e.getMessage(), "BackupRestorer");
+            for (int i = installed.size() - 1; i >= 0; i--) {
+                deleteQuietly(installed.get(i));
+            }
+            for (int i = movedAside.size() - 1; i >= 0; i--) {
+                Path[] pair = movedAside.get(i);
+                try {
+                    Files.move(pair[1], pair[0], StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException rollbackError) {
+                    Logger.error("Failed to roll back " + pair[0] + ", previous version kept at " + pair[1], "BackupRestorer");
+                    throw e;
+                }
+            }
+            deleteQuietly(oldDir);
+            throw e;
+        }
+        deleteQuietly(oldDir);
+    }
+
+    private void swapDirectory(Path stagedDir, Path liveDir, Path oldDir, List<Path[]> movedAside,
+                               List<Path> installed) throws IOException {
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(stagedDir)) {
+            for (Path child : stream) {
+                children.add(child);
+            }
+        }
+        Collections.sort(children);
+        for (Path staged : children) {
+            String name = staged.getFileName().toString();
+            Path live = liveDir.resolve(name);
+            Path aside = oldDir.resolve(name);
+            boolean liveIsDirectory = Files.isDirectory(live, LinkOption.NOFOLLOW_LINKS);
+            if (Files.isDirectory(staged) && liveIsDirectory) {
+                swapDirectory(staged, live, aside, movedAside, installed);
+                continue;
+            }
+            if (liveIsDirectory && containsProtected(live)) {
+                Logger.warn("Not replacing protected directory " + live + " with a file from the backup", "BackupRestorer");
+                continue;
+            }
+            if (Files.exists(live, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createDirectories(oldDir);
+                Files.move(live, aside, StandardCopyOption.ATOMIC_MOVE);
+                movedAside.add(new Path[]{live, aside});
+            }
+            Files.move(staged, live, StandardCopyOption.ATOMIC_MOVE);
+            installed.add(live);
+        }
+    }
+
+    private boolean containsProtected(Path live) {
+        for (Path path : protectedPaths) {
+            if (path.startsWith(live)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            deleteTree(path);
+        } catch (IOException e) {
+            Logger.warn("Failed to remove restore directory " + path + ": " + e.getMessage(), "BackupRestorer");
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+            Files.delete(dir);
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException exc) throws IOException {
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static class Progress {
+        private final ProgressListener listener;
+        private final String phase;
+        private final AtomicLong done = new AtomicLong();
+        private final AtomicLong lastReport = new AtomicLong(System.nanoTime() - PROGRESS_INTERVAL_NANOS);
+        private volatile long total;
+        private volatile String lastPath;
+
+        Progress(ProgressListener listener, String phase, long total) {
+            this.listener = listener;
+            this.phase = phase;
+            this.total = total;
+        }
+
+        void add(long bytes, String path) {
+            report(done.addAndGet(bytes), path);
+        }
+
+        void set(long value, String path) {
+            done.set(value);
+            report(value, path);
+        }
+
+        void finish() {
+            if (listener != null) {
+                listener.onProgress(phase, done.get(), total, lastPath);
+            }
+        }
+
+        private void report(long value, String path) {
+            lastPath = path;
+            if (listener == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            long last = lastReport.get();
+            if (now - last >= PROGRESS_INTERVAL_NANOS && lastReport.compareAndSet(last, now)) {
+                listener.onProgress(phase, value, total, path);
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class BackupRetention {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static volatile long hubQuotaBytes;
+
+    public static class Policy {
+        public int maxCount;
+        public int maxAgeDays;
+        public int keepHourly;
+        public int keepDaily;
+        public int keepWeekly;
+        public int keepMonthly;
+        public long quotaBytes;
+    }
+
+    public static class Result {
+        private final List<String> deleted = new ArrayList<>();
+        private long freedBytes;
+        private int collectedChunks;
+
+        public List<String> getDeleted() {
+            return deleted;
+        }
+
+        public long getFreedBytes() {
+            return freedBytes;
+        }
+
+        public int getCollectedChunks() {
+            return collectedChunks;
+        }
+    }
+
+    private enum Tier {
+        HOURLY, DAILY, WEEKLY, MONTHLY
+    }
+
+    private BackupRetention() {
+    }
+
+    public static long getHubQuotaBytes() {
+        return hubQuotaBytes;
+    }
+
+    public static void setHubQuotaBytes(long bytes) {
+        hubQuotaBytes = Math.max(0, bytes);
+    }
+
+    public static Set<String> selectRetained(List<BackupCatalog.Entry> newestFirst, Policy policy, long now) {
+        Set<String> retained = new HashSet<>();
+        if (newestFirst.isEmpty()) {
+            return retained;
+        }
+        retained.add(newestFirst.get(0).id);
+        for (BackupCatalog.Entry entry : newestFirst) {
+            if (BackupVerifier.STATUS_VERIFIED.equals(entry.verifyStatus)) {
+                retained.add(entry.id);
+                break;
+            }
+        }
+        long minTime = policy.maxAgeDays > 0 ? now - policy.maxAgeDays * DAY_MILLIS : Long.MIN_VALUE;
+        int counted = 0;
+        for (BackupCatalog.Entry entry : newestFirst) {
+            if (counted >= policy.maxCount) {
+                break;
+            }
+            if (isFailed(entry)) {
+                continue;
+            }
+            counted++;
+            if (entry.time >= minTime) {
+                retained.add(entry.id);
+            }
+        }
+        keepTier(newestFirst, Tier.HOURLY, policy.keepHourly, retained);
+        keepTier(newestFirst, Tier.DAILY, policy.keepDaily, retained);
+        keepTier(newestFirst, Tier.WEEKLY, policy.keepWeekly, retained);
+        keepTier(newestFirst, Tier.MONTHLY, policy.keepMonthly, retained);
+        return retained;
+    }
+
+    public static Result enforce(File backupDir, Policy policy, BackupTarget target) throws IOException {
+        BackupCatalog catalog = BackupCatalog.forDirectory(backupDir);
+        Result result = new Result();
+        List<BackupCatalog.Entry> entries = catalog.list(null, "time");
+        Set<String> retained = selectRetained(entries, policy, System.currentTimeMillis());
+        boolean incrementalDeleted = false;
+        for (BackupCatalog.Entry entry : entries) {
+            if (!retained.contains(entry.id) && delete(backupDir, catalog, entry, target, "retention policy", result)) {
+                incrementalDeleted |= entry.isIncremental();
+            }
+        }
+        if (incrementalDeleted) {
+            collectGarbage(backupDir, result);
+        }
+        if (policy.quotaBytes > 0) {
+            enforceQuota(backupDir, catalog, policy.quotaBytes, result);
+        }
+        return result;
+    }
+
+    public static Result enforceHubQuota(File backupRoot) throws IOException {
+        Result result = new Result();
+        long quota = hubQuotaBytes;
+        File[] dirs = backupRoot.listFiles(File::isDirectory);
+        if (quota <= 0 || dirs == null) {
+            return result;
+        }
+        Map<File, Long> usage = new HashMap<>();
+        List<Object[]> candidates = new ArrayList<>();
+        long total = 0;
+        for (File dir : dirs) {
+            BackupCatalog catalog = BackupCatalog.forDirectory(dir);
+            long dirUsage = diskUsage(dir, catalog);
+            usage.put(dir, dirUsage);
+            total += dirUsage;
+            List<BackupCatalog.Entry> entries = catalog.list(null, "time");
+            for (int i = 1; i < entries.size(); i++) {
+                if (!entries.get(i).isRemote()) {
+                    candidates.add(new Object[]{dir, entries.get(i)});
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingLong(c -> ((BackupCatalog.Entry) c[1]).time));
+        for (Object[] candidate : candidates) {
+            if (total <= quota) {
+                break;
+            }
+            File dir = (File) candidate[0];
+            BackupCatalog catalog = BackupCatalog.forDirectory(dir);
+            if (!delete(dir, catalog, (BackupCatalog.Entry) candidate[1], null, "hub disk quota", result)) {
+                continue;
+            }
+            if (((BackupCatalog.Entry) candidate[1]).isIncremental()) {
+                collectGarbage(dir, result);
+            }
+            long dirUsage = diskUsage(dir, catalog);
+            total += dirUsage - usage.put(dir, dirUsage);
+        }
+        if (total > quota) {
+            Logger.warn(String.format("Backups still use %d bytes, above the hub quota of %d bytes; the newest backup of each server is always kept",
+                total, quota), "BackupRetention");
+        }
+        return result;
+    }
+
+    public static long diskUsage(File backupDir, BackupCatalog catalog) {
+        long total = 0;
+        for (BackupCatalog.Entry entry : catalog.list(null, "time")) {
+            total += entry.storedSize;
+        }
+        return total + new IncrementalBackupStore(backupDir).getStoredBytes();
+    }
+
+    private static void enforceQuota(File backupDir, BackupCatalog catalog, long quota, Result result) throws IOException {
+        long usage = diskUsage(backupDir, catalog);
+        List<BackupCatalog.Entry> entries = catalog.list(null, "time");
+        for (int i = entries.size() - 1; i >= 1 && usage > quota; i--) {
+            BackupCatalog.Entry entry = entries.get(i);
+            if (entry.isRemote() || !delete(backupDir, catalog, entry, null, "server disk quota", result)) {
+                continue;
+            }
+            if (entry.isIncremental()) {
+                collectGarbage(backupDir, result);
+            }
+            usage = diskUsage(backupDir, catalog);
+        }
+        if (usage > quota) {
+            Logger.warn(String.format("Backups of %s still use %d bytes, above the quota of %d bytes; the newest backup is always kept",
+                backupDir.getName(), usage, quota), "BackupRetention");
+        }
+    }
+
+    private static void collectGarbage(File backupDir, Result result) {
+        try {
+            IncrementalBackupStore.GcResult gc = new IncrementalBackupStore(backupDir).collectGarbage();
+            result.collectedChunks += gc.getDeletedChunks();
+            result.freedBytes += gc.getFreedBytes();
+        } catch (IOException e) {
+            Logger.error("Chunk garbage collection failed for " + backupDir.getName() + ": " + e.getMessage(), "BackupRetention");
+        }
+    }
+
+    private static boolean delete(File backupDir, BackupCatalog catalog, BackupCatalog.Entry entry, BackupTarget target,
+                                  String reason, Result result) throws IOException {
+        if (entry.isRemote()) {
+            if (target == null || !entry.target.equals(target.getType())) {
+                return false;
+            }
+            try {
+                target.delete(backupDir.getName(), entry.id);
+            } catch (IOException e) {
+                Logger.warn("Failed to delete remote backup " + entry.id + " (" + reason + "): " + e.getMessage(), "BackupRetention");
+                return false;
+            }
+            catalog.remove(entry.id);
+            result.deleted.add(entry.id);
+            Logger.info("Deleted remote backup " + backupDir.getName() + "/" + entry.id + " (" + reason + ")", "BackupRetention");
+            return true;
+        }
+        File file = new File(backupDir, entry.id);
+        if (!file.getCanonicalPath().startsWith(backupDir.getCanonicalPath() + File.separator)) {
+            return false;
+        }
+        long length = file.length();
+        if (file.exists() && !file.delete()) {
+            Logger.warn("Failed to delete backup " + entry.id + " (" + reason + ")", "BackupRetention");
+            return false;
+        }
+        catalog.remove(entry.id);
+        result.deleted.add(entry.id);
+        result.freedBytes += length;
+        Logger.info("Deleted backup " + backupDir.getName() + "/" + entry.id + " (" + reason + ")", "BackupRetention");
+        return true;
+    }
+
+    private static void keepTier(List<BackupCatalog.Entry> newestFirst, Tier tier, int count, Set<String> retained) {
+        Set<Long> buckets = new HashSet<>();
+        for (BackupCatalog.Entry entry : newestFirst) {
+            if (buckets.size() >= count) {
+                return;
+            }
+            if (!isFailed(entry) && buckets.add(bucket(entry.time, tier))) {
+                retained.add(entry.id);
+            }
+        }
+    }
+
+    private static boolean isFailed(BackupCatalog.Entry entry) {
+        return BackupVerifier.STATUS_CORRUPT.equals(entry.verifyStatus)
+            || BackupVerifier.STATUS_INCOMPLETE.equals(entry.verifyStatus);
+    }
+
+    private static long bucket(long time, Tier tier) {
+        ZonedDateTime date = Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault());
+        switch (tier) {
+            case HOURLY:
+                return date.toLocalDate().toEpochDay() * 24 + date.getHour();
+            case DAILY:
+                return date.toLocalDate().toEpochDay();
+            case WEEKLY:
+                return date.get(IsoFields.WEEK_BASED_YEAR) * 100L + date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+            case MONTHLY:
+            default:
+                return date.getYear() * 12L + date.getMonthValue();
+        }
+    }
+}
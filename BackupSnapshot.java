@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class BackupSnapshot implements AutoCloseable {
+    public static final String STAGING_DIR_NAME = ".msh-snapshot";
+    private static final String OS_NAME = System.getProperty("os.name").toLowerCase();
+    private static final int CLONE_BATCH_SIZE = 200;
+    private static final long CLONE_TIMEOUT_SECONDS = 120;
+    private final Path root;
+    private final List<Path> paths = new ArrayList<>();
+    private long copiedBytes;
+    private int copiedFiles;
+    private int skippedFiles;
+
+    private BackupSnapshot(Path root) {
+        this.root = root;
+    }
+
+    public static boolean supportsClone(Path stagingDir) {
+        if (cloneCommand() == null) {
+            return false;
+        }
+        Path probe = stagingDir.resolve(".msh-clone-probe");
+        Path clone = stagingDir.resolve(".msh-clone-probe-copy");
+        try {
+            if (Files.exists(stagingDir)) {
+                deleteTree(stagingDir);
+            }
+            Files.createDirectories(stagingDir);
+            if (OS_NAME.contains("mac") && !"apfs".equalsIgnoreCase(Files.getFileStore(stagingDir).type())) {
+                return false;
+            }
+            Files.write(probe, new byte[]{'M', 'S', 'H'});
+            List<String> command = cloneCommand();
+            command.add(probe.toString());
+            command.add(clone.toString());
+            return run(command) && Files.isRegularFile(clone) && Files.size(clone) == Files.size(probe);
+        } catch (IOException e) {
+            Logger.debug("Reflink probe failed in " + stagingDir + ": " + e.getMessage(), "BackupSnapshot");
+            return false;
+        } finally {
+            try {
+                deleteTree(stagingDir);
+            } catch (IOException e) {
+                Logger.warn("Failed to remove snapshot probe directory " + stagingDir + ": " + e.getMessage(), "BackupSnapshot");
+            }
+        }
+    }
+
+    public static BackupSnapshot stage(Path sourceDir, List<Path> paths, Path stagingDir, boolean clone) throws IOException {
+        if (Files.exists(stagingDir)) {
+            deleteTree(stagingDir);
+        }
+        Files.createDirectories(stagingDir);
+        BackupSnapshot snapshot = new BackupSnapshot(stagingDir);
+        Map<Path, List<Path[]>> cloneGroups = new LinkedHashMap<>();
+        try {
+            for (Path path : paths) {
+                Path target = stagingDir.resolve(sourceDir.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(target);
+                    snapshot.paths.add(target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                if (clone) {
+                    cloneGroups.computeIfAbsent(target.getParent(), k -> new ArrayList<>()).add(new Path[]{path, target});
+                    snapshot.paths.add(target);
+                    continue;
+                }
+                try {
+                    Files.copy(path, target, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+                    snapshot.copiedBytes += Files.size(target);
+                    snapshot.copiedFiles++;
+                    snapshot.paths.add(target);
+                } catch (IOException e) {
+                    snapshot.skippedFiles++;
+                    Logger.warn("Skipping file during snapshot copy: " + path + " - " + e.getMessage(), "BackupSnapshot");
+                }
+            }
+            Set<Path> missing = new HashSet<>();
+            for (Map.Entry<Path, List<Path[]>> group : cloneGroups.entrySet()) {
+                snapshot.cloneGroup(group.getKey(), group.getValue(), missing);
+            }
+            snapshot.paths.removeAll(missing);
+        } catch (IOException e) {
+            snapshot.close();
+            throw e;
+        }
+        return snapshot;
+    }
+
+    private void cloneGroup(Path targetDir, List<Path[]> files, Set<Path> missing) throws IOException {
+        for (int start = 0; start < files.size(); start += CLONE_BATCH_SIZE) {
+            List<Path[]> batch = files.subList(start, Math.min(files.size(), start + CLONE_BATCH_SIZE));
+            List<String> command = cloneCommand();
+            for (Path[] file : batch) {
+                command.add(file[0].toString());
+            }
+            command.add(targetDir.toString());
+            if (!run(command)) {
+                Logger.warn("Reflink copy reported errors in " + targetDir, "BackupSnapshot");
+            }
+            for (Path[] file : batch) {
+                if (Files.isRegularFile(file[1]) && Files.isRegularFile(file[0]) && Files.size(file[1]) == Files.size(file[0])) {
+                    copiedBytes += Files.size(file[1]);
+                    copiedFiles++;
+                } else {
+                    Files.deleteIfExists(file[1]);
+                    missing.add(file[1]);
+                    skippedFiles++;
+                    Logger.warn("Skipping file during snapshot clone: " + file[0], "BackupSnapshot");
+                }
+            }
+        }
+    }
+
+    private static List<String> cloneCommand() {
+        List<String> command = new ArrayList<>();
+        if (OS_NAME.contains("linux")) {
+            command.add("cp");
+            command.add("--reflink=always");
+            command.add("--preserve=timestamps");
+        } else if (OS_NAME.contains("mac")) {
+            command.add("cp");
+            command.add("-c");
+            command.add("-p");
+        } else {
+            return null;
+        }
+        return command;
+    }
+
+    private static boolean run(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (InputStream output = process.getInputStream()) {
+            output.transferTo(OutputStream.nullOutputStream());
+            if (!process.waitFor(CLONE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Snapshot clone interrupted");
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public List<Path> getPaths() {
+        return paths;
+    }
+
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    public int getCopiedFiles() {
+        return copiedFiles;
+    }
+
+    public int getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    @Override
+    public void close() {
+        try {
+            deleteTree(root);
+        } catch (IOException e) {
+            Logger.warn("Failed to remove snapshot staging directory " + root + ": " + e.getMessage(), "BackupSnapshot");
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException exc) throws IOException {
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,27 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface BackupTarget {
+    String TYPE_LOCAL = "local";
+    String TYPE_S3 = "s3";
+
+    abstract class Upload extends OutputStream {
+        public abstract void abort();
+    }
+
+    String getType();
+
+    String describe();
+
+    boolean isRemote();
+
+    File getLocalDirectory(String server);
+
+    Upload upload(String server, String name) throws IOException;
+
+    InputStream open(String server, String name) throws IOException;
+
+    void delete(String server, String name) throws IOException;
+}
@@ -0,0 +1,255 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class BackupVerifier {
+    public static final String STATUS_VERIFIED = "verified";
+    public static final String STATUS_INCOMPLETE = "incomplete";
+    public static final String STATUS_CORRUPT = "corrupt";
+    private static final String TEST_RESTORE_PREFIX = ".msh-verify-";
+    private static final int BUFFER_SIZE = 262144;
+
+    private final Set<String> verifiedChunks = new HashSet<>();
+    private IoThrottle throttle = IoThrottle.UNLIMITED;
+    private boolean testRestore;
+    private BackupTarget target;
+
+    public static class Result {
+        private String status;
+        private String message;
+        private int checkedEntries;
+        private long checkedBytes;
+        private long elapsedMillis;
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public int getCheckedEntries() {
+            return checkedEntries;
+        }
+
+        public long getCheckedBytes() {
+            return checkedBytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public boolean isVerified() {
+            return STATUS_VERIFIED.equals(status);
+        }
+    }
+
+    public void setThrottle(IoThrottle throttle) {
+        this.throttle = throttle != null ? throttle : IoThrottle.UNLIMITED;
+    }
+
+    public void setTestRestore(boolean testRestore) {
+        this.testRestore = testRestore;
+    }
+
+    public void setTarget(BackupTarget target) {
+        this.target = target;
+    }
+
+    public Result verify(File backupDir, BackupCatalog.Entry entry) throws InterruptedIOException {
+        long start = System.currentTimeMillis();
+        Result result = new Result();
+        File backupFile = new File(backupDir, entry.id);
+        File download = null;
+        try {
+            if (entry.isRemote()) {
+                download = testRestore ? new File(backupDir, TEST_RESTORE_PREFIX + entry.id) : null;
+                fetchRemote(backupDir, entry, download, result);
+                backupFile = download;
+            } else if (!backupFile.isFile()) {
+                throw new IOException("backup file is missing");
+            } else if (entry.checksum != null) {
+                String actual = BackupCatalog.sha256(backupFile, bytes -> {
+                    try {
+                        throttle.acquireBytes(bytes);
+                    } catch (InterruptedIOException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Verification interrupted");
+                }
+                if (!actual.equalsIgnoreCase(entry.checksum)) {
+                    throw new IOException("checksum mismatch");
+                }
+            }
+            if (backupFile != null) {
+                if (entry.isIncremental()) {
+                    verifyIncremental(backupDir, backupFile, result);
+                } else {
+                    verifyZip(backupFile, result);
+                }
+                if (testRestore) {
+                    testRestore(backupDir, backupFile, entry, result);
+                }
+            }
+            if (entry.sourceFiles > 0 && result.checkedEntries < entry.sourceFiles) {
+                result.status = STATUS_INCOMPLETE;
+                result.message = String.format("%d of %d scanned paths are missing from the backup",
+                    entry.sourceFiles - result.checkedEntries, entry.sourceFiles);
+            } else {
+                result.status = STATUS_VERIFIED;
+                result.message = String.format("%d entries, %d bytes checked", result.checkedEntries, result.checkedBytes);
+            }
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            result.status = STATUS_CORRUPT;
+            result.message = e.getMessage();
+        } finally {
+            if (download != null && download.exists() && !download.delete()) {
+                Logger.warn("Failed to delete downloaded backup copy " + download, "BackupVerifier");
+            }
+        }
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    private void verifyZip(File zipFile, Result result) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        CRC32 crc = new CRC32();
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry zipEntry = entries.nextElement();
+                result.checkedEntries++;
+                if (zipEntry.isDirectory()) {
+                    continue;
+                }
+                crc.reset();
+                long size = 0;
+                try (InputStream in = zip.getInputStream(zipEntry)) {
+                    int len;
+                    while ((len = in.read(buffer)) > 0) {
+                        crc.update(buffer, 0, len);
+                        size += len;
+                        throttle.acquireBytes(len);
+                    }
+                } catch (InterruptedIOException e) {
+                    throw e;
+                } catch (IOException e) {
+                    throw new IOException(zipEntry.getName() + ": " + e.getMessage());
+                }
+                if (zipEntry.getSize() >= 0 && size != zipEntry.getSize()) {
+                    throw new IOException(zipEntry.getName() + ": size mismatch");
+                }
+                if (zipEntry.getCrc() >= 0 && crc.getValue() != zipEntry.getCrc()) {
+                    throw new IOException(zipEntry.getName() + ": CRC mismatch");
+                }
+                result.checkedBytes += size;
+            }
+        }
+    }
+
+    private void fetchRemote(File backupDir, BackupCatalog.Entry entry, File download, Result result) throws IOException {
+        if (target == null || !entry.target.equals(target.getType())) {
+            throw new IOException("backup target " + entry.target + " is not configured");
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        try (InputStream in = target.open(backupDir.getName(), entry.id);
+             OutputStream out = download != null ? Files.newOutputStream(download.toPath()) : OutputStream.nullOutputStream()) {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, len);
+                out.write(buffer, 0, len);
+                size += len;
+                throttle.acquireBytes(len);
+            }
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new IOException("download failed: " + e.getMessage());
+        }
+        if (size != entry.size) {
+            throw new IOException(String.format("remote size %d does not match recorded size %d", size, entry.size));
+        }
+        if (entry.checksum != null && !BackupCatalog.toHex(digest.digest()).equalsIgnoreCase(entry.checksum)) {
+            throw new IOException("checksum mismatch");
+        }
+        if (download == null) {
+            result.checkedEntries = entry.fileCount;
+            result.checkedBytes = size;
+        }
+    }
+
+    private void verifyIncremental(File backupDir, File manifestFile, Result result) throws IOException {
+        IncrementalBackupStore.Manifest manifest = IncrementalBackupStore.readManifest(manifestFile);
+        IncrementalBackupStore store = new IncrementalBackupStore(backupDir);
+        store.setThrottle(throttle);
+        store.verify(manifest, verifiedChunks);
+        result.checkedEntries = manifest.entries.size();
+        result.checkedBytes = manifest.totalSize;
+    }
+
+    private void testRestore(File backupDir, File backupFile, BackupCatalog.Entry entry, Result result) throws IOException {
+        Path target = Files.createTempDirectory(backupDir.toPath(), TEST_RESTORE_PREFIX);
+        try {
+            BackupRestorer restorer = new BackupRestorer(BackupZipWriter.defaultWorkers());
+            if (entry.isIncremental()) {
+                restorer.restoreIncremental(backupFile, backupDir, entry.checksum, target.toFile(), null);
+            } else {
+                restorer.restoreZip(backupFile, entry.checksum, target.toFile(), null);
+            }
+            if (restorer.getRestoredBytes() != result.checkedBytes) {
+                throw new IOException(String.format("test restore produced %d bytes, expected %d",
+                    restorer.getRestoredBytes(), result.checkedBytes));
+            }
+        } finally {
+            deleteTree(target);
+        }
+    }
+
+    private static void deleteTree(Path root) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            Logger.warn("Failed to clean up test restore directory " + root + ": " + e.getMessage(), "BackupVerifier");
+        }
+    }
+}
@@ -0,0 +1,626 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+public class BackupZipWriter {
+    public static final int DEFAULT_MEMORY_LIMIT_MB = 64;
+    public static final int MIN_MEMORY_LIMIT_MB = 8;
+    public static final int DEFAULT_LEVEL = 1;
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final long ZIP64_LOCAL_THRESHOLD = ZIP64_MAGIC - (64L * 1024 * 1024);
+
+    private final long memoryLimitBytes;
+    private final int workers;
+    private final int level;
+    private IoThrottle throttle = IoThrottle.UNLIMITED;
+    private boolean lowPriority;
+    private volatile long peakBufferedBytes;
+    private long rawBytes;
+    private long writtenBytes;
+    private int entryCount;
+    private long elapsedNanos;
+
+    private static final class Block {
+        final String name;
+        final long lastModified;
+        final boolean directory;
+        final int method;
+        final long expectedSize;
+        final int index;
+        final boolean last;
+        final int permits;
+        byte[] data;
+        int dataLength;
+        int rawLength;
+        long crc;
+        IOException error;
+
+        Block(String name, long lastModified, boolean directory, int method, long expectedSize, int index, boolean last, int permits) {
+            this.name = name;
+            this.lastModified = lastModified;
+            this.directory = directory;
+            this.method = method;
+            this.expectedSize = expectedSize;
+            this.index = index;
+            this.last = last;
+            this.permits = permits;
+        }
+    }
+
+    private static final class CentralEntry {
+        final byte[] name;
+        final long dosTime;
+        final int method;
+        final boolean directory;
+        final long offset;
+        final boolean localZip64;
+        long crc;
+        long compressedSize;
+        long size;
+
+        CentralEntry(byte[] name, long dosTime, int method, boolean directory, long offset, boolean localZip64) {
+            this.name = name;
+            this.dosTime = dosTime;
+            this.method = method;
+            this.directory = directory;
+            this.offset = offset;
+            this.localZip64 = localZip64;
+        }
+    }
+
+    public BackupZipWriter(int memoryLimitMB, int workers, int level) {
+        this.memoryLimitBytes = Math.max(MIN_MEMORY_LIMIT_MB, memoryLimitMB) * 1024L * 1024L;
+        this.workers = Math.max(1, workers);
+        this.level = Math.max(0, Math.min(9, level));
+    }
+
+    public void setThrottle(IoThrottle throttle) {
+        this.throttle = throttle != null ? throttle : IoThrottle.UNLIMITED;
+    }
+
+    public void setLowPriority(boolean lowPriority) {
+        this.lowPriority = lowPriority;
+    }
+
+    public static int defaultWorkers() {
+        return Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public long getPeakBufferedBytes() {
+        return peakBufferedBytes;
+    }
+
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public double getThroughputMBps() {
+        return elapsedNanos > 0 ? rawBytes / (1024.0 * 1024.0) / (elapsedNanos / 1e9) : 0;
+    }
+
+    public double getCompressionRatio() {
+        return rawBytes > 0 ? (double) writtenBytes / rawBytes : 1.0;
+    }
+
+    public void write(Path sourceDir, List<Path> paths, Path targetZip, Predicate<Path> storeOnly) throws IOException {
+        boolean completed = false;
+        try (FileChannel channel = FileChannel.open(targetZip, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeTo(sourceDir, paths, new ZipSink(channel, null, throttle), targetZip.getFileName().toString(), storeOnly);
+            writtenBytes = channel.size();
+            completed = true;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(targetZip);
+            }
+        }
+    }
+
+    public void write(Path sourceDir, List<Path> paths, OutputStream out, String name, Predicate<Path> storeOnly) throws IOException {
+        ZipSink sink = new ZipSink(null, out, throttle);
+        writeTo(sourceDir, paths, sink, name, storeOnly);
+        writtenBytes = sink.position();
+    }
+
+    private void writeTo(Path sourceDir, List<Path> paths, ZipSink sink, String name, Predicate<Path> storeOnly) throws IOException {
+        long startTime = System.nanoTime();
+        int totalPermits = toPermits(memoryLimitBytes);
+        Semaphore budget = new Semaphore(totalPermits);
+        BlockingQueue<CompletableFuture<Block>> queue = new ArrayBlockingQueue<>(workers * 4);
+        CompletableFuture<Block> end = CompletableFuture.completedFuture(null);
+        ThreadFactory factory = lowPriority
+            ? Thread.ofPlatform().name("backup-deflate-", 0).daemon(true).priority(Thread.MIN_PRIORITY).factory()
+            : Thread.ofVirtual().name("backup-deflate-", 0).factory();
+        ExecutorService compressors = Executors.newFixedThreadPool(workers, factory);
+        Thread producer = HubExecutors.start("backup-producer-" + name, () -> {
+            try {
+                for (Path path : paths) {
+                    submit(sourceDir, path, storeOnly, budget, compressors, queue);
+                }
+            } catch (InterruptedException | InterruptedIOException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    queue.put(end);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        List<CentralEntry> central = new ArrayList<>();
+        try {
+            CentralEntry current = null;
+            boolean skipping = false;
+            while (true) {
+                CompletableFuture<Block> future = queue.take();
+                if (future == end) {
+                    break;
+                }
+                Block block = future.get();
+                long buffered = (long) (totalPermits - budget.availablePermits()) * 1024;
+                if (buffered > peakBufferedBytes) {
+                    peakBufferedBytes = buffered;
+                }
+                try {
+                    if (block.index == 0) {
+                        skipping = false;
+                        current = null;
+                        if (block.error != null) {
+                            if (!isFileLocked(block.error)) {
+                                Logger.warn("Skipping unreadable file during backup: " + block.name, "BackupZipWriter");
+                                skipping = true;
+                                continue;
+                            }
+                            CentralEntry empty = writeLocalHeader(sink, block, METHOD_STORED);
+                            finishEntry(sink, empty);
+                            central.add(empty);
+                            skipping = true;
+                            continue;
+                        }
+                        current = writeLocalHeader(sink, block, block.method);
+                        central.add(current);
+                    }
+                    if (skipping || current == null) {
+                        continue;
+                    }
+                    if (block.error != null) {
+                        throw new IOException("Failed to read " + block.name + ": " + block.error.getMessage(), block.error);
+                    }
+                    sink.write(block.data, 0, block.dataLength);
+                    current.crc = crc32Combine(current.crc, block.crc, block.rawLength);
+                    current.compressedSize += block.dataLength;
+                    current.size += block.rawLength;
+                    rawBytes += block.rawLength;
+                    if (block.last) {
+                        finishEntry(sink, current);
+                        current = null;
+                    }
+                } finally {
+                    block.data = null;
+                    budget.release(block.permits);
+                }
+            }
+            writeCentralDirectory(sink, central);
+            sink.flush();
+            entryCount = central.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Backup interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress backup entry: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            producer.interrupt();
+            compressors.shutdownNow();
+            elapsedNanos = System.nanoTime() - startTime;
+        }
+    }
+
+    private void submit(Path sourceDir, Path path, Predicate<Path> storeOnly, Semaphore budget,
+                        ExecutorService compressors, BlockingQueue<CompletableFuture<Block>> queue)
+            throws InterruptedException, InterruptedIOException {
+        String name = sourceDir.relativize(path).toString().replace("\\", "/");
+        long lastModified = path.toFile().lastModified();
+        if (Files.isDirectory(path)) {
+            queue.put(CompletableFuture.completedFuture(
+                new Block(name + "/", lastModified, true, METHOD_STORED, 0, 0, true, 0)));
+            return;
+        }
+        throttle.acquireFile();
+        long size = path.toFile().length();
+        int method = level == 0 || storeOnly.test(path) ? METHOD_STORED : METHOD_DEFLATED;
+        long blockCount = Math.max(1, (size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        for (long i = 0; i < blockCount; i++) {
+            long position = i * BLOCK_SIZE;
+            int length = (int) Math.min(BLOCK_SIZE, size - position);
+            int permits = toPermits(method == METHOD_DEFLATED ? length * 2L + 1024 : length);
+            budget.acquire(permits);
+            throttle.acquireBytes(length);
+            Block block = new Block(name, lastModified, false, method, size, (int) i, i == blockCount - 1, permits);
+            queue.put(CompletableFuture.supplyAsync(() -> fillBlock(block, path, position, length), compressors));
+        }
+    }
+
+    private Block fillBlock(Block block, Path path, long position, int length) {
+        byte[] raw = new byte[length];
+        int read = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(raw);
+            while (buffer.hasRemaining()) {
+                int n = channel.read(buffer, position + buffer.position());
+                if (n < 0) {
+                    break;
+                }
+            }
+            read = buffer.position();
+        } catch (IOException e) {
+            block.error = e;
+            return block;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, read);
+        block.crc = crc.getValue();
+        block.rawLength = read;
+        if (block.method == METHOD_STORED) {
+            block.data = raw;
+            block.dataLength = read;
+        } else {
+            deflate(block, raw, read);
+        }
+        return block;
+    }
+
+    private void deflate(Block block, byte[] raw, int length) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(raw, 0, length);
+            byte[] out = new byte[length + (length >> 8) + 64];
+            int outLength = 0;
+            if (block.last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (outLength == out.length) {
+                        out = java.util.Arrays.copyOf(out, out.length * 2);
+                    }
+                    outLength += deflater.deflate(out, outLength, out.length - outLength);
+                }
+            } else {
+                while (true) {
+                    int n = deflater.deflate(out, outLength, out.length - outLength, Deflater.SYNC_FLUSH);
+                    outLength += n;
+                    if (outLength < out.length) {
+                        break;
+                    }
+                    out = java.util.Arrays.copyOf(out, out.length * 2);
+                }
+            }
+            block.data = out;
+            block.dataLength = outLength;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private CentralEntry writeLocalHeader(ZipSink sink, Block block, int method) throws IOException {
+        byte[] name = block.name.getBytes(StandardCharsets.UTF_8);
+        boolean zip64 = !block.directory && block.expectedSize >= ZIP64_LOCAL_THRESHOLD;
+        CentralEntry entry = new CentralEntry(name, toDosTime(block.lastModified), method, block.directory, sink.position(), zip64);
+        sink.writeInt(0x04034b50);
+        sink.writeShort(zip64 ? 45 : 20);
+        sink.writeShort(sink.flags());
+        sink.writeShort(method);
+        sink.writeInt(entry.dosTime);
+        sink.writeInt(0);
+        sink.writeInt(zip64 ? ZIP64_MAGIC : 0);
+        sink.writeInt(zip64 ? ZIP64_MAGIC : 0);
+        sink.writeShort(name.length);
+        sink.writeShort(zip64 ? 20 : 0);
+        sink.write(name, 0, name.length);
+        if (zip64) {
+            sink.writeShort(0x0001);
+            sink.writeShort(16);
+            sink.writeLong(0);
+            sink.writeLong(0);
+        }
+        return entry;
+    }
+
+    private void finishEntry(ZipSink sink, CentralEntry entry) throws IOException {
+        if (!sink.isSeekable()) {
+            if (!entry.localZip64 && (entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC)) {
+                throw new IOException("File grew past 4 GB during backup: " + new String(entry.name, StandardCharsets.UTF_8));
+            }
+            sink.writeInt(0x08074b50);
+            sink.writeInt(entry.crc);
+            if (entry.localZip64) {
+                sink.writeLong(entry.compressedSize);
+                sink.writeLong(entry.size);
+            } else {
+                sink.writeInt(entry.compressedSize);
+                sink.writeInt(entry.size);
+            }
+            return;
+        }
+        ByteBuffer patch = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        patch.putInt((int) entry.crc);
+        if (entry.localZip64) {
+            patch.putInt((int) ZIP64_MAGIC).putInt((int) ZIP64_MAGIC);
+            sink.patch(entry.offset + 14, patch.array());
+            ByteBuffer extra = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            extra.putLong(entry.size).putLong(entry.compressedSize);
+            sink.patch(entry.offset + 30 + entry.name.length + 4, extra.array());
+        } else {
+            if (entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC) {
+                throw new IOException("File grew past 4 GB during backup: " + new String(entry.name, StandardCharsets.UTF_8));
+            }
+            patch.putInt((int) entry.compressedSize).putInt((int) entry.size);
+            sink.patch(entry.offset + 14, patch.array());
+        }
+    }
+
+    private void writeCentralDirectory(ZipSink sink, List<CentralEntry> central) throws IOException {
+        long centralStart = sink.position();
+        for (CentralEntry entry : central) {
+            boolean sizeZip64 = entry.localZip64 || entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+            boolean offsetZip64 = entry.offset >= ZIP64_MAGIC;
+            int extraLength = (sizeZip64 || offsetZip64 ? 4 : 0) + (sizeZip64 ? 16 : 0) + (offsetZip64 ? 8 : 0);
+            sink.writeInt(0x02014b50);
+            sink.writeShort(45);
+            sink.writeShort(extraLength > 0 ? 45 : 20);
+            sink.writeShort(sink.flags());
+            sink.writeShort(entry.method);
+            sink.writeInt(entry.dosTime);
+            sink.writeInt(entry.crc);
+            sink.writeInt(sizeZip64 ? ZIP64_MAGIC : entry.compressedSize);
+            sink.writeInt(sizeZip64 ? ZIP64_MAGIC : entry.size);
+            sink.writeShort(entry.name.length);
+            sink.writeShort(extraLength);
+            sink.writeShort(0);
+            sink.writeShort(0);
+            sink.writeShort(0);
+            sink.writeInt(entry.directory ? 0x10 : 0);
+            sink.writeInt(offsetZip64 ? ZIP64_MAGIC : entry.offset);
+            sink.write(entry.name, 0, entry.name.length);
+            if (extraLength > 0) {
+                sink.writeShort(0x0001);
+                sink.writeShort(extraLength - 4);
+                if (sizeZip64) {
+                    sink.writeLong(entry.size);
+                    sink.writeLong(entry.compressedSize);
+                }
+                if (offsetZip64) {
+                    sink.writeLong(entry.offset);
+                }
+            }
+        }
+        long centralEnd = sink.position();
+        long centralSize = centralEnd - centralStart;
+        int count = central.size();
+        if (count >= 0xFFFF || centralStart >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC) {
+            sink.writeInt(0x06064b50);
+            sink.writeLong(44);
+            sink.writeShort(45);
+            sink.writeShort(45);
+            sink.writeInt(0);
+            sink.writeInt(0);
+            sink.writeLong(count);
+            sink.writeLong(count);
+            sink.writeLong(centralSize);
+            sink.writeLong(centralStart);
+            sink.writeInt(0x07064b50);
+            sink.writeInt(0);
+            sink.writeLong(centralEnd);
+            sink.writeInt(1);
+        }
+        sink.writeInt(0x06054b50);
+        sink.writeShort(0);
+        sink.writeShort(0);
+        sink.writeShort(Math.min(count, 0xFFFF));
+        sink.writeShort(Math.min(count, 0xFFFF));
+        sink.writeInt(Math.min(centralSize, ZIP64_MAGIC));
+        sink.writeInt(Math.min(centralStart, ZIP64_MAGIC));
+        sink.writeShort(0);
+    }
+
+    private static long toDosTime(long time) {
+        java.time.LocalDateTime dateTime = java.time.LocalDateTime.ofInstant(
+            java.time.Instant.ofEpochMilli(time), java.time.ZoneId.systemDefault());
+        int year = dateTime.getYear();
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long) (year - 1980) << 25) | ((long) dateTime.getMonthValue() << 21) | ((long) dateTime.getDayOfMonth() << 16)
+            | ((long) dateTime.getHour() << 11) | ((long) dateTime.getMinute() << 5) | (dateTime.getSecond() >> 1);
+    }
+
+    static long crc32Combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        int i = 0;
+        while (vector != 0) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+            vector >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    static boolean isFileLocked(IOException e) {
+        String message = e.getMessage();
+        return message != null && (
+            message.contains("locked") ||
+            message.contains("另一个程序") ||
+            message.contains("being used") ||
+            message.contains("The process cannot access")
+        );
+    }
+
+    private static int toPermits(long bytes) {
+        return (int) Math.max(1, (bytes + 1023) / 1024);
+    }
+
+    private static final class ZipSink {
+        private final FileChannel channel;
+        private final OutputStream out;
+        private final IoThrottle throttle;
+        private final ByteBuffer buffer = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long flushedPosition;
+
+        ZipSink(FileChannel channel, OutputStream out, IoThrottle throttle) {
+            this.channel = channel;
+            this.out = out;
+            this.throttle = throttle;
+        }
+
+        boolean isSeekable() {
+            return channel != null;
+        }
+
+        int flags() {
+            return isSeekable() ? FLAG_UTF8 : FLAG_UTF8 | FLAG_DATA_DESCRIPTOR;
+        }
+
+        long position() {
+            return flushedPosition + buffer.position();
+        }
+
+        void writeShort(int value) throws IOException {
+            ensure(2);
+            buffer.putShort((short) value);
+        }
+
+        void writeInt(long value) throws IOException {
+            ensure(4);
+            buffer.putInt((int) value);
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int n = Math.min(length, buffer.remaining());
+                buffer.put(data, offset, n);
+                offset += n;
+                length -= n;
+            }
+        }
+
+        void patch(long position, byte[] data) throws IOException {
+            if (position >= flushedPosition) {
+                int index = (int) (position - flushedPosition);
+                for (int i = 0; i < data.length; i++) {
+                    buffer.put(index + i, data[i]);
+                }
+                return;
+            }
+            if (!isSeekable()) {
+                throw new IOException("Cannot patch a streamed zip entry");
+            }
+            flush();
+            ByteBuffer patch = ByteBuffer.wrap(data);
+            while (patch.hasRemaining()) {
+                channel.write(patch, position + patch.position());
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            throttle.acquireBytes(buffer.remaining());
+            if (!isSeekable()) {
+                out.write(buffer.array(), 0, buffer.remaining());
+                flushedPosition += buffer.remaining();
+                buffer.clear();
+                return;
+            }
+            while (buffer.hasRemaining()) {
+                flushedPosition += channel.write(buffer, flushedPosition);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
@@ -1,23 +1,60 @@
 import javax.swing.*;
 import javax.swing.text.*;
 import java.awt.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 public class ColorOutputPanel extends JScrollPane {
+    public static final int FLUSH_INTERVAL_MS = 33;
+    public static final long MAX_FLUSH_NANOS = 8_000_000L;
     private JTextPane textPane;
     private StyledDocument document;
-    private SimpleAttributeSet normalAttr;
-    private SimpleAttributeSet currentAttr;
+    private final transient AnsiParser ansiParser;
+    private final transient AnsiParser.SegmentSink segmentSink = this::appendSegment;
+    private final transient ConsoleBuffer consoleBuffer;
+    private final StringBuilder openLine = new StringBuilder();
+    private int[] openRuns = new int[8];
+    private int openRunCount = 0;
+    private int pendingDocumentEvictions = 0;
+    private final ConcurrentLinkedQueue<Object> pendingText = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+    private final AtomicLong pendingBytes = new AtomicLong(0);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong totalDroppedCount = new AtomicLong(0);
+    private final javax.swing.Timer flushTimer;
+    private final StringBuilder runText = new StringBuilder();
+    private int runStyle = -1;
+    private volatile long lastFlushNanos = 0;
+    private volatile long maxFlushNanos = 0;
+    private volatile long flushedCount = 0;
+    
+    private static final class PendingBytes {
+        final byte[] data;
+        final Charset charset;
+        
+        PendingBytes(byte[] data, Charset charset) {
+            this.data = data;
+            this.charset = charset;
+        }
+    }
+    
     public ColorOutputPanel() {
+        this(ConsoleBuffer.DEFAULT_MAX_LINES, ConsoleBuffer.DEFAULT_MAX_BYTES);
+    }
+    public ColorOutputPanel(int maxLines, long maxBytes) {
+        consoleBuffer = new ConsoleBuffer(maxLines, maxBytes);
         textPane = new JTextPane();
         textPane.setEditable(false);
         textPane.setFont(new Font("Monospaced", Font.PLAIN, 12));
         textPane.setBackground(Color.BLACK);
         document = textPane.getStyledDocument();
-        normalAttr = new SimpleAttributeSet();
-        StyleConstants.setForeground(normalAttr, Color.WHITE);
-        StyleConstants.setBackground(normalAttr, Color.BLACK);
-        currentAttr = new SimpleAttributeSet(normalAttr);
+        ansiParser = new AnsiParser(Color.WHITE, Color.BLACK);
+        flushTimer = new javax.swing.Timer(FLUSH_INTERVAL_MS, e -> flushPending());
+        flushTimer.setRepeats(false);
         JPopupMenu popupMenu = new JPopupMenu();
         JMenuItem copyItem = new JMenuItem("复制");
         copyItem.addActionListener(e -> textPane.copy());
@@ -26,13 +63,7 @@ public class ColorOutputPanel extends JScrollPane {
         selectAllItem.addActionListener(e -> textPane.selectAll());
         popupMenu.add(selectAllItem);
         JMenuItem clearItem = new JMenuItem("清空输出");
-        clearItem.addActionListener(e -> {
-            try {
-                document.remove(0, document.getLength());
-            } catch (BadLocationException ex) {
-                Logger.error("Failed to clear output panel: " + ex.getMessage(), "ColorOutputPanel");
-            }
-        });
+        clearItem.addActionListener(e -> clearOutput());
         popupMenu.add(clearItem);
         JMenuItem fontItem = new JMenuItem("调整字体大小");
         fontItem.addActionListener(e -> {
@@ -58,9 +89,17 @@ public class ColorOutputPanel extends JScrollPane {
     }
     
     public String getText() {
-        try { return document.getText(0, document.getLength()); } catch (BadLocationException e) { return ""; } }
+        return consoleBuffer.getText() + openLine;
+    }
     
     public void clearOutput() {
+        pendingText.clear();
+        pendingCount.set(0);
+        pendingBytes.set(0);
+        consoleBuffer.clear();
+        openLine.setLength(0);
+        openRunCount = 0;
+        pendingDocumentEvictions = 0;
         try {
             document.remove(0, document.getLength());
         } catch (BadLocationException ex) {
@@ -68,121 +107,211 @@ public class ColorOutputPanel extends JScrollPane {
         }
     }
     
+    public void setScrollbackLimits(int maxLines, long maxBytes) {
+        int evicted = consoleBuffer.setLimits(maxLines, maxBytes);
+        pendingDocumentEvictions += evicted;
+        trimDocument(true);
+    }
+    
+    public int getMaxLines() {
+        return consoleBuffer.getMaxLines();
+    }
+    
+    public long getMaxBytes() {
+        return consoleBuffer.getMaxBytes();
+    }
+    
+    public int getLineCount() {
+        return consoleBuffer.size();
+    }
+    
+    public long getUsedBytes() {
+        return consoleBuffer.getUsedBytes();
+    }
+    
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+    
+    public long getDroppedCount() {
+        return totalDroppedCount.get();
+    }
+    
+    public long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+    
+    public long getMaxFlushNanos() {
+        return maxFlushNanos;
+    }
+    
+    public long getFlushedCount() {
+        return flushedCount;
+    }
+    
     public void appendColorText(String text) {
+        if (text == null || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        enqueue(text);
+    }
+    
+    public void appendBytes(byte[] data, Charset charset) {
+        if (data == null || data.length == 0 || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        enqueue(new PendingBytes(data, charset));
+    }
+    
+    private void enqueue(Object chunk) {
+        pendingText.offer(chunk);
+        int pending = pendingCount.incrementAndGet();
+        long bytes = pendingBytes.addAndGet(chunkBytes(chunk));
+        int backlogLimit = consoleBuffer.getMaxLines() * 2;
+        long byteBudget = consoleBuffer.getMaxBytes();
+        while ((pending > backlogLimit || bytes > byteBudget) && pending > 1) {
+            Object dropped = pendingText.poll();
+            if (dropped == null) {
+                break;
+            }
+            pending = pendingCount.decrementAndGet();
+            bytes = pendingBytes.addAndGet(-chunkBytes(dropped));
+            droppedCount.incrementAndGet();
+            totalDroppedCount.incrementAndGet();
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            flushTimer.restart();
+        }
+    }
+    
+    private static long chunkBytes(Object chunk) {
+        return chunk instanceof PendingBytes ? ((PendingBytes) chunk).data.length : ((String) chunk).length() * 2L;
+    }
+    
+    private void flushPending() {
+        flushScheduled.set(false);
+        long start = System.nanoTime();
+        long deadline = start + MAX_FLUSH_NANOS;
+        long dropped = droppedCount.getAndSet(0);
+        int processed = 0;
         try {
-            if (Thread.currentThread().isInterrupted()) {
-                return;
+            if (dropped > 0) {
+                parseInto("[MSH] 输出过快，已跳过 " + dropped + " 条较早的输出\n");
             }
-            synchronized (this) {
-                if (document == null || text == null) return;
-                try {
-                    Pattern pattern = Pattern.compile("\u001B\\[(\\d+(?:;\\d+)*)m");
-                    Matcher matcher = pattern.matcher(text);
-                    int lastIndex = 0;
-                    while (matcher.find()) {
-                        String plainText = text.substring(lastIndex, matcher.start());
-                        if (!plainText.isEmpty()) {
-                            document.insertString(document.getLength(), plainText, currentAttr);
-                        }
-                        String colorCode = matcher.group(1);
-                        if (colorCode != null && !colorCode.trim().isEmpty()) {
-                            applyColorCode(colorCode.trim());
-                        }
-                        lastIndex = matcher.end();
-                    }
-                    String remainingText = text.substring(lastIndex);
-                    if (!remainingText.isEmpty()) {
-                        document.insertString(document.getLength(), remainingText, currentAttr);
-                    }
-                    textPane.setCaretPosition(document.getLength());
-                } catch (BadLocationException e) {
-                } catch (IllegalStateException e) {
+            Object chunk;
+            while ((chunk = pendingText.poll()) != null) {
+                pendingCount.decrementAndGet();
+                pendingBytes.addAndGet(-chunkBytes(chunk));
+                if (chunk instanceof PendingBytes) {
+                    PendingBytes bytes = (PendingBytes) chunk;
+                    parseInto(new String(bytes.data, bytes.charset));
+                } else {
+                    parseInto((String) chunk);
+                }
+                processed++;
+                if ((processed & 31) == 0 && System.nanoTime() > deadline) {
+                    break;
                 }
             }
-        } catch (Exception e) {
+            flushRun();
+            trimDocument(false);
+            textPane.setCaretPosition(document.getLength());
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            Logger.warn("Failed to flush output panel: " + e.getMessage(), "ColorOutputPanel");
+        } finally {
+            runText.setLength(0);
+            runStyle = -1;
+        }
+        long elapsed = System.nanoTime() - start;
+        lastFlushNanos = elapsed;
+        if (elapsed > maxFlushNanos) {
+            maxFlushNanos = elapsed;
+        }
+        flushedCount += processed;
+        if (!pendingText.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+            flushTimer.restart();
         }
     }
-    private void applyColorCode(String colorCode) {
-        currentAttr = new SimpleAttributeSet(normalAttr);
-        String[] codes = colorCode.split(";");
-        for (String code : codes) {
-            switch (code) {
-                case "0":
-                    currentAttr = new SimpleAttributeSet(normalAttr);
-                    break;
-                case "30":
-                    StyleConstants.setForeground(currentAttr, Color.BLACK);
-                    break;
-                case "31":
-                    StyleConstants.setForeground(currentAttr, Color.RED);
-                    break;
-                case "32":
-                    StyleConstants.setForeground(currentAttr, Color.GREEN);
-                    break;
-                case "33":
-                    StyleConstants.setForeground(currentAttr, Color.YELLOW);
-                    break;
-                case "34":
-                    StyleConstants.setForeground(currentAttr, Color.BLUE);
-                    break;
-                case "35":
-                    StyleConstants.setForeground(currentAttr, Color.MAGENTA);
-                    break;
-                case "36":
-                    StyleConstants.setForeground(currentAttr, Color.CYAN);
-                    break;
-                case "37":
-                    StyleConstants.setForeground(currentAttr, Color.WHITE);
-                    break;
-                case "90":
-                    StyleConstants.setForeground(currentAttr, Color.GRAY);
-                    break;
-                case "91":
-                    StyleConstants.setForeground(currentAttr, new Color(255, 85, 85));
-                    break;
-                case "92":
-                    StyleConstants.setForeground(currentAttr, new Color(85, 255, 85));
-                    break;
-                case "93":
-                    StyleConstants.setForeground(currentAttr, new Color(255, 255, 85));
-                    break;
-                case "94":
-                    StyleConstants.setForeground(currentAttr, new Color(85, 85, 255));
-                    break;
-                case "95":
-                    StyleConstants.setForeground(currentAttr, new Color(255, 85, 255));
-                    break;
-                case "96":
-                    StyleConstants.setForeground(currentAttr, new Color(85, 255, 255));
-                    break;
-                case "97":
-                    StyleConstants.setForeground(currentAttr, new Color(255, 255, 255));
-                    break;
-                case "40":
-                    StyleConstants.setBackground(currentAttr, Color.BLACK);
-                    break;
-                case "41":
-                    StyleConstants.setBackground(currentAttr, Color.RED);
-                    break;
-                case "42":
-                    StyleConstants.setBackground(currentAttr, Color.GREEN);
-                    break;
-                case "43":
-                    StyleConstants.setBackground(currentAttr, Color.YELLOW);
-                    break;
-                case "44":
-                    StyleConstants.setBackground(currentAttr, Color.BLUE);
-                    break;
-                case "45":
-                    StyleConstants.setBackground(currentAttr, Color.MAGENTA);
-                    break;
-                case "46":
-                    StyleConstants.setBackground(currentAttr, Color.CYAN);
-                    break;
-                case "47":
-                    StyleConstants.setBackground(currentAttr, Color.WHITE);
-                    break;
+    
+    private void appendSegment(CharSequence text, int start, int end, int styleId) {
+        if (styleId != runStyle) {
+            flushRun();
+            runStyle = styleId;
+        }
+        runText.append(text, start, end);
+        while (start < end) {
+            int newline = start;
+            while (newline < end && text.charAt(newline) != '\n') {
+                newline++;
+            }
+            if (newline > start) {
+                openLine.append(text, start, newline);
+                addOpenRun(openLine.length(), styleId);
+            }
+            if (newline == end) {
+                break;
+            }
+            commitOpenLine();
+            start = newline + 1;
+        }
+    }
+    
+    private void flushRun() {
+        if (runText.length() > 0 && runStyle >= 0) {
+            try {
+                document.insertString(document.getLength(), runText.toString(), ansiParser.getStyle(runStyle));
+            } catch (BadLocationException e) {
+                Logger.warn("Failed to insert output text: " + e.getMessage(), "ColorOutputPanel");
             }
         }
+        runText.setLength(0);
+    }
+    
+    private void addOpenRun(int runEnd, int styleId) {
+        if (openRunCount >= 2 && openRuns[openRunCount - 1] == styleId) {
+            openRuns[openRunCount - 2] = runEnd;
+            return;
+        }
+        if (openRunCount + 2 > openRuns.length) {
+            openRuns = Arrays.copyOf(openRuns, openRuns.length * 2);
+        }
+        openRuns[openRunCount++] = runEnd;
+        openRuns[openRunCount++] = styleId;
+    }
+    
+    private void commitOpenLine() {
+        int evicted = consoleBuffer.add(openLine.toString(), Arrays.copyOf(openRuns, openRunCount));
+        openLine.setLength(0);
+        openRunCount = 0;
+        pendingDocumentEvictions += evicted;
+    }
+    
+    public AttributeSet getStyle(int styleId) {
+        return ansiParser.getStyle(styleId);
+    }
+    
+    private void trimDocument(boolean force) {
+        int slack = force ? 1 : Math.max(1, consoleBuffer.getMaxLines() / 10);
+        if (pendingDocumentEvictions < slack) {
+            return;
+        }
+        Element root = document.getDefaultRootElement();
+        int removable = Math.min(pendingDocumentEvictions, root.getElementCount() - 1);
+        if (removable <= 0) {
+            pendingDocumentEvictions = 0;
+            return;
+        }
+        try {
+            int end = root.getElement(removable - 1).getEndOffset();
+            document.remove(0, Math.min(end, document.getLength()));
+            pendingDocumentEvictions -= removable;
+        } catch (BadLocationException e) {
+            Logger.warn("Failed to trim output panel: " + e.getMessage(), "ColorOutputPanel");
+            pendingDocumentEvictions = 0;
+        }
+    }
+    
+    private void parseInto(String text) {
+        ansiParser.parse(text, segmentSink);
     }
 }
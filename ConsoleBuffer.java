@@ -0,0 +1,143 @@
+public class ConsoleBuffer {
+    public static final int DEFAULT_MAX_LINES = 10000;
+    public static final long DEFAULT_MAX_BYTES = 8L * 1024 * 1024;
+    private static final int RECORD_OVERHEAD_BYTES = 64;
+
+    private String[] texts;
+    private int[][] runs;
+    private long[] recordBytes;
+    private int head;
+    private int size;
+    private int maxLines;
+    private long maxBytes;
+    private long usedBytes;
+
+    public ConsoleBuffer() {
+        this(DEFAULT_MAX_LINES, DEFAULT_MAX_BYTES);
+    }
+
+    public ConsoleBuffer(int maxLines, long maxBytes) {
+        this.maxLines = Math.max(1, maxLines);
+        this.maxBytes = Math.max(1024, maxBytes);
+        this.texts = new String[this.maxLines];
+        this.runs = new int[this.maxLines][];
+        this.recordBytes = new long[this.maxLines];
+    }
+
+    public synchronized int add(String text, int[] styleRuns) {
+        if (text == null) {
+            text = "";
+        }
+        int evicted = 0;
+        if (size == maxLines) {
+            evictOldest();
+            evicted++;
+        }
+        int slot = (head + size) % maxLines;
+        long bytes = estimateBytes(text, styleRuns);
+        texts[slot] = text;
+        runs[slot] = styleRuns;
+        recordBytes[slot] = bytes;
+        usedBytes += bytes;
+        size++;
+        while (usedBytes > maxBytes && size > 1) {
+            evictOldest();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    private void evictOldest() {
+        usedBytes -= recordBytes[head];
+        texts[head] = null;
+        runs[head] = null;
+        recordBytes[head] = 0;
+        head = (head + 1) % maxLines;
+        size--;
+    }
+
+    private long estimateBytes(String text, int[] styleRuns) {
+        return RECORD_OVERHEAD_BYTES + text.length() * 2L + (styleRuns != null ? styleRuns.length * 4L : 0);
+    }
+
+    public synchronized int setLimits(int newMaxLines, long newMaxBytes) {
+        newMaxLines = Math.max(1, newMaxLines);
+        newMaxBytes = Math.max(1024, newMaxBytes);
+        int evicted = 0;
+        while (size > newMaxLines) {
+            evictOldest();
+            evicted++;
+        }
+        if (newMaxLines != maxLines) {
+            String[] newTexts = new String[newMaxLines];
+            int[][] newRuns = new int[newMaxLines][];
+            long[] newRecordBytes = new long[newMaxLines];
+            for (int i = 0; i < size; i++) {
+                int slot = (head + i) % maxLines;
+                newTexts[i] = texts[slot];
+                newRuns[i] = runs[slot];
+                newRecordBytes[i] = recordBytes[slot];
+            }
+            texts = newTexts;
+            runs = newRuns;
+            recordBytes = newRecordBytes;
+            head = 0;
+            maxLines = newMaxLines;
+        }
+        maxBytes = newMaxBytes;
+        while (usedBytes > maxBytes && size > 1) {
+            evictOldest();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < maxLines; i++) {
+            texts[i] = null;
+            runs[i] = null;
+            recordBytes[i] = 0;
+        }
+        head = 0;
+        size = 0;
+        usedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized String getLine(int index) {
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        return texts[(head + index) % maxLines];
+    }
+
+    public synchronized int[] getRuns(int index) {
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        return runs[(head + index) % maxLines];
+    }
+
+    public synchronized String getText() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(texts[(head + i) % maxLines]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public synchronized int getMaxLines() {
+        return maxLines;
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DirectoryScanner {
+    public interface Exclusion {
+        boolean isExcluded(String relativePath, boolean directory);
+    }
+
+    public static class Result {
+        private final List<Path> paths = new ArrayList<>();
+        private final Map<String, Long> topLevelBytes = new HashMap<>();
+        private long totalBytes;
+        private int fileCount;
+        private int directoryCount;
+        private int skippedCount;
+
+        public List<Path> getPaths() {
+            return paths;
+        }
+
+        public Map<String, Long> getTopLevelBytes() {
+            return topLevelBytes;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        public int getDirectoryCount() {
+            return directoryCount;
+        }
+
+        public int getSkippedCount() {
+            return skippedCount;
+        }
+    }
+
+    private DirectoryScanner() {
+    }
+
+    public static Result scan(Path root, Exclusion exclusion) throws IOException {
+        Result result = new Result();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (dir.equals(root)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (exclusion != null && exclusion.isExcluded(relativize(root, dir), true)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                result.paths.add(dir);
+                result.directoryCount++;
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isSymbolicLink()) {
+                    try {
+                        attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+                if (!attrs.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String relativePath = relativize(root, file);
+                if (exclusion != null && exclusion.isExcluded(relativePath, false)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                result.paths.add(file);
+                result.fileCount++;
+                result.totalBytes += attrs.size();
+                int slash = relativePath.indexOf('/');
+                String topLevel = slash < 0 ? relativePath : relativePath.substring(0, slash + 1);
+                result.topLevelBytes.merge(topLevel, attrs.size(), Long::sum);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                result.skippedCount++;
+                Logger.warn("Skipping unreadable path during scan: " + file + " - " + exc.getMessage(), "DirectoryScanner");
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return result;
+    }
+
+    public static String relativize(Path root, Path path) {
+        return root.relativize(path).toString().replace("\\", "/");
+    }
+}
@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DiskUsageIndex implements AutoCloseable {
+    private static final long RESCAN_INTERVAL_MINUTES = 5;
+    private static final long POLLING_RESCAN_INTERVAL_MINUTES = 1;
+    private static final Map<Path, DiskUsageIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final Path root;
+    private final Map<Path, Long> fileSizes = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private final Set<Path> watchedPaths = ConcurrentHashMap.newKeySet();
+    private final Map<Path, long[]> scannedSubtrees = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicInteger scannedFiles = new AtomicInteger();
+    private volatile DirectoryScanner.Exclusion exclusion;
+    private volatile WatchService watcher;
+    private volatile boolean ready;
+    private volatile boolean closed;
+    private volatile boolean rescanRequested;
+    private int users;
+    private boolean fullyWatched;
+    private boolean polling;
+
+    private DiskUsageIndex(Path root) {
+        this.root = root;
+    }
+
+    public static DiskUsageIndex acquire(Path root, DirectoryScanner.Exclusion exclusion) {
+        Path key = root.toAbsolutePath().normalize();
+        return INDEXES.compute(key, (k, existing) -> {
+            DiskUsageIndex index = existing;
+            if (index == null) {
+                index = new DiskUsageIndex(k);
+                index.exclusion = exclusion;
+                HubExecutors.start("disk-usage-" + k.getFileName(), index::run);
+            } else {
+                index.setExclusion(exclusion);
+            }
+            index.users++;
+            return index;
+        });
+    }
+
+    public void setExclusion(DirectoryScanner.Exclusion exclusion) {
+        if (this.exclusion != exclusion) {
+            this.exclusion = exclusion;
+            rescanRequested = true;
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    public int getFileCount() {
+        return fileSizes.size() + scannedFiles.get();
+    }
+
+    @Override
+    public void close() {
+        boolean[] last = new boolean[1];
+        INDEXES.computeIfPresent(root, (k, index) -> {
+            if (index != this || --index.users > 0) {
+                return index;
+            }
+            last[0] = true;
+            return null;
+        });
+        if (!last[0]) {
+            return;
+        }
+        closed = true;
+        WatchService current = watcher;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                Logger.warn("Failed to close disk usage watcher for " + root + ": " + e.getMessage(), "DiskUsageIndex");
+            }
+        }
+    }
+
+    private void run() {
+        try (WatchService service = root.getFileSystem().newWatchService()) {
+            watcher = service;
+            if (closed) {
+                return;
+            }
+            // Without native change notifications (macOS) the JDK polls every registered directory itself,
+            // so an occasional full scan is cheaper than registering the whole tree.
+            polling = service.getClass().getSimpleName().equals("PollingWatchService");
+            rescan();
+            while (!closed) {
+                WatchKey key = service.poll(polling ? POLLING_RESCAN_INTERVAL_MINUTES : RESCAN_INTERVAL_MINUTES,
+                    TimeUnit.MINUTES);
+                if (key == null) {
+                    if (polling || !fullyWatched || rescanRequested) {
+                        rescan();
+                    } else {
+                        for (Path dir : scannedSubtrees.keySet()) {
+                            measure(dir);
+                        }
+                    }
+                    continue;
+                }
+                Path dir = watchedDirs.get(key);
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                    } else if (dir != null) {
+                        update(dir.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset()) {
+                    Path removed = watchedDirs.remove(key);
+                    if (removed != null) {
+                        watchedPaths.remove(removed);
+                    }
+                }
+                if (overflow) {
+                    rescan();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Logger.error("Disk usage index stopped for " + root + ": " + e.getMessage(), "DiskUsageIndex");
+        }
+    }
+
+    private void rescan() throws IOException {
+        long start = System.nanoTime();
+        for (WatchKey key : watchedDirs.keySet()) {
+            key.cancel();
+        }
+        watchedDirs.clear();
+        watchedPaths.clear();
+        fileSizes.clear();
+        scannedSubtrees.clear();
+        scannedFiles.set(0);
+        totalBytes.set(0);
+        fullyWatched = true;
+        rescanRequested = false;
+        if (polling) {
+            measure(root);
+        } else if (Files.isDirectory(root)) {
+            index(root);
+        }
+        long elapsed = System.nanoTime() - start;
+        boolean firstScan = !ready;
+        ready = true;
+        if (firstScan || !polling) {
+            Logger.info(String.format("Indexed %s: %d files, %d bytes in %d ms, %d directories watched%s", root,
+                getFileCount(), totalBytes.get(), TimeUnit.NANOSECONDS.toMillis(elapsed), watchedPaths.size(),
+                polling ? " (polling watcher, periodic scans)" : fullyWatched ? "" : " (not all directories watched)"),
+                "DiskUsageIndex");
+        }
+    }
+
+    private void measure(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            remove(dir);
+            return;
+        }
+        try {
+            DirectoryScanner.Result result = DirectoryScanner.scan(dir, null);
+            long[] previous = scannedSubtrees.put(dir, new long[] {result.getTotalBytes(), result.getFileCount()});
+            totalBytes.addAndGet(result.getTotalBytes() - (previous != null ? previous[0] : 0));
+            scannedFiles.addAndGet(result.getFileCount() - (previous != null ? (int) previous[1] : 0));
+        } catch (IOException e) {
+            Logger.warn("Failed to scan " + dir + ": " + e.getMessage(), "DiskUsageIndex");
+        }
+    }
+
+    private void index(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                DirectoryScanner.Exclusion current = exclusion;
+                if (current != null && !dir.equals(root)
+                    && current.isExcluded(DirectoryScanner.relativize(root, dir), true)) {
+                    measure(dir);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                watch(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    record(file, attrs.size());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watch(Path dir) {
+        if (closed) {
+            return;
+        }
+        try {
+            WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirs.put(key, dir);
+            watchedPaths.add(dir);
+        } catch (IOException e) {
+            if (fullyWatched) {
+                Logger.warn("Cannot watch " + dir + ", falling back to periodic rescans: " + e.getMessage(), "DiskUsageIndex");
+            }
+            fullyWatched = false;
+        }
+    }
+
+    private void update(Path path) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            remove(path);
+            return;
+        }
+        if (attrs.isDirectory()) {
+            if (!watchedPaths.contains(path) && !scannedSubtrees.containsKey(path)) {
+                index(path);
+            }
+        } else if (attrs.isRegularFile()) {
+            record(path, attrs.size());
+        }
+    }
+
+    private void record(Path file, long size) {
+        Long previous = fileSizes.put(file, size);
+        totalBytes.addAndGet(size - (previous != null ? previous : 0));
+    }
+
+    private void remove(Path path) {
+        Long previous = fileSizes.remove(path);
+        if (previous != null) {
+            totalBytes.addAndGet(-previous);
+            return;
+        }
+        Iterator<Map.Entry<Path, long[]>> subtrees = scannedSubtrees.entrySet().iterator();
+        while (subtrees.hasNext()) {
+            Map.Entry<Path, long[]> entry = subtrees.next();
+            if (entry.getKey().startsWith(path)) {
+                totalBytes.addAndGet(-entry.getValue()[0]);
+                scannedFiles.addAndGet((int) -entry.getValue()[1]);
+                subtrees.remove();
+            }
+        }
+        Iterator<Map.Entry<Path, Long>> it = fileSizes.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Long> entry = it.next();
+            if (entry.getKey().startsWith(path)) {
+                totalBytes.addAndGet(-entry.getValue());
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class HubExecutors {
+    private static final Map<Thread, TaskInfo> ACTIVE_TASKS = new ConcurrentHashMap<>();
+
+    public static class TaskInfo {
+        private final String name;
+        private final long startTime;
+
+        TaskInfo(String name) {
+            this.name = name;
+            this.startTime = System.currentTimeMillis();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+    }
+
+    private HubExecutors() {
+    }
+
+    public static Thread start(String name, Runnable task) {
+        Thread thread = Thread.ofVirtual().name(name).unstarted(() -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Logger.error("Task " + name + " failed: " + t.getClass().getSimpleName() + " - " + t.getMessage(), "HubExecutors");
+            } finally {
+                ACTIVE_TASKS.remove(Thread.currentThread());
+            }
+        });
+        ACTIVE_TASKS.put(thread, new TaskInfo(name));
+        thread.start();
+        return thread;
+    }
+
+    public static int getActiveTaskCount() {
+        return ACTIVE_TASKS.size();
+    }
+
+    public static List<String> getActiveTaskNames() {
+        List<String> names = new ArrayList<>();
+        for (TaskInfo info : ACTIVE_TASKS.values()) {
+            names.add(info.getName());
+        }
+        names.sort(null);
+        return names;
+    }
+}
@@ -0,0 +1,217 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class HubScheduler {
+    private static final DelayQueue<Job> QUEUE = new DelayQueue<>();
+    private static final Map<Long, Job> JOBS = new ConcurrentHashMap<>();
+    private static final Set<String> PAUSED_OWNERS = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong JOB_IDS = new AtomicLong();
+    private static final Thread DISPATCHER;
+
+    static {
+        DISPATCHER = new Thread(HubScheduler::dispatchLoop, "msh-scheduler");
+        DISPATCHER.setDaemon(true);
+        DISPATCHER.start();
+    }
+
+    public static class Job implements Delayed {
+        private final long id;
+        private final String owner;
+        private final String name;
+        private final Runnable task;
+        private final boolean periodic;
+        private final AtomicBoolean running = new AtomicBoolean(false);
+        private volatile long intervalMillis;
+        private volatile long jitterMillis;
+        private volatile long nextFireTime;
+        private volatile long lastRunTime;
+        private volatile boolean cancelled;
+
+        Job(String owner, String name, Runnable task, boolean periodic, long intervalMillis, long jitterMillis) {
+            this.id = JOB_IDS.incrementAndGet();
+            this.owner = owner;
+            this.name = name;
+            this.task = task;
+            this.periodic = periodic;
+            this.intervalMillis = intervalMillis;
+            this.jitterMillis = jitterMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(nextFireTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            Job job = (Job) other;
+            int result = Long.compare(nextFireTime, job.nextFireTime);
+            return result != 0 ? result : Long.compare(id, job.id);
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isPeriodic() {
+            return periodic;
+        }
+
+        public long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        public long getNextFireTime() {
+            return nextFireTime;
+        }
+
+        public long getLastRunTime() {
+            return lastRunTime;
+        }
+
+        public boolean isRunning() {
+            return running.get();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isPaused() {
+            return owner != null && PAUSED_OWNERS.contains(owner);
+        }
+
+        public synchronized void setInterval(long intervalMillis, long jitterMillis) {
+            if (cancelled) {
+                return;
+            }
+            this.intervalMillis = Math.max(1, intervalMillis);
+            this.jitterMillis = Math.max(0, jitterMillis);
+            QUEUE.remove(this);
+            nextFireTime = System.currentTimeMillis() + this.intervalMillis + randomJitter(this.jitterMillis);
+            QUEUE.add(this);
+        }
+
+        public synchronized void cancel() {
+            cancelled = true;
+            QUEUE.remove(this);
+            JOBS.remove(id);
+        }
+
+        synchronized void reschedule(long delayMillis) {
+            if (cancelled) {
+                return;
+            }
+            QUEUE.remove(this);
+            nextFireTime = System.currentTimeMillis() + delayMillis;
+            QUEUE.add(this);
+        }
+    }
+
+    private HubScheduler() {
+    }
+
+    public static Job schedulePeriodic(String owner, String name, Runnable task, long initialDelayMillis, long intervalMillis, long jitterMillis) {
+        Job job = new Job(owner, name, task, true, Math.max(1, intervalMillis), Math.max(0, jitterMillis));
+        JOBS.put(job.id, job);
+        job.reschedule(Math.max(0, initialDelayMillis) + randomJitter(job.jitterMillis));
+        return job;
+    }
+
+    public static Job scheduleOnce(String owner, String name, Runnable task, long delayMillis) {
+        Job job = new Job(owner, name, task, false, 0, 0);
+        JOBS.put(job.id, job);
+        job.reschedule(Math.max(0, delayMillis));
+        return job;
+    }
+
+    public static void setOwnerPaused(String owner, boolean paused) {
+        if (owner == null) {
+            return;
+        }
+        if (paused) {
+            PAUSED_OWNERS.add(owner);
+        } else {
+            PAUSED_OWNERS.remove(owner);
+        }
+    }
+
+    public static boolean isOwnerPaused(String owner) {
+        return owner != null && PAUSED_OWNERS.contains(owner);
+    }
+
+    public static List<Job> getJobs(String owner) {
+        List<Job> result = new ArrayList<>();
+        for (Job job : JOBS.values()) {
+            if (owner == null || owner.equals(job.owner)) {
+                result.add(job);
+            }
+        }
+        result.sort(Comparator.comparingLong(Job::getNextFireTime));
+        return result;
+    }
+
+    public static void cancelOwner(String owner) {
+        for (Job job : getJobs(owner)) {
+            job.cancel();
+        }
+        PAUSED_OWNERS.remove(owner);
+    }
+
+    private static long randomJitter(long jitterMillis) {
+        return jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0;
+    }
+
+    private static void dispatchLoop() {
+        while (true) {
+            Job job;
+            try {
+                job = QUEUE.take();
+            } catch (InterruptedException e) {
+                Logger.warn("Scheduler dispatcher interrupted, continuing", "HubScheduler");
+                continue;
+            }
+            try {
+                fire(job);
+            } catch (Throwable t) {
+                Logger.error("Failed to dispatch scheduled job " + job.name + ": " + t.getMessage(), "HubScheduler");
+            }
+        }
+    }
+
+    private static void fire(Job job) {
+        if (job.cancelled) {
+            return;
+        }
+        if (!job.periodic) {
+            JOBS.remove(job.id);
+        }
+        if ((!job.periodic || !job.isPaused()) && job.running.compareAndSet(false, true)) {
+            job.lastRunTime = System.currentTimeMillis();
+            HubExecutors.start(job.name, () -> {
+                try {
+                    job.task.run();
+                } finally {
+                    job.running.set(false);
+                }
+            });
+        }
+        if (job.periodic) {
+            job.reschedule(job.intervalMillis + randomJitter(job.jitterMillis));
+        }
+    }
+}
@@ -0,0 +1,725 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class IncrementalBackupStore {
+    public static final String MANIFEST_SUFFIX = ".manifest.json";
+    public static final String CHUNK_DIR_NAME = "chunks";
+    public static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int MANIFEST_VERSION = 2;
+    private static final int REGION_CHUNKS = 1024;
+    private static final int REGION_SECTOR_SIZE = 4096;
+    private static final int REGION_HEADER_SIZE = REGION_CHUNKS * 8;
+    private static final int HASH_BYTES = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Map<String, ReentrantLock> STORE_LOCKS = new ConcurrentHashMap<>();
+
+    private final File backupDir;
+    private final File chunkDir;
+    private IoThrottle throttle = IoThrottle.UNLIMITED;
+
+    public static class Manifest {
+        public int version = MANIFEST_VERSION;
+        public String server;
+        public long createdAt;
+        public long totalSize;
+        public long storedSize;
+        public int chunkCount;
+        public int newChunkCount;
+        public int reusedRegionChunks;
+        public List<FileEntry> entries = new ArrayList<>();
+    }
+
+    public static class FileEntry {
+        public String path;
+        public boolean directory;
+        public long size;
+        public long lastModified;
+        public List<String> chunks;
+        public String regionHeader;
+        public String regionMap;
+    }
+
+    public static class GcResult {
+        private int liveChunks;
+        private int deletedChunks;
+        private long freedBytes;
+        private long storedBytes;
+
+        public int getLiveChunks() {
+            return liveChunks;
+        }
+
+        public int getDeletedChunks() {
+            return deletedChunks;
+        }
+
+        public long getFreedBytes() {
+            return freedBytes;
+        }
+
+        public long getStoredBytes() {
+            return storedBytes;
+        }
+    }
+
+    public static class RestoreResult {
+        private int restoredFiles;
+        private long restoredBytes;
+
+        public int getRestoredFiles() {
+            return restoredFiles;
+        }
+
+        public long getRestoredBytes() {
+            return restoredBytes;
+        }
+    }
+
+    public interface ProgressListener {
+        void onProgress(int done, int total, String path);
+    }
+
+    public IncrementalBackupStore(File backupDir) {
+        this.backupDir = backupDir;
+        this.chunkDir = new File(backupDir, CHUNK_DIR_NAME);
+    }
+
+    public void setThrottle(IoThrottle throttle) {
+        this.throttle = throttle != null ? throttle : IoThrottle.UNLIMITED;
+    }
+
+    public static boolean isManifest(String fileName) {
+        return fileName != null && fileName.toLowerCase().endsWith(MANIFEST_SUFFIX);
+    }
+
+    public static Manifest readManifest(File manifestFile) throws IOException {
+        String json = new String(Files.readAllBytes(manifestFile.toPath()), StandardCharsets.UTF_8);
+        try {
+            Manifest manifest = GSON.fromJson(json, Manifest.class);
+            if (manifest == null || manifest.entries == null) {
+                throw new IOException("Manifest is empty: " + manifestFile.getName());
+            }
+            return manifest;
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid manifest " + manifestFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    public Manifest createBackup(Path sourceDir, List<Path> paths, File manifestFile, ProgressListener listener) throws IOException {
+        ReentrantLock lock = storeLock();
+        lock.lock();
+        try {
+            return writeBackup(sourceDir, paths, manifestFile, listener);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public RestoreResult restore(File manifestFile, File destDir, ProgressListener listener) throws IOException {
+        ReentrantLock lock = storeLock();
+        lock.lock();
+        try {
+            return restoreFiles(manifestFile, destDir, listener);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public GcResult collectGarbage() throws IOException {
+        ReentrantLock lock = storeLock();
+        lock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            Set<String> live = collectLiveChunks();
+            GcResult result = new GcResult();
+            result.liveChunks = live.size();
+            File[] prefixes = chunkDir.listFiles(File::isDirectory);
+            if (prefixes != null) {
+                for (File prefix : prefixes) {
+                    File[] chunks = prefix.listFiles();
+                    if (chunks == null) {
+                        continue;
+                    }
+                    for (File chunk : chunks) {
+                        String name = chunk.getName();
+                        long length = chunk.length();
+                        boolean garbage = isValidHash(name) ? !live.contains(name)
+                            : name.endsWith(".tmp") && chunk.lastModified() < start;
+                        if (garbage && chunk.delete()) {
+                            result.deletedChunks++;
+                            result.freedBytes += length;
+                        } else {
+                            result.storedBytes += length;
+                        }
+                    }
+                }
+            }
+            Logger.info(String.format("Chunk GC for %s: %d live, %d deleted, %d bytes freed in %d ms",
+                backupDir.getName(), result.liveChunks, result.deletedChunks, result.freedBytes,
+                System.currentTimeMillis() - start), "IncrementalBackupStore");
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int verify(Manifest manifest, Set<String> verifiedChunks) throws IOException {
+        ReentrantLock lock = storeLock();
+        lock.lock();
+        try {
+            MessageDigest digest = newDigest();
+            int checked = 0;
+            for (FileEntry entry : manifest.entries) {
+                if (entry.directory) {
+                    continue;
+                }
+                try {
+                    if (entry.regionHeader != null && entry.regionMap != null) {
+                        checked += verifyChunk(entry.regionHeader, digest, verifiedChunks);
+                        byte[] map = readVerified(entry.regionMap, digest);
+                        if (verifiedChunks.add(entry.regionMap)) {
+                            checked++;
+                        }
+                        for (int i = 0; i < map.length / HASH_BYTES; i++) {
+                            if (!isZero(map, i)) {
+                                checked += verifyChunk(toHex(map, i * HASH_BYTES, HASH_BYTES), digest, verifiedChunks);
+                            }
+                        }
+                    } else if (entry.chunks != null) {
+                        long size = 0;
+                        for (String hash : entry.chunks) {
+                            checked += verifyChunk(hash, digest, verifiedChunks);
+                            size += chunkFile(hash).length();
+                        }
+                        if (size != entry.size) {
+                            throw new IOException("size mismatch, expected " + entry.size + " bytes but chunks hold " + size);
+                        }
+                    } else if (entry.size > 0) {
+                        throw new IOException("no data recorded");
+                    }
+                } catch (NoSuchFileException e) {
+                    throw new IOException(entry.path + ": missing chunk " + new File(e.getFile()).getName());
+                } catch (InterruptedIOException e) {
+                    throw e;
+                } catch (IOException e) {
+                    throw new IOException(entry.path + ": " + e.getMessage());
+                }
+            }
+            return checked;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int verifyChunk(String hash, MessageDigest digest, Set<String> verifiedChunks) throws IOException {
+        if (verifiedChunks.contains(hash)) {
+            return 0;
+        }
+        throttle.acquireBytes(chunkFile(hash).length());
+        readVerified(hash, digest);
+        verifiedChunks.add(hash);
+        return 1;
+    }
+
+    public long getStoredBytes() {
+        long total = 0;
+        File[] prefixes = chunkDir.listFiles(File::isDirectory);
+        if (prefixes == null) {
+            return 0;
+        }
+        for (File prefix : prefixes) {
+            File[] chunks = prefix.listFiles();
+            if (chunks != null) {
+                for (File chunk : chunks) {
+                    total += chunk.length();
+                }
+            }
+        }
+        return total;
+    }
+
+    private Set<String> collectLiveChunks() throws IOException {
+        Set<String> live = new HashSet<>();
+        Set<String> regionMaps = new HashSet<>();
+        File[] manifests = backupDir.listFiles((d, name) -> isManifest(name));
+        if (manifests != null) {
+            for (File manifestFile : manifests) {
+                for (FileEntry entry : readManifest(manifestFile).entries) {
+                    if (entry.chunks != null) {
+                        live.addAll(entry.chunks);
+                    }
+                    if (entry.regionHeader != null) {
+                        live.add(entry.regionHeader);
+                    }
+                    if (entry.regionMap != null && live.add(entry.regionMap)) {
+                        regionMaps.add(entry.regionMap);
+                    }
+                }
+            }
+        }
+        MessageDigest digest = newDigest();
+        for (String mapHash : regionMaps) {
+            byte[] map;
+            try {
+                map = readVerified(mapHash, digest);
+            } catch (IOException e) {
+                throw new IOException("Cannot read region map " + mapHash + ", garbage collection skipped: " + e.getMessage());
+            }
+            for (int i = 0; i < map.length / HASH_BYTES; i++) {
+                if (!isZero(map, i)) {
+                    live.add(toHex(map, i * HASH_BYTES, HASH_BYTES));
+                }
+            }
+        }
+        return live;
+    }
+
+    private ReentrantLock storeLock() {
+        return STORE_LOCKS.computeIfAbsent(chunkDir.getAbsoluteFile().toPath().normalize().toString(), k -> new ReentrantLock());
+    }
+
+    private Manifest writeBackup(Path sourceDir, List<Path> paths, File manifestFile, ProgressListener listener) throws IOException {
+        if (!chunkDir.exists() && !chunkDir.mkdirs()) {
+            throw new IOException("Failed to create chunk directory: " + chunkDir.getAbsolutePath());
+        }
+        Map<String, FileEntry> previous = loadPreviousEntries(manifestFile);
+        Manifest manifest = new Manifest();
+        manifest.server = backupDir.getName();
+        manifest.createdAt = System.currentTimeMillis();
+
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        int total = paths.size();
+        int done = 0;
+        for (Path path : paths) {
+            String relativePath = sourceDir.relativize(path).toString().replace("\\", "/");
+            FileEntry entry = new FileEntry();
+            entry.path = relativePath;
+            entry.lastModified = path.toFile().lastModified();
+            if (Files.isDirectory(path)) {
+                entry.directory = true;
+                manifest.entries.add(entry);
+            } else {
+                entry.size = path.toFile().length();
+                FileEntry old = previous.get(relativePath);
+                boolean unchanged = old != null && !old.directory && old.size == entry.size && old.lastModified == entry.lastModified;
+                if (unchanged && old.chunks != null && chunksExist(old.chunks)) {
+                    entry.chunks = old.chunks;
+                    manifest.chunkCount += old.chunks.size();
+                } else if (unchanged && old.regionMap != null && chunksExist(List.of(old.regionHeader, old.regionMap))) {
+                    entry.regionHeader = old.regionHeader;
+                    entry.regionMap = old.regionMap;
+                    manifest.chunkCount += 2;
+                } else {
+                    try {
+                        throttle.acquireFile();
+                        if (!isRegionFile(path) || !storeRegion(path, entry, old, digest, manifest)) {
+                            entry.regionHeader = null;
+                            entry.regionMap = null;
+                            entry.chunks = storeFile(path, digest, buffer, manifest);
+                        }
+                    } catch (InterruptedIOException e) {
+                        throw e;
+                    } catch (IOException e) {
+                        Logger.warn("Skipping unreadable file during incremental backup: " + relativePath + " - " + e.getMessage(), "IncrementalBackupStore");
+                        entry = null;
+                    }
+                }
+                if (entry != null) {
+                    manifest.totalSize += entry.size;
+                    manifest.entries.add(entry);
+                }
+            }
+            done++;
+            if (listener != null) {
+                listener.onProgress(done, total, relativePath);
+            }
+        }
+
+        writeAtomically(manifestFile.toPath(), GSON.toJson(manifest).getBytes(StandardCharsets.UTF_8));
+        return manifest;
+    }
+
+    private RestoreResult restoreFiles(File manifestFile, File destDir, ProgressListener listener) throws IOException {
+        Manifest manifest = readManifest(manifestFile);
+        String canonicalDestDir = destDir.getCanonicalPath();
+        for (FileEntry entry : manifest.entries) {
+            if (entry.directory) {
+                continue;
+            }
+            List<String> hashes = entry.regionMap != null ? List.of(entry.regionHeader, entry.regionMap) : entry.chunks;
+            if (hashes == null) {
+                throw new IOException("Manifest entry has no chunks: " + entry.path);
+            }
+            for (String hash : hashes) {
+                if (!isValidHash(hash)) {
+                    throw new IOException("Invalid chunk hash for " + entry.path);
+                }
+                if (!chunkFile(hash).isFile()) {
+                    throw new IOException("Missing chunk " + hash + " for " + entry.path);
+                }
+            }
+        }
+
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[131072];
+        RestoreResult result = new RestoreResult();
+        int total = manifest.entries.size();
+        int done = 0;
+        for (FileEntry entry : manifest.entries) {
+            done++;
+            if (!BackupRestorer.isSafeEntryName(entry.path)) {
+                Logger.warn("Skipping unsafe manifest entry: " + entry.path, "IncrementalBackupStore");
+                continue;
+            }
+            File target = new File(destDir, entry.path);
+            String canonicalTarget = target.getCanonicalPath();
+            if (!canonicalTarget.startsWith(canonicalDestDir + File.separator)) {
+                Logger.warn("Skipping manifest entry outside restore directory: " + entry.path, "IncrementalBackupStore");
+                continue;
+            }
+            if (entry.directory) {
+                target.mkdirs();
+            } else {
+                File parent = target.getParentFile();
+                if (parent != null) {
+                    parent.mkdirs();
+                }
+                if (entry.regionMap != null) {
+                    restoreRegion(entry, target, digest);
+                } else {
+                    try (OutputStream out = Files.newOutputStream(target.toPath())) {
+                        for (String hash : entry.chunks) {
+                            copyVerified(hash, out, digest, buffer);
+                        }
+                    }
+                }
+                if (entry.lastModified > 0) {
+                    target.setLastModified(entry.lastModified);
+                }
+                result.restoredFiles++;
+                result.restoredBytes += Files.size(target.toPath());
+            }
+            if (listener != null) {
+                listener.onProgress(done, total, entry.path);
+            }
+        }
+        return result;
+    }
+
+    public File chunkFile(String hash) {
+        return new File(new File(chunkDir, hash.substring(0, 2)), hash);
+    }
+
+    private List<String> storeFile(Path path, MessageDigest digest, ByteBuffer buffer, Manifest manifest) throws IOException {
+        List<String> hashes = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (true) {
+                buffer.clear();
+                fill(channel, buffer);
+                throttle.acquireBytes(buffer.position());
+                if (buffer.position() == 0 && !hashes.isEmpty()) {
+                    break;
+                }
+                hashes.add(storeObject(buffer.array(), buffer.position(), digest, manifest));
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private String storeObject(byte[] data, int length, MessageDigest digest, Manifest manifest) throws IOException {
+        digest.reset();
+        digest.update(data, 0, length);
+        String hash = toHex(digest.digest());
+        File chunk = chunkFile(hash);
+        if (!chunk.exists()) {
+            File parent = chunk.getParentFile();
+            if (!parent.exists() && !parent.mkdirs() && !parent.exists()) {
+                throw new IOException("Failed to create chunk directory: " + parent.getAbsolutePath());
+            }
+            throttle.acquireBytes(length);
+            writeAtomically(chunk.toPath(), Arrays.copyOf(data, length));
+            manifest.storedSize += length;
+            manifest.newChunkCount++;
+        }
+        manifest.chunkCount++;
+        return hash;
+    }
+
+    private boolean storeRegion(Path path, FileEntry entry, FileEntry old, MessageDigest digest, Manifest manifest) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < REGION_HEADER_SIZE) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(REGION_HEADER_SIZE);
+            fill(channel, header.position(0));
+            if (header.hasRemaining()) {
+                return false;
+            }
+            IntBuffer locations = header.duplicate().position(0).limit(REGION_CHUNKS * 4).slice().asIntBuffer();
+            IntBuffer timestamps = header.duplicate().position(REGION_CHUNKS * 4).limit(REGION_HEADER_SIZE).slice().asIntBuffer();
+            for (int i = 0; i < REGION_CHUNKS; i++) {
+                int location = locations.get(i);
+                long sectorOffset = location >>> 8;
+                int sectorCount = location & 0xFF;
+                if (location != 0 && (sectorOffset < 2 || sectorCount == 0
+                        || sectorOffset * REGION_SECTOR_SIZE + 4 > size)) {
+                    return false;
+                }
+            }
+
+            byte[] previousHeader = null;
+            byte[] previousMap = null;
+            if (old != null && old.regionHeader != null && old.regionMap != null) {
+                try {
+                    previousHeader = readVerified(old.regionHeader, digest);
+                    previousMap = readVerified(old.regionMap, digest);
+                } catch (IOException e) {
+                    previousHeader = null;
+                    previousMap = null;
+                }
+            }
+            IntBuffer previousLocations = previousHeader != null
+                ? ByteBuffer.wrap(previousHeader, 0, REGION_CHUNKS * 4).slice().asIntBuffer() : null;
+            IntBuffer previousTimestamps = previousHeader != null
+                ? ByteBuffer.wrap(previousHeader, REGION_CHUNKS * 4, REGION_CHUNKS * 4).slice().asIntBuffer() : null;
+
+            byte[] map = new byte[REGION_CHUNKS * HASH_BYTES];
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+            for (int i = 0; i < REGION_CHUNKS; i++) {
+                int location = locations.get(i);
+                if (location == 0) {
+                    continue;
+                }
+                if (previousLocations != null && previousLocations.get(i) == location
+                        && previousTimestamps.get(i) == timestamps.get(i) && !isZero(previousMap, i)
+                        && chunkFile(toHex(previousMap, i * HASH_BYTES, HASH_BYTES)).isFile()) {
+                    System.arraycopy(previousMap, i * HASH_BYTES, map, i * HASH_BYTES, HASH_BYTES);
+                    manifest.chunkCount++;
+                    manifest.reusedRegionChunks++;
+                    continue;
+                }
+                long position = (long) (location >>> 8) * REGION_SECTOR_SIZE;
+                lengthBuffer.clear();
+                while (lengthBuffer.hasRemaining()) {
+                    if (channel.read(lengthBuffer, position + lengthBuffer.position()) < 0) {
+                        return false;
+                    }
+                }
+                long payloadLength = 4L + (lengthBuffer.getInt(0) & 0xFFFFFFFFL);
+                long maxLength = Math.min((long) (location & 0xFF) * REGION_SECTOR_SIZE, size - position);
+                if (payloadLength > maxLength) {
+                    return false;
+                }
+                throttle.acquireBytes(payloadLength);
+                ByteBuffer payload = ByteBuffer.allocate((int) payloadLength);
+                while (payload.hasRemaining()) {
+                    if (channel.read(payload, position + payload.position()) < 0) {
+                        return false;
+                    }
+                }
+                String hash = storeObject(payload.array(), payload.capacity(), digest, manifest);
+                fromHex(hash, map, i * HASH_BYTES);
+            }
+            entry.regionHeader = storeObject(header.array(), REGION_HEADER_SIZE, digest, manifest);
+            entry.regionMap = storeObject(map, map.length, digest, manifest);
+            return true;
+        }
+    }
+
+    private void restoreRegion(FileEntry entry, File target, MessageDigest digest) throws IOException {
+        byte[] header = readVerified(entry.regionHeader, digest);
+        byte[] map = readVerified(entry.regionMap, digest);
+        if (header.length != REGION_HEADER_SIZE || map.length != REGION_CHUNKS * HASH_BYTES) {
+            throw new IOException("Invalid region index for " + entry.path);
+        }
+        IntBuffer locations = ByteBuffer.wrap(header, 0, REGION_CHUNKS * 4).slice().asIntBuffer();
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap(header), 0);
+            for (int i = 0; i < REGION_CHUNKS; i++) {
+                int location = locations.get(i);
+                if (location == 0 || isZero(map, i)) {
+                    continue;
+                }
+                byte[] payload = readVerified(toHex(map, i * HASH_BYTES, HASH_BYTES), digest);
+                writeFully(channel, ByteBuffer.wrap(payload), (long) (location >>> 8) * REGION_SECTOR_SIZE);
+            }
+            if (channel.size() < entry.size) {
+                writeFully(channel, ByteBuffer.allocate(1), entry.size - 1);
+            }
+            channel.truncate(entry.size);
+        }
+    }
+
+    private byte[] readVerified(String hash, MessageDigest digest) throws IOException {
+        if (!isValidHash(hash)) {
+            throw new IOException("Invalid chunk hash");
+        }
+        byte[] data = Files.readAllBytes(chunkFile(hash).toPath());
+        digest.reset();
+        if (!hash.equals(toHex(digest.digest(data)))) {
+            throw new IOException("Chunk checksum mismatch: " + hash);
+        }
+        return data;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static boolean isZero(byte[] map, int index) {
+        for (int i = index * HASH_BYTES, end = i + HASH_BYTES; i < end; i++) {
+            if (map[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isRegionFile(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".mca");
+    }
+
+    private static void fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return;
+            }
+        }
+    }
+
+    private void copyVerified(String hash, OutputStream out, MessageDigest digest, byte[] buffer) throws IOException {
+        digest.reset();
+        try (InputStream in = Files.newInputStream(chunkFile(hash).toPath())) {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, len);
+                out.write(buffer, 0, len);
+            }
+        }
+        if (!hash.equals(toHex(digest.digest()))) {
+            throw new IOException("Chunk checksum mismatch: " + hash);
+        }
+    }
+
+    private Map<String, FileEntry> loadPreviousEntries(File exclude) {
+        Map<String, FileEntry> entries = new HashMap<>();
+        File[] manifests = backupDir.listFiles((d, name) -> isManifest(name));
+        if (manifests == null || manifests.length == 0) {
+            return entries;
+        }
+        File latest = null;
+        for (File file : manifests) {
+            if (!file.equals(exclude) && (latest == null || file.lastModified() > latest.lastModified())) {
+                latest = file;
+            }
+        }
+        if (latest == null) {
+            return entries;
+        }
+        try {
+            for (FileEntry entry : readManifest(latest).entries) {
+                if (entry.path != null) {
+                    entries.put(entry.path, entry);
+                }
+            }
+        } catch (IOException e) {
+            Logger.warn("Ignoring unreadable previous manifest " + latest.getName() + ": " + e.getMessage(), "IncrementalBackupStore");
+        }
+        return entries;
+    }
+
+    private boolean chunksExist(List<String> hashes) {
+        Set<String> checked = new HashSet<>();
+        for (String hash : hashes) {
+            if (checked.add(hash) && !chunkFile(hash).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeAtomically(Path target, byte[] data) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, data);
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean isValidHash(String hash) {
+        if (hash == null || hash.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < hash.length(); i++) {
+            char c = hash.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        return toHex(bytes, 0, bytes.length);
+    }
+
+    private static String toHex(byte[] bytes, int offset, int length) {
+        char[] chars = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            chars[i * 2] = HEX[(bytes[offset + i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[offset + i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static void fromHex(String hash, byte[] target, int offset) {
+        for (int i = 0; i < HASH_BYTES; i++) {
+            target[offset + i] = (byte) Integer.parseInt(hash.substring(i * 2, i * 2 + 2), 16);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+public class IoThrottle {
+    public static final IoThrottle UNLIMITED = new IoThrottle(0, 0, false);
+    private static final long MIN_ADAPTIVE_BYTES_PER_SECOND = 1024L * 1024L;
+    private static final long LAG_HOLD_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long RECOVERY_STEP_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final double RECOVERY_FACTOR = 1.5;
+
+    private final long bytesPerSecond;
+    private final int filesPerSecond;
+    private final boolean adaptive;
+    private final Bucket byteBucket = new Bucket();
+    private final Bucket fileBucket = new Bucket();
+    private final long startNanos = System.nanoTime();
+    private long totalBytes;
+    private long adaptiveLimit;
+    private long lastRecoveryNanos;
+    private int lagEvents;
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        synchronized long reserve(double permits, double rate) {
+            long now = System.nanoTime();
+            tokens = Math.min(rate, tokens + (now - lastRefill) * rate / 1e9);
+            lastRefill = now;
+            tokens -= permits;
+            return tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+        }
+    }
+
+    public IoThrottle(long bytesPerSecond, int filesPerSecond, boolean adaptive) {
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        this.filesPerSecond = Math.max(0, filesPerSecond);
+        this.adaptive = adaptive;
+    }
+
+    public boolean isUnlimited() {
+        return bytesPerSecond == 0 && filesPerSecond == 0 && !adaptive;
+    }
+
+    public synchronized int getLagEvents() {
+        return lagEvents;
+    }
+
+    public synchronized long getEffectiveBytesPerSecond() {
+        recover(System.nanoTime());
+        if (adaptiveLimit > 0) {
+            return bytesPerSecond > 0 ? Math.min(bytesPerSecond, adaptiveLimit) : adaptiveLimit;
+        }
+        return bytesPerSecond;
+    }
+
+    public void acquireBytes(long bytes) throws InterruptedIOException {
+        if (bytes <= 0 || this == UNLIMITED) {
+            return;
+        }
+        synchronized (this) {
+            totalBytes += bytes;
+        }
+        long rate = getEffectiveBytesPerSecond();
+        if (rate > 0) {
+            pause(byteBucket.reserve(bytes, rate));
+        }
+    }
+
+    public void acquireFile() throws InterruptedIOException {
+        if (filesPerSecond > 0) {
+            pause(fileBucket.reserve(1, filesPerSecond));
+        }
+    }
+
+    public synchronized void onServerLag() {
+        if (!adaptive) {
+            return;
+        }
+        long now = System.nanoTime();
+        lagEvents++;
+        long current = getEffectiveBytesPerSecond();
+        if (current == 0) {
+            current = averageRate(now);
+        }
+        adaptiveLimit = Math.max(MIN_ADAPTIVE_BYTES_PER_SECOND, current / 2);
+        lastRecoveryNanos = now + LAG_HOLD_NANOS;
+        Logger.info("Server reported lag, backup I/O limited to " + adaptiveLimit / 1024 + " KB/s", "IoThrottle");
+    }
+
+    private void recover(long now) {
+        while (adaptiveLimit > 0 && now - lastRecoveryNanos >= RECOVERY_STEP_NANOS) {
+            lastRecoveryNanos += RECOVERY_STEP_NANOS;
+            adaptiveLimit = (long) (adaptiveLimit * RECOVERY_FACTOR);
+            long ceiling = bytesPerSecond > 0 ? bytesPerSecond : averageRate(now) * 4;
+            if (adaptiveLimit >= ceiling) {
+                adaptiveLimit = 0;
+            }
+        }
+    }
+
+    private long averageRate(long now) {
+        double seconds = Math.max(1.0, (now - startNanos) / 1e9);
+        return (long) (totalBytes / seconds);
+    }
+
+    private static void pause(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Backup interrupted while throttled");
+        }
+    }
+}
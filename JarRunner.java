@@ -1,11 +1,17 @@
 import java.io.*;
 import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.zip.Deflater;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
@@ -27,28 +33,28 @@ public class JarRunner {
     private void safeAppend(String message) {
         if (outputPanel == null || message == null) return;
         try {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    outputPanel.append(message);
-                } catch (Exception e) {
-                    Logger.warn("Failed to append message to output panel: " + e.getMessage(), "JarRunner");
-                }
-            });
+            outputPanel.append(message);
         } catch (Exception e) {
+            Logger.warn("Failed to append message to output panel: " + e.getMessage(), "JarRunner");
         }
     }
     
     public enum Status {
         STOPPED, RUNNING, STARTING, STOPPING
     }
+    
+    public static final long STOP_TIMEOUT_MILLIS = 5000;
+    public static final long SHUTDOWN_GRACE_MILLIS = 30000;
+    private static final long FORCE_STOP_TIMEOUT_MILLIS = 5000;
+    private static final long RESTART_DELAY_MILLIS = 1000;
     private String jarPath;
     private String customName;
     private ColorOutputPanel outputPanel;
     private Process process;
     private Thread stdoutThread;
     private Thread stderrThread;
-    private Thread processMonitorThread;
-    private volatile Status status;
+    private CompletableFuture<Void> processMonitor;
+    private final ServerLifecycle lifecycle;
     private OutputStream processInput;
     private PrintWriter commandWriter;
     private GameRuleCallback gameRuleCallback;
@@ -59,8 +65,7 @@ public class JarRunner {
     private int restartInterval;
     private AtomicInteger currentHourlyAttempts;
     private volatile long lastRestartTimestamp;
-    private Thread hourlyResetThread;
-    private volatile boolean isNormalStop = false;
+    private HubScheduler.Job hourlyResetJob;
     private List<String> commandHistory = new ArrayList<>();
     private int historyIndex = -1;
     private static final int MAX_HISTORY_SIZE = 50;
@@ -69,33 +74,58 @@ public class JarRunner {
     private int backupIntervalMinutes;
     private int maxBackupCount;
     private int autoDeleteDays;
-    private Thread backupTimerThread;
+    private int keepHourlyBackups;
+    private int keepDailyBackups;
+    private int keepWeeklyBackups;
+    private int keepMonthlyBackups;
+    private int backupQuotaMB;
+    private boolean verifyAfterBackup = true;
+    private boolean verifyTestRestore;
+    private boolean scrubEnabled;
+    private int scrubHour = 4;
+    private HubScheduler.Job scrubJob;
+    private final AtomicBoolean verifying = new AtomicBoolean(false);
+    private String backupMode = BACKUP_MODE_ZIP;
+    private int backupMemoryLimitMB = BackupZipWriter.DEFAULT_MEMORY_LIMIT_MB;
+    private int backupCompressionLevel = BackupZipWriter.DEFAULT_LEVEL;
+    private boolean snapshotBackupEnabled = true;
+    private boolean snapshotFullCopy;
+    private int backupRateLimitKBps;
+    private int backupFilesPerSecond;
+    private boolean backupLowPriority;
+    private boolean backupAdaptiveThrottle = true;
+    private volatile BackupExcludeRules backupExcludeRules = BackupExcludeRules.defaults();
+    private volatile BackupTarget backupTarget = LocalBackupTarget.defaultTarget();
+    private volatile IoThrottle activeBackupThrottle;
+    private DiskUsageIndex diskUsageIndex;
+    private volatile CompletableFuture<Void> worldSaveFuture;
+    private HubScheduler.Job backupTimerJob;
     private volatile boolean stopBackupTimer;
     private BackupCallback backupCallback;
     private volatile long lastBackupTime;
     private volatile boolean isBackingUp = false;
     private boolean useNoGui;
-    private String serverVersion;
+    private volatile LaunchProfile launchProfile = LaunchProfile.defaults();
+    private volatile String serverVersion;
+    private volatile java.util.function.Consumer<String> serverVersionListener;
     private String lastError;
     private volatile boolean outputHandlerStopped = false;
     private volatile long lastAccessTime;
-    private Thread lockMonitorThread;
+    private HubScheduler.Job lockMonitorJob;
     private volatile boolean stopLockMonitor;
     private static final long LOCK_DETECTION_INTERVAL = 30000;
+    private static final long MAX_BACKUP_JITTER_MILLIS = 5 * 60 * 1000;
+    private static final long SAVE_WAIT_TIMEOUT_SECONDS = 60;
     private static final long IDLE_THRESHOLD = 600000;
     private volatile boolean lockDialogShown = false;
-    private volatile boolean pendingRestart = false;
-    private volatile boolean userForceStop = false;
-    private volatile boolean eulaExit = false;
     private volatile boolean isCleaning = false;
-    private volatile boolean hasFullyStarted = false;
     private final Object stateLock = new Object();
     
     public JarRunner(String jarPath, ColorOutputPanel outputPanel) {
         this.jarPath = jarPath;
         this.customName = null;
         this.outputPanel = outputPanel;
-        this.status = Status.STOPPED;
+        this.lifecycle = new ServerLifecycle(jarPath);
         this.autoRestartEnabled = false;
         this.forceKeepAlive = false;
         this.maxHourlyAttempts = 3;
@@ -117,47 +147,29 @@ public class JarRunner {
     }
 
     private void startHourlyResetThread() {
-        hourlyResetThread = new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-                    Thread.sleep(60000);
-                    long now = System.currentTimeMillis();
-                    if (lastRestartTimestamp > 0 && now - lastRestartTimestamp >= 3600000) {
-                        int oldValue = currentHourlyAttempts.getAndSet(0);
-                        if (oldValue > 0) {
-                            Logger.info("Hourly restart counter has been reset", "JarRunner");
-                            safeAppend("[MSH] Hourly restart counter has been reset\n");
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    break;
+        hourlyResetJob = HubScheduler.schedulePeriodic(jarPath, "hourly-reset-" + jarPath, () -> {
+            long now = System.currentTimeMillis();
+            if (lastRestartTimestamp > 0 && now - lastRestartTimestamp >= 3600000) {
+                int oldValue = currentHourlyAttempts.getAndSet(0);
+                if (oldValue > 0) {
+                    Logger.info("Hourly restart counter has been reset", "JarRunner");
+                    safeAppend("[MSH] Hourly restart counter has been reset\n");
                 }
             }
-        });
-        hourlyResetThread.setDaemon(true);
-        hourlyResetThread.start();
+        }, 60000, 60000, 5000);
     }
 
     private void startLockMonitorThread() {
         stopLockMonitor = false;
-        lockMonitorThread = new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted() && !stopLockMonitor) {
-                try {
-                    Thread.sleep(LOCK_DETECTION_INTERVAL);
-                    if (stopLockMonitor) break;
-                    checkFileLockStatus();
-                } catch (InterruptedException e) {
-                    break;
-                }
+        lockMonitorJob = HubScheduler.schedulePeriodic(jarPath, "lock-monitor-" + jarPath, () -> {
+            if (!stopLockMonitor) {
+                checkFileLockStatus();
             }
-        });
-        lockMonitorThread.setDaemon(true);
-        lockMonitorThread.setName("lock-monitor-" + jarPath);
-        lockMonitorThread.start();
+        }, LOCK_DETECTION_INTERVAL, LOCK_DETECTION_INTERVAL, LOCK_DETECTION_INTERVAL / 10);
     }
 
     private void checkFileLockStatus() {
-        if (status != Status.RUNNING && status != Status.STARTING) {
+        if (getStatus() != Status.RUNNING && getStatus() != Status.STARTING) {
             lastAccessTime = System.currentTimeMillis();
             return;
         }
@@ -226,7 +238,7 @@ public class JarRunner {
         try (FileInputStream fis = new FileInputStream(jarFile)) {
             return false;
         } catch (IOException e) {
-            return isFileLocked(e);
+            return BackupZipWriter.isFileLocked(e);
         }
     }
 
@@ -242,22 +254,40 @@ public class JarRunner {
     }
 
     public void cleanup() {
-        if (hourlyResetThread != null) {
-            hourlyResetThread.interrupt();
+        if (hourlyResetJob != null) {
+            hourlyResetJob.cancel();
+            hourlyResetJob = null;
         }
         stopLockMonitorThread();
         stopBackupTimerThread();
+        synchronized (this) {
+            if (scrubJob != null) {
+                scrubJob.cancel();
+                scrubJob = null;
+            }
+            if (diskUsageIndex != null) {
+                diskUsageIndex.close();
+                diskUsageIndex = null;
+            }
+        }
+    }
+    
+    public synchronized DiskUsageIndex getDiskUsageIndex() {
+        if (diskUsageIndex == null) {
+            File serverDir = new File(jarPath).getAbsoluteFile().getParentFile();
+            if (serverDir == null) {
+                return null;
+            }
+            diskUsageIndex = DiskUsageIndex.acquire(serverDir.toPath(), backupExcludeRules);
+        }
+        return diskUsageIndex;
     }
 
     private void stopLockMonitorThread() {
         stopLockMonitor = true;
-        if (lockMonitorThread != null && lockMonitorThread.isAlive()) {
-            lockMonitorThread.interrupt();
-            try {
-                lockMonitorThread.join(5000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+        if (lockMonitorJob != null) {
+            lockMonitorJob.cancel();
+            lockMonitorJob = null;
         }
     }
     
@@ -279,9 +309,19 @@ public class JarRunner {
     }
     
     public void setBackupIntervalMinutes(int minutes) {
-        this.backupIntervalMinutes = Math.max(1, minutes);
-        if (backupEnabled) {
-            stopBackupTimerThread();
+        int newInterval = Math.max(1, minutes);
+        boolean changed = newInterval != backupIntervalMinutes;
+        this.backupIntervalMinutes = newInterval;
+        if (!backupEnabled) {
+            return;
+        }
+        HubScheduler.Job job = backupTimerJob;
+        if (job != null && !job.isCancelled()) {
+            if (changed) {
+                long intervalMillis = newInterval * 60L * 1000L;
+                job.setInterval(intervalMillis, getBackupJitterMillis(intervalMillis));
+            }
+        } else {
             startBackupTimerThread();
         }
     }
@@ -301,6 +341,279 @@ public class JarRunner {
     public void setAutoDeleteDays(int days) {
         this.autoDeleteDays = Math.max(0, days);
     }
+
+    public int getKeepHourlyBackups() {
+        return keepHourlyBackups;
+    }
+
+    public void setKeepHourlyBackups(int count) {
+        this.keepHourlyBackups = Math.max(0, count);
+    }
+
+    public int getKeepDailyBackups() {
+        return keepDailyBackups;
+    }
+
+    public void setKeepDailyBackups(int count) {
+        this.keepDailyBackups = Math.max(0, count);
+    }
+
+    public int getKeepWeeklyBackups() {
+        return keepWeeklyBackups;
+    }
+
+    public void setKeepWeeklyBackups(int count) {
+        this.keepWeeklyBackups = Math.max(0, count);
+    }
+
+    public int getKeepMonthlyBackups() {
+        return keepMonthlyBackups;
+    }
+
+    public void setKeepMonthlyBackups(int count) {
+        this.keepMonthlyBackups = Math.max(0, count);
+    }
+
+    public int getBackupQuotaMB() {
+        return backupQuotaMB;
+    }
+
+    public void setBackupQuotaMB(int quotaMB) {
+        this.backupQuotaMB = Math.max(0, quotaMB);
+    }
+
+    public boolean isVerifyAfterBackup() {
+        return verifyAfterBackup;
+    }
+
+    public void setVerifyAfterBackup(boolean verifyAfterBackup) {
+        this.verifyAfterBackup = verifyAfterBackup;
+    }
+
+    public boolean isVerifyTestRestore() {
+        return verifyTestRestore;
+    }
+
+    public void setVerifyTestRestore(boolean testRestore) {
+        this.verifyTestRestore = testRestore;
+    }
+
+    public boolean isScrubEnabled() {
+        return scrubEnabled;
+    }
+
+    public int getScrubHour() {
+        return scrubHour;
+    }
+
+    public boolean isVerifying() {
+        return verifying.get();
+    }
+
+    public synchronized void setBackupScrub(boolean enabled, int hour) {
+        this.scrubEnabled = enabled;
+        this.scrubHour = Math.max(0, Math.min(23, hour));
+        if (scrubJob != null) {
+            scrubJob.cancel();
+            scrubJob = null;
+        }
+        if (!enabled) {
+            return;
+        }
+        java.time.LocalDateTime now = java.time.LocalDateTime.now();
+        java.time.LocalDateTime next = now.toLocalDate().atTime(this.scrubHour, 0);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        long delayMillis = java.time.Duration.between(now, next).toMillis();
+        scrubJob = HubScheduler.schedulePeriodic(jarPath, "backup-scrub-" + jarPath, this::scrubBackups,
+            delayMillis, TimeUnit.DAYS.toMillis(1), 0);
+    }
+
+    public void scrubBackups() {
+        File backupDir = getBackupDir();
+        if (!backupDir.isDirectory()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>();
+        for (BackupCatalog.Entry entry : BackupCatalog.forDirectory(backupDir).list(null, "time")) {
+            ids.add(entry.id);
+        }
+        verifyBackups(backupDir, ids);
+    }
+
+    private void verifyBackups(File backupDir, List<String> ids) {
+        if (ids.isEmpty() || !verifying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            BackupCatalog catalog = BackupCatalog.forDirectory(backupDir);
+            BackupVerifier verifier = new BackupVerifier();
+            verifier.setThrottle(getStatus() == Status.RUNNING
+                ? new IoThrottle(backupRateLimitKBps * 1024L, backupFilesPerSecond, false)
+                : IoThrottle.UNLIMITED);
+            verifier.setTestRestore(verifyTestRestore);
+            verifier.setTarget(backupTarget);
+            int verified = 0;
+            int incomplete = 0;
+            int corrupt = 0;
+            for (String id : ids) {
+                BackupCatalog.Entry entry = catalog.get(id);
+                if (entry == null) {
+                    continue;
+                }
+                BackupVerifier.Result result = verifier.verify(backupDir, entry);
+                if (catalog.get(id) == null) {
+                    continue;
+                }
+                catalog.markVerified(id, result.getStatus(), result.getMessage());
+                if (result.isVerified()) {
+                    verified++;
+                    Logger.info(String.format("Verified backup %s: %s in %d ms", id, result.getMessage(), result.getElapsedMillis()), "JarRunner");
+                } else if (BackupVerifier.STATUS_INCOMPLETE.equals(result.getStatus())) {
+                    incomplete++;
+                    safeAppend("[MSH] 备份不完整: " + id + " - " + result.getMessage() + "\n");
+                    Logger.warn("Backup " + id + " is incomplete: " + result.getMessage(), "JarRunner");
+                } else {
+                    corrupt++;
+                    safeAppend("[MSH] 备份已损坏: " + id + " - " + result.getMessage() + "\n");
+                    Logger.error("Backup " + id + " is corrupt: " + result.getMessage(), "JarRunner");
+                }
+            }
+            safeAppend(String.format("[MSH] 备份校验完成: %d 个正常, %d 个不完整, %d 个损坏\n", verified, incomplete, corrupt));
+        } catch (IOException e) {
+            Logger.error("Backup verification failed for " + jarPath + ": " + e.getMessage(), "JarRunner");
+        } finally {
+            verifying.set(false);
+        }
+    }
+
+    public void applyBackupRetention() {
+        File backupDir = getBackupDir();
+        if (!backupDir.isDirectory()) {
+            return;
+        }
+        BackupRetention.Policy policy = new BackupRetention.Policy();
+        policy.maxCount = maxBackupCount;
+        policy.maxAgeDays = autoDeleteDays;
+        policy.keepHourly = keepHourlyBackups;
+        policy.keepDaily = keepDailyBackups;
+        policy.keepWeekly = keepWeeklyBackups;
+        policy.keepMonthly = keepMonthlyBackups;
+        policy.quotaBytes = backupQuotaMB * 1024L * 1024L;
+        try {
+            BackupRetention.Result result = BackupRetention.enforce(backupDir, policy, backupTarget);
+            BackupRetention.Result hubResult = BackupRetention.enforceHubQuota(backupDir.getParentFile());
+            int deleted = result.getDeleted().size() + hubResult.getDeleted().size();
+            if (deleted > 0) {
+                safeAppend(String.format("[MSH] 保留策略清理了 %d 个旧备份, 回收 %d 个数据块, 释放 %s\n", deleted,
+                    result.getCollectedChunks() + hubResult.getCollectedChunks(),
+                    formatSize(result.getFreedBytes() + hubResult.getFreedBytes())));
+            }
+        } catch (IOException e) {
+            Logger.error("Backup retention failed for " + jarPath + ": " + e.getMessage(), "JarRunner");
+        }
+    }
+    
+    public String getBackupMode() {
+        return backupMode;
+    }
+    
+    public void setBackupMode(String mode) {
+        this.backupMode = BACKUP_MODE_INCREMENTAL.equals(mode) ? BACKUP_MODE_INCREMENTAL : BACKUP_MODE_ZIP;
+    }
+    
+    public int getBackupMemoryLimitMB() {
+        return backupMemoryLimitMB;
+    }
+    
+    public void setBackupMemoryLimitMB(int memoryLimitMB) {
+        this.backupMemoryLimitMB = Math.max(BackupZipWriter.MIN_MEMORY_LIMIT_MB, memoryLimitMB);
+    }
+    
+    public int getBackupCompressionLevel() {
+        return backupCompressionLevel;
+    }
+    
+    public void setBackupCompressionLevel(int level) {
+        this.backupCompressionLevel = Math.max(0, Math.min(9, level));
+    }
+    
+    public int getBackupRateLimitKBps() {
+        return backupRateLimitKBps;
+    }
+    
+    public void setBackupRateLimitKBps(int rateLimitKBps) {
+        this.backupRateLimitKBps = Math.max(0, rateLimitKBps);
+    }
+    
+    public int getBackupFilesPerSecond() {
+        return backupFilesPerSecond;
+    }
+    
+    public void setBackupFilesPerSecond(int filesPerSecond) {
+        this.backupFilesPerSecond = Math.max(0, filesPerSecond);
+    }
+    
+    public boolean isBackupLowPriority() {
+        return backupLowPriority;
+    }
+    
+    public void setBackupLowPriority(boolean lowPriority) {
+        this.backupLowPriority = lowPriority;
+    }
+    
+    public boolean isBackupAdaptiveThrottle() {
+        return backupAdaptiveThrottle;
+    }
+    
+    public void setBackupAdaptiveThrottle(boolean adaptive) {
+        this.backupAdaptiveThrottle = adaptive;
+    }
+
+    public BackupExcludeRules getBackupExcludeRules() {
+        return backupExcludeRules;
+    }
+
+    public synchronized void setBackupExcludeRules(BackupExcludeRules rules) {
+        this.backupExcludeRules = rules != null ? rules : BackupExcludeRules.defaults();
+        if (diskUsageIndex != null) {
+            diskUsageIndex.setExclusion(backupExcludeRules);
+        }
+    }
+
+    public BackupTarget getBackupTarget() {
+        return backupTarget;
+    }
+
+    public void setBackupTarget(BackupTarget target) {
+        this.backupTarget = target != null ? target : LocalBackupTarget.defaultTarget();
+    }
+
+    public File getBackupDir() {
+        return backupTarget.getLocalDirectory(sanitizeFileName(new File(jarPath).getName()));
+    }
+
+    private DirectoryScanner.Exclusion backupScanExclusion(Path serverDir) {
+        BackupExcludeRules rules = backupExcludeRules;
+        Path backupRoot = getBackupDir().getAbsoluteFile().toPath().normalize().getParent();
+        Path root = serverDir.toAbsolutePath().normalize();
+        if (backupRoot == null || !backupRoot.startsWith(root) || backupRoot.equals(root)) {
+            return rules;
+        }
+        String excluded = root.relativize(backupRoot).toString().replace('\\', '/').toLowerCase();
+        return (relativePath, directory) -> {
+            String path = relativePath.toLowerCase();
+            return path.equals(excluded) || path.startsWith(excluded + "/") || rules.isExcluded(relativePath, directory);
+        };
+    }
+
+    public void onServerLagging() {
+        IoThrottle throttle = activeBackupThrottle;
+        if (throttle != null) {
+            throttle.onServerLag();
+        }
+    }
     
     public void setBackupCallback(BackupCallback callback) {
         this.backupCallback = callback;
@@ -308,36 +621,43 @@ public class JarRunner {
     
     private void startBackupTimerThread() {
         stopBackupTimer = false;
-        if (backupTimerThread != null && backupTimerThread.isAlive()) {
+        if (backupTimerJob != null && !backupTimerJob.isCancelled()) {
             return;
         }
-        backupTimerThread = new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted() && !stopBackupTimer) {
-                try {
-                    Thread.sleep(backupIntervalMinutes * 60 * 1000);
-                    if (stopBackupTimer) break;
-                    if (status == JarRunner.Status.RUNNING) {
-                        performBackup();
-                    }
-                } catch (InterruptedException e) {
-                    break;
-                }
+        long intervalMillis = backupIntervalMinutes * 60L * 1000L;
+        backupTimerJob = HubScheduler.schedulePeriodic(jarPath, "backup-timer-" + jarPath, () -> {
+            if (!stopBackupTimer && getStatus() == JarRunner.Status.RUNNING) {
+                performBackup();
             }
-        });
-        backupTimerThread.setDaemon(true);
-        backupTimerThread.setName("backup-timer-" + jarPath);
-        backupTimerThread.start();
+        }, intervalMillis, intervalMillis, getBackupJitterMillis(intervalMillis));
+    }
+    
+    private static long getBackupJitterMillis(long intervalMillis) {
+        return Math.min(intervalMillis / 10, MAX_BACKUP_JITTER_MILLIS);
+    }
+    
+    public long getNextBackupTime() {
+        HubScheduler.Job job = backupTimerJob;
+        return job != null && !job.isCancelled() ? job.getNextFireTime() : 0;
+    }
+    
+    public List<HubScheduler.Job> getScheduledJobs() {
+        return HubScheduler.getJobs(jarPath);
+    }
+    
+    public boolean isScheduledJobsPaused() {
+        return HubScheduler.isOwnerPaused(jarPath);
+    }
+    
+    public void setScheduledJobsPaused(boolean paused) {
+        HubScheduler.setOwnerPaused(jarPath, paused);
     }
     
     public void stopBackupTimerThread() {
         stopBackupTimer = true;
-        if (backupTimerThread != null && backupTimerThread.isAlive()) {
-            backupTimerThread.interrupt();
-            try {
-                backupTimerThread.join(5000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+        if (backupTimerJob != null) {
+            backupTimerJob.cancel();
+            backupTimerJob = null;
         }
     }
     
@@ -371,7 +691,8 @@ public class JarRunner {
             }
             
             String safeServerName = sanitizeFileName(jarFile.getName());
-            File backupDir = new File("MSH/backup", safeServerName);
+            BackupTarget target = backupTarget;
+            File backupDir = target.getLocalDirectory(safeServerName);
             if (!backupDir.exists()) {
                 if (!backupDir.mkdirs()) {
                     isBackingUp = false;
@@ -384,27 +705,93 @@ public class JarRunner {
                 }
             }
             
-            String dateStr = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date());
-            String timeStr = new java.text.SimpleDateFormat("HH-mm-ss").format(new java.util.Date());
-            String sizeInfo = getServerDirSize(serverDir);
-            String zipName = safeServerName + "_backup_" + dateStr + "_" + timeStr + "_" + sizeInfo + ".zip";
-            File zipFile = new File(backupDir, zipName);
+            java.util.Date startDate = new java.util.Date();
+            String dateStr = new java.text.SimpleDateFormat("yyyy-MM-dd").format(startDate);
+            String timeStr = new java.text.SimpleDateFormat("HH-mm-ss").format(startDate);
+            boolean incremental = BACKUP_MODE_INCREMENTAL.equals(backupMode);
             
-            safeAppend("[MSH] 正在创建备份...\n");
-            Logger.info("Starting backup for server: " + jarPath, "JarRunner");
+            safeAppend(incremental ? "[MSH] 正在创建增量备份...\n" : "[MSH] 正在创建备份...\n");
+            if (incremental && target.isRemote()) {
+                safeAppend("[MSH] 增量备份依赖本地数据块仓库，将保存在本地: " + backupDir.getAbsolutePath() + "\n");
+            }
+            Logger.info("Starting " + backupMode + " backup for server: " + jarPath, "JarRunner");
             
-            Thread backupThread = new Thread(() -> {
+            HubExecutors.start("backup-thread-" + safeServerName, () -> {
+                BackupSnapshot snapshot = null;
+                long savesPausedAt = 0;
                 try {
-                    zipDirectory(serverDir.toPath(), zipFile.toPath());
+                    Path sourceDir;
+                    List<Path> paths;
+                    long sourceBytes;
+                    Path stagingDir = serverDir.toPath().resolve(BackupSnapshot.STAGING_DIR_NAME);
+                    boolean snapshotRequested = snapshotBackupEnabled && getStatus() == Status.RUNNING;
+                    boolean clone = snapshotRequested && BackupSnapshot.supportsClone(stagingDir);
+                    if (snapshotRequested && (clone || snapshotFullCopy)) {
+                        if (!clone) {
+                            safeAppend("[MSH] 文件系统不支持克隆，将完整复制世界到临时目录\n");
+                        }
+                        snapshot = takeSnapshot(serverDir.toPath(), stagingDir, clone);
+                        sourceDir = snapshot.getRoot();
+                        paths = snapshot.getPaths();
+                        sourceBytes = snapshot.getCopiedBytes();
+                    } else {
+                        if (snapshotRequested) {
+                            safeAppend("[MSH] 文件系统不支持克隆，备份期间将暂停自动保存\n");
+                            Logger.info("Reflink unavailable in " + serverDir + ", backing up live files with saves paused", "JarRunner");
+                            savesPausedAt = pauseWorldSaves();
+                        }
+                        DirectoryScanner.Result scan = DirectoryScanner.scan(serverDir.toPath(), backupScanExclusion(serverDir.toPath()));
+                        sourceDir = serverDir.toPath();
+                        paths = scan.getPaths();
+                        sourceBytes = scan.getTotalBytes();
+                    }
+                    String zipName = safeServerName + "_backup_" + dateStr + "_" + timeStr + "_" + formatSize(sourceBytes)
+                        + (incremental ? IncrementalBackupStore.MANIFEST_SUFFIX : ".zip");
+                    File zipFile = new File(backupDir, zipName);
+                    IoThrottle throttle = getStatus() == Status.RUNNING
+                        ? new IoThrottle(backupRateLimitKBps * 1024L, backupFilesPerSecond, backupAdaptiveThrottle)
+                        : IoThrottle.UNLIMITED;
+                    activeBackupThrottle = throttle;
+                    BackupCatalog.Entry catalogEntry = null;
+                    if (incremental) {
+                        IncrementalBackupStore store = new IncrementalBackupStore(backupDir);
+                        store.setThrottle(throttle);
+                        IncrementalBackupStore.Manifest manifest = store
+                            .createBackup(sourceDir, paths, zipFile, null);
+                        safeAppend(String.format("[MSH] 增量备份: 共 %d 个数据块, 新写入 %d 个 (%s), 跳过未变化区块 %d 个\n",
+                            manifest.chunkCount, manifest.newChunkCount, formatSize(manifest.storedSize), manifest.reusedRegionChunks));
+                    } else if (target.isRemote()) {
+                        catalogEntry = uploadZip(target, safeServerName, sourceDir, paths, zipName, throttle);
+                    } else {
+                        zipDirectory(sourceDir, paths, zipFile.toPath(), throttle);
+                    }
+                    if (throttle.getLagEvents() > 0) {
+                        safeAppend(String.format("[MSH] 服务器出现 %d 次卡顿警告，备份已自动降速\n", throttle.getLagEvents()));
+                    }
                     lastBackupTime = System.currentTimeMillis();
-                    if (!zipFile.exists() || zipFile.length() == 0) {
+                    if (catalogEntry == null && (!zipFile.exists() || zipFile.length() == 0)) {
                         throw new IOException("Backup file was not created or is empty");
                     }
+                    try {
+                        if (catalogEntry == null) {
+                            catalogEntry = BackupCatalog.describe(zipFile, jarPath);
+                        }
+                        catalogEntry.sourceFiles = paths.size();
+                        BackupCatalog.forDirectory(backupDir).add(catalogEntry);
+                    } catch (IOException e) {
+                        Logger.warn("Failed to record backup in catalog: " + e.getMessage(), "JarRunner");
+                    }
+                    if (verifyAfterBackup) {
+                        verifyBackups(backupDir, List.of(zipFile.getName()));
+                    }
+                    applyBackupRetention();
                     isBackingUp = false;
+                    String location = catalogEntry != null && catalogEntry.isRemote()
+                        ? target.describe() + zipFile.getName() : zipFile.getAbsolutePath();
                     safeAppend("[MSH] 备份已完成: " + zipFile.getName() + "\n");
-                    Logger.info("Backup completed: " + zipFile.getAbsolutePath(), "JarRunner");
+                    Logger.info("Backup completed: " + location, "JarRunner");
                     if (backupCallback != null) {
-                        backupCallback.onBackupComplete(zipFile.getAbsolutePath(), true);
+                        backupCallback.onBackupComplete(location, true);
                     }
                 } catch (Exception e) {
                     isBackingUp = false;
@@ -413,11 +800,16 @@ public class JarRunner {
                     if (backupCallback != null) {
                         backupCallback.onBackupComplete(null, false);
                     }
+                } finally {
+                    activeBackupThrottle = null;
+                    if (snapshot != null) {
+                        snapshot.close();
+                    }
+                    if (savesPausedAt > 0) {
+                        resumeWorldSaves(savesPausedAt, "[MSH] 备份已结束，自动保存已恢复 (暂停 %.1f 秒)\n");
+                    }
                 }
             });
-            backupThread.setDaemon(true);
-            backupThread.setName("backup-thread-" + safeServerName);
-            backupThread.start();
         } catch (Exception e) {
             isBackingUp = false;
             safeAppend("[MSH] 备份失败: " + e.getMessage() + "\n");
@@ -428,28 +820,79 @@ public class JarRunner {
         }
     }
     
-    public boolean isBackingUp() {
-        return isBackingUp;
+    private BackupSnapshot takeSnapshot(Path serverDir, Path stagingDir, boolean clone) throws IOException {
+        long pauseStart = pauseWorldSaves();
+        try {
+            DirectoryScanner.Result scan = DirectoryScanner.scan(serverDir, backupScanExclusion(serverDir));
+            BackupSnapshot snapshot = BackupSnapshot.stage(serverDir, scan.getPaths(), stagingDir, clone);
+            Logger.info(String.format("Snapshot staged (%s): %d files, %d bytes, %d skipped", clone ? "reflink" : "copy",
+                snapshot.getCopiedFiles(), snapshot.getCopiedBytes(), snapshot.getSkippedFiles()), "JarRunner");
+            return snapshot;
+        } finally {
+            resumeWorldSaves(pauseStart, "[MSH] 快照已完成，自动保存已恢复 (暂停 %.1f 秒)\n");
+        }
     }
     
-    private static final String[] BACKUP_EXCLUDE_PATTERNS = {
-        ".log", ".tmp", ".temp", "cache/", "logs/", "backup/", 
-        "session/", "crash-reports/", "forwarding/", "plugins/translations"
-    };
-    
-    private String getServerDirSize(File dir) {
-        long size = 0;
+    private long pauseWorldSaves() throws IOException {
+        CompletableFuture<Void> saved = new CompletableFuture<>();
+        worldSaveFuture = saved;
+        long pauseStart = System.currentTimeMillis();
+        safeAppend("[MSH] 正在暂停自动保存并写入世界数据...\n");
+        sendCommand("save-off");
         try {
-            size = Files.walk(dir.toPath())
-                .filter(p -> p.toFile().isFile())
-                .filter(p -> !isExcluded(p, dir.toPath()))
-                .mapToLong(p -> p.toFile().length())
-                .sum();
-        } catch (IOException e) {
+            sendCommand("save-all flush");
+            saved.get(SAVE_WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            safeAppend("[MSH] 等待世界保存超时，继续备份\n");
+            Logger.warn("Timed out waiting for 'Saved the game' before backup: " + jarPath, "JarRunner");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resumeWorldSaves(pauseStart, "[MSH] 自动保存已恢复 (暂停 %.1f 秒)\n");
+            throw new IOException("Snapshot interrupted");
+        } catch (ExecutionException e) {
+            resumeWorldSaves(pauseStart, "[MSH] 自动保存已恢复 (暂停 %.1f 秒)\n");
+            throw new IOException("World save failed: " + e.getCause().getMessage());
+        } finally {
+            worldSaveFuture = null;
+        }
+        return pauseStart;
+    }
+    
+    private void resumeWorldSaves(long pauseStart, String message) {
+        sendCommand("save-on");
+        safeAppend(String.format(message, (System.currentTimeMillis() - pauseStart) / 1000.0));
+    }
+    
+    public void onWorldSaved() {
+        CompletableFuture<Void> saved = worldSaveFuture;
+        if (saved != null) {
+            saved.complete(null);
         }
-        return formatSize(size);
     }
     
+    public boolean isSnapshotBackupEnabled() {
+        return snapshotBackupEnabled;
+    }
+    
+    public void setSnapshotBackupEnabled(boolean enabled) {
+        this.snapshotBackupEnabled = enabled;
+    }
+    
+    public boolean isSnapshotFullCopy() {
+        return snapshotFullCopy;
+    }
+    
+    public void setSnapshotFullCopy(boolean fullCopy) {
+        this.snapshotFullCopy = fullCopy;
+    }
+    
+    public boolean isBackingUp() {
+        return isBackingUp;
+    }
+    
+    public static final String BACKUP_MODE_ZIP = "zip";
+    public static final String BACKUP_MODE_INCREMENTAL = "incremental";
+    
     private String formatSize(long bytes) {
         if (bytes < 1024) return Math.round(bytes) + "B";
         if (bytes < 1024 * 1024) return String.format("%.1fKB", bytes / 1024.0);
@@ -457,87 +900,57 @@ public class JarRunner {
         return String.format("%.2fGB", bytes / (1024.0 * 1024 * 1024));
     }
     
-    private void zipDirectory(Path sourceDir, Path targetZip) throws IOException {
-        List<Path> allPaths = Files.walk(sourceDir)
-            .filter(path -> !path.equals(sourceDir))
-            .filter(path -> !isExcluded(path, sourceDir))
-            .collect(java.util.stream.Collectors.toList());
-
-        List<ZipEntryData> entries = allPaths.parallelStream()
-            .map(path -> {
-                String relativePath = sourceDir.relativize(path).toString().replace("\\", "/");
-                if (path.toFile().isDirectory()) {
-                    relativePath += "/";
-                    return new ZipEntryData(relativePath, path.toFile().lastModified(), null, true);
-                }
-                try {
-                    byte[] content = null;
-                    if (!isAlreadyCompressed(path.toFile())) {
-                        content = readFileWithLock(path.toFile());
-                    }
-                    return new ZipEntryData(relativePath, path.toFile().lastModified(), content, false);
-                } catch (IOException e) {
-                    Logger.warn("Skipping locked file during backup: " + relativePath, "JarRunner");
-                    return null;
-                }
-            })
-            .filter(data -> data != null)
-            .collect(java.util.stream.Collectors.toList());
+    private void zipDirectory(Path sourceDir, List<Path> paths, Path targetZip, IoThrottle throttle) throws IOException {
+        BackupZipWriter writer = newZipWriter(throttle);
+        writer.write(sourceDir, paths, targetZip, path -> isAlreadyCompressed(path.toFile()));
+        reportZip(writer);
+    }
 
-        try (ZipOutputStream zos = new ZipOutputStream(
-                new BufferedOutputStream(new FileOutputStream(targetZip.toFile()), 131072))) {
-            zos.setLevel(Deflater.NO_COMPRESSION);
-            for (ZipEntryData entry : entries) {
-                try {
-                    ZipEntry zipEntry = new ZipEntry(entry.relativePath);
-                    zipEntry.setTime(entry.lastModified);
-                    zos.putNextEntry(zipEntry);
-                    if (!entry.isDirectory && entry.content != null) {
-                        zos.write(entry.content);
-                    } else if (!entry.isDirectory && isAlreadyCompressed(new File(sourceDir.toFile(), entry.relativePath))) {
-                        try (InputStream is = new BufferedInputStream(
-                                new FileInputStream(new File(sourceDir.toFile(), entry.relativePath)), 131072)) {
-                            byte[] buffer = new byte[131072];
-                            int len;
-                            while ((len = is.read(buffer)) > 0) {
-                                zos.write(buffer, 0, len);
-                            }
-                        }
-                    }
-                    zos.closeEntry();
-                } catch (IOException e) {
-                    Logger.error("Failed to add entry to zip: " + entry.relativePath, "JarRunner");
-                }
-            }
+    private BackupCatalog.Entry uploadZip(BackupTarget target, String server, Path sourceDir, List<Path> paths,
+                                          String zipName, IoThrottle throttle) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
         }
-    }
-    
-    private static class ZipEntryData {
-        final String relativePath;
-        final long lastModified;
-        final byte[] content;
-        final boolean isDirectory;
-        
-        ZipEntryData(String relativePath, long lastModified, byte[] content, boolean isDirectory) {
-            this.relativePath = relativePath;
-            this.lastModified = lastModified;
-            this.content = content;
-            this.isDirectory = isDirectory;
+        safeAppend("[MSH] 正在上传到 " + target.describe() + "\n");
+        BackupZipWriter writer = newZipWriter(throttle);
+        BackupTarget.Upload upload = target.upload(server, zipName);
+        try {
+            writer.write(sourceDir, paths, new DigestOutputStream(upload, digest), zipName, path -> isAlreadyCompressed(path.toFile()));
+            upload.close();
+        } catch (IOException | RuntimeException e) {
+            upload.abort();
+            throw e;
         }
+        reportZip(writer);
+        BackupCatalog.Entry entry = new BackupCatalog.Entry();
+        entry.id = zipName;
+        entry.time = System.currentTimeMillis();
+        entry.size = writer.getWrittenBytes();
+        entry.fileCount = writer.getEntryCount();
+        entry.type = BackupCatalog.TYPE_ZIP;
+        entry.checksum = BackupCatalog.toHex(digest.digest());
+        entry.server = jarPath;
+        entry.target = target.getType();
+        return entry;
     }
-    
-    private boolean isExcluded(Path path, Path sourceDir) {
-        String relativePath = sourceDir.relativize(path).toString().replace("\\", "/").toLowerCase();
-        for (String pattern : BACKUP_EXCLUDE_PATTERNS) {
-            if (pattern.endsWith("/")) {
-                if (relativePath.startsWith(pattern) || relativePath.contains(pattern)) {
-                    return true;
-                }
-            } else if (relativePath.endsWith(pattern)) {
-                return true;
-            }
-        }
-        return false;
+
+    private BackupZipWriter newZipWriter(IoThrottle throttle) {
+        BackupZipWriter writer = new BackupZipWriter(backupMemoryLimitMB, BackupZipWriter.defaultWorkers(), backupCompressionLevel);
+        writer.setThrottle(throttle);
+        writer.setLowPriority(backupLowPriority);
+        return writer;
+    }
+
+    private void reportZip(BackupZipWriter writer) {
+        safeAppend(String.format("[MSH] 压缩完成: %s -> %s (%.0f%%), %.1f MB/s\n",
+            formatSize(writer.getRawBytes()), formatSize(writer.getWrittenBytes()),
+            writer.getCompressionRatio() * 100, writer.getThroughputMBps()));
+        Logger.info(String.format("Backup zip written: level %d, %d bytes -> %d bytes, %.1f MB/s, peak buffer %s",
+            backupCompressionLevel, writer.getRawBytes(), writer.getWrittenBytes(), writer.getThroughputMBps(),
+            formatSize(writer.getPeakBufferedBytes())), "JarRunner");
     }
     
     private boolean isAlreadyCompressed(File file) {
@@ -548,27 +961,6 @@ public class JarRunner {
                name.endsWith(".webm") || name.endsWith(".gz") || name.endsWith(".bz2");
     }
     
-    private byte[] readFileWithLock(File file) throws IOException {
-        try {
-            return Files.readAllBytes(file.toPath());
-        } catch (IOException e) {
-            if (isFileLocked(e)) {
-                return new byte[0];
-            }
-            throw e;
-        }
-    }
-    
-    private boolean isFileLocked(IOException e) {
-        String message = e.getMessage();
-        return message != null && (
-            message.contains("locked") ||
-            message.contains("另一个程序") ||
-            message.contains("being used") ||
-            message.contains("The process cannot access")
-        );
-    }
-    
     private String sanitizeFileName(String fileName) {
         if (fileName == null) return "server";
         return fileName.replaceAll("[\\\\/:*?\"<>|]", "_");
@@ -582,7 +974,19 @@ public class JarRunner {
         return lastBackupTime;
     }
     public Status getStatus() {
-        return status;
+        return lifecycle.getStatus();
+    }
+    
+    public ServerLifecycle.State getLifecycleState() {
+        return lifecycle.get();
+    }
+    
+    public void addLifecycleListener(ServerLifecycle.Listener listener) {
+        lifecycle.addListener(listener);
+    }
+    
+    public void removeLifecycleListener(ServerLifecycle.Listener listener) {
+        lifecycle.removeListener(listener);
     }
     
     public String getJarPath() {
@@ -643,6 +1047,14 @@ public class JarRunner {
         this.gameRuleCallback = callback;
     }
     
+    public LaunchProfile getLaunchProfile() {
+        return launchProfile;
+    }
+    
+    public void setLaunchProfile(LaunchProfile launchProfile) {
+        this.launchProfile = launchProfile == null ? LaunchProfile.defaults() : launchProfile;
+    }
+    
     public boolean isUseNoGui() {
         return useNoGui;
     }
@@ -656,7 +1068,16 @@ public class JarRunner {
     }
     
     public void setServerVersion(String version) {
+        String previous = this.serverVersion;
         this.serverVersion = version;
+        java.util.function.Consumer<String> listener = serverVersionListener;
+        if (listener != null && version != null && !version.equals(previous)) {
+            listener.accept(version);
+        }
+    }
+    
+    public void setServerVersionListener(java.util.function.Consumer<String> listener) {
+        this.serverVersionListener = listener;
     }
     
     public String getLastError() {
@@ -689,15 +1110,16 @@ public class JarRunner {
         return process != null && process.isAlive();
     }
     
-    private volatile boolean isTerminated = false;
-    
     public void onProcessTerminated() {
-        if (isTerminated) {
+        if (isProcessAlive()) {
             return;
         }
-        isTerminated = true;
-        
-        if (status == Status.STOPPED) {
+        onProcessTerminated(lifecycle.get().getGeneration());
+    }
+    
+    private void onProcessTerminated(long generation) {
+        ServerLifecycle.State state = lifecycle.transition(s -> s.getGeneration() != generation || !s.isAttached() || s.isTerminated() ? null : s.withTerminated(true));
+        if (state == null || state.getStatus() == Status.STOPPED) {
             return;
         }
         
@@ -714,60 +1136,48 @@ public class JarRunner {
         Logger.warn("Detected server process terminated: " + jarPath + ", exit code: " + exitCode, "JarRunner");
         safeAppend("[MSH] 检测到服务器进程已终止，退出代码: " + exitCode + "\n");
         
-        if (pendingRestart) {
+        if (state.isPendingRestart()) {
             Logger.info("Server terminated during pending restart, auto cleaning and restarting: " + jarPath, "JarRunner");
             safeAppend("[MSH] 服务器异常关闭，正在清理并重启...\n");
-            pendingRestart = false;
-            synchronized (stateLock) {
-                status = Status.STOPPED;
-            }
-            cleanupProcess();
-            new Thread(() -> forceUnlockAndRestart()).start();
+            cleanupProcess(generation);
+            HubExecutors.start("force-restart-" + jarPath, this::forceUnlockAndRestart);
             return;
         }
         
-        if (userForceStop) {
+        if (state.isForceStop()) {
             Logger.info("Server force stopped by user, skipping auto-restart: " + jarPath, "JarRunner");
             safeAppend("[MSH] 服务器已被强制关闭\n");
-            pendingRestart = false;
-            status = Status.STOPPED;
-            cleanupProcess();
+            cleanupProcess(generation);
             cleanupLockFilesDelayed();
             return;
         }
         
-        if (isNormalStop && !forceKeepAlive) {
+        if (state.isNormalStop() && !forceKeepAlive) {
             Logger.info("Server normal shutdown, skipping auto-restart: " + jarPath, "JarRunner");
             safeAppend("[MSH] 服务器正常关闭，跳过自动重启\n");
-            pendingRestart = false;
-            status = Status.STOPPED;
-            cleanupProcess();
+            cleanupProcess(generation);
             cleanupLockFilesDelayed();
             return;
         }
         
-        if (eulaExit) {
+        if (state.isEulaExit()) {
             Logger.info("Server exited due to EULA rejection: " + jarPath, "JarRunner");
             safeAppend("[MSH] 服务器因未同意EULA而退出\n");
-            pendingRestart = false;
-            status = Status.STOPPED;
-            cleanupProcess();
+            cleanupProcess(generation);
             cleanupLockFilesDelayed();
             return;
         }
         
+        lifecycle.transition(s -> s.getGeneration() == generation ? s.withPendingRestart(false) : null);
         String terminationReason = detectTerminationReason(exitCode);
         if (!terminationReason.isEmpty()) {
-            pendingRestart = false;
             safeAppend("[MSH] 可能原因: " + terminationReason + "\n");
             showTerminationDialog(terminationReason, exitCode);
         } else if (exitCode != 0 && exitCode != -1) {
-            pendingRestart = false;
             String exitCodeReason = getExitCodeReason(exitCode);
             safeAppend("[MSH] 异常退出: " + exitCodeReason + "\n");
             showTerminationDialog(exitCodeReason, exitCode);
-        } else if (isLikelyCrash()) {
-            pendingRestart = false;
+        } else if (isLikelyCrash(state)) {
             String crashReason = "服务器意外关闭或崩溃";
             if (exitCode == 0) {
                 crashReason = "服务器异常退出（退出码为0但非正常停止）";
@@ -783,20 +1193,8 @@ public class JarRunner {
         }
     }
     
-    private boolean isLikelyCrash() {
-        if (isNormalStop) {
-            return false;
-        }
-        if (userForceStop) {
-            return false;
-        }
-        if (eulaExit) {
-            return false;
-        }
-        if (pendingRestart) {
-            return false;
-        }
-        return true;
+    private boolean isLikelyCrash(ServerLifecycle.State state) {
+        return !state.isNormalStop() && !state.isForceStop() && !state.isEulaExit() && !state.isPendingRestart();
     }
     
     private String getExitCodeReason(int exitCode) {
@@ -828,17 +1226,7 @@ public class JarRunner {
     }
     
     private void cleanupLockFilesDelayed() {
-        Thread cleanupThread = new Thread(() -> {
-            try {
-                Thread.sleep(2000);
-                cleanupLockFiles();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        });
-        cleanupThread.setDaemon(true);
-        cleanupThread.setName("lock-cleanup-" + jarPath);
-        cleanupThread.start();
+        HubScheduler.scheduleOnce(jarPath, "lock-cleanup-" + jarPath, this::cleanupLockFiles, 2000);
     }
     
     private String detectTerminationReason(int exitCode) {
@@ -940,7 +1328,7 @@ public class JarRunner {
             return "错误: " + lastError;
         }
         
-        if (exitCode == 0 && status == Status.STARTING) {
+        if (exitCode == 0 && getStatus() == Status.STARTING) {
             return "服务器启动后立即退出，可能配置错误或JAR文件损坏";
         }
         
@@ -1041,6 +1429,7 @@ public class JarRunner {
     }
     
     private void showTerminationDialog(String reason, int exitCode) {
+        long generation = lifecycle.get().getGeneration();
         javax.swing.SwingUtilities.invokeLater(() -> {
             JFrame frame = (JFrame) SwingUtilities.getWindowAncestor(outputPanel);
             if (frame == null) {
@@ -1074,48 +1463,19 @@ public class JarRunner {
                     Logger.info("Auto-handle triggered, action: " + action + ", jarPath: " + jarPath, "JarRunner");
                     safeAppend("[MSH] 开始自动处理...\n");
                     if (action == 1) {
-                        Logger.info("Action 1: Stopping output thread first, jarPath: " + jarPath, "JarRunner");
-                        safeAppend("[MSH] 正在停止输出线程...\n");
-                        stopOutputThread();
-                        Logger.info("Output thread stopped, jarPath: " + jarPath, "JarRunner");
-                        List<ProcessInfo> processes = findRelatedProcesses();
-                        Logger.info("Found " + processes.size() + " related processes, jarPath: " + jarPath, "JarRunner");
-                        for (ProcessInfo info : processes) {
-                            safeAppend("[MSH] 正在结束进程 PID: " + info.pid + "\n");
-                            Logger.info("Killing process: " + info.pid + ", jarPath: " + jarPath, "JarRunner");
-                            killProcess(info.pid, new ProcessKillCallback() {
-                                @Override
-                                public void onProcessKilled(int pid, String processInfo) {
-                                    safeAppend("[MSH] 进程 " + pid + " 已结束\n");
-                                    Logger.info("Process killed: " + pid + ", jarPath: " + jarPath, "JarRunner");
-                                }
-                                @Override
-                                public void onKillFailed(int pid, String reason) {
-                                    safeAppend("[MSH] 进程 " + pid + " 结束失败: " + reason + "\n");
-                                    Logger.warn("Process kill failed: " + pid + ", reason: " + reason + ", jarPath: " + jarPath, "JarRunner");
-                                }
-                            });
-                        }
-                        new Thread(() -> {
-                            try {
-                                Thread.sleep(3000);
-                                Logger.info("Calling forceUnlockAndRestart, jarPath: " + jarPath, "JarRunner");
-                                forceUnlockAndRestart();
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-                        }).start();
+                        Logger.info("Action 1: Stopping output thread and terminating related processes, jarPath: " + jarPath, "JarRunner");
+                        terminateRelatedAndRestart(ProcessRegistry.DEFAULT_GRACE_MILLIS, "正在结束进程", "Killing process");
                     } else if (action == 2) {
                         Logger.info("Action 2: Stopping output thread first, jarPath: " + jarPath, "JarRunner");
                         safeAppend("[MSH] 正在停止输出线程...\n");
                         stopOutputThread();
                         Logger.info("Cleaning up lock files, jarPath: " + jarPath, "JarRunner");
                         cleanupLockFiles();
+                        if (lifecycle.transition(s -> s.getGeneration() == generation ? s.stopped().withTerminated(false).withNormalStop(false) : null) == null) {
+                            Logger.info("Server was restarted meanwhile, skipping auto-handle restart: " + jarPath, "JarRunner");
+                            return;
+                        }
                         synchronized (stateLock) {
-                            status = Status.STOPPED;
-                            isTerminated = false;
-                            isNormalStop = false;
-                            cleanupCalled = false;
                             process = null;
                             commandWriter = null;
                             processInput = null;
@@ -1123,36 +1483,8 @@ public class JarRunner {
                         Logger.info("Starting server, jarPath: " + jarPath, "JarRunner");
                         start();
                     } else if (action == 3) {
-                        Logger.info("Action 3: Stopping output thread first, jarPath: " + jarPath, "JarRunner");
-                        safeAppend("[MSH] 正在停止输出线程...\n");
-                        stopOutputThread();
-                        List<ProcessInfo> processes = findRelatedProcesses();
-                        Logger.info("Found " + processes.size() + " related processes, jarPath: " + jarPath, "JarRunner");
-                        for (ProcessInfo info : processes) {
-                            safeAppend("[MSH] 正在强制结束进程 PID: " + info.pid + "\n");
-                            Logger.info("Force killing process: " + info.pid + ", jarPath: " + jarPath, "JarRunner");
-                            killProcess(info.pid, new ProcessKillCallback() {
-                                @Override
-                                public void onProcessKilled(int pid, String processInfo) {
-                                    safeAppend("[MSH] 进程 " + pid + " 已结束\n");
-                                    Logger.info("Process force killed: " + pid + ", jarPath: " + jarPath, "JarRunner");
-                                }
-                                @Override
-                                public void onKillFailed(int pid, String reason) {
-                                    safeAppend("[MSH] 进程 " + pid + " 结束失败: " + reason + "\n");
-                                    Logger.warn("Process force kill failed: " + pid + ", reason: " + reason + ", jarPath: " + jarPath, "JarRunner");
-                                }
-                            });
-                        }
-                        new Thread(() -> {
-                            try {
-                                Thread.sleep(3000);
-                                Logger.info("Calling forceUnlockAndRestart, jarPath: " + jarPath, "JarRunner");
-                                forceUnlockAndRestart();
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-                        }).start();
+                        Logger.info("Action 3: Stopping output thread and force killing related processes, jarPath: " + jarPath, "JarRunner");
+                        terminateRelatedAndRestart(0, "正在强制结束进程", "Force killing process");
                     }
                 });
             } else {
@@ -1163,6 +1495,43 @@ public class JarRunner {
         });
     }
     
+    private void terminateRelatedAndRestart(long graceMillis, String action, String logAction) {
+        HubExecutors.start("auto-handle-" + jarPath, () -> {
+            safeAppend("[MSH] 正在停止输出线程...\n");
+            stopOutputThread();
+            Logger.info("Output thread stopped, jarPath: " + jarPath, "JarRunner");
+            List<ProcessInfo> processes = findRelatedProcesses();
+            Logger.info("Found " + processes.size() + " related processes, jarPath: " + jarPath, "JarRunner");
+            List<CompletableFuture<Boolean>> terminations = new ArrayList<>();
+            for (ProcessInfo info : processes) {
+                safeAppend("[MSH] " + action + " PID: " + info.pid + "\n");
+                Logger.info(logAction + ": " + info.pid + ", jarPath: " + jarPath, "JarRunner");
+                terminations.add(ProcessRegistry.terminate(info.pid, graceMillis));
+            }
+            CompletableFuture.allOf(terminations.toArray(new CompletableFuture<?>[0])).whenComplete((v, error) ->
+                SwingUtilities.invokeLater(() -> {
+                    for (int i = 0; i < processes.size(); i++) {
+                        reportKill(processes.get(i).pid, terminations.get(i), new ProcessKillCallback() {
+                            @Override
+                            public void onProcessKilled(int pid, String processInfo) {
+                                safeAppend("[MSH] 进程 " + pid + " 已结束\n");
+                                Logger.info("Process killed: " + pid + ", jarPath: " + jarPath, "JarRunner");
+                            }
+                            @Override
+                            public void onKillFailed(int pid, String reason) {
+                                safeAppend("[MSH] 进程 " + pid + " 结束失败: " + reason + "\n");
+                                Logger.warn("Process kill failed: " + pid + ", reason: " + reason + ", jarPath: " + jarPath, "JarRunner");
+                            }
+                        });
+                    }
+                    HubScheduler.scheduleOnce(jarPath, "force-restart-" + jarPath, () -> {
+                        Logger.info("Calling forceUnlockAndRestart, jarPath: " + jarPath, "JarRunner");
+                        forceUnlockAndRestart();
+                    }, 3000);
+                }));
+        });
+    }
+    
     private void handleTerminationAuto(java.util.function.Consumer<Integer> actionCallback) {
         javax.swing.SwingUtilities.invokeLater(() -> {
             JFrame frame = (JFrame) SwingUtilities.getWindowAncestor(outputPanel);
@@ -1208,18 +1577,21 @@ public class JarRunner {
             isCleaning = true;
         }
         
+        long generation = lifecycle.get().getGeneration();
         try {
-            if (process != null && process.isAlive()) {
+            Process current = process;
+            if (current != null && current.isAlive()) {
                 Logger.info("Force stopping process before unlock: " + jarPath, "JarRunner");
-                process.destroyForcibly();
                 try {
-                    Thread.sleep(3000);
+                    current.destroyForcibly().onExit().get(3000, TimeUnit.MILLISECONDS);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     return;
+                } catch (ExecutionException | TimeoutException e) {
+                    Logger.warn("Process did not exit after forced stop: " + jarPath, "JarRunner");
                 }
             }
-            cleanupProcess();
+            cleanupProcess(generation);
             
             File serverDir = new File(jarPath).getParentFile();
             if (serverDir != null) {
@@ -1244,11 +1616,11 @@ public class JarRunner {
                 }
             }
             
+            if (lifecycle.transition(s -> s.getGeneration() == generation ? s.stopped().withTerminated(false).withNormalStop(false) : null) == null) {
+                Logger.info("Server was restarted while unlocking, skipping restart: " + jarPath, "JarRunner");
+                return;
+            }
             synchronized (stateLock) {
-                status = Status.STOPPED;
-                isTerminated = false;
-                isNormalStop = false;
-                cleanupCalled = false;
                 process = null;
                 commandWriter = null;
                 processInput = null;
@@ -1302,94 +1674,15 @@ public class JarRunner {
 
     public List<ProcessInfo> findRelatedProcesses() {
         List<ProcessInfo> result = new ArrayList<>();
-        String jarName = new File(jarPath).getName();
-        
-        try {
-            String osName = System.getProperty("os.name").toLowerCase();
-            Process process;
-            
-            if (osName.contains("windows")) {
-                process = Runtime.getRuntime().exec(new String[]{"powershell", "-Command", "Get-CimInstance Win32_Process | Where-Object { $_.Name -eq 'java.exe' -or $_.Name -eq 'javaw.exe' } | Select-Object ProcessId,CommandLine"});
-            } else {
-                process = Runtime.getRuntime().exec(new String[]{"sh", "-c", "ps aux | grep java"});
-            }
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                
-                ProcessInfo info = parseProcessLine(line, jarName, osName);
-                if (info != null) {
-                    result.add(info);
-                }
-            }
-            
-            process.waitFor();
-            reader.close();
-            
-            if (result.isEmpty()) {
-                Logger.debug("No processes found for jar: " + jarName, "JarRunner");
-            } else {
-                Logger.info("Found " + result.size() + " processes for jar: " + jarName, "JarRunner");
-            }
-        } catch (Exception e) {
-            Logger.warn("Failed to find related processes: " + e.getMessage(), "JarRunner");
+        for (ProcessRegistry.JavaProcess process : ProcessRegistry.findByJar(jarPath)) {
+            result.add(new ProcessInfo((int) process.getPid(), process.getCommandLine()));
         }
-        
-        return result;
-    }
-    
-    private ProcessInfo parseProcessLine(String line, String jarName, String osName) {
-        try {
-            if (osName.contains("windows")) {
-                String[] parts = parseCSVLine(line);
-                if (parts.length < 2) return null;
-                
-                String pidStr = parts[0].replace("\"", "").trim();
-                if (!pidStr.matches("\\d+")) return null;
-                
-                int pid = Integer.parseInt(pidStr);
-                String commandLine = parts.length > 1 ? parts[1] : "";
-                
-                if (commandLine.contains(jarName)) {
-                    return new ProcessInfo(pid, commandLine);
-                }
-                return null;
-            } else {
-                if (!line.contains(jarName)) return null;
-                String[] parts = line.trim().split("\\s+");
-                if (parts.length < 2) return null;
-                
-                String pidStr = parts[1];
-                if (!pidStr.matches("\\d+")) return null;
-                
-                int pid = Integer.parseInt(pidStr);
-                return new ProcessInfo(pid, line);
-            }
-        } catch (Exception e) {
-            Logger.warn("Failed to parse process line: " + line + ", error: " + e.getMessage(), "JarRunner");
-            return null;
-        }
-    }
-    
-    private String[] parseCSVLine(String line) {
-        List<String> parts = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        boolean inQuotes = false;
-        for (char c : line.toCharArray()) {
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                parts.add(sb.toString());
-                sb = new StringBuilder();
-            } else {
-                sb.append(c);
-            }
+        if (result.isEmpty()) {
+            Logger.debug("No processes found for jar: " + jarPath, "JarRunner");
+        } else {
+            Logger.info("Found " + result.size() + " processes for jar: " + jarPath, "JarRunner");
         }
-        parts.add(sb.toString());
-        return parts.toArray(new String[0]);
+        return result;
     }
     
     public static class ProcessInfo {
@@ -1408,113 +1701,79 @@ public class JarRunner {
     }
     
     public boolean killProcess(int pid, ProcessKillCallback callback) {
+        return killProcess(pid, ProcessRegistry.DEFAULT_GRACE_MILLIS, callback);
+    }
+    
+    public boolean killProcess(int pid, long graceMillis, ProcessKillCallback callback) {
+        return reportKill(pid, ProcessRegistry.terminate(pid, graceMillis), callback);
+    }
+    
+    private boolean reportKill(int pid, CompletableFuture<Boolean> termination, ProcessKillCallback callback) {
+        boolean killed;
         try {
-            String osName = System.getProperty("os.name").toLowerCase();
-            Process killProcess;
-            
-            if (osName.contains("windows")) {
-                killProcess = Runtime.getRuntime().exec(new String[]{"cmd", "/c", "taskkill /F /PID " + pid});
-            } else {
-                killProcess = Runtime.getRuntime().exec(new String[]{"kill", "-9", String.valueOf(pid)});
-            }
-            
-            int exitCode = killProcess.waitFor();
-            Thread.sleep(500);
-            
-            if (exitCode == 0) {
-                if (callback != null) {
-                    callback.onProcessKilled(pid, "Process terminated successfully");
-                }
-                return true;
-            } else {
-                if (callback != null) {
-                    callback.onKillFailed(pid, "Kill command returned exit code: " + exitCode);
-                }
-                return false;
-            }
-        } catch (Exception e) {
+            killed = termination.join();
+        } catch (CompletionException e) {
             if (callback != null) {
-                callback.onKillFailed(pid, e.getMessage());
+                callback.onKillFailed(pid, e.getCause().getMessage());
             }
             return false;
         }
+        if (callback != null) {
+            if (killed) {
+                callback.onProcessKilled(pid, "Process terminated successfully");
+            } else {
+                callback.onKillFailed(pid, "Process is still alive after termination request");
+            }
+        }
+        return killed;
     }
     
-    public int killAllRelatedProcesses(ProcessKillCallback callback) {
+    public CompletableFuture<Integer> killAllRelatedProcessesAsync(ProcessKillCallback callback) {
         List<ProcessInfo> processes = findRelatedProcesses();
-        int killed = 0;
+        List<CompletableFuture<Boolean>> terminations = new ArrayList<>();
         for (ProcessInfo info : processes) {
-            if (killProcess(info.pid, callback)) {
-                killed++;
-            }
+            terminations.add(ProcessRegistry.terminate(info.pid, ProcessRegistry.DEFAULT_GRACE_MILLIS));
         }
-        return killed;
+        return CompletableFuture.allOf(terminations.toArray(new CompletableFuture<?>[0])).handle((v, error) -> {
+            int killed = 0;
+            for (int i = 0; i < processes.size(); i++) {
+                if (reportKill(processes.get(i).pid, terminations.get(i), callback)) {
+                    killed++;
+                }
+            }
+            return killed;
+        });
     }
     
     private boolean isExternalProcessAlive(int pid) {
-        try {
-            String osName = System.getProperty("os.name").toLowerCase();
-            Process process;
-            
-            if (osName.contains("windows")) {
-                process = Runtime.getRuntime().exec(new String[]{"powershell", "-Command", "Get-Process -Id " + pid + " -ErrorAction SilentlyContinue | Select-Object Id"});
-            } else {
-                process = Runtime.getRuntime().exec(new String[]{"sh", "-c", "kill -0 " + pid + " 2>/dev/null && echo alive"});
-            }
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-            
-            String line;
-            boolean found = false;
-            StringBuilder output = new StringBuilder();
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-                if (line.contains(String.valueOf(pid))) {
-                    found = true;
-                    break;
-                }
-            }
-            
-            int exitCode = process.waitFor();
-            reader.close();
-            errorReader.close();
-            
-            Logger.debug("Process " + pid + " check - exit code: " + exitCode + ", output: " + output.toString(), "JarRunner");
-            
-            return found;
-        } catch (Exception e) {
-            Logger.debug("Process " + pid + " is not alive: " + e.getMessage(), "JarRunner");
-            return false;
-        }
+        return ProcessRegistry.isAlive(pid);
     }
     
-    public void checkAndKillLeftoverProcesses() {
+    public CompletableFuture<Integer> checkAndKillLeftoverProcessesAsync() {
         List<ProcessInfo> processes = findRelatedProcesses();
-        if (!processes.isEmpty()) {
-            safeAppend("[MSH] 检测到 " + processes.size() + " 个遗留服务器进程\n");
-            Logger.info("Found " + processes.size() + " leftover processes for: " + jarPath, "JarRunner");
-            
-            for (ProcessInfo info : processes) {
-                safeAppend("[MSH] 正在终止进程: PID " + info.pid + "\n");
-                boolean killed = killProcess(info.pid, null);
-                if (killed) {
-                    safeAppend("[MSH] 已终止进程 PID " + info.pid + "\n");
-                } else {
-                    safeAppend("[MSH] 无法终止进程 PID " + info.pid + "\n");
-                }
+        if (processes.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        safeAppend("[MSH] 检测到 " + processes.size() + " 个遗留服务器进程\n");
+        Logger.info("Found " + processes.size() + " leftover processes for: " + jarPath, "JarRunner");
+        for (ProcessInfo info : processes) {
+            safeAppend("[MSH] 正在终止进程: PID " + info.pid + "\n");
+        }
+        return killAllRelatedProcessesAsync(new ProcessKillCallback() {
+            @Override
+            public void onProcessKilled(int pid, String processInfo) {
+                safeAppend("[MSH] 已终止进程 PID " + pid + "\n");
             }
-            
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            @Override
+            public void onKillFailed(int pid, String reason) {
+                safeAppend("[MSH] 无法终止进程 PID " + pid + "\n");
             }
-        }
+        });
     }
 
     public void start() {
-        if (status == Status.RUNNING || status == Status.STARTING || status == Status.STOPPING) {
+        ServerLifecycle.State state = lifecycle.transition(s -> s.getStatus() == Status.STOPPED ? s.starting() : null);
+        if (state == null) {
             Logger.warn("Server already running or starting or stopping, skipping start request: " + jarPath, "JarRunner");
             return;
         }
@@ -1522,16 +1781,13 @@ public class JarRunner {
         Logger.info("Initiating server startup: " + jarPath, "JarRunner");
         currentHourlyAttempts.set(0);
         lastRestartTimestamp = 0;
-        isTerminated = false;
-        isNormalStop = false;
-        hasFullyStarted = false;
-        status = Status.STARTING;        
         
         cleanupLockFiles();
         try {
-            startServer();
+            startServer(state.getGeneration());
         } catch (IOException e) {
-            status = Status.STOPPED;
+            lifecycle.transition(s -> s.getGeneration() == state.getGeneration() ? s.stopped() : null);
+            state.getStoppedFuture().complete(null);
             Logger.error("Server startup failed: " + e.getMessage(), "JarRunner");
             safeAppend("[MSH] Server startup failed: " + e.getMessage() + "\n");
             if (e.getMessage() != null && (e.getMessage().contains("bind") || e.getMessage().contains("port") || e.getMessage().contains("in use"))) {
@@ -1553,7 +1809,7 @@ public class JarRunner {
             }
         }
     }
-    private void startServer() throws IOException {
+    private void startServer(long generation) throws IOException {
         File jarFile = new File(jarPath);
         if (!jarFile.exists()) {
             throw new IOException("Server JAR file does not exist: " + jarPath);
@@ -1575,18 +1831,36 @@ public class JarRunner {
         Process createdProcess = null;
         try {
             String javaCmd = System.getProperty("os.name").toLowerCase().contains("windows") ? "javaw" : "java";
-            List<String> command = new ArrayList<>();
-            command.add(javaCmd);
-            command.add("-jar");
-            command.add(jarPath);
-            if (useNoGui) {
-                command.add("--nogui");
+            LaunchProfile profile = launchProfile;
+            JdkRegistry.Jdk runtime = null;
+            if (profile.isAutoJava()) {
+                runtime = JdkRegistry.select(serverVersion, jarFile,
+                    SwingUtilities.isEventDispatchThread() ? 0 : JdkRegistry.SCAN_WAIT_MILLIS);
+                if (runtime != null) {
+                    javaCmd = runtime.getExecutable(true);
+                    safeAppend("[MSH] 自动选择运行时: " + runtime.getDisplayName() + "\n");
+                } else {
+                    Logger.info("No matching JDK found for " + jarPath + " (MC " + serverVersion + "), using " + javaCmd, "JarRunner");
+                }
+            }
+            if (runtime == null) {
+                runtime = JdkRegistry.describe(profile.resolveJava(javaCmd));
             }
+            String gcProblem = profile.getGcProblem(runtime);
+            if (gcProblem != null) {
+                Logger.warn("Java " + runtime.version + " cannot run GC " + profile.getGc().name() + ", falling back to G1: " + jarPath, "JarRunner");
+                safeAppend("[MSH] " + gcProblem + "，本次改用 G1 启动\n");
+                profile = profile.withGc(LaunchProfile.GarbageCollector.G1);
+            }
+            List<String> command = profile.buildCommand(javaCmd, jarPath, useNoGui);
+            Logger.info("Launching server: " + String.join(" ", command), "JarRunner");
             ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.environment().putAll(profile.getEnvironmentMap());
             processBuilder.directory(serverDir);
             processBuilder.redirectErrorStream(true);
             process = processBuilder.start();
             createdProcess = process;
+            ProcessRegistry.register(process.toHandle(), jarPath);
         } catch (SecurityException e) {
             throw new IOException("Security exception while starting Java process: " + e.getMessage(), e);
         } catch (OutOfMemoryError e) {
@@ -1597,19 +1871,17 @@ public class JarRunner {
         }
         
         try {
-            processInput = process.getOutputStream();
+            processInput = createdProcess.getOutputStream();
             commandWriter = new PrintWriter(new OutputStreamWriter(processInput, EncodingUtils.getOptimalCharset()), true);
         } catch (IOException e) {
             cleanupPartialStartup(createdProcess);
             throw new IOException("Failed to create command writer: " + e.getMessage(), e);
         }
         
-        InputStream inputStream = process.getInputStream();
-        stdoutThread = new Thread(new OutputHandler(inputStream, outputPanel, this, jarPath));
+        PrintWriter writer = commandWriter;
+        InputStream inputStream = createdProcess.getInputStream();
         try {
-            stdoutThread.setName("stdout-handler-" + jarPath);
-            stdoutThread.setDaemon(true);
-            stdoutThread.start();
+            stdoutThread = HubExecutors.start("stdout-handler-" + jarPath, new OutputHandler(inputStream, outputPanel, this, jarPath));
             if (!stdoutThread.isAlive()) {
                 throw new IOException("Failed to start stdout thread - thread died immediately");
             }
@@ -1627,63 +1899,69 @@ public class JarRunner {
             throw new IOException("Thread creation error: " + e.getMessage(), e);
         }
         
-        processMonitorThread = new Thread(() -> {
+        Process monitoredProcess = createdProcess;
+        CompletableFuture<Void> stopped = lifecycle.get().getStoppedFuture();
+        processMonitor = monitoredProcess.onExit().thenAcceptAsync(exited -> {
             try {
-                int exitCode = process.waitFor();
+                int exitCode = exited.exitValue();
                 Logger.info("Server process terminated with exit code: " + exitCode, "JarRunner");
                 safeAppend("[MSH] Server process terminated, exit code: " + exitCode + "\n");
-                onProcessTerminated();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                Logger.warn("Process monitor thread interrupted for: " + jarPath, "JarRunner");
+                onProcessTerminated(generation);
             } catch (OutOfMemoryError e) {
                 Logger.error("CRITICAL: Out of memory in process monitor thread for: " + jarPath, "JarRunner");
                 try {
-                    onProcessTerminated();
+                    onProcessTerminated(generation);
                 } catch (Throwable t) {
                     Logger.error("Critical failure during process termination cleanup after OOM", "JarRunner");
                 }
             } catch (VirtualMachineError e) {
                 Logger.error("CRITICAL: JVM internal error in process monitor thread: " + e.getClass().getSimpleName(), "JarRunner");
                 try {
-                    onProcessTerminated();
+                    onProcessTerminated(generation);
                 } catch (Throwable t) {
                     Logger.error("Critical failure during process termination cleanup after VM error", "JarRunner");
                 }
             } catch (Exception e) {
                 Logger.error("FATAL: Unexpected exception in process monitor thread: " + e.getClass().getSimpleName() + " - " + e.getMessage(), "JarRunner");
                 try {
-                    onProcessTerminated();
+                    onProcessTerminated(generation);
                 } catch (Throwable t) {
                     Logger.error("Critical failure during exception handling cleanup", "JarRunner");
                 }
             } finally {
                 try {
-                    cleanupProcess();
+                    cleanupProcess(generation);
                 } catch (Throwable t) {
                     Logger.error("CRITICAL: Failed to cleanup process after monitor thread failure: " + t.getClass().getSimpleName(), "JarRunner");
                 }
+                stopped.complete(null);
             }
-        });
-        processMonitorThread.setDaemon(true);
-        processMonitorThread.setPriority(Thread.MIN_PRIORITY);
-        processMonitorThread.start();
+        }, task -> HubExecutors.start("process-monitor-" + jarPath, task));
+        
+        ServerLifecycle.State attached = lifecycle.transition(s -> s.getGeneration() == generation ? s.withAttached(true) : null);
+        if (attached == null || attached.getStatus() == Status.STOPPED || attached.isForceStop()) {
+            Logger.info("Server was stopped while starting, terminating new process: " + jarPath, "JarRunner");
+            monitoredProcess.destroyForcibly();
+            return;
+        }
+        if (attached.getStatus() == Status.STOPPING) {
+            writer.println("stop");
+            writer.flush();
+            safeAppend("[Command] stop\n");
+            return;
+        }
         
         try {
-            Thread.sleep(500);
-            if (process == null || !process.isAlive()) {
-                int exitCode = -1;
-                try {
-                    exitCode = process != null ? process.exitValue() : -1;
-                } catch (Exception e) {}
-                status = Status.STOPPED;
-                String reason = getExitCodeReason(exitCode);
-                Logger.error("Server startup failed: process died immediately, exit code: " + exitCode, "JarRunner");
-                safeAppend("[MSH] Server startup failed: " + reason + "\n");
-                cleanupProcess();
-                return;
-            }
-            Logger.info("Server process started successfully, PID: " + process.pid(), "JarRunner");
+            Process exited = monitoredProcess.onExit().get(500, TimeUnit.MILLISECONDS);
+            int exitCode = exited.exitValue();
+            String reason = getExitCodeReason(exitCode);
+            Logger.error("Server startup failed: process died immediately, exit code: " + exitCode, "JarRunner");
+            safeAppend("[MSH] Server startup failed: " + reason + "\n");
+            cleanupProcess(generation);
+        } catch (TimeoutException e) {
+            Logger.info("Server process started successfully, PID: " + monitoredProcess.pid(), "JarRunner");
+        } catch (ExecutionException e) {
+            Logger.warn("Failed to observe server process exit: " + e.getCause().getMessage(), "JarRunner");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
@@ -1692,8 +1970,7 @@ public class JarRunner {
     private void cleanupPartialStartup(Process p) {
         if (p != null && p.isAlive()) {
             try {
-                p.destroyForcibly();
-                Thread.sleep(500);
+                p.destroyForcibly().onExit().get(500, TimeUnit.MILLISECONDS);
             } catch (Exception e) {}
         }
         if (commandWriter != null) {
@@ -1711,122 +1988,74 @@ public class JarRunner {
     }
     
     public void onServerFullyStarted() {
-        if (status == Status.STARTING) {
-            boolean wasPendingRestart = pendingRestart;
-            status = Status.RUNNING;
-            hasFullyStarted = true;
+        if (lifecycle.transition(s -> s.getStatus() == Status.STARTING ? s.with(Status.RUNNING).withFullyStarted(true) : null) != null) {
             lastAccessTime = System.currentTimeMillis();
             Logger.info("Server startup completed successfully: " + jarPath, "JarRunner");
             safeAppend("[MSH] Server startup completed: " + jarPath + "\n");
             
-            if (wasPendingRestart) {
-                pendingRestart = false;
+            if (lifecycle.transition(s -> s.isPendingRestart() ? s.withPendingRestart(false) : null) != null) {
                 safeAppend("[MSH] 检测到待执行的重启请求，正在重启...\n");
                 Logger.info("Executing pending restart for: " + jarPath, "JarRunner");
-                new Thread(() -> {
-                    stop();
-                    while (process != null && process.isAlive()) {
-                        try {
-                            Thread.sleep(200);
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            return;
-                        }
-                    }
-                    status = Status.STOPPED;
-                    cleanupProcess();
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                    start();
-                }).start();
+                restartAfterStop("pending-restart-");
             }
         }
     }
     
     public void onServerStopping() {
-        if (status == Status.RUNNING) {
-            status = Status.STOPPING;
-            isNormalStop = true;
+        ServerLifecycle.State state = lifecycle.transition(s -> s.getStatus() == Status.RUNNING || s.getStatus() == Status.STARTING
+            ? s.with(Status.STOPPING).withNormalStop(s.isFullyStarted()) : null);
+        if (state == null) {
+            return;
+        }
+        if (state.isNormalStop()) {
             Logger.info("Server is stopping (normal): " + jarPath, "JarRunner");
-            safeAppend("[MSH] Server is stopping...\n");
-        } else if (status == Status.STARTING) {
-            status = Status.STOPPING;
-            if (hasFullyStarted) {
-                isNormalStop = true;
-                Logger.info("Server is stopping after fully started: " + jarPath, "JarRunner");
-            } else {
-                isNormalStop = false;
-                Logger.info("Server is stopping during startup (not normal): " + jarPath, "JarRunner");
-            }
-            safeAppend("[MSH] Server is stopping...\n");
+        } else {
+            Logger.info("Server is stopping during startup (not normal): " + jarPath, "JarRunner");
         }
+        safeAppend("[MSH] Server is stopping...\n");
     }
     
     public void stop() {
-        if (status == Status.STOPPED) {
-            Logger.warn("Server already stopped, skipping stop request: " + jarPath, "JarRunner");
+        ServerLifecycle.State state = lifecycle.transition(s -> s.getStatus() == Status.STOPPED || s.getStatus() == Status.STOPPING ? null
+            : s.with(Status.STOPPING).withNormalStop(true).withTerminated(false));
+        if (state == null) {
+            Logger.warn("Server already " + getStatus().name().toLowerCase() + ", skipping stop request: " + jarPath, "JarRunner");
             return;
         }
-        if (status == Status.STOPPING) {
-            Logger.warn("Server already stopping, skipping stop request: " + jarPath, "JarRunner");
+        Logger.info("Stopping server: " + jarPath, "JarRunner");
+        if (!state.isAttached()) {
             return;
         }
-        Logger.info("Stopping server: " + jarPath, "JarRunner");
-        isNormalStop = true;
-        isTerminated = false;
-        if (commandWriter != null && process != null && process.isAlive()) {
-            status = Status.STOPPING;
-            commandWriter.println("stop");
-            commandWriter.flush();
+        PrintWriter writer = commandWriter;
+        Process current = process;
+        if (writer != null && current != null && current.isAlive()) {
+            writer.println("stop");
+            writer.flush();
             safeAppend("[Command] stop\n");
         } else {
-            status = Status.STOPPED;
+            cleanupProcess(state.getGeneration());
         }
     }
     
-    public void stopWithWait() {
-        boolean wasAlive = process != null && process.isAlive();
+    public CompletableFuture<Void> onStopped() {
+        return lifecycle.get().getStoppedFuture().copy();
+    }
+    
+    public CompletableFuture<Boolean> stopAsync(long timeoutMillis) {
+        CompletableFuture<Void> stopped = lifecycle.get().getStoppedFuture();
         stop();
-        if (!wasAlive) {
-            status = Status.STOPPED;
-            return;
-        }
-        long startWait = System.currentTimeMillis();
-        long maxWait = 5000;
-        while (process != null && process.isAlive() && System.currentTimeMillis() - startWait < maxWait) {
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return;
-            }
-        }
-        if (process != null && process.isAlive()) {
-            status = Status.STOPPED;
+        return stopped.thenApply(v -> true).completeOnTimeout(false, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    public void stopWithWait() {
+        ServerLifecycle.State state = lifecycle.get();
+        if (!stopAsync(STOP_TIMEOUT_MILLIS).join()) {
+            lifecycle.transition(s -> s.getGeneration() == state.getGeneration() ? s.stopped() : null);
         }
     }
     
     public void forceStop() {
-        if (status == Status.STOPPED) {
-            Logger.warn("Server already stopped, skipping force stop request: " + jarPath, "JarRunner");
-            return;
-        }
-        Logger.warn("Force stopping server: " + jarPath, "JarRunner");
-        status = Status.STOPPING;
-        userForceStop = true;
-        isNormalStop = false;
-        isTerminated = false;
-        if (process != null && process.isAlive()) {
-            process.destroyForcibly();
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
+        forceStopAsync(false);
     }
     
     public void forceStopWithWait() {
@@ -1834,81 +2063,55 @@ public class JarRunner {
     }
     
     public void forceStopWithWait(boolean useSystemKill) {
-        if (status == Status.STOPPED) {
+        forceStopAsync(useSystemKill).join();
+    }
+    
+    public CompletableFuture<Void> forceStopAsync(boolean useSystemKill) {
+        ServerLifecycle.State state = lifecycle.transition(s -> s.getStatus() == Status.STOPPED ? null
+            : s.with(Status.STOPPING).withForceStop(true).withNormalStop(false).withTerminated(false));
+        if (state == null) {
             Logger.warn("Server already stopped, skipping force stop request: " + jarPath, "JarRunner");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
-        if (status == Status.STOPPING) {
-            Logger.warn("Server already stopping, skipping force stop request: " + jarPath, "JarRunner");
-            return;
+        Logger.warn("Force stopping server: " + jarPath, "JarRunner");
+        Process current = process;
+        long processPid = -1;
+        if (state.isAttached() && current != null && current.isAlive()) {
+            processPid = current.pid();
+            current.destroyForcibly();
         }
-        userForceStop = true;
-        boolean wasAlive = process != null && process.isAlive();
-        status = Status.STOPPING;
-        isNormalStop = false;
-        isTerminated = false;
-        
-        long processPid = process != null ? process.pid() : -1;
-        
-        if (process != null && process.isAlive()) {
-            process.destroyForcibly();
+        CompletableFuture<Void> exited = state.getStoppedFuture().copy()
+            .completeOnTimeout(null, FORCE_STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (useSystemKill) {
+            long leftoverPid = processPid;
+            exited = exited.thenComposeAsync(v -> terminateLeftovers(leftoverPid),
+                task -> HubExecutors.start("force-stop-" + jarPath, task));
         }
-        if (!wasAlive) {
-            status = Status.STOPPED;
-            userForceStop = false;
-            return;
-        }
-        
-        long startWait = System.currentTimeMillis();
-        long maxWait = 5000;
-        while (process != null && process.isAlive() && System.currentTimeMillis() - startWait < maxWait) {
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                userForceStop = false;
-                return;
-            }
+        return exited.whenComplete((v, error) -> cleanupProcess(state.getGeneration()));
+    }
+    
+    public CompletableFuture<Boolean> shutdownAsync(long graceMillis) {
+        if (getStatus() == Status.STOPPED && !isProcessAlive()) {
+            return CompletableFuture.completedFuture(true);
         }
-        
-        if (process != null && process.isAlive()) {
-            process.destroyForcibly();
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        return stopAsync(graceMillis).thenCompose(stopped -> {
+            if (stopped) {
+                return CompletableFuture.completedFuture(true);
             }
-        }
-        
-        if (useSystemKill && processPid > 0) {
-            killProcessByPid(processPid);
-            List<ProcessInfo> relatedProcesses = findRelatedProcesses();
-            for (ProcessInfo info : relatedProcesses) {
-                killProcessByPid(info.pid);
-            }
-        }
-        
-        status = Status.STOPPED;
-        userForceStop = false;
-        cleanupProcess();
+            Logger.warn("Server did not stop within " + graceMillis + " ms, forcing: " + jarPath, "JarRunner");
+            return forceStopAsync(true).thenApply(v -> false);
+        });
     }
     
-    private void killProcessByPid(long pid) {
-        try {
-            String osName = System.getProperty("os.name").toLowerCase();
-            Process killProcess;
-            
-            if (osName.contains("windows")) {
-                killProcess = Runtime.getRuntime().exec(new String[]{"cmd", "/c", "taskkill /F /PID " + pid + " 2>nul"});
-            } else {
-                killProcess = Runtime.getRuntime().exec(new String[]{"sh", "-c", "kill -9 " + pid + " 2>/dev/null"});
-            }
-            
-            killProcess.waitFor();
-            Thread.sleep(300);
-        } catch (Exception e) {
-            Logger.warn("Failed to kill process by PID " + pid + ": " + e.getMessage(), "JarRunner");
+    private CompletableFuture<Void> terminateLeftovers(long processPid) {
+        List<CompletableFuture<Boolean>> terminations = new ArrayList<>();
+        if (processPid > 0) {
+            terminations.add(ProcessRegistry.terminate(processPid, 0));
         }
+        for (ProcessRegistry.JavaProcess leftover : ProcessRegistry.findByJar(jarPath)) {
+            terminations.add(ProcessRegistry.terminate(leftover.getHandle(), 0));
+        }
+        return CompletableFuture.allOf(terminations.toArray(new CompletableFuture<?>[0]));
     }
     
     public void stopOutputThread() {
@@ -1936,17 +2139,13 @@ public class JarRunner {
     }
     
     public void setEulaExit(boolean eulaExit) {
-        this.eulaExit = eulaExit;
+        lifecycle.transition(s -> s.withEulaExit(eulaExit));
     }
     
-    private volatile boolean cleanupCalled = false;
-    
-    private void cleanupProcess() {
-        synchronized (this) {
-            if (cleanupCalled) {
-                return;
-            }
-            cleanupCalled = true;
+    private void cleanupProcess(long generation) {
+        ServerLifecycle.State state = lifecycle.transition(s -> s.getGeneration() != generation || s.isCleanedUp() ? null : s.withCleanedUp(true));
+        if (state == null) {
+            return;
         }
         
         if (commandWriter != null) {
@@ -1987,19 +2186,18 @@ public class JarRunner {
                 Logger.error("Unexpected error while stopping stderr thread: " + e.getMessage(), "JarRunner");
             }
         }
-        if (processMonitorThread != null && processMonitorThread.isAlive()) {
-            processMonitorThread.interrupt();
-        }
+        processMonitor = null;
         process = null;
-        status = Status.STOPPED;
+        lifecycle.transition(s -> s.getGeneration() == generation ? s.stopped() : null);
         Logger.info("Server cleanup completed", "JarRunner");
         safeAppend("[MSH] Server stopped: " + jarPath + "\n");
+        state.getStoppedFuture().complete(null);
     }
     
 
     
     public void sendCommand(String command) {
-        if ((status == Status.RUNNING || status == Status.STOPPING) && commandWriter != null) {
+        if ((getStatus() == Status.RUNNING || getStatus() == Status.STOPPING) && commandWriter != null) {
             Logger.debug("Sending server command: " + command, "JarRunner");
             commandWriter.println(command);
             commandWriter.flush();
@@ -2007,9 +2205,8 @@ public class JarRunner {
             safeAppend("[Command] " + command + "\n");
             String cmdLower = command.toLowerCase().trim();
             if (cmdLower.equals("stop") || cmdLower.equals("/stop")) {
-                isNormalStop = true;
-                isTerminated = false;
-                status = Status.STOPPING;
+                lifecycle.transition(s -> s.getStatus() == Status.STOPPED ? null
+                    : s.with(Status.STOPPING).withNormalStop(true).withTerminated(false));
             }
         } else {
             Logger.warn("Server not running, cannot send command: " + command, "JarRunner");
@@ -2017,47 +2214,39 @@ public class JarRunner {
     }
     
     public void restart() {
-        if (status == Status.STOPPING) {
+        if (getStatus() == Status.STOPPING) {
             Logger.warn("Server is stopping, skipping restart request: " + jarPath, "JarRunner");
             return;
         }
         Logger.info("Restarting server: " + jarPath, "JarRunner");
         safeAppend("[MSH] Restarting server: " + jarPath + "\n");
         
-        if (status == Status.STARTING) {
+        if (lifecycle.transition(s -> s.getStatus() == Status.STARTING ? s.withPendingRestart(true) : null) != null) {
             Logger.info("Server is still starting, will restart after startup: " + jarPath, "JarRunner");
             safeAppend("[MSH] 服务器正在启动中，启动完成后将自动重启\n");
-            pendingRestart = true;
             return;
         }
         
-        if (status == Status.RUNNING || status == Status.STOPPING) {
-            stop();
-            new Thread(() -> {
-                while (process != null && process.isAlive()) {
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        return;
-                    }
-                }
-                status = Status.STOPPED;
-                cleanupProcess();
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-                start();
-            }).start();
-        } else if (status == Status.STOPPED && (process == null || !process.isAlive())) {
+        Status current = getStatus();
+        if (current == Status.RUNNING || current == Status.STOPPING) {
+            restartAfterStop("restart-");
+        } else if (current == Status.STOPPED && (process == null || !process.isAlive())) {
             Logger.info("Server already stopped, starting directly: " + jarPath, "JarRunner");
             safeAppend("[MSH] 服务器已停止，直接启动\n");
             start();
         }
     }
     
+    private CompletableFuture<Void> restartAfterStop(String threadPrefix) {
+        ServerLifecycle.State state = lifecycle.get();
+        stop();
+        return state.getStoppedFuture().thenRunAsync(() -> {
+            cleanupProcess(state.getGeneration());
+            start();
+        }, CompletableFuture.delayedExecutor(RESTART_DELAY_MILLIS, TimeUnit.MILLISECONDS,
+            task -> HubExecutors.start(threadPrefix + jarPath, task)));
+    }
+    
     public void addToHistory(String command) {
         if (command != null && !command.trim().isEmpty()) {
             if (commandHistory.isEmpty() || !commandHistory.get(commandHistory.size() - 1).equals(command)) {
@@ -0,0 +1,526 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public final class JdkRegistry {
+    public static final String INDEX_FILE = "jdk_index.json";
+    public static final long SCAN_WAIT_MILLIS = 10000;
+    private static final Gson GSON = new Gson();
+    private static final Pattern RELEASE_LINE = Pattern.compile("^([A-Z_]+)=\"?(.*?)\"?$");
+    private static final Pattern MC_VERSION = Pattern.compile("^(\\d+)\\.(\\d+)(?:\\.(\\d+))?");
+    private static final Pattern MC_SNAPSHOT = Pattern.compile("^(\\d{2})w\\d{2}[a-z]");
+    private static final int LATEST_KNOWN_MINOR = 21;
+    private static final int LATEST_KNOWN_SNAPSHOT_YEAR = 25;
+    private static final boolean WINDOWS = System.getProperty("os.name").toLowerCase().contains("windows");
+    private static final Object LOCK = new Object();
+    private static volatile File indexFile = new File("MSH", INDEX_FILE);
+    private static volatile List<Jdk> installations;
+    private static CompletableFuture<List<Jdk>> scan;
+
+    public static class Jdk {
+        public String home;
+        public String version;
+        public int feature;
+        public String vendor;
+        public String arch;
+        public long releaseModified;
+        public long releaseSize;
+
+        public String getExecutable(boolean windowed) {
+            String name = WINDOWS ? (windowed ? "javaw.exe" : "java.exe") : "java";
+            return Paths.get(home, "bin", name).toString();
+        }
+
+        public String getDisplayName() {
+            return "Java " + version + (vendor == null || vendor.isEmpty() ? "" : " (" + vendor + ")");
+        }
+
+        @Override
+        public String toString() {
+            return getDisplayName() + " - " + home;
+        }
+    }
+
+    private JdkRegistry() {
+    }
+
+    public static void setIndexFile(File file) {
+        indexFile = file;
+        installations = null;
+    }
+
+    public static CompletableFuture<List<Jdk>> refreshAsync() {
+        synchronized (LOCK) {
+            if (scan != null && !scan.isDone()) {
+                return scan;
+            }
+            CompletableFuture<List<Jdk>> future = new CompletableFuture<>();
+            scan = future;
+            HubExecutors.start("jdk-scan", () -> {
+                try {
+                    future.complete(rescan());
+                } catch (RuntimeException e) {
+                    Logger.error("JDK scan failed: " + e.getMessage(), "JdkRegistry");
+                    future.complete(list());
+                }
+            });
+            return future;
+        }
+    }
+
+    public static List<Jdk> list() {
+        List<Jdk> current = installations;
+        if (current != null) {
+            return current;
+        }
+        synchronized (LOCK) {
+            if (installations == null) {
+                installations = Collections.unmodifiableList(loadIndex());
+            }
+            return installations;
+        }
+    }
+
+    public static List<Jdk> awaitList(long waitMillis) {
+        CompletableFuture<List<Jdk>> pending;
+        synchronized (LOCK) {
+            pending = scan;
+        }
+        if (waitMillis > 0 && pending != null && !pending.isDone()) {
+            try {
+                return pending.get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                Logger.warn("JDK scan not finished, using cached index", "JdkRegistry");
+            }
+        }
+        return list();
+    }
+
+    public static int minimumJava(String mcVersion) {
+        int[] version = parseMcVersion(mcVersion);
+        if (version == null) {
+            return 0;
+        }
+        if (version[0] != 1) {
+            return 21;
+        }
+        if (version[1] > 20 || (version[1] == 20 && version[2] >= 5)) {
+            return 21;
+        }
+        if (version[1] >= 18) {
+            return 17;
+        }
+        return version[1] == 17 ? 16 : 8;
+    }
+
+    public static int maximumJava(String mcVersion) {
+        int[] version = parseMcVersion(mcVersion);
+        return version != null && version[0] == 1 && version[1] < 17 ? 16 : Integer.MAX_VALUE;
+    }
+
+    public static boolean isNewerThanKnown(String mcVersion) {
+        int[] version = parseMcVersion(mcVersion);
+        return version != null && (version[0] != 1 || version[1] > LATEST_KNOWN_MINOR);
+    }
+
+    public static int readJarJavaVersion(File jarFile) {
+        try (ZipFile zip = new ZipFile(jarFile)) {
+            ZipEntry entry = zip.getEntry("version.json");
+            if (entry == null) {
+                return 0;
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                JsonElement root = JsonParser.parseReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                if (!root.isJsonObject()) {
+                    return 0;
+                }
+                JsonObject object = root.getAsJsonObject();
+                JsonElement javaVersion = object.get("java_version");
+                return javaVersion != null && javaVersion.isJsonPrimitive() ? javaVersion.getAsInt() : 0;
+            }
+        } catch (IOException | JsonParseException | IllegalStateException | NumberFormatException e) {
+            Logger.debug("Cannot read version.json from " + jarFile + ": " + e.getMessage(), "JdkRegistry");
+            return 0;
+        }
+    }
+
+    public static Jdk select(String mcVersion, File jarFile, long waitMillis) {
+        int minimum = jarFile == null ? 0 : readJarJavaVersion(jarFile);
+        int maximum = Integer.MAX_VALUE;
+        boolean preferNewest = false;
+        if (minimum == 0) {
+            minimum = minimumJava(mcVersion);
+            maximum = maximumJava(mcVersion);
+            preferNewest = isNewerThanKnown(mcVersion);
+        }
+        if (minimum == 0) {
+            if (mcVersion != null) {
+                Logger.info("Unrecognized MC version " + mcVersion + ", no runtime selected", "JdkRegistry");
+            }
+            return null;
+        }
+        Jdk inRange = null;
+        Jdk fallback = null;
+        for (Jdk jdk : awaitList(waitMillis)) {
+            if (jdk.feature < minimum || !new File(jdk.getExecutable(false)).isFile()) {
+                continue;
+            }
+            if (jdk.feature <= maximum) {
+                if (inRange == null || (preferNewest ? isNewer(jdk, inRange) : isBetterMatch(jdk, inRange))) {
+                    inRange = jdk;
+                }
+            } else if (fallback == null || isBetterMatch(jdk, fallback)) {
+                fallback = jdk;
+            }
+        }
+        if (inRange == null && fallback != null) {
+            Logger.warn("No Java " + minimum + "-" + maximum + " installed for MC " + mcVersion
+                + ", falling back to " + fallback.version, "JdkRegistry");
+        }
+        return inRange != null ? inRange : fallback;
+    }
+
+    public static Jdk findByExecutable(String executable) {
+        if (executable == null || executable.isEmpty()) {
+            return null;
+        }
+        for (Jdk jdk : list()) {
+            if (executable.equals(jdk.getExecutable(true)) || executable.equals(jdk.getExecutable(false))) {
+                return jdk;
+            }
+        }
+        return null;
+    }
+
+    public static Jdk describe(String executable) {
+        if (executable == null || executable.isEmpty()) {
+            return null;
+        }
+        try {
+            Path java = executable.contains("/") || executable.contains("\\") ? Paths.get(executable) : findOnPath(executable);
+            if (java == null || !Files.isRegularFile(java)) {
+                return null;
+            }
+            Path bin = java.toRealPath().getParent();
+            Path home = bin == null ? null : bin.getParent();
+            if (home != null && !Files.isRegularFile(home.resolve("release")) && home.getFileName() != null
+                    && home.getFileName().toString().equals("jre")) {
+                home = home.getParent();
+            }
+            if (home == null) {
+                return null;
+            }
+            for (Jdk jdk : list()) {
+                if (jdk.home.equals(home.toString())) {
+                    return jdk;
+                }
+            }
+            Path release = home.resolve("release");
+            BasicFileAttributes attributes = Files.readAttributes(release, BasicFileAttributes.class);
+            return readRelease(home, release, attributes.lastModifiedTime().toMillis(), attributes.size());
+        } catch (IOException | InvalidPathException e) {
+            Logger.debug("Cannot describe Java runtime " + executable + ": " + e.getMessage(), "JdkRegistry");
+            return null;
+        }
+    }
+
+    private static Path findOnPath(String command) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return null;
+        }
+        String name = WINDOWS && !command.toLowerCase().endsWith(".exe") ? command + ".exe" : command;
+        for (String dir : path.split(File.pathSeparator)) {
+            if (dir.isEmpty()) {
+                continue;
+            }
+            try {
+                Path candidate = Paths.get(dir, name);
+                if (Files.isRegularFile(candidate)) {
+                    return candidate;
+                }
+            } catch (InvalidPathException e) {
+                Logger.debug("Skipping PATH entry " + dir + ": " + e.getMessage(), "JdkRegistry");
+            }
+        }
+        return null;
+    }
+
+    private static boolean isNewer(Jdk candidate, Jdk current) {
+        if (candidate.feature != current.feature) {
+            return candidate.feature > current.feature;
+        }
+        return compareVersions(candidate.version, current.version) > 0;
+    }
+
+    private static boolean isBetterMatch(Jdk candidate, Jdk current) {
+        if (candidate.feature != current.feature) {
+            return candidate.feature < current.feature;
+        }
+        return compareVersions(candidate.version, current.version) > 0;
+    }
+
+    private static int[] parseMcVersion(String mcVersion) {
+        if (mcVersion == null) {
+            return null;
+        }
+        String trimmed = mcVersion.trim();
+        Matcher matcher = MC_VERSION.matcher(trimmed);
+        if (matcher.find()) {
+            int major = Integer.parseInt(matcher.group(1));
+            int minor = Integer.parseInt(matcher.group(2));
+            int patch = matcher.group(3) == null ? 0 : Integer.parseInt(matcher.group(3));
+            return new int[]{major, minor, patch};
+        }
+        Matcher snapshot = MC_SNAPSHOT.matcher(trimmed);
+        if (!snapshot.find()) {
+            return null;
+        }
+        int year = Integer.parseInt(snapshot.group(1));
+        if (year > LATEST_KNOWN_SNAPSHOT_YEAR) {
+            return new int[]{year, 0, 0};
+        }
+        if (year >= 24) {
+            return new int[]{1, 21, 0};
+        }
+        if (year >= 22) {
+            return new int[]{1, 19, 0};
+        }
+        return year == 21 ? new int[]{1, 17, 0} : new int[]{1, 16, 0};
+    }
+
+    static int parseFeature(String version) {
+        String[] parts = version.split("[._+-]");
+        try {
+            int first = Integer.parseInt(parts[0]);
+            return first == 1 && parts.length > 1 ? Integer.parseInt(parts[1]) : first;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static int compareVersions(String a, String b) {
+        String[] left = a.split("[^0-9]+");
+        String[] right = b.split("[^0-9]+");
+        for (int i = 0; i < Math.max(left.length, right.length); i++) {
+            long l = i < left.length && !left[i].isEmpty() ? Long.parseLong(left[i]) : 0;
+            long r = i < right.length && !right[i].isEmpty() ? Long.parseLong(right[i]) : 0;
+            if (l != r) {
+                return Long.compare(l, r);
+            }
+        }
+        return 0;
+    }
+
+    private static List<Jdk> rescan() {
+        long start = System.nanoTime();
+        Map<String, Jdk> cached = new HashMap<>();
+        for (Jdk jdk : list()) {
+            cached.put(jdk.home, jdk);
+        }
+        List<Jdk> found = new ArrayList<>();
+        int parsed = 0;
+        for (Path home : candidateHomes()) {
+            Path release = home.resolve("release");
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(release, BasicFileAttributes.class);
+            } catch (IOException e) {
+                continue;
+            }
+            if (!attributes.isRegularFile()) {
+                continue;
+            }
+            String key = home.toString();
+            long modified = attributes.lastModifiedTime().toMillis();
+            Jdk jdk = cached.get(key);
+            if (jdk == null || jdk.releaseModified != modified || jdk.releaseSize != attributes.size()) {
+                jdk = readRelease(home, release, modified, attributes.size());
+                parsed++;
+            }
+            if (jdk != null && new File(jdk.getExecutable(false)).isFile()) {
+                found.add(jdk);
+            }
+        }
+        found.sort(Comparator.comparingInt((Jdk jdk) -> jdk.feature).reversed()
+            .thenComparing((j1, j2) -> compareVersions(j2.version, j1.version)));
+        List<Jdk> result = Collections.unmodifiableList(found);
+        boolean changed = parsed > 0 || found.size() != cached.size();
+        synchronized (LOCK) {
+            installations = result;
+        }
+        if (changed) {
+            saveIndex(found);
+        }
+        Logger.info(String.format("JDK scan found %d runtimes (%d release files read) in %d ms",
+            found.size(), parsed, (System.nanoTime() - start) / 1_000_000), "JdkRegistry");
+        return result;
+    }
+
+    private static Jdk readRelease(Path home, Path release, long modified, long size) {
+        Map<String, String> values = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(release, StandardCharsets.ISO_8859_1)) {
+                Matcher matcher = RELEASE_LINE.matcher(line.trim());
+                if (matcher.matches()) {
+                    values.put(matcher.group(1), matcher.group(2));
+                }
+            }
+        } catch (IOException e) {
+            Logger.warn("Cannot read JDK release file " + release + ": " + e.getMessage(), "JdkRegistry");
+            return null;
+        }
+        String version = values.get("JAVA_VERSION");
+        if (version == null || parseFeature(version) == 0) {
+            return null;
+        }
+        Jdk jdk = new Jdk();
+        jdk.home = home.toString();
+        jdk.version = version;
+        jdk.feature = parseFeature(version);
+        jdk.vendor = values.getOrDefault("IMPLEMENTOR", "");
+        jdk.arch = values.getOrDefault("OS_ARCH", "");
+        jdk.releaseModified = modified;
+        jdk.releaseSize = size;
+        return jdk;
+    }
+
+    private static Set<Path> candidateHomes() {
+        Set<Path> homes = new LinkedHashSet<>();
+        addHome(homes, System.getenv("JAVA_HOME"));
+        addHome(homes, System.getProperty("java.home"));
+        Path pathJava = findOnPath("java");
+        if (pathJava != null) {
+            try {
+                Path bin = pathJava.toRealPath().getParent();
+                if (bin != null && bin.getParent() != null) {
+                    addHome(homes, bin.getParent().toString());
+                }
+            } catch (IOException e) {
+                Logger.debug("Cannot resolve java on PATH: " + e.getMessage(), "JdkRegistry");
+            }
+        }
+        String userHome = System.getProperty("user.home");
+        List<String> roots = new ArrayList<>(List.of(
+            "/usr/lib/jvm", "/usr/java", "/usr/local/java", "/opt/java", "/opt/jdk", "/opt",
+            "/Library/Java/JavaVirtualMachines",
+            userHome + "/Library/Java/JavaVirtualMachines",
+            userHome + "/.sdkman/candidates/java",
+            userHome + "/.jdks",
+            userHome + "/.gradle/jdks",
+            userHome + "/.asdf/installs/java"));
+        for (String programFiles : new String[]{System.getenv("ProgramFiles"), System.getenv("ProgramFiles(x86)")}) {
+            if (programFiles != null) {
+                for (String vendor : new String[]{"Java", "Eclipse Adoptium", "Zulu", "Microsoft", "Amazon Corretto", "BellSoft", "Semeru"}) {
+                    roots.add(programFiles + File.separator + vendor);
+                }
+            }
+        }
+        for (String root : roots) {
+            Path dir;
+            try {
+                dir = Paths.get(root);
+            } catch (InvalidPathException e) {
+                continue;
+            }
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                for (Path child : children) {
+                    addHome(homes, child.toString());
+                    addHome(homes, child.resolve("Contents").resolve("Home").toString());
+                }
+            } catch (IOException e) {
+                Logger.debug("Cannot list JDK directory " + dir + ": " + e.getMessage(), "JdkRegistry");
+            }
+        }
+        return homes;
+    }
+
+    private static void addHome(Set<Path> homes, String home) {
+        if (home == null || home.isEmpty()) {
+            return;
+        }
+        try {
+            Path path = Paths.get(home);
+            if (Files.isRegularFile(path.resolve("release"))) {
+                homes.add(path.toRealPath());
+            }
+        } catch (IOException | InvalidPathException e) {
+            Logger.debug("Skipping JDK candidate " + home + ": " + e.getMessage(), "JdkRegistry");
+        }
+    }
+
+    private static List<Jdk> loadIndex() {
+        File file = indexFile;
+        if (!file.isFile()) {
+            return new ArrayList<>();
+        }
+        try {
+            String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            List<Jdk> loaded = GSON.fromJson(content, new TypeToken<List<Jdk>>() { }.getType());
+            List<Jdk> result = new ArrayList<>();
+            if (loaded != null) {
+                for (Jdk jdk : loaded) {
+                    if (jdk != null && jdk.home != null && jdk.version != null) {
+                        result.add(jdk);
+                    }
+                }
+            }
+            return result;
+        } catch (IOException | JsonParseException e) {
+            Logger.warn("Ignoring damaged JDK index " + file + ": " + e.getMessage(), "JdkRegistry");
+            return new ArrayList<>();
+        }
+    }
+
+    private static void saveIndex(List<Jdk> jdks) {
+        Path target = indexFile.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Files.write(temp, GSON.toJson(jdks).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Logger.error("Failed to write JDK index " + target + ": " + e.getMessage(), "JdkRegistry");
+        }
+    }
+}
@@ -0,0 +1,337 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class LaunchProfile {
+    public static final String AUTO_JAVA = "auto";
+    public static final long SYSTEM_RESERVE_MB = 1024;
+    public static final long MIN_NATIVE_OVERHEAD_MB = 256;
+    public static final int MIN_HEAP_MB = 512;
+    private static final long AIKAR_LARGE_HEAP_MB = 12 * 1024;
+
+    public enum GarbageCollector {
+        DEFAULT("默认", null, 0),
+        G1("G1", "-XX:+UseG1GC", 7),
+        ZGC("ZGC", "-XX:+UseZGC", 15),
+        SHENANDOAH("Shenandoah", "-XX:+UseShenandoahGC", 12);
+
+        private final String label;
+        private final String flag;
+        private final int minimumJava;
+
+        GarbageCollector(String label, String flag, int minimumJava) {
+            this.label = label;
+            this.flag = flag;
+            this.minimumJava = minimumJava;
+        }
+
+        public String getFlag() {
+            return flag;
+        }
+
+        public int getMinimumJava() {
+            return minimumJava;
+        }
+
+        public boolean isSupportedBy(JdkRegistry.Jdk runtime) {
+            if (runtime == null || runtime.feature == 0) {
+                return true;
+            }
+            if (this == SHENANDOAH && runtime.vendor != null && runtime.vendor.contains("Oracle")) {
+                return false;
+            }
+            return runtime.feature >= minimumJava;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public enum FlagPreset {
+        NONE("无"),
+        AIKAR("Aikar (G1 调优)");
+
+        private final String label;
+
+        FlagPreset(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final String javaPath;
+    private final int minHeapMB;
+    private final int maxHeapMB;
+    private final GarbageCollector gc;
+    private final FlagPreset preset;
+    private final String jvmArgs;
+    private final String programArgs;
+    private final String environment;
+
+    public LaunchProfile(String javaPath, int minHeapMB, int maxHeapMB, GarbageCollector gc, FlagPreset preset,
+                         String jvmArgs, String programArgs, String environment) {
+        this.javaPath = javaPath == null ? "" : javaPath.trim();
+        this.minHeapMB = Math.max(0, minHeapMB);
+        this.maxHeapMB = Math.max(0, maxHeapMB);
+        this.gc = gc == null ? GarbageCollector.DEFAULT : gc;
+        this.preset = preset == null ? FlagPreset.NONE : preset;
+        this.jvmArgs = jvmArgs == null ? "" : jvmArgs.trim();
+        this.programArgs = programArgs == null ? "" : programArgs.trim();
+        this.environment = environment == null ? "" : environment;
+    }
+
+    public static LaunchProfile defaults() {
+        return new LaunchProfile("", 0, 0, GarbageCollector.DEFAULT, FlagPreset.NONE, "", "", "");
+    }
+
+    public static LaunchProfile newServerDefaults() {
+        return new LaunchProfile(AUTO_JAVA, 0, 0, GarbageCollector.DEFAULT, FlagPreset.NONE, "", "", "");
+    }
+
+    public String getJavaPath() {
+        return javaPath;
+    }
+
+    public int getMinHeapMB() {
+        return minHeapMB;
+    }
+
+    public int getMaxHeapMB() {
+        return maxHeapMB;
+    }
+
+    public GarbageCollector getGc() {
+        return gc;
+    }
+
+    public FlagPreset getPreset() {
+        return preset;
+    }
+
+    public String getJvmArgs() {
+        return jvmArgs;
+    }
+
+    public String getProgramArgs() {
+        return programArgs;
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public boolean isAutoJava() {
+        return AUTO_JAVA.equalsIgnoreCase(javaPath);
+    }
+
+    public String resolveJava(String defaultJava) {
+        return javaPath.isEmpty() || isAutoJava() ? defaultJava : javaPath;
+    }
+
+    public List<String> buildCommand(String defaultJava, String jarPath, boolean noGui) {
+        List<String> command = new ArrayList<>();
+        command.add(resolveJava(defaultJava));
+        if (minHeapMB > 0) {
+            command.add("-Xms" + minHeapMB + "M");
+        }
+        if (maxHeapMB > 0) {
+            command.add("-Xmx" + maxHeapMB + "M");
+        }
+        GarbageCollector effectiveGc = preset == FlagPreset.AIKAR && gc == GarbageCollector.DEFAULT ? GarbageCollector.G1 : gc;
+        if (effectiveGc.getFlag() != null) {
+            command.add(effectiveGc.getFlag());
+        }
+        if (preset == FlagPreset.AIKAR && effectiveGc == GarbageCollector.G1) {
+            command.addAll(aikarFlags(maxHeapMB));
+        }
+        command.addAll(ProcessRegistry.tokenize(jvmArgs));
+        command.add("-jar");
+        command.add(jarPath);
+        List<String> extra = ProcessRegistry.tokenize(programArgs);
+        if (noGui && !extra.contains("nogui") && !extra.contains("--nogui")) {
+            command.add("--nogui");
+        }
+        command.addAll(extra);
+        return command;
+    }
+
+    static List<String> aikarFlags(int maxHeapMB) {
+        boolean large = maxHeapMB > AIKAR_LARGE_HEAP_MB;
+        List<String> flags = new ArrayList<>();
+        Collections.addAll(flags,
+            "-XX:+ParallelRefProcEnabled",
+            "-XX:MaxGCPauseMillis=200",
+            "-XX:+UnlockExperimentalVMOptions",
+            "-XX:+DisableExplicitGC",
+            "-XX:+AlwaysPreTouch",
+            "-XX:G1NewSizePercent=" + (large ? 40 : 30),
+            "-XX:G1MaxNewSizePercent=" + (large ? 50 : 40),
+            "-XX:G1HeapRegionSize=" + (large ? "16M" : "8M"),
+            "-XX:G1ReservePercent=" + (large ? 15 : 20),
+            "-XX:G1HeapWastePercent=5",
+            "-XX:G1MixedGCCountTarget=4",
+            "-XX:InitiatingHeapOccupancyPercent=" + (large ? 20 : 15),
+            "-XX:G1MixedGCLiveThresholdPercent=90",
+            "-XX:G1RSetUpdatingPauseTimePercent=5",
+            "-XX:SurvivorRatio=32",
+            "-XX:+PerfDisableSharedMem",
+            "-XX:MaxTenuringThreshold=1",
+            "-Dusing.aikars.flags=https://mcflags.emc.gs",
+            "-Daikars.new.flags=true");
+        return flags;
+    }
+
+    public Map<String, String> getEnvironmentMap() {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String line : environment.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            int eq = trimmed.indexOf('=');
+            if (eq > 0) {
+                result.put(trimmed.substring(0, eq).trim(), trimmed.substring(eq + 1));
+            }
+        }
+        return result;
+    }
+
+    public LaunchProfile withGc(GarbageCollector gc) {
+        return new LaunchProfile(javaPath, minHeapMB, maxHeapMB, gc, preset, jvmArgs, programArgs, environment);
+    }
+
+    public String getGcProblem(JdkRegistry.Jdk runtime) {
+        if (gc.isSupportedBy(runtime)) {
+            return null;
+        }
+        if (runtime.feature >= gc.getMinimumJava()) {
+            return "所选 Java (" + runtime.getDisplayName() + ") 不包含 " + gc + " 垃圾回收器";
+        }
+        return "所选 Java " + runtime.version + " 不支持 " + gc + " 垃圾回收器 (需要 Java " + gc.getMinimumJava() + " 或更高)";
+    }
+
+    public List<String> validate() {
+        return validate(null);
+    }
+
+    public List<String> validate(JdkRegistry.Jdk runtime) {
+        List<String> problems = new ArrayList<>();
+        String gcProblem = getGcProblem(runtime);
+        if (gcProblem != null) {
+            problems.add(gcProblem);
+        }
+        if (!javaPath.isEmpty() && (javaPath.contains("/") || javaPath.contains("\\"))) {
+            File java = new File(javaPath);
+            if (!java.isFile() || !java.canExecute()) {
+                problems.add("Java 路径不存在或不可执行: " + javaPath);
+            }
+        }
+        if (maxHeapMB > 0 && maxHeapMB < MIN_HEAP_MB) {
+            problems.add("最大内存不能小于 " + MIN_HEAP_MB + " MB");
+        }
+        if (minHeapMB > 0 && maxHeapMB > 0 && minHeapMB > maxHeapMB) {
+            problems.add("最小内存 (" + minHeapMB + " MB) 不能大于最大内存 (" + maxHeapMB + " MB)");
+        }
+        if (preset == FlagPreset.AIKAR && gc != GarbageCollector.DEFAULT && gc != GarbageCollector.G1) {
+            problems.add("Aikar 参数预设只适用于 G1 垃圾回收器");
+        }
+        for (String arg : ProcessRegistry.tokenize(jvmArgs)) {
+            String lower = arg.toLowerCase(Locale.ROOT);
+            if ((lower.startsWith("-xmx") && maxHeapMB > 0) || (lower.startsWith("-xms") && minHeapMB > 0)) {
+                problems.add("额外 JVM 参数中的 " + arg + " 与内存设置冲突");
+            } else if (lower.matches("-xx:\\+use\\w*gc") && (gc != GarbageCollector.DEFAULT || preset == FlagPreset.AIKAR)) {
+                problems.add("额外 JVM 参数中的 " + arg + " 与垃圾回收器设置冲突");
+            } else if (lower.equals("-jar")) {
+                problems.add("额外 JVM 参数中不能包含 -jar");
+            }
+        }
+        int lineNumber = 0;
+        for (String line : environment.split("\\R")) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#") && trimmed.indexOf('=') <= 0) {
+                problems.add("环境变量第 " + lineNumber + " 行格式应为 KEY=VALUE");
+            }
+        }
+        return problems;
+    }
+
+    public long getExplicitMaxHeapMB() {
+        if (maxHeapMB > 0) {
+            return maxHeapMB;
+        }
+        long result = 0;
+        for (String arg : ProcessRegistry.tokenize(jvmArgs)) {
+            if (arg.length() > 4 && arg.regionMatches(true, 0, "-Xmx", 0, 4)) {
+                long parsed = parseMemoryMB(arg.substring(4));
+                result = parsed > 0 ? parsed : result;
+            }
+        }
+        return result;
+    }
+
+    static long parseMemoryMB(String value) {
+        String lower = value.trim().toLowerCase(Locale.ROOT);
+        if (lower.isEmpty()) {
+            return 0;
+        }
+        char unit = lower.charAt(lower.length() - 1);
+        String digits = Character.isDigit(unit) ? lower : lower.substring(0, lower.length() - 1);
+        long number;
+        try {
+            number = Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+        switch (unit) {
+            case 't':
+                return number * 1024 * 1024;
+            case 'g':
+                return number * 1024;
+            case 'm':
+                return number;
+            case 'k':
+                return number / 1024;
+            default:
+                return Character.isDigit(unit) ? number / (1024 * 1024) : 0;
+        }
+    }
+
+    public long getEstimatedFootprintMB() {
+        long explicit = getExplicitMaxHeapMB();
+        long heap = explicit > 0 ? explicit : getPhysicalMemoryMB() / 4;
+        return heap + Math.max(MIN_NATIVE_OVERHEAD_MB, heap / 10);
+    }
+
+    public static long getPhysicalMemoryMB() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getTotalMemorySize() / (1024 * 1024);
+        }
+        return Runtime.getRuntime().maxMemory() / (1024 * 1024) * 4;
+    }
+
+    public static long getFreeMemoryMB() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getFreeMemorySize() / (1024 * 1024);
+        }
+        return -1;
+    }
+
+    public static long getMemoryBudgetMB() {
+        long hubMB = Runtime.getRuntime().totalMemory() / (1024 * 1024);
+        return Math.max(0, getPhysicalMemoryMB() - SYSTEM_RESERVE_MB - hubMB);
+    }
+}
@@ -0,0 +1,111 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public class LocalBackupTarget implements BackupTarget {
+    public static final String DEFAULT_ROOT = "MSH/backup";
+
+    private final File root;
+
+    public LocalBackupTarget(File root) {
+        this.root = root;
+    }
+
+    public static LocalBackupTarget defaultTarget() {
+        return new LocalBackupTarget(new File(DEFAULT_ROOT));
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE_LOCAL;
+    }
+
+    @Override
+    public String describe() {
+        return "本地: " + root.getAbsolutePath();
+    }
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+
+    @Override
+    public File getLocalDirectory(String server) {
+        return new File(root, server);
+    }
+
+    @Override
+    public Upload upload(String server, String name) throws IOException {
+        File dir = getLocalDirectory(server);
+        Files.createDirectories(dir.toPath());
+        Path target = resolve(server, name);
+        Path temp = target.resolveSibling(name + ".part");
+        OutputStream out = Files.newOutputStream(temp);
+        return new Upload() {
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] data, int offset, int length) throws IOException {
+                out.write(data, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                out.close();
+                try {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+
+            @Override
+            public void abort() {
+                closed = true;
+                try {
+                    out.close();
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    Logger.warn("Failed to discard partial backup " + temp + ": " + e.getMessage(), "LocalBackupTarget");
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream open(String server, String name) throws IOException {
+        return Files.newInputStream(resolve(server, name));
+    }
+
+    @Override
+    public void delete(String server, String name) throws IOException {
+        Files.deleteIfExists(resolve(server, name));
+    }
+
+    private Path resolve(String server, String name) throws IOException {
+        File dir = getLocalDirectory(server);
+        File file = new File(dir, name);
+        if (!file.getCanonicalPath().startsWith(dir.getCanonicalPath() + File.separator)) {
+            throw new IOException("Invalid backup name: " + name);
+        }
+        return file.toPath();
+    }
+}
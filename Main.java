@@ -10,6 +10,8 @@ import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JLabel;
 
@@ -19,11 +21,15 @@ public class Main {
     private static final String AUTHOR = "znpwlk";
     private static final String APP_NAME = "Minecraft Server Hub";
     private static final String APP_SHORT_NAME = "MSH";
+    private static final String UI_JOB_OWNER = "ui";
     private static Main instance;
     private static volatile boolean shuttingDown = false;
     private JFrame frame;
     private JTabbedPane tabbedPane;
     private List<JarRunner> jarRunners;
+    private static final long SHUTDOWN_FORCE_MARGIN_MILLIS = 30000;
+    private final java.util.Map<JarRunner, HubScheduler.Job> statusJobs = new java.util.concurrent.ConcurrentHashMap<>();
+    private final java.util.Map<JarRunner, ServerLifecycle.Listener> statusListeners = new java.util.concurrent.ConcurrentHashMap<>();
     private Properties config;
     private File configFile;
     private JTextArea logTextArea;
@@ -161,41 +167,15 @@ public class Main {
             shuttingDown = true;
             Logger.info("System shutdown hook triggered", "Main");
             if (instance != null) {
-                for (JarRunner jarRunner : instance.getJarRunners()) {
-                    try {
-                        if (jarRunner.getStatus() == JarRunner.Status.RUNNING) {
-                            jarRunner.stop();
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Failed to stop server: " + e.getMessage());
-                    }
-                }
-                
-                int waitCount = 0;
-                while (waitCount < 30) {
-                    boolean allStopped = true;
-                    for (JarRunner jarRunner : instance.getJarRunners()) {
-                        if (jarRunner.getStatus() != JarRunner.Status.STOPPED) {
-                            allStopped = false;
-                            break;
-                        }
-                    }
-                    if (allStopped) break;
-                    
-                    try {
-                        Thread.sleep(500);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                    waitCount++;
+                try {
+                    shutdownServers(instance.getJarRunners(), 15000, remaining -> {})
+                        .get(15000 + SHUTDOWN_FORCE_MARGIN_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    System.err.println("Failed to stop servers: " + e.getMessage());
                 }
                 
                 for (JarRunner jarRunner : instance.getJarRunners()) {
                     try {
-                        if (jarRunner.getStatus() != JarRunner.Status.STOPPED) {
-                            jarRunner.forceStopWithWait(true);
-                        }
                         jarRunner.cleanup();
                     } catch (Exception e) {
                         System.err.println("Failed to cleanup server: " + e.getMessage());
@@ -256,7 +236,11 @@ public class Main {
         }
         configFile = new File(mshDir, "server_manager_config.properties");
         loadConfig();
+        String hubQuotaMB = config.getProperty("backup.hubQuotaMB");
+        BackupRetention.setHubQuotaBytes(hubQuotaMB != null ? Long.parseLong(hubQuotaMB) * 1024L * 1024L : 0);
         Logger.info("Configuration loaded successfully", "Main");
+        JdkRegistry.setIndexFile(new File(mshDir, JdkRegistry.INDEX_FILE));
+        JdkRegistry.refreshAsync();
         updateManager = new UpdateManager(this);
         frame = new JFrame(APP_NAME + " (" + APP_SHORT_NAME + ")");
         frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
@@ -827,21 +811,166 @@ public class Main {
         };
     }
     
-    private void saveBackupConfig(String jarPath, boolean enabled, int intervalMinutes, int maxCount, int deleteDays) {
+    private void saveBackupConfig(String jarPath, boolean enabled, int intervalMinutes, int maxCount, int deleteDays, String mode, int memoryLimitMB, int level, boolean snapshot, boolean snapshotFullCopy) {
         String keyPrefix = "backup." + jarPath + ".";
         config.setProperty(keyPrefix + "enabled", String.valueOf(enabled));
         config.setProperty(keyPrefix + "interval", String.valueOf(intervalMinutes));
         config.setProperty(keyPrefix + "maxCount", String.valueOf(maxCount));
         config.setProperty(keyPrefix + "deleteDays", String.valueOf(deleteDays));
+        config.setProperty(keyPrefix + "mode", mode);
+        config.setProperty(keyPrefix + "memoryMB", String.valueOf(memoryLimitMB));
+        config.setProperty(keyPrefix + "level", String.valueOf(level));
+        config.setProperty(keyPrefix + "snapshot", String.valueOf(snapshot));
+        config.setProperty(keyPrefix + "snapshotFullCopy", String.valueOf(snapshotFullCopy));
+        saveConfig();
+    }
+    
+    private void saveBackupThrottleConfig(String jarPath, int rateLimitKBps, int filesPerSecond, boolean adaptive, boolean lowPriority) {
+        String keyPrefix = "backup." + jarPath + ".";
+        config.setProperty(keyPrefix + "rateKBps", String.valueOf(rateLimitKBps));
+        config.setProperty(keyPrefix + "filesPerSecond", String.valueOf(filesPerSecond));
+        config.setProperty(keyPrefix + "adaptive", String.valueOf(adaptive));
+        config.setProperty(keyPrefix + "lowPriority", String.valueOf(lowPriority));
         saveConfig();
     }
     
+    private void saveBackupRetentionConfig(String jarPath, int keepHourly, int keepDaily, int keepWeekly, int keepMonthly, int quotaMB, int hubQuotaMB) {
+        String keyPrefix = "backup." + jarPath + ".";
+        config.setProperty(keyPrefix + "keepHourly", String.valueOf(keepHourly));
+        config.setProperty(keyPrefix + "keepDaily", String.valueOf(keepDaily));
+        config.setProperty(keyPrefix + "keepWeekly", String.valueOf(keepWeekly));
+        config.setProperty(keyPrefix + "keepMonthly", String.valueOf(keepMonthly));
+        config.setProperty(keyPrefix + "quotaMB", String.valueOf(quotaMB));
+        config.setProperty("backup.hubQuotaMB", String.valueOf(hubQuotaMB));
+        saveConfig();
+    }
+
+    private int[] loadBackupRetentionConfig(String jarPath) {
+        String keyPrefix = "backup." + jarPath + ".";
+        String[] keys = {"keepHourly", "keepDaily", "keepWeekly", "keepMonthly", "quotaMB"};
+        int[] values = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            String value = config.getProperty(keyPrefix + keys[i]);
+            values[i] = value != null ? Integer.parseInt(value) : 0;
+        }
+        return values;
+    }
+
+    private void saveBackupVerifyConfig(String jarPath, boolean verifyAfter, boolean testRestore, boolean scrub, int scrubHour) {
+        String keyPrefix = "backup." + jarPath + ".";
+        config.setProperty(keyPrefix + "verifyAfter", String.valueOf(verifyAfter));
+        config.setProperty(keyPrefix + "verifyTestRestore", String.valueOf(testRestore));
+        config.setProperty(keyPrefix + "scrub", String.valueOf(scrub));
+        config.setProperty(keyPrefix + "scrubHour", String.valueOf(scrubHour));
+        saveConfig();
+    }
+
+    private Object[] loadBackupVerifyConfig(String jarPath) {
+        String keyPrefix = "backup." + jarPath + ".";
+        String verifyAfterStr = config.getProperty(keyPrefix + "verifyAfter");
+        String scrubHourStr = config.getProperty(keyPrefix + "scrubHour");
+        return new Object[]{
+            verifyAfterStr == null || Boolean.parseBoolean(verifyAfterStr),
+            Boolean.parseBoolean(config.getProperty(keyPrefix + "verifyTestRestore")),
+            Boolean.parseBoolean(config.getProperty(keyPrefix + "scrub")),
+            scrubHourStr != null ? Integer.parseInt(scrubHourStr) : 4
+        };
+    }
+
+    private static final String[] S3_CONFIG_KEYS = {"endpoint", "region", "bucket", "prefix", "accessKey", "secretKey", "pathStyle", "partSizeMB", "parallelism"};
+
+    private void saveBackupTargetConfig(String jarPath, String type, String localPath, String[] s3Settings) {
+        String keyPrefix = "backup." + jarPath + ".";
+        config.setProperty(keyPrefix + "target", type);
+        config.setProperty(keyPrefix + "targetPath", localPath);
+        for (int i = 0; i < S3_CONFIG_KEYS.length; i++) {
+            config.setProperty(keyPrefix + "s3." + S3_CONFIG_KEYS[i], s3Settings[i]);
+        }
+        saveConfig();
+    }
+
+    private String[] loadBackupTargetConfig(String jarPath) {
+        String keyPrefix = "backup." + jarPath + ".";
+        String[] defaults = {"", "us-east-1", "", "minecraft-server-hub", "", "", "true",
+            String.valueOf(S3BackupTarget.DEFAULT_PART_SIZE_MB), String.valueOf(S3BackupTarget.DEFAULT_PARALLELISM)};
+        String[] values = new String[S3_CONFIG_KEYS.length + 2];
+        values[0] = config.getProperty(keyPrefix + "target", BackupTarget.TYPE_LOCAL);
+        values[1] = config.getProperty(keyPrefix + "targetPath", LocalBackupTarget.DEFAULT_ROOT);
+        for (int i = 0; i < S3_CONFIG_KEYS.length; i++) {
+            values[i + 2] = config.getProperty(keyPrefix + "s3." + S3_CONFIG_KEYS[i], defaults[i]);
+        }
+        return values;
+    }
+
+    private BackupTarget createBackupTarget(String type, String localPath, String[] s3Settings) {
+        if (BackupTarget.TYPE_S3.equals(type)) {
+            if (s3Settings[0].isBlank() || s3Settings[2].isBlank()) {
+                throw new IllegalArgumentException("请填写 S3 服务地址和存储桶");
+            }
+            return new S3BackupTarget(s3Settings[0], s3Settings[1], s3Settings[2], s3Settings[3], s3Settings[4], s3Settings[5],
+                Boolean.parseBoolean(s3Settings[6]), Integer.parseInt(s3Settings[7]), Integer.parseInt(s3Settings[8]));
+        }
+        return new LocalBackupTarget(new File(localPath.isBlank() ? LocalBackupTarget.DEFAULT_ROOT : localPath.trim()));
+    }
+
+    private BackupTarget loadBackupTarget(String jarPath) {
+        String[] values = loadBackupTargetConfig(jarPath);
+        try {
+            return createBackupTarget(values[0], values[1], Arrays.copyOfRange(values, 2, values.length));
+        } catch (IllegalArgumentException e) {
+            Logger.warn("Invalid backup target for " + jarPath + ", using local storage: " + e.getMessage(), "Main");
+            return LocalBackupTarget.defaultTarget();
+        }
+    }
+
+    private void saveBackupExcludeConfig(String jarPath, String rules) {
+        String key = "backup." + jarPath + ".excludes";
+        if (rules == null || rules.equals(BackupExcludeRules.DEFAULT_RULES)) {
+            config.remove(key);
+        } else {
+            config.setProperty(key, rules);
+        }
+        saveConfig();
+    }
+
+    private BackupExcludeRules loadBackupExcludeConfig(String jarPath) {
+        String rules = config.getProperty("backup." + jarPath + ".excludes");
+        if (rules == null) {
+            return BackupExcludeRules.defaults();
+        }
+        try {
+            return BackupExcludeRules.compile(rules);
+        } catch (IllegalArgumentException e) {
+            Logger.warn("Invalid backup exclude rules for " + jarPath + ", using defaults: " + e.getMessage(), "Main");
+            return BackupExcludeRules.defaults();
+        }
+    }
+
+    private Object[] loadBackupThrottleConfig(String jarPath) {
+        String keyPrefix = "backup." + jarPath + ".";
+        String rateStr = config.getProperty(keyPrefix + "rateKBps");
+        String filesStr = config.getProperty(keyPrefix + "filesPerSecond");
+        String adaptiveStr = config.getProperty(keyPrefix + "adaptive");
+        String lowPriorityStr = config.getProperty(keyPrefix + "lowPriority");
+        return new Object[]{
+            rateStr != null ? Integer.parseInt(rateStr) : 0,
+            filesStr != null ? Integer.parseInt(filesStr) : 0,
+            adaptiveStr == null || Boolean.parseBoolean(adaptiveStr),
+            Boolean.parseBoolean(lowPriorityStr)
+        };
+    }
+    
     private Object[] loadBackupConfig(String jarPath) {
         String keyPrefix = "backup." + jarPath + ".";
         String enabledStr = config.getProperty(keyPrefix + "enabled");
         String intervalStr = config.getProperty(keyPrefix + "interval");
         String maxCountStr = config.getProperty(keyPrefix + "maxCount");
         String deleteDaysStr = config.getProperty(keyPrefix + "deleteDays");
+        String modeStr = config.getProperty(keyPrefix + "mode");
+        String memoryStr = config.getProperty(keyPrefix + "memoryMB");
+        String levelStr = config.getProperty(keyPrefix + "level");
+        String snapshotStr = config.getProperty(keyPrefix + "snapshot");
+        String fullCopyStr = config.getProperty(keyPrefix + "snapshotFullCopy");
 
         if (enabledStr == null || intervalStr == null) {
             return null;
@@ -851,10 +980,162 @@ public class Main {
             Boolean.parseBoolean(enabledStr),
             Integer.parseInt(intervalStr),
             maxCountStr != null ? Integer.parseInt(maxCountStr) : 10,
-            deleteDaysStr != null ? Integer.parseInt(deleteDaysStr) : 30
+            deleteDaysStr != null ? Integer.parseInt(deleteDaysStr) : 30,
+            modeStr != null ? modeStr : JarRunner.BACKUP_MODE_ZIP,
+            memoryStr != null ? Integer.parseInt(memoryStr) : BackupZipWriter.DEFAULT_MEMORY_LIMIT_MB,
+            levelStr != null ? Integer.parseInt(levelStr) : BackupZipWriter.DEFAULT_LEVEL,
+            snapshotStr == null || Boolean.parseBoolean(snapshotStr),
+            Boolean.parseBoolean(fullCopyStr)
         };
     }
     
+    private void saveConsoleConfig(String jarPath, int maxLines, long maxBytes) {
+        String keyPrefix = "console." + jarPath + ".";
+        config.setProperty(keyPrefix + "maxLines", String.valueOf(maxLines));
+        config.setProperty(keyPrefix + "maxBytes", String.valueOf(maxBytes));
+        saveConfig();
+    }
+    
+    private long[] loadConsoleConfig(String jarPath) {
+        String keyPrefix = "console." + jarPath + ".";
+        String maxLinesStr = config.getProperty(keyPrefix + "maxLines");
+        String maxBytesStr = config.getProperty(keyPrefix + "maxBytes");
+        long maxLines = ConsoleBuffer.DEFAULT_MAX_LINES;
+        long maxBytes = ConsoleBuffer.DEFAULT_MAX_BYTES;
+        try {
+            if (maxLinesStr != null) {
+                maxLines = Integer.parseInt(maxLinesStr);
+            }
+            if (maxBytesStr != null) {
+                maxBytes = Long.parseLong(maxBytesStr);
+            }
+        } catch (NumberFormatException e) {
+            Logger.warn("Invalid console config for " + jarPath + ": " + e.getMessage(), "Main");
+        }
+        return new long[]{maxLines, maxBytes};
+    }
+    
+    private void saveLaunchConfig(String jarPath, LaunchProfile profile) {
+        String keyPrefix = "launch." + jarPath + ".";
+        config.setProperty(keyPrefix + "javaPath", profile.getJavaPath());
+        config.setProperty(keyPrefix + "minHeapMB", String.valueOf(profile.getMinHeapMB()));
+        config.setProperty(keyPrefix + "maxHeapMB", String.valueOf(profile.getMaxHeapMB()));
+        config.setProperty(keyPrefix + "gc", profile.getGc().name());
+        config.setProperty(keyPrefix + "preset", profile.getPreset().name());
+        config.setProperty(keyPrefix + "jvmArgs", profile.getJvmArgs());
+        config.setProperty(keyPrefix + "programArgs", profile.getProgramArgs());
+        config.setProperty(keyPrefix + "env", profile.getEnvironment());
+        saveConfig();
+    }
+    
+    private void saveDetectedMcVersion(String jarPath, String version) {
+        config.setProperty("launch." + jarPath + ".mcVersion", version);
+        saveConfig();
+    }
+    
+    private LaunchProfile loadLaunchConfig(String jarPath) {
+        String keyPrefix = "launch." + jarPath + ".";
+        if (config.getProperty(keyPrefix + "maxHeapMB") == null) {
+            return LaunchProfile.defaults();
+        }
+        try {
+            return new LaunchProfile(
+                config.getProperty(keyPrefix + "javaPath", ""),
+                Integer.parseInt(config.getProperty(keyPrefix + "minHeapMB", "0")),
+                Integer.parseInt(config.getProperty(keyPrefix + "maxHeapMB", "0")),
+                LaunchProfile.GarbageCollector.valueOf(config.getProperty(keyPrefix + "gc", "DEFAULT")),
+                LaunchProfile.FlagPreset.valueOf(config.getProperty(keyPrefix + "preset", "NONE")),
+                config.getProperty(keyPrefix + "jvmArgs", ""),
+                config.getProperty(keyPrefix + "programArgs", ""),
+                config.getProperty(keyPrefix + "env", ""));
+        } catch (IllegalArgumentException e) {
+            Logger.warn("Invalid launch config for " + jarPath + ": " + e.getMessage(), "Main");
+            return LaunchProfile.defaults();
+        }
+    }
+    
+    private JdkRegistry.Jdk resolveRuntime(JarRunner jarRunner, LaunchProfile profile) {
+        if (profile.isAutoJava()) {
+            JdkRegistry.Jdk selected = JdkRegistry.select(jarRunner.getServerVersion(), new File(jarRunner.getJarPath()), 0);
+            if (selected != null) {
+                return selected;
+            }
+        }
+        return JdkRegistry.describe(profile.resolveJava("java"));
+    }
+    
+    private long getRunningServersFootprintMB(JarRunner exclude) {
+        long total = 0;
+        for (JarRunner runner : jarRunners) {
+            if (runner != exclude && runner.getStatus() != JarRunner.Status.STOPPED) {
+                total += runner.getLaunchProfile().getEstimatedFootprintMB();
+            }
+        }
+        return total;
+    }
+    
+    private boolean confirmMemoryFits(java.awt.Component parent, JarRunner jarRunner, LaunchProfile profile) {
+        long budget = LaunchProfile.getMemoryBudgetMB();
+        long required = profile.getEstimatedFootprintMB();
+        long others = getRunningServersFootprintMB(jarRunner);
+        long explicitHeap = profile.getExplicitMaxHeapMB();
+        if (explicitHeap > budget) {
+            JOptionPane.showMessageDialog(parent,
+                String.format("该服务器设置的最大内存 %d MB 超过本机可分配的 %d MB（物理内存 %d MB）。\n请降低最大内存设置。",
+                    explicitHeap, budget, LaunchProfile.getPhysicalMemoryMB()),
+                "内存不足", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        if (required + others > budget) {
+            int choice = JOptionPane.showConfirmDialog(parent,
+                String.format("该服务器预计占用 %d MB%s，其他运行中的服务器已占用约 %d MB，合计超过本机可分配的 %d MB。\n同时运行可能导致系统使用交换分区或服务器被系统终止，是否继续？",
+                    required, explicitHeap > 0 ? "" : "（未设置最大内存，按 JVM 默认值估算）", others, budget),
+                "内存可能不足", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            return choice == JOptionPane.YES_OPTION;
+        }
+        return true;
+    }
+    
+    private void saveSchedulerConfig(String jarPath, boolean paused) {
+        config.setProperty("scheduler." + jarPath + ".paused", String.valueOf(paused));
+        saveConfig();
+    }
+    
+    private boolean loadSchedulerConfig(String jarPath) {
+        return Boolean.parseBoolean(config.getProperty("scheduler." + jarPath + ".paused", "false"));
+    }
+    
+    private String describeScheduledJobs(JarRunner jarRunner) {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+        StringBuilder sb = new StringBuilder("<html>");
+        for (HubScheduler.Job job : jarRunner.getScheduledJobs()) {
+            if (!job.isPeriodic()) {
+                continue;
+            }
+            String name = job.getName();
+            String label;
+            if (name.startsWith("backup-timer-")) {
+                label = "自动备份";
+            } else if (name.startsWith("lock-monitor-")) {
+                label = "文件锁检测";
+            } else if (name.startsWith("backup-scrub-")) {
+                label = "备份巡检";
+            } else if (name.startsWith("hourly-reset-")) {
+                label = "重启计数重置";
+            } else {
+                label = name;
+            }
+            sb.append(label).append(": ");
+            if (job.isPaused()) {
+                sb.append("已暂停");
+            } else {
+                sb.append(timeFormat.format(new Date(job.getNextFireTime())));
+            }
+            sb.append("<br>");
+        }
+        return sb.append("</html>").toString();
+    }
+    
     private void showGuardSettingsDialog(JarRunner jarRunner) {
         JDialog dialog = new JDialog(frame, "进程守护设置", false);
         dialog.setLayout(new BorderLayout(20, 20));
@@ -991,7 +1272,7 @@ public class Main {
     private void showBackupSettingsDialog(JarRunner jarRunner) {
         JDialog dialog = new JDialog(frame, "备份管理 - " + new File(jarRunner.getJarPath()).getName(), false);
         dialog.setLayout(new BorderLayout(15, 15));
-        dialog.setSize(750, 550);
+        dialog.setSize(750, 1030);
         dialog.setLocationRelativeTo(frame);
         dialog.setResizable(true);
 
@@ -999,6 +1280,7 @@ public class Main {
         mainPanel.setBorder(new EmptyBorder(15, 15, 15, 15));
 
         DefaultListModel<String> backupListModel = new DefaultListModel<>();
+        BackupCatalog.Filter backupFilter = new BackupCatalog.Filter();
         JTextArea backupInfoArea = new JTextArea();
 
         JPanel leftPanel = new JPanel(new BorderLayout(10, 10));
@@ -1052,41 +1334,227 @@ public class Main {
         gbc.gridx = 2; gbc.gridy = 3;
         settingsPanel.add(daysLabel, gbc);
 
-        JLabel maxCountHintLabel = new JLabel("超过最大条数自动删除旧的");
+        JLabel maxCountHintLabel = new JLabel("超过最大条数或天数的备份, 除分级保留的每个时段最新一份外自动删除");
         gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 3;
         settingsPanel.add(maxCountHintLabel, gbc);
 
+        JLabel tierLabel = new JLabel("分级保留:");
+        gbc.gridx = 0; gbc.gridy = 5; gbc.gridwidth = 1;
+        settingsPanel.add(tierLabel, gbc);
+
+        JSpinner hourlySpinner = new JSpinner(new SpinnerNumberModel(jarRunner.getKeepHourlyBackups(), 0, 1000, 1));
+        JSpinner dailySpinner = new JSpinner(new SpinnerNumberModel(jarRunner.getKeepDailyBackups(), 0, 1000, 1));
+        JSpinner weeklySpinner = new JSpinner(new SpinnerNumberModel(jarRunner.getKeepWeeklyBackups(), 0, 1000, 1));
+        JSpinner monthlySpinner = new JSpinner(new SpinnerNumberModel(jarRunner.getKeepMonthlyBackups(), 0, 1000, 1));
+        JPanel tierPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        tierPanel.add(new JLabel("每小时"));
+        tierPanel.add(hourlySpinner);
+        tierPanel.add(new JLabel("每天"));
+        tierPanel.add(dailySpinner);
+        tierPanel.add(new JLabel("每周"));
+        tierPanel.add(weeklySpinner);
+        tierPanel.add(new JLabel("每月"));
+        tierPanel.add(monthlySpinner);
+        gbc.gridx = 1; gbc.gridy = 5; gbc.gridwidth = 2;
+        settingsPanel.add(tierPanel, gbc);
+
+        JLabel quotaLabel = new JLabel("磁盘配额 (MB):");
+        gbc.gridx = 0; gbc.gridy = 6; gbc.gridwidth = 1;
+        settingsPanel.add(quotaLabel, gbc);
+
+        JSpinner quotaSpinner = new JSpinner(new SpinnerNumberModel(jarRunner.getBackupQuotaMB(), 0, 10485760, 1024));
+        JSpinner hubQuotaSpinner = new JSpinner(new SpinnerNumberModel(
+            (int) (BackupRetention.getHubQuotaBytes() / (1024 * 1024)), 0, 104857600, 1024));
+        JPanel quotaPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        quotaPanel.add(new JLabel("本服务器"));
+        quotaPanel.add(quotaSpinner);
+        quotaPanel.add(new JLabel("全部服务器"));
+        quotaPanel.add(hubQuotaSpinner);
+        quotaPanel.add(new JLabel("(0为不限)"));
+        gbc.gridx = 1; gbc.gridy = 6; gbc.gridwidth = 2;
+        settingsPanel.add(quotaPanel, gbc);
+
+        JLabel modeLabel = new JLabel("备份模式:");
+        gbc.gridx = 0; gbc.gridy = 7; gbc.gridwidth = 1;
+        settingsPanel.add(modeLabel, gbc);
+
+        JComboBox<String> modeComboBox = new JComboBox<>(new String[]{"完整压缩包", "增量 (去重)"});
+        modeComboBox.setSelectedIndex(JarRunner.BACKUP_MODE_INCREMENTAL.equals(jarRunner.getBackupMode()) ? 1 : 0);
+        gbc.gridx = 1; gbc.gridy = 7; gbc.gridwidth = 2;
+        settingsPanel.add(modeComboBox, gbc);
+
+        JLabel memoryLabel = new JLabel("备份内存上限:");
+        gbc.gridx = 0; gbc.gridy = 8; gbc.gridwidth = 1;
+        settingsPanel.add(memoryLabel, gbc);
+
+        JSpinner memorySpinner = new JSpinner(new SpinnerNumberModel(jarRunner.getBackupMemoryLimitMB(), BackupZipWriter.MIN_MEMORY_LIMIT_MB, 4096, 8));
+        gbc.gridx = 1; gbc.gridy = 8;
+        settingsPanel.add(memorySpinner, gbc);
+
+        JLabel mbLabel = new JLabel("MB");
+        gbc.gridx = 2; gbc.gridy = 8;
+        settingsPanel.add(mbLabel, gbc);
+
+        JLabel levelLabel = new JLabel("压缩级别:");
+        gbc.gridx = 0; gbc.gridy = 9; gbc.gridwidth = 1;
+        settingsPanel.add(levelLabel, gbc);
+
+        JSpinner levelSpinner = new JSpinner(new SpinnerNumberModel(jarRunner.getBackupCompressionLevel(), 0, 9, 1));
+        gbc.gridx = 1; gbc.gridy = 9;
+        settingsPanel.add(levelSpinner, gbc);
+
+        JLabel levelHintLabel = new JLabel("(0为不压缩)");
+        gbc.gridx = 2; gbc.gridy = 9;
+        settingsPanel.add(levelHintLabel, gbc);
+
+        JCheckBox snapshotCheckBox = new JCheckBox("运行时使用一致性快照 (save-off / save-all)", jarRunner.isSnapshotBackupEnabled());
+        JCheckBox fullCopyCheckBox = new JCheckBox("不支持克隆时完整复制 (占用双倍空间)", jarRunner.isSnapshotFullCopy());
+        fullCopyCheckBox.setToolTipText("文件系统不支持克隆 (如 ext4、NTFS) 时，默认在备份期间暂停自动保存并直接读取世界文件");
+        JPanel snapshotPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        snapshotPanel.add(snapshotCheckBox);
+        snapshotPanel.add(fullCopyCheckBox);
+        gbc.gridx = 0; gbc.gridy = 10; gbc.gridwidth = 3;
+        settingsPanel.add(snapshotPanel, gbc);
+
+        JLabel rateLabel = new JLabel("运行时读写限速:");
+        gbc.gridx = 0; gbc.gridy = 11; gbc.gridwidth = 1;
+        settingsPanel.add(rateLabel, gbc);
+
+        JSpinner rateSpinner = new JSpinner(new SpinnerNumberModel(jarRunner.getBackupRateLimitKBps(), 0, 10485760, 1024));
+        gbc.gridx = 1; gbc.gridy = 11;
+        settingsPanel.add(rateSpinner, gbc);
+
+        JLabel rateUnitLabel = new JLabel("KB/s (0为不限)");
+        gbc.gridx = 2; gbc.gridy = 11;
+        settingsPanel.add(rateUnitLabel, gbc);
+
+        JLabel filesRateLabel = new JLabel("运行时文件限速:");
+        gbc.gridx = 0; gbc.gridy = 12; gbc.gridwidth = 1;
+        settingsPanel.add(filesRateLabel, gbc);
+
+        JSpinner filesRateSpinner = new JSpinner(new SpinnerNumberModel(jarRunner.getBackupFilesPerSecond(), 0, 100000, 100));
+        gbc.gridx = 1; gbc.gridy = 12;
+        settingsPanel.add(filesRateSpinner, gbc);
+
+        JLabel filesRateUnitLabel = new JLabel("个/秒 (0为不限)");
+        gbc.gridx = 2; gbc.gridy = 12;
+        settingsPanel.add(filesRateUnitLabel, gbc);
+
+        JCheckBox adaptiveCheckBox = new JCheckBox("服务器卡顿 (Can't keep up!) 时自动降速", jarRunner.isBackupAdaptiveThrottle());
+        gbc.gridx = 0; gbc.gridy = 13; gbc.gridwidth = 3;
+        settingsPanel.add(adaptiveCheckBox, gbc);
+
+        JCheckBox lowPriorityCheckBox = new JCheckBox("以低优先级线程压缩备份", jarRunner.isBackupLowPriority());
+        gbc.gridx = 0; gbc.gridy = 14; gbc.gridwidth = 3;
+        settingsPanel.add(lowPriorityCheckBox, gbc);
+
+        JButton excludeRulesButton = new JButton("排除规则与预览...");
+        excludeRulesButton.addActionListener(e -> showBackupExcludeRulesDialog(dialog, jarRunner));
+        JButton targetButton = new JButton("存储位置...");
+        targetButton.addActionListener(e -> {
+            showBackupTargetDialog(dialog, jarRunner);
+            loadBackupList(backupListModel, jarRunner, "time", backupFilter);
+        });
+        JButton verifyAllButton = new JButton("立即校验全部备份");
+        JPanel toolsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        toolsPanel.add(excludeRulesButton);
+        toolsPanel.add(targetButton);
+        toolsPanel.add(verifyAllButton);
+        gbc.gridx = 0; gbc.gridy = 15; gbc.gridwidth = 3;
+        settingsPanel.add(toolsPanel, gbc);
+
+        JCheckBox verifyAfterCheckBox = new JCheckBox("备份后校验", jarRunner.isVerifyAfterBackup());
+        JCheckBox testRestoreCheckBox = new JCheckBox("试恢复到临时目录", jarRunner.isVerifyTestRestore());
+        JCheckBox scrubCheckBox = new JCheckBox("每天", jarRunner.isScrubEnabled());
+        JSpinner scrubHourSpinner = new JSpinner(new SpinnerNumberModel(jarRunner.getScrubHour(), 0, 23, 1));
+        JPanel verifyPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        verifyPanel.add(verifyAfterCheckBox);
+        verifyPanel.add(testRestoreCheckBox);
+        verifyPanel.add(scrubCheckBox);
+        verifyPanel.add(scrubHourSpinner);
+        verifyPanel.add(new JLabel("点巡检全部备份"));
+        gbc.gridx = 0; gbc.gridy = 16; gbc.gridwidth = 3;
+        settingsPanel.add(verifyPanel, gbc);
+
         JButton backupNowButton = new JButton("立即备份");
         backupNowButton.addActionListener(e -> {
             if (jarRunner.isBackingUp()) {
                 return;
             }
-            if (jarRunner.getStatus() == JarRunner.Status.RUNNING || 
+            boolean snapshotAllowed = jarRunner.getStatus() == JarRunner.Status.RUNNING && jarRunner.isSnapshotBackupEnabled();
+            if (!snapshotAllowed && (jarRunner.getStatus() == JarRunner.Status.RUNNING || 
                 jarRunner.getStatus() == JarRunner.Status.STARTING ||
-                jarRunner.getStatus() == JarRunner.Status.STOPPING) {
+                jarRunner.getStatus() == JarRunner.Status.STOPPING)) {
                 JOptionPane.showMessageDialog(dialog, 
-                    "服务器正在运行中，无法进行备份。\n请先停止服务器后再进行备份操作。", 
+                    "服务器正在运行中，无法进行备份。\n请先停止服务器，或启用一致性快照后再进行备份操作。", 
                     "无法备份", JOptionPane.WARNING_MESSAGE);
                 return;
             }
-            showBackupProgressDialog(dialog, jarRunner, backupListModel);
+            showBackupProgressDialog(dialog, jarRunner, backupListModel, backupFilter);
         });
-        gbc.gridx = 0; gbc.gridy = 5; gbc.gridwidth = 1;
+        gbc.gridx = 0; gbc.gridy = 17; gbc.gridwidth = 1;
         settingsPanel.add(backupNowButton, gbc);
 
         long lastBackup = jarRunner.getLastBackupTime();
         if (lastBackup > 0) {
             String lastBackupStr = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(lastBackup));
             JLabel lastBackupLabel = new JLabel("上次: " + lastBackupStr);
-            gbc.gridx = 1; gbc.gridy = 5; gbc.gridwidth = 2;
+            gbc.gridx = 1; gbc.gridy = 17; gbc.gridwidth = 2;
             settingsPanel.add(lastBackupLabel, gbc);
         }
 
+        JLabel nextBackupLabel = new JLabel();
+        gbc.gridx = 0; gbc.gridy = 18; gbc.gridwidth = 3;
+        settingsPanel.add(nextBackupLabel, gbc);
+
+        JCheckBox pauseCheckBox = new JCheckBox("暂停该服务器的定时任务", jarRunner.isScheduledJobsPaused());
+        gbc.gridx = 0; gbc.gridy = 19; gbc.gridwidth = 3;
+        settingsPanel.add(pauseCheckBox, gbc);
+
+        JLabel jobsLabel = new JLabel();
+        jobsLabel.setFont(new Font(null, Font.PLAIN, 11));
+        gbc.gridx = 0; gbc.gridy = 20; gbc.gridwidth = 3;
+        settingsPanel.add(jobsLabel, gbc);
+
+        Runnable refreshSchedule = () -> {
+            long nextBackup = jarRunner.getNextBackupTime();
+            if (nextBackup <= 0) {
+                nextBackupLabel.setText("下次自动备份: 未启用");
+            } else if (jarRunner.isScheduledJobsPaused()) {
+                nextBackupLabel.setText("下次自动备份: 已暂停");
+            } else {
+                nextBackupLabel.setText("下次自动备份: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(nextBackup)));
+            }
+            jobsLabel.setText(describeScheduledJobs(jarRunner));
+        };
+        refreshSchedule.run();
+        javax.swing.Timer scheduleTimer = new javax.swing.Timer(1000, e -> refreshSchedule.run());
+        scheduleTimer.start();
+        dialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                scheduleTimer.stop();
+            }
+
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                scheduleTimer.stop();
+            }
+        });
+
+        pauseCheckBox.addActionListener(e -> {
+            boolean paused = pauseCheckBox.isSelected();
+            jarRunner.setScheduledJobsPaused(paused);
+            saveSchedulerConfig(jarRunner.getJarPath(), paused);
+            jarRunner.getOutputPanel().append(paused ? "[MSH] 已暂停该服务器的定时任务\n" : "[MSH] 已恢复该服务器的定时任务\n");
+            refreshSchedule.run();
+        });
+
         leftPanel.add(settingsPanel, BorderLayout.CENTER);
 
         JPanel infoPanel = new JPanel(new BorderLayout(5, 5));
         infoPanel.setBorder(new EmptyBorder(10, 0, 0, 0));
-        JTextArea infoText = new JTextArea("备份目录: MSH/backup/服务端名称/\n备份包含服务端文件夹内的所有文件\n\n注意: 由于技术限制，服务器运行时无法正常备份\n请先停止服务器后再进行备份操作");
+        JTextArea infoText = new JTextArea("默认备份目录: MSH/backup/服务端名称/\n可在“存储位置”中改为其他磁盘或 S3 兼容存储\n备份包含服务端文件夹内的所有文件\n增量模式只保存发生变化的数据块\n\n注意: 服务器运行时需启用一致性快照才能备份\n快照期间会短暂暂停自动保存\n文件系统不支持克隆时备份全程暂停自动保存\n限速仅在服务器运行时生效");
         infoText.setEditable(false);
         infoText.setOpaque(false);
         infoText.setFont(new Font(null, Font.PLAIN, 11));
@@ -1112,13 +1580,39 @@ public class Main {
         sortPanel.add(sortBySize);
         sortPanel.add(sortByName);
         
-        sortByTime.addActionListener(e -> loadBackupList(backupListModel, jarRunner, "time"));
-        sortBySize.addActionListener(e -> loadBackupList(backupListModel, jarRunner, "size"));
-        sortByName.addActionListener(e -> loadBackupList(backupListModel, jarRunner, "name"));
+        sortByTime.addActionListener(e -> loadBackupList(backupListModel, jarRunner, "time", backupFilter));
+        sortBySize.addActionListener(e -> loadBackupList(backupListModel, jarRunner, "size", backupFilter));
+        sortByName.addActionListener(e -> loadBackupList(backupListModel, jarRunner, "name", backupFilter));
+        
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        filterPanel.add(new JLabel("日期:"));
+        JComboBox<String> dateFilterComboBox = new JComboBox<>(new String[]{"全部", "今天", "最近7天", "最近30天"});
+        filterPanel.add(dateFilterComboBox);
+        filterPanel.add(new JLabel("最小:"));
+        JSpinner minSizeSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 1048576, 10));
+        filterPanel.add(minSizeSpinner);
+        filterPanel.add(new JLabel("MB"));
+        
+        Runnable applyBackupFilter = () -> {
+            int[] days = {0, 1, 7, 30};
+            int selectedDays = days[dateFilterComboBox.getSelectedIndex()];
+            if (selectedDays == 0) {
+                backupFilter.fromTime = 0;
+            } else {
+                java.time.LocalDate fromDate = java.time.LocalDate.now().minusDays(selectedDays - 1);
+                backupFilter.fromTime = fromDate.atStartOfDay(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            backupFilter.minSize = (Integer) minSizeSpinner.getValue() * 1024L * 1024L;
+            String sortBy = sortBySize.isSelected() ? "size" : sortByName.isSelected() ? "name" : "time";
+            loadBackupList(backupListModel, jarRunner, sortBy, backupFilter);
+        };
+        dateFilterComboBox.addActionListener(e -> applyBackupFilter.run());
+        minSizeSpinner.addChangeListener(e -> applyBackupFilter.run());
         
         JPanel titlePanel = new JPanel(new BorderLayout(5, 5));
         titlePanel.add(listTitle, BorderLayout.WEST);
         titlePanel.add(sortPanel, BorderLayout.CENTER);
+        titlePanel.add(filterPanel, BorderLayout.SOUTH);
         rightPanel.add(titlePanel, BorderLayout.NORTH);
 
         JList<String> backupList = new JList<>(backupListModel);
@@ -1161,10 +1655,12 @@ public class Main {
                         return;
                     }
                     
-                    String backupDirPath = "MSH/backup/" + serverName;
+                    String backupDirPath = jarRunner.getBackupDir().getPath();
                     File backupDir = new File(backupDirPath);
                     
-                    File zipFile = new File(backupDir, selected);
+                    int parenIndex = selected.lastIndexOf(" (");
+                    String actualFileName = parenIndex > 0 ? selected.substring(0, parenIndex) : selected;
+                    File zipFile = new File(backupDir, actualFileName);
                     
                     try {
                         String canonicalZipPath = zipFile.getCanonicalPath();
@@ -1179,8 +1675,18 @@ public class Main {
                         return;
                     }
                     
-                    if (zipFile.exists() && zipFile.canRead() && zipFile.length() > 0) {
+                    BackupCatalog.Entry selectedEntry = BackupCatalog.forDirectory(backupDir).get(actualFileName);
+                    if (selectedEntry != null && selectedEntry.isRemote()) {
+                        backupInfoArea.setText(describeCatalogEntry(backupDir, actualFileName)
+                            + "文件: " + selected + "\n"
+                            + "大小: " + formatFileSize(selectedEntry.size) + "\n"
+                            + "存储位置: " + jarRunner.getBackupTarget().describe() + "\n");
+                    } else if (zipFile.exists() && zipFile.canRead() && zipFile.length() > 0
+                            && IncrementalBackupStore.isManifest(actualFileName)) {
+                        backupInfoArea.setText(describeCatalogEntry(backupDir, actualFileName) + describeManifest(zipFile, actualFileName));
+                    } else if (zipFile.exists() && zipFile.canRead() && zipFile.length() > 0) {
                         StringBuilder info = new StringBuilder();
+                        info.append(describeCatalogEntry(backupDir, actualFileName));
                         info.append("文件: ").append(selected).append("\n");
                         info.append("大小: ").append(formatFileSize(zipFile.length())).append("\n");
                         info.append("备份内容:\n");
@@ -1213,6 +1719,13 @@ public class Main {
                         }
                         backupInfoArea.setText(info.toString());
                     } else {
+                        if (!zipFile.exists()) {
+                            try {
+                                BackupCatalog.forDirectory(backupDir).remove(actualFileName);
+                            } catch (IOException ex) {
+                                Logger.warn("Failed to update backup catalog: " + ex.getMessage(), "Main");
+                            }
+                        }
                         backupInfoArea.setText("备份文件不存在或无法读取");
                     }
                 }
@@ -1249,7 +1762,7 @@ public class Main {
 
             if (confirm == JOptionPane.YES_OPTION) {
                 String serverName = sanitizeFileName(new File(jarRunner.getJarPath()).getName());
-                String backupDirPath = "MSH/backup/" + serverName;
+                String backupDirPath = jarRunner.getBackupDir().getPath();
                 int parenIndex = selected.lastIndexOf(" (");
                 String actualFileName = parenIndex > 0 ? selected.substring(0, parenIndex) : selected;
                 
@@ -1277,6 +1790,15 @@ public class Main {
                         return;
                     }
                     
+                    if (jarRunner.getStatus() == JarRunner.Status.RUNNING || 
+                        jarRunner.getStatus() == JarRunner.Status.STARTING ||
+                        jarRunner.getStatus() == JarRunner.Status.STOPPING) {
+                        JOptionPane.showMessageDialog(dialog, 
+                            "服务器正在运行中，无法恢复备份。\n请先停止服务器。", 
+                            "无法恢复", JOptionPane.WARNING_MESSAGE);
+                        return;
+                    }
+                    
                     if (jarRunner.getStatus() == JarRunner.Status.RUNNING) {
                         JOptionPane.showMessageDialog(dialog, "请先停止服务器再恢复备份", "提示", JOptionPane.INFORMATION_MESSAGE);
                         return;
@@ -1310,7 +1832,7 @@ public class Main {
 
             if (confirm == JOptionPane.YES_OPTION) {
                 String serverName = sanitizeFileName(new File(jarRunner.getJarPath()).getName());
-                String backupDirPath = "MSH/backup/" + serverName;
+                String backupDirPath = jarRunner.getBackupDir().getPath();
                 int parenIndex = selected.lastIndexOf(" (");
                 String actualFileName = parenIndex > 0 ? selected.substring(0, parenIndex) : selected;
                 
@@ -1332,14 +1854,32 @@ public class Main {
                         return;
                     }
                     
+                    BackupCatalog catalog = BackupCatalog.forDirectory(backupDir);
+                    BackupCatalog.Entry catalogEntry = catalog.get(actualFileName);
+                    if (catalogEntry != null && catalogEntry.isRemote()) {
+                        BackupTarget target = jarRunner.getBackupTarget();
+                        if (!catalogEntry.target.equals(target.getType())) {
+                            JOptionPane.showMessageDialog(dialog, "该备份保存在其他存储位置，请先切换存储位置", "错误", JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                        target.delete(serverName, actualFileName);
+                        catalog.remove(actualFileName);
+                        loadBackupList(backupListModel, jarRunner, "time", backupFilter);
+                        backupInfoArea.setText("");
+                        jarRunner.getOutputPanel().append("[MSH] 远程备份已删除: " + actualFileName + "\n");
+                        Logger.info("Remote backup deleted: " + actualFileName, "Main");
+                        return;
+                    }
                     if (!zipFile.exists()) {
+                        catalog.remove(actualFileName);
                         JOptionPane.showMessageDialog(dialog, "备份文件不存在", "错误", JOptionPane.ERROR_MESSAGE);
-                        loadBackupList(backupListModel, jarRunner, "time");
+                        loadBackupList(backupListModel, jarRunner, "time", backupFilter);
                         return;
                     }
                     
                     if (zipFile.delete()) {
-                        loadBackupList(backupListModel, jarRunner, "time");
+                        catalog.remove(actualFileName);
+                        loadBackupList(backupListModel, jarRunner, "time", backupFilter);
                         backupInfoArea.setText("");
                         jarRunner.getOutputPanel().append("[MSH] 备份已删除: " + actualFileName + "\n");
                         Logger.info("Backup deleted: " + actualFileName, "Main");
@@ -1354,19 +1894,81 @@ public class Main {
             }
         });
 
+        verifyAllButton.addActionListener(e -> {
+            if (jarRunner.isVerifying()) {
+                JOptionPane.showMessageDialog(dialog, "校验任务正在进行中", "提示", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            jarRunner.setVerifyTestRestore(testRestoreCheckBox.isSelected());
+            verifyAllButton.setEnabled(false);
+            HubExecutors.start("backup-verify-" + jarRunner.getJarPath(), () -> {
+                jarRunner.scrubBackups();
+                SwingUtilities.invokeLater(() -> {
+                    verifyAllButton.setEnabled(true);
+                    loadBackupList(backupListModel, jarRunner, "time", backupFilter);
+                });
+            });
+        });
+
         okButton.addActionListener(e -> {
             boolean enabled = enableCheckBox.isSelected();
             int interval = (Integer) intervalSpinner.getValue();
             int maxCount = (Integer) maxCountSpinner.getValue();
             int deleteDays = (Integer) deleteDaysSpinner.getValue();
+            String mode = modeComboBox.getSelectedIndex() == 1 ? JarRunner.BACKUP_MODE_INCREMENTAL : JarRunner.BACKUP_MODE_ZIP;
+            int memoryLimitMB = (Integer) memorySpinner.getValue();
+            int level = (Integer) levelSpinner.getValue();
+            boolean snapshot = snapshotCheckBox.isSelected();
+            boolean fullCopy = fullCopyCheckBox.isSelected();
 
             jarRunner.setBackupEnabled(enabled);
             jarRunner.setBackupIntervalMinutes(interval);
             jarRunner.setMaxBackupCount(maxCount);
             jarRunner.setAutoDeleteDays(deleteDays);
-            saveBackupConfig(jarRunner.getJarPath(), enabled, interval, maxCount, deleteDays);
-            jarRunner.getOutputPanel().append(String.format("[MSH] 备份设置已更新 - 启用: %s, 间隔: %d分钟, 最大条数: %d, 删除天数: %d\n",
-                enabled ? "是" : "否", interval, maxCount, deleteDays));
+            jarRunner.setBackupMode(mode);
+            jarRunner.setBackupMemoryLimitMB(memoryLimitMB);
+            jarRunner.setBackupCompressionLevel(level);
+            jarRunner.setSnapshotBackupEnabled(snapshot);
+            jarRunner.setSnapshotFullCopy(fullCopy);
+            int rateLimitKBps = (Integer) rateSpinner.getValue();
+            int filesPerSecond = (Integer) filesRateSpinner.getValue();
+            boolean adaptive = adaptiveCheckBox.isSelected();
+            boolean lowPriority = lowPriorityCheckBox.isSelected();
+            jarRunner.setBackupRateLimitKBps(rateLimitKBps);
+            jarRunner.setBackupFilesPerSecond(filesPerSecond);
+            jarRunner.setBackupAdaptiveThrottle(adaptive);
+            jarRunner.setBackupLowPriority(lowPriority);
+            saveBackupConfig(jarRunner.getJarPath(), enabled, interval, maxCount, deleteDays, mode, memoryLimitMB, level, snapshot, fullCopy);
+            saveBackupThrottleConfig(jarRunner.getJarPath(), rateLimitKBps, filesPerSecond, adaptive, lowPriority);
+            int keepHourly = (Integer) hourlySpinner.getValue();
+            int keepDaily = (Integer) dailySpinner.getValue();
+            int keepWeekly = (Integer) weeklySpinner.getValue();
+            int keepMonthly = (Integer) monthlySpinner.getValue();
+            int quotaMB = (Integer) quotaSpinner.getValue();
+            int hubQuotaMB = (Integer) hubQuotaSpinner.getValue();
+            jarRunner.setKeepHourlyBackups(keepHourly);
+            jarRunner.setKeepDailyBackups(keepDaily);
+            jarRunner.setKeepWeeklyBackups(keepWeekly);
+            jarRunner.setKeepMonthlyBackups(keepMonthly);
+            jarRunner.setBackupQuotaMB(quotaMB);
+            BackupRetention.setHubQuotaBytes(hubQuotaMB * 1024L * 1024L);
+            saveBackupRetentionConfig(jarRunner.getJarPath(), keepHourly, keepDaily, keepWeekly, keepMonthly, quotaMB, hubQuotaMB);
+            boolean verifyAfter = verifyAfterCheckBox.isSelected();
+            boolean testRestore = testRestoreCheckBox.isSelected();
+            boolean scrub = scrubCheckBox.isSelected();
+            int scrubHour = (Integer) scrubHourSpinner.getValue();
+            jarRunner.setVerifyAfterBackup(verifyAfter);
+            jarRunner.setVerifyTestRestore(testRestore);
+            jarRunner.setBackupScrub(scrub, scrubHour);
+            saveBackupVerifyConfig(jarRunner.getJarPath(), verifyAfter, testRestore, scrub, scrubHour);
+            if (!jarRunner.isBackingUp()) {
+                HubExecutors.start("backup-retention-" + jarRunner.getJarPath(), () -> {
+                    jarRunner.applyBackupRetention();
+                    SwingUtilities.invokeLater(() -> loadBackupList(backupListModel, jarRunner, "time", backupFilter));
+                });
+            }
+            jarRunner.getOutputPanel().append(String.format("[MSH] 备份设置已更新 - 启用: %s, 间隔: %d分钟, 最大条数: %d, 删除天数: %d, 模式: %s\n",
+                enabled ? "是" : "否", interval, maxCount, deleteDays, modeComboBox.getSelectedItem()));
             dialog.dispose();
         });
 
@@ -1375,14 +1977,60 @@ public class Main {
             int interval = (Integer) intervalSpinner.getValue();
             int maxCount = (Integer) maxCountSpinner.getValue();
             int deleteDays = (Integer) deleteDaysSpinner.getValue();
+            String mode = modeComboBox.getSelectedIndex() == 1 ? JarRunner.BACKUP_MODE_INCREMENTAL : JarRunner.BACKUP_MODE_ZIP;
+            int memoryLimitMB = (Integer) memorySpinner.getValue();
+            int level = (Integer) levelSpinner.getValue();
+            boolean snapshot = snapshotCheckBox.isSelected();
+            boolean fullCopy = fullCopyCheckBox.isSelected();
 
             jarRunner.setBackupEnabled(enabled);
             jarRunner.setBackupIntervalMinutes(interval);
             jarRunner.setMaxBackupCount(maxCount);
             jarRunner.setAutoDeleteDays(deleteDays);
-            saveBackupConfig(jarRunner.getJarPath(), enabled, interval, maxCount, deleteDays);
-            jarRunner.getOutputPanel().append(String.format("[MSH] 备份设置已应用 - 启用: %s, 间隔: %d分钟, 最大条数: %d, 删除天数: %d\n",
-                enabled ? "是" : "否", interval, maxCount, deleteDays));
+            jarRunner.setBackupMode(mode);
+            jarRunner.setBackupMemoryLimitMB(memoryLimitMB);
+            jarRunner.setBackupCompressionLevel(level);
+            jarRunner.setSnapshotBackupEnabled(snapshot);
+            jarRunner.setSnapshotFullCopy(fullCopy);
+            int rateLimitKBps = (Integer) rateSpinner.getValue();
+            int filesPerSecond = (Integer) filesRateSpinner.getValue();
+            boolean adaptive = adaptiveCheckBox.isSelected();
+            boolean lowPriority = lowPriorityCheckBox.isSelected();
+            jarRunner.setBackupRateLimitKBps(rateLimitKBps);
+            jarRunner.setBackupFilesPerSecond(filesPerSecond);
+            jarRunner.setBackupAdaptiveThrottle(adaptive);
+            jarRunner.setBackupLowPriority(lowPriority);
+            saveBackupConfig(jarRunner.getJarPath(), enabled, interval, maxCount, deleteDays, mode, memoryLimitMB, level, snapshot, fullCopy);
+            saveBackupThrottleConfig(jarRunner.getJarPath(), rateLimitKBps, filesPerSecond, adaptive, lowPriority);
+            int keepHourly = (Integer) hourlySpinner.getValue();
+            int keepDaily = (Integer) dailySpinner.getValue();
+            int keepWeekly = (Integer) weeklySpinner.getValue();
+            int keepMonthly = (Integer) monthlySpinner.getValue();
+            int quotaMB = (Integer) quotaSpinner.getValue();
+            int hubQuotaMB = (Integer) hubQuotaSpinner.getValue();
+            jarRunner.setKeepHourlyBackups(keepHourly);
+            jarRunner.setKeepDailyBackups(keepDaily);
+            jarRunner.setKeepWeeklyBackups(keepWeekly);
+            jarRunner.setKeepMonthlyBackups(keepMonthly);
+            jarRunner.setBackupQuotaMB(quotaMB);
+            BackupRetention.setHubQuotaBytes(hubQuotaMB * 1024L * 1024L);
+            saveBackupRetentionConfig(jarRunner.getJarPath(), keepHourly, keepDaily, keepWeekly, keepMonthly, quotaMB, hubQuotaMB);
+            boolean verifyAfter = verifyAfterCheckBox.isSelected();
+            boolean testRestore = testRestoreCheckBox.isSelected();
+            boolean scrub = scrubCheckBox.isSelected();
+            int scrubHour = (Integer) scrubHourSpinner.getValue();
+            jarRunner.setVerifyAfterBackup(verifyAfter);
+            jarRunner.setVerifyTestRestore(testRestore);
+            jarRunner.setBackupScrub(scrub, scrubHour);
+            saveBackupVerifyConfig(jarRunner.getJarPath(), verifyAfter, testRestore, scrub, scrubHour);
+            if (!jarRunner.isBackingUp()) {
+                HubExecutors.start("backup-retention-" + jarRunner.getJarPath(), () -> {
+                    jarRunner.applyBackupRetention();
+                    SwingUtilities.invokeLater(() -> loadBackupList(backupListModel, jarRunner, "time", backupFilter));
+                });
+            }
+            jarRunner.getOutputPanel().append(String.format("[MSH] 备份设置已应用 - 启用: %s, 间隔: %d分钟, 最大条数: %d, 删除天数: %d, 模式: %s\n",
+                enabled ? "是" : "否", interval, maxCount, deleteDays, modeComboBox.getSelectedItem()));
         });
 
         cancelButton.addActionListener(e -> dialog.dispose());
@@ -1395,7 +2043,7 @@ public class Main {
         mainPanel.add(buttonPanel, BorderLayout.SOUTH);
 
         dialog.add(mainPanel);
-        loadBackupList(backupListModel, jarRunner, "time");
+        loadBackupList(backupListModel, jarRunner, "time", backupFilter);
         dialog.setLocationRelativeTo(frame);
         dialog.setVisible(true);
     }
@@ -1431,8 +2079,44 @@ public class Main {
         gbc.gridx = 1;
         settingsPanel.add(useNoGuiCheckBox, gbc);
         
+        ColorOutputPanel outputPanel = jarRunner.getOutputPanel();
+        JLabel maxLinesLabel = new JLabel("控制台最大保留行数:");
+        JSpinner maxLinesSpinner = new JSpinner(new SpinnerNumberModel(outputPanel.getMaxLines(), 100, 1000000, 100));
+        gbc.gridx = 0; gbc.gridy = 1;
+        settingsPanel.add(maxLinesLabel, gbc);
+        gbc.gridx = 1;
+        settingsPanel.add(maxLinesSpinner, gbc);
+        
+        JLabel maxBytesLabel = new JLabel("控制台最大占用内存(MB):");
+        int currentMaxMb = (int) Math.max(1, outputPanel.getMaxBytes() / (1024 * 1024));
+        JSpinner maxBytesSpinner = new JSpinner(new SpinnerNumberModel(currentMaxMb, 1, 1024, 1));
+        gbc.gridx = 0; gbc.gridy = 2;
+        settingsPanel.add(maxBytesLabel, gbc);
+        gbc.gridx = 1;
+        settingsPanel.add(maxBytesSpinner, gbc);
+        
+        JLabel flushStatsLabel = new JLabel();
+        Runnable updateFlushStats = () -> flushStatsLabel.setText(String.format(
+            "控制台刷新: 最近 %.1f ms, 最长 %.1f ms (上限 %d ms), 已显示 %d 条, 待处理 %d 条, 已丢弃 %d 条",
+            outputPanel.getLastFlushNanos() / 1_000_000.0, outputPanel.getMaxFlushNanos() / 1_000_000.0,
+            ColorOutputPanel.MAX_FLUSH_NANOS / 1_000_000, outputPanel.getFlushedCount(),
+            outputPanel.getPendingCount(), outputPanel.getDroppedCount()));
+        updateFlushStats.run();
+        javax.swing.Timer flushStatsTimer = new javax.swing.Timer(1000, e -> updateFlushStats.run());
+        flushStatsTimer.start();
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                flushStatsTimer.stop();
+            }
+        });
+        gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 2;
+        settingsPanel.add(flushStatsLabel, gbc);
+        gbc.gridwidth = 1;
+        
         JTextArea infoText = new JTextArea("设置说明：\n\n" +
-            "--nogui参数: 用于禁用服务器的图形界面。部分旧版本服务端不支持此参数。");
+            "--nogui参数: 用于禁用服务器的图形界面。部分旧版本服务端不支持此参数。\n" +
+            "控制台保留: 超过最大行数或内存上限时自动丢弃最早的输出，长时间运行也不会占用更多内存。");
         infoText.setEditable(false);
         infoText.setOpaque(false);
         infoText.setFont(new Font(null, Font.PLAIN, 12));
@@ -1457,19 +2141,27 @@ public class Main {
         
         okButton.addActionListener(e -> {
             boolean useNoGui = useNoGuiCheckBox.isSelected();
+            int maxLines = (Integer) maxLinesSpinner.getValue();
+            long maxBytes = (Integer) maxBytesSpinner.getValue() * 1024L * 1024L;
             jarRunner.setUseNoGui(useNoGui);
+            outputPanel.setScrollbackLimits(maxLines, maxBytes);
+            saveConsoleConfig(jarRunner.getJarPath(), maxLines, maxBytes);
             saveOtherConfig(jarRunner.getJarPath(), useNoGui);
-            jarRunner.getOutputPanel().append(String.format("[MSH] 其他设置已更新 - 使用--nogui参数: %s\n", 
-                useNoGui ? "是" : "否"));
+            jarRunner.getOutputPanel().append(String.format("[MSH] 其他设置已更新 - 使用--nogui参数: %s, 控制台保留: %d行/%dMB\n", 
+                useNoGui ? "是" : "否", maxLines, maxBytes / (1024 * 1024)));
             dialog.dispose();
         });
         
         applyButton.addActionListener(e -> {
             boolean useNoGui = useNoGuiCheckBox.isSelected();
+            int maxLines = (Integer) maxLinesSpinner.getValue();
+            long maxBytes = (Integer) maxBytesSpinner.getValue() * 1024L * 1024L;
             jarRunner.setUseNoGui(useNoGui);
+            outputPanel.setScrollbackLimits(maxLines, maxBytes);
+            saveConsoleConfig(jarRunner.getJarPath(), maxLines, maxBytes);
             saveOtherConfig(jarRunner.getJarPath(), useNoGui);
-            jarRunner.getOutputPanel().append(String.format("[MSH] 其他设置已应用 - 使用--nogui参数: %s\n", 
-                useNoGui ? "是" : "否"));
+            jarRunner.getOutputPanel().append(String.format("[MSH] 其他设置已应用 - 使用--nogui参数: %s, 控制台保留: %d行/%dMB\n", 
+                useNoGui ? "是" : "否", maxLines, maxBytes / (1024 * 1024)));
         });
         
         cancelButton.addActionListener(e -> dialog.dispose());
@@ -1485,6 +2177,255 @@ public class Main {
         dialog.setVisible(true);
     }
     
+    private void showLaunchProfileDialog(JarRunner jarRunner) {
+        JDialog dialog = new JDialog(frame, "启动参数 - " + new File(jarRunner.getJarPath()).getName(), true);
+        dialog.setLayout(new BorderLayout(10, 10));
+        dialog.setLocationRelativeTo(frame);
+
+        LaunchProfile current = jarRunner.getLaunchProfile();
+        long physicalMB = LaunchProfile.getPhysicalMemoryMB();
+        int heapLimit = (int) Math.max(LaunchProfile.MIN_HEAP_MB, physicalMB);
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(4, 4, 4, 4);
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        String autoOption = "自动选择 (按 MC 版本匹配)";
+        String systemOption = "系统 PATH 中的 java";
+        String customOption = "自定义路径";
+        JComboBox<Object> runtimeComboBox = new JComboBox<>();
+        runtimeComboBox.addItem(autoOption);
+        runtimeComboBox.addItem(systemOption);
+        for (JdkRegistry.Jdk jdk : JdkRegistry.list()) {
+            runtimeComboBox.addItem(jdk);
+        }
+        runtimeComboBox.addItem(customOption);
+        JdkRegistry.Jdk currentJdk = JdkRegistry.findByExecutable(current.getJavaPath());
+        boolean customJava = false;
+        if (current.isAutoJava()) {
+            runtimeComboBox.setSelectedItem(autoOption);
+        } else if (current.getJavaPath().isEmpty()) {
+            runtimeComboBox.setSelectedItem(systemOption);
+        } else if (currentJdk != null) {
+            runtimeComboBox.setSelectedItem(currentJdk);
+        } else {
+            runtimeComboBox.setSelectedItem(customOption);
+            customJava = true;
+        }
+        gbc.gridx = 0; gbc.gridy = 0;
+        formPanel.add(new JLabel("Java 运行时:"), gbc);
+        gbc.gridx = 1; gbc.gridwidth = 2; gbc.weightx = 1;
+        formPanel.add(runtimeComboBox, gbc);
+
+        JTextField javaPathField = new JTextField(customJava ? current.getJavaPath() : "", 28);
+        javaPathField.setEnabled(customJava);
+        JButton browseButton = new JButton("浏览...");
+        browseButton.setEnabled(customJava);
+        browseButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser(javaPathField.getText());
+            chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+            if (chooser.showOpenDialog(dialog) == JFileChooser.APPROVE_OPTION) {
+                javaPathField.setText(chooser.getSelectedFile().getAbsolutePath());
+            }
+        });
+        gbc.gridx = 0; gbc.gridy = 1; gbc.gridwidth = 1; gbc.weightx = 0;
+        formPanel.add(new JLabel("Java 路径:"), gbc);
+        gbc.gridx = 1; gbc.weightx = 1;
+        formPanel.add(javaPathField, gbc);
+        gbc.gridx = 2; gbc.weightx = 0;
+        formPanel.add(browseButton, gbc);
+
+        JSpinner minHeapSpinner = new JSpinner(new SpinnerNumberModel(Math.min(current.getMinHeapMB(), heapLimit), 0, heapLimit, 256));
+        JSpinner maxHeapSpinner = new JSpinner(new SpinnerNumberModel(Math.min(current.getMaxHeapMB(), heapLimit), 0, heapLimit, 256));
+        JPanel heapPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        heapPanel.add(new JLabel("最小"));
+        heapPanel.add(minHeapSpinner);
+        heapPanel.add(new JLabel("MB   最大"));
+        heapPanel.add(maxHeapSpinner);
+        heapPanel.add(new JLabel("MB (0 为 JVM 默认)"));
+        gbc.gridx = 0; gbc.gridy = 2;
+        formPanel.add(new JLabel("堆内存:"), gbc);
+        gbc.gridx = 1; gbc.gridwidth = 2;
+        formPanel.add(heapPanel, gbc);
+
+        JComboBox<LaunchProfile.GarbageCollector> gcComboBox = new JComboBox<>(LaunchProfile.GarbageCollector.values());
+        gcComboBox.setSelectedItem(current.getGc());
+        JComboBox<LaunchProfile.FlagPreset> presetComboBox = new JComboBox<>(LaunchProfile.FlagPreset.values());
+        presetComboBox.setSelectedItem(current.getPreset());
+        JPanel gcPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        gcPanel.add(gcComboBox);
+        gcPanel.add(new JLabel("   参数预设"));
+        gcPanel.add(presetComboBox);
+        gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 1;
+        formPanel.add(new JLabel("垃圾回收器:"), gbc);
+        gbc.gridx = 1; gbc.gridwidth = 2;
+        formPanel.add(gcPanel, gbc);
+
+        JTextField jvmArgsField = new JTextField(current.getJvmArgs());
+        gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 1;
+        formPanel.add(new JLabel("额外 JVM 参数:"), gbc);
+        gbc.gridx = 1; gbc.gridwidth = 2;
+        formPanel.add(jvmArgsField, gbc);
+
+        JTextField programArgsField = new JTextField(current.getProgramArgs());
+        gbc.gridx = 0; gbc.gridy = 5; gbc.gridwidth = 1;
+        formPanel.add(new JLabel("额外程序参数:"), gbc);
+        gbc.gridx = 1; gbc.gridwidth = 2;
+        formPanel.add(programArgsField, gbc);
+
+        JTextArea envArea = new JTextArea(current.getEnvironment(), 3, 28);
+        envArea.setToolTipText("每行一个 KEY=VALUE，# 开头为注释");
+        gbc.gridx = 0; gbc.gridy = 6; gbc.gridwidth = 1;
+        formPanel.add(new JLabel("环境变量:"), gbc);
+        gbc.gridx = 1; gbc.gridwidth = 2;
+        formPanel.add(new JScrollPane(envArea), gbc);
+
+        long others = getRunningServersFootprintMB(jarRunner);
+        long freeMB = LaunchProfile.getFreeMemoryMB();
+        JLabel memoryLabel = new JLabel(String.format("物理内存 %d MB，当前空闲 %s，其他运行中服务器约占 %d MB，可分配 %d MB",
+            physicalMB, freeMB < 0 ? "未知" : freeMB + " MB", others, LaunchProfile.getMemoryBudgetMB()));
+        memoryLabel.setFont(new Font(null, Font.PLAIN, 11));
+        gbc.gridx = 0; gbc.gridy = 7; gbc.gridwidth = 3;
+        formPanel.add(memoryLabel, gbc);
+
+        JTextArea previewArea = new JTextArea(4, 28);
+        previewArea.setEditable(false);
+        previewArea.setLineWrap(true);
+        previewArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+        gbc.gridx = 0; gbc.gridy = 8; gbc.gridwidth = 3; gbc.weighty = 1;
+        gbc.fill = GridBagConstraints.BOTH;
+        formPanel.add(new JScrollPane(previewArea), gbc);
+
+        java.util.function.Supplier<String> javaPathSupplier = () -> {
+            Object selected = runtimeComboBox.getSelectedItem();
+            if (selected == autoOption) {
+                return LaunchProfile.AUTO_JAVA;
+            }
+            if (selected instanceof JdkRegistry.Jdk) {
+                return ((JdkRegistry.Jdk) selected).getExecutable(true);
+            }
+            return selected == customOption ? javaPathField.getText() : "";
+        };
+        java.util.function.Supplier<LaunchProfile> profileSupplier = () -> new LaunchProfile(
+            javaPathSupplier.get(),
+            (Integer) minHeapSpinner.getValue(),
+            (Integer) maxHeapSpinner.getValue(),
+            (LaunchProfile.GarbageCollector) gcComboBox.getSelectedItem(),
+            (LaunchProfile.FlagPreset) presetComboBox.getSelectedItem(),
+            jvmArgsField.getText(),
+            programArgsField.getText(),
+            envArea.getText());
+        Runnable updatePreview = () -> {
+            LaunchProfile profile = profileSupplier.get();
+            JdkRegistry.Jdk runtime = resolveRuntime(jarRunner, profile);
+            String previewJava = profile.isAutoJava() && runtime != null ? runtime.getExecutable(true) : "java";
+            StringBuilder preview = new StringBuilder(String.join(" ", profile.buildCommand(previewJava, jarRunner.getJarPath(), jarRunner.isUseNoGui())));
+            for (String problem : profile.validate(runtime)) {
+                preview.append("\n! ").append(problem);
+            }
+            previewArea.setText(preview.toString());
+            previewArea.setCaretPosition(0);
+        };
+        javax.swing.event.DocumentListener previewListener = new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                updatePreview.run();
+            }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                updatePreview.run();
+            }
+
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                updatePreview.run();
+            }
+        };
+        javaPathField.getDocument().addDocumentListener(previewListener);
+        jvmArgsField.getDocument().addDocumentListener(previewListener);
+        programArgsField.getDocument().addDocumentListener(previewListener);
+        envArea.getDocument().addDocumentListener(previewListener);
+        minHeapSpinner.addChangeListener(e -> updatePreview.run());
+        maxHeapSpinner.addChangeListener(e -> updatePreview.run());
+        gcComboBox.addActionListener(e -> updatePreview.run());
+        presetComboBox.addActionListener(e -> updatePreview.run());
+        runtimeComboBox.addActionListener(e -> {
+            boolean custom = runtimeComboBox.getSelectedItem() == customOption;
+            javaPathField.setEnabled(custom);
+            browseButton.setEnabled(custom);
+            updatePreview.run();
+        });
+        updatePreview.run();
+        JdkRegistry.refreshAsync().thenAccept(jdks -> SwingUtilities.invokeLater(() -> {
+            if (!dialog.isDisplayable()) {
+                return;
+            }
+            Object selected = runtimeComboBox.getSelectedItem();
+            String selectedPath = selected instanceof JdkRegistry.Jdk ? ((JdkRegistry.Jdk) selected).home : null;
+            for (int i = runtimeComboBox.getItemCount() - 1; i >= 0; i--) {
+                if (runtimeComboBox.getItemAt(i) instanceof JdkRegistry.Jdk) {
+                    runtimeComboBox.removeItemAt(i);
+                }
+            }
+            int insertAt = runtimeComboBox.getItemCount() - 1;
+            for (JdkRegistry.Jdk jdk : jdks) {
+                runtimeComboBox.insertItemAt(jdk, insertAt++);
+                if (jdk.home.equals(selectedPath)) {
+                    runtimeComboBox.setSelectedItem(jdk);
+                }
+            }
+            if (selectedPath != null && !(runtimeComboBox.getSelectedItem() instanceof JdkRegistry.Jdk)) {
+                runtimeComboBox.setSelectedItem(customOption);
+                javaPathField.setText(((JdkRegistry.Jdk) selected).getExecutable(true));
+            }
+            dialog.pack();
+        }));
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton defaultsButton = new JButton("恢复默认");
+        JButton okButton = new JButton("确定");
+        JButton cancelButton = new JButton("取消");
+        defaultsButton.addActionListener(e -> {
+            runtimeComboBox.setSelectedItem(systemOption);
+            javaPathField.setText("");
+            minHeapSpinner.setValue(0);
+            maxHeapSpinner.setValue(0);
+            gcComboBox.setSelectedItem(LaunchProfile.GarbageCollector.DEFAULT);
+            presetComboBox.setSelectedItem(LaunchProfile.FlagPreset.NONE);
+            jvmArgsField.setText("");
+            programArgsField.setText("");
+            envArea.setText("");
+        });
+        okButton.addActionListener(e -> {
+            LaunchProfile profile = profileSupplier.get();
+            List<String> problems = profile.validate(resolveRuntime(jarRunner, profile));
+            if (!problems.isEmpty()) {
+                JOptionPane.showMessageDialog(dialog, String.join("\n", problems), "启动参数有误", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (!confirmMemoryFits(dialog, jarRunner, profile)) {
+                return;
+            }
+            jarRunner.setLaunchProfile(profile);
+            saveLaunchConfig(jarRunner.getJarPath(), profile);
+            jarRunner.getOutputPanel().append("[MSH] 启动参数已更新，下次启动时生效\n");
+            dialog.dispose();
+        });
+        cancelButton.addActionListener(e -> dialog.dispose());
+        buttonPanel.add(defaultsButton);
+        buttonPanel.add(okButton);
+        buttonPanel.add(cancelButton);
+
+        dialog.add(formPanel, BorderLayout.CENTER);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.pack();
+        dialog.setLocationRelativeTo(frame);
+        dialog.setVisible(true);
+    }
+    
     private void saveOtherConfig(String jarPath, boolean useNoGui) {
         try {
             Properties props = new Properties();
@@ -1530,7 +2471,7 @@ public class Main {
         return useNoGui;
     }
 
-    private void loadBackupList(DefaultListModel<String> model, JarRunner jarRunner, String sortBy) {
+    private void loadBackupList(DefaultListModel<String> model, JarRunner jarRunner, String sortBy, BackupCatalog.Filter filter) {
         model.clear();
         try {
             String jarPath = jarRunner.getJarPath();
@@ -1544,121 +2485,94 @@ public class Main {
             }
             
             String safeServerName = sanitizeFileName(jarFile.getName());
-            String backupDirPath = "MSH/backup/" + safeServerName;
+            String backupDirPath = jarRunner.getBackupDir().getPath();
             File backupDir = new File(backupDirPath);
             
             if (!backupDir.exists() || !backupDir.isDirectory()) {
                 return;
             }
             
-            String canonicalBackupDir = backupDir.getCanonicalPath();
-            File[] files = backupDir.listFiles((d, name) -> {
-                if (name == null || name.isEmpty()) return false;
-                if (name.contains("..") || name.contains("/") || name.contains("\\")) return false;
-                return name.toLowerCase().endsWith(".zip");
-            });
-            
-            if (files == null || files.length == 0) {
-                return;
-            }
-            
-            switch (sortBy) {
-                case "size":
-                    Arrays.sort(files, (f1, f2) -> Long.compare(f2.length(), f1.length()));
-                    break;
-                case "name":
-                    Arrays.sort(files, (f1, f2) -> f1.getName().compareToIgnoreCase(f2.getName()));
-                    break;
-                case "time":
-                default:
-                    Arrays.sort(files, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
-                    break;
-            }
-            
-            int maxCount = jarRunner.getMaxBackupCount();
-            int autoDeleteDays = jarRunner.getAutoDeleteDays();
-            long currentTime = System.currentTimeMillis();
-            long deleteTimeThreshold = autoDeleteDays > 0 ? currentTime - (autoDeleteDays * 24L * 60 * 60 * 1000) : 0;
-            
-            List<File> filesToDelete = new ArrayList<>();
-            if (autoDeleteDays > 0) {
-                for (File file : files) {
-                    if (file.lastModified() < deleteTimeThreshold) {
-                        filesToDelete.add(file);
-                    }
-                }
-            }
-            
-            if (files.length > maxCount) {
-                File[] sortedByTime = Arrays.copyOf(files, files.length);
-                Arrays.sort(sortedByTime, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
-                for (int i = maxCount; i < sortedByTime.length; i++) {
-                    if (!filesToDelete.contains(sortedByTime[i])) {
-                        filesToDelete.add(sortedByTime[i]);
-                    }
-                }
-            }
+            BackupCatalog catalog = BackupCatalog.forDirectory(backupDir);
             
-            for (File fileToDelete : filesToDelete) {
-                try {
-                    String canonicalPath = fileToDelete.getCanonicalPath();
-                    if (canonicalPath.startsWith(canonicalBackupDir + File.separator) && 
-                        fileToDelete.exists() && fileToDelete.canWrite()) {
-                        if (fileToDelete.delete()) {
-                            Logger.info("Auto-deleted old backup: " + fileToDelete.getName(), "Main");
-                        }
-                    }
-                } catch (IOException e) {
-                    Logger.error("Failed to delete backup file: " + fileToDelete.getName(), "Main");
+            for (BackupCatalog.Entry entry : catalog.list(filter, sortBy)) {
+                String fileName = entry.id;
+                if (fileName == null || fileName.isEmpty()) continue;
+                if (fileName.contains("..") || fileName.contains("/") || fileName.contains("\\")) continue;
+                
+                String info = entry.isIncremental()
+                    ? fileName + " (增量 " + formatFileSize(entry.size) + ")"
+                    : entry.isRemote()
+                    ? fileName + " (远程 " + formatFileSize(entry.size) + ")"
+                    : fileName + " (" + formatFileSize(entry.size) + ")";
+                if (BackupVerifier.STATUS_VERIFIED.equals(entry.verifyStatus)) {
+                    info += " [已校验]";
+                } else if (BackupVerifier.STATUS_INCOMPLETE.equals(entry.verifyStatus)) {
+                    info += " [不完整]";
+                } else if (BackupVerifier.STATUS_CORRUPT.equals(entry.verifyStatus)) {
+                    info += " [已损坏]";
                 }
+                model.addElement(info);
             }
-            
-            File[] validFiles = backupDir.listFiles((d, name) -> {
-                if (name == null || name.isEmpty()) return false;
-                if (name.contains("..") || name.contains("/") || name.contains("\\")) return false;
-                return name.toLowerCase().endsWith(".zip");
-            });
-            
-            if (validFiles == null || validFiles.length == 0) {
-                return;
+        } catch (Exception e) {
+            Logger.error("Failed to load backup list: " + e.getMessage(), "Main");
+        }
+    }
+
+    private String describeCatalogEntry(File backupDir, String fileName) {
+        BackupCatalog.Entry entry = BackupCatalog.forDirectory(backupDir).get(fileName);
+        if (entry == null) {
+            return "";
+        }
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        StringBuilder info = new StringBuilder();
+        info.append("备份时间: ").append(dateFormat.format(new Date(entry.time))).append("\n");
+        info.append("文件数: ").append(entry.fileCount).append("\n");
+        if (entry.checksum != null) {
+            info.append("SHA-256: ").append(entry.checksum).append("\n");
+        }
+        if (entry.lastRestored > 0) {
+            info.append("上次恢复: ").append(dateFormat.format(new Date(entry.lastRestored))).append("\n");
+        }
+        if (entry.verifiedAt > 0) {
+            String status = BackupVerifier.STATUS_VERIFIED.equals(entry.verifyStatus) ? "正常"
+                : BackupVerifier.STATUS_INCOMPLETE.equals(entry.verifyStatus) ? "不完整" : "已损坏";
+            info.append("校验结果: ").append(status).append(" (").append(dateFormat.format(new Date(entry.verifiedAt))).append(")\n");
+            if (entry.verifyMessage != null && !entry.verifyMessage.isEmpty()) {
+                info.append("校验详情: ").append(entry.verifyMessage).append("\n");
             }
-            
-            Arrays.sort(validFiles, (f1, f2) -> {
-                switch (sortBy) {
-                    case "size":
-                        return Long.compare(f2.length(), f1.length());
-                    case "name":
-                        return f1.getName().compareToIgnoreCase(f2.getName());
-                    case "time":
-                    default:
-                        return Long.compare(f2.lastModified(), f1.lastModified());
+        }
+        return info.toString();
+    }
+
+    private String describeManifest(File manifestFile, String fileName) {
+        StringBuilder info = new StringBuilder();
+        info.append("文件: ").append(fileName).append("\n");
+        try {
+            IncrementalBackupStore.Manifest manifest = IncrementalBackupStore.readManifest(manifestFile);
+            info.append("类型: 增量备份\n");
+            info.append("原始大小: ").append(formatFileSize(manifest.totalSize)).append("\n");
+            info.append("新增数据: ").append(formatFileSize(manifest.storedSize))
+                .append(" (").append(manifest.newChunkCount).append("/").append(manifest.chunkCount).append(" 个数据块)\n");
+            info.append("备份内容:\n");
+            int count = 0;
+            for (IncrementalBackupStore.FileEntry entry : manifest.entries) {
+                if (count >= 20) {
+                    break;
                 }
-            });
-            
-            for (File file : validFiles) {
-                try {
-                    String fileName = file.getName();
-                    if (fileName == null || fileName.isEmpty()) continue;
-                    
-                    String canonicalPath = file.getCanonicalPath();
-                    if (!canonicalPath.startsWith(canonicalBackupDir + File.separator) && 
-                        !canonicalPath.equals(canonicalBackupDir)) {
-                        continue;
-                    }
-                    
-                    if (!file.canRead() || file.length() == 0) {
-                        continue;
-                    }
-                    
-                    String info = fileName + " (" + formatFileSize(file.length()) + ")";
-                    model.addElement(info);
-                } catch (IOException e) {
-                    Logger.error("Failed to validate backup file: " + file.getName(), "Main");
+                info.append("  - ").append(entry.path).append(entry.directory ? "/" : "");
+                if (entry.size > 0) {
+                    info.append(" (").append(formatFileSize(entry.size)).append(")");
                 }
+                info.append("\n");
+                count++;
             }
-        } catch (Exception e) {
-            Logger.error("Failed to load backup list: " + e.getMessage(), "Main");
+            if (manifest.entries.size() > 20) {
+                info.append("  ... 共 ").append(manifest.entries.size()).append(" 个文件/文件夹");
+            }
+        } catch (IOException ex) {
+            info.append("无法读取备份信息: ").append(ex.getMessage());
         }
+        return info.toString();
     }
 
     private String formatFileSize(long bytes) {
@@ -1668,96 +2582,287 @@ public class Main {
         return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
     }
 
-    private void extractZipWithProgress(File zipFile, File destDir, JProgressBar progressBar, JLabel statusLabel) throws IOException {
-        if (!zipFile.exists() || !zipFile.canRead()) {
-            throw new IOException("Backup file does not exist or cannot be read");
+    private void showBackupExcludeRulesDialog(JDialog parentDialog, JarRunner jarRunner) {
+        JDialog rulesDialog = new JDialog(parentDialog, "备份排除规则 - " + new File(jarRunner.getJarPath()).getName(), true);
+        rulesDialog.setLayout(new BorderLayout(10, 10));
+        rulesDialog.setSize(640, 560);
+        rulesDialog.setLocationRelativeTo(parentDialog);
+
+        JPanel contentPanel = new JPanel(new BorderLayout(10, 10));
+        contentPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        JTextArea rulesArea = new JTextArea(jarRunner.getBackupExcludeRules().getSource());
+        rulesArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JScrollPane rulesScroll = new JScrollPane(rulesArea);
+        rulesScroll.setBorder(BorderFactory.createTitledBorder("排除规则"));
+
+        JTextArea previewArea = new JTextArea("点击“预览”查看将被备份的内容");
+        previewArea.setEditable(false);
+        previewArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JScrollPane previewScroll = new JScrollPane(previewArea);
+        previewScroll.setBorder(BorderFactory.createTitledBorder("备份预览"));
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, rulesScroll, previewScroll);
+        splitPane.setResizeWeight(0.5);
+        contentPanel.add(splitPane, BorderLayout.CENTER);
+
+        JButton previewButton = new JButton("预览");
+        previewButton.addActionListener(e -> {
+            BackupExcludeRules rules;
+            try {
+                rules = BackupExcludeRules.compile(rulesArea.getText());
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(rulesDialog, ex.getMessage(), "规则错误", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            File serverDir = new File(jarRunner.getJarPath()).getAbsoluteFile().getParentFile();
+            previewButton.setEnabled(false);
+            previewArea.setText("正在扫描 " + serverDir + " ...");
+            HubExecutors.start("backup-preview-" + jarRunner.getJarPath(), () -> {
+                String text;
+                try {
+                    long start = System.nanoTime();
+                    DirectoryScanner.Result scan = DirectoryScanner.scan(serverDir.toPath(), rules);
+                    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                    text = describeBackupPreview(scan, elapsedMs);
+                } catch (IOException ex) {
+                    text = "扫描失败: " + ex.getMessage();
+                    Logger.warn("Backup preview scan failed: " + ex.getMessage(), "Main");
+                }
+                String result = text;
+                SwingUtilities.invokeLater(() -> {
+                    previewArea.setText(result);
+                    previewArea.setCaretPosition(0);
+                    previewButton.setEnabled(true);
+                });
+            });
+        });
+
+        JButton resetButton = new JButton("恢复默认");
+        resetButton.addActionListener(e -> rulesArea.setText(BackupExcludeRules.DEFAULT_RULES));
+
+        JButton saveButton = new JButton("保存");
+        saveButton.addActionListener(e -> {
+            BackupExcludeRules rules;
+            try {
+                rules = BackupExcludeRules.compile(rulesArea.getText());
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(rulesDialog, ex.getMessage(), "规则错误", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            jarRunner.setBackupExcludeRules(rules);
+            saveBackupExcludeConfig(jarRunner.getJarPath(), rules.getSource());
+            Logger.info("Backup exclude rules updated for " + jarRunner.getJarPath(), "Main");
+            rulesDialog.dispose();
+        });
+
+        JButton cancelButton = new JButton("取消");
+        cancelButton.addActionListener(e -> rulesDialog.dispose());
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(previewButton);
+        buttonPanel.add(resetButton);
+        buttonPanel.add(saveButton);
+        buttonPanel.add(cancelButton);
+        contentPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        rulesDialog.add(contentPanel);
+        rulesDialog.setVisible(true);
+    }
+
+    private String describeBackupPreview(DirectoryScanner.Result scan, long elapsedMs) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("将备份 %d 个文件, %d 个目录, 共 %s (扫描耗时 %d ms)\n",
+            scan.getFileCount(), scan.getDirectoryCount(), formatFileSize(scan.getTotalBytes()), elapsedMs));
+        if (scan.getSkippedCount() > 0) {
+            text.append(String.format("%d 个路径无法读取, 将被跳过\n", scan.getSkippedCount()));
         }
-        
-        if (destDir == null || !destDir.exists()) {
-            throw new IOException("Destination directory does not exist");
+        text.append("\n按顶层目录:\n");
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(scan.getTopLevelBytes().entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        for (Map.Entry<String, Long> entry : entries) {
+            text.append(String.format("  %-40s %10s\n", entry.getKey(), formatFileSize(entry.getValue())));
         }
-        
-        try (ZipFile zip = new ZipFile(zipFile)) {
-            java.util.Enumeration<? extends ZipEntry> entries = zip.entries();
-            java.util.List<ZipEntry> allEntries = new java.util.ArrayList<>();
-            while (entries.hasMoreElements()) {
-                allEntries.add(entries.nextElement());
+        return text.toString();
+    }
+
+    private void showBackupTargetDialog(JDialog parentDialog, JarRunner jarRunner) {
+        JDialog targetDialog = new JDialog(parentDialog, "备份存储位置 - " + new File(jarRunner.getJarPath()).getName(), true);
+        targetDialog.setLayout(new BorderLayout(10, 10));
+        targetDialog.setSize(520, 480);
+        targetDialog.setLocationRelativeTo(parentDialog);
+
+        String[] saved = loadBackupTargetConfig(jarRunner.getJarPath());
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(4, 4, 4, 4);
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        JRadioButton localRadio = new JRadioButton("本地目录 (可选择第二块硬盘或 NAS 挂载目录)");
+        JRadioButton s3Radio = new JRadioButton("S3 兼容对象存储 (AWS S3 / MinIO 等)");
+        ButtonGroup typeGroup = new ButtonGroup();
+        typeGroup.add(localRadio);
+        typeGroup.add(s3Radio);
+        s3Radio.setSelected(BackupTarget.TYPE_S3.equals(saved[0]));
+        localRadio.setSelected(!s3Radio.isSelected());
+        gbc.gridx = 0; gbc.gridy = 0; gbc.gridwidth = 3;
+        formPanel.add(localRadio, gbc);
+
+        JTextField localPathField = new JTextField(saved[1]);
+        JButton browseButton = new JButton("浏览...");
+        browseButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser(localPathField.getText());
+            chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            if (chooser.showOpenDialog(targetDialog) == JFileChooser.APPROVE_OPTION) {
+                localPathField.setText(chooser.getSelectedFile().getAbsolutePath());
             }
-            
-            int totalEntries = allEntries.size();
-            java.util.concurrent.atomic.AtomicInteger processedEntries = new java.util.concurrent.atomic.AtomicInteger(0);
-            
-            java.util.List<ZipEntry> dirEntries = new java.util.ArrayList<>();
-            java.util.List<ZipEntry> fileEntries = new java.util.ArrayList<>();
-            
-            for (ZipEntry entry : allEntries) {
-                String entryName = entry.getName();
-                if (entryName.contains("..") || entryName.startsWith("/") || entryName.startsWith("\\")) {
-                    continue;
-                }
-                
-                if (entry.isDirectory()) {
-                    dirEntries.add(entry);
-                } else {
-                    fileEntries.add(entry);
-                }
+        });
+        gbc.gridx = 0; gbc.gridy = 1; gbc.gridwidth = 1;
+        formPanel.add(new JLabel("备份目录:"), gbc);
+        gbc.gridx = 1; gbc.gridy = 1; gbc.weightx = 1;
+        formPanel.add(localPathField, gbc);
+        gbc.gridx = 2; gbc.gridy = 1; gbc.weightx = 0;
+        formPanel.add(browseButton, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 2; gbc.gridwidth = 3;
+        formPanel.add(s3Radio, gbc);
+
+        String[] labels = {"服务地址:", "区域:", "存储桶:", "路径前缀:", "Access Key:", "Secret Key:"};
+        JTextField[] s3Fields = new JTextField[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            s3Fields[i] = i == 5 ? new JPasswordField(saved[i + 2]) : new JTextField(saved[i + 2]);
+            gbc.gridx = 0; gbc.gridy = 3 + i; gbc.gridwidth = 1;
+            formPanel.add(new JLabel(labels[i]), gbc);
+            gbc.gridx = 1; gbc.gridy = 3 + i; gbc.gridwidth = 2;
+            formPanel.add(s3Fields[i], gbc);
+        }
+        s3Fields[0].setToolTipText("例如 https://s3.us-east-1.amazonaws.com 或 http://192.168.1.10:9000");
+
+        JCheckBox pathStyleCheckBox = new JCheckBox("路径风格访问 (MinIO 等自建服务需要)", Boolean.parseBoolean(saved[8]));
+        gbc.gridx = 0; gbc.gridy = 9; gbc.gridwidth = 3;
+        formPanel.add(pathStyleCheckBox, gbc);
+
+        JSpinner partSizeSpinner = new JSpinner(new SpinnerNumberModel(
+            Math.max(S3BackupTarget.MIN_PART_SIZE_MB, Integer.parseInt(saved[9])), S3BackupTarget.MIN_PART_SIZE_MB, 512, 1));
+        JSpinner parallelismSpinner = new JSpinner(new SpinnerNumberModel(Math.max(1, Integer.parseInt(saved[10])), 1, 16, 1));
+        JPanel uploadPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        uploadPanel.add(new JLabel("分片大小"));
+        uploadPanel.add(partSizeSpinner);
+        uploadPanel.add(new JLabel("MB   并行上传"));
+        uploadPanel.add(parallelismSpinner);
+        uploadPanel.add(new JLabel("个分片"));
+        gbc.gridx = 0; gbc.gridy = 10; gbc.gridwidth = 3;
+        formPanel.add(uploadPanel, gbc);
+
+        JTextArea noteArea = new JTextArea("上传时边压缩边分片上传，不在本地保留完整副本\n增量备份依赖本地数据块仓库，始终保存在本地\n密钥以明文保存在配置文件中");
+        noteArea.setEditable(false);
+        noteArea.setOpaque(false);
+        noteArea.setFont(new Font(null, Font.PLAIN, 11));
+        gbc.gridx = 0; gbc.gridy = 11; gbc.gridwidth = 3;
+        formPanel.add(noteArea, gbc);
+
+        Runnable updateEnabled = () -> {
+            boolean s3 = s3Radio.isSelected();
+            localPathField.setEnabled(!s3);
+            browseButton.setEnabled(!s3);
+            for (JTextField field : s3Fields) {
+                field.setEnabled(s3);
             }
-            
-            for (ZipEntry dirEntry : dirEntries) {
-                String dirName = dirEntry.getName();
-                File dirFile = new File(destDir, dirName);
-                if (!dirFile.getCanonicalPath().startsWith(destDir.getCanonicalPath())) {
-                    continue;
-                }
-                dirFile.mkdirs();
-                int currentProgress = processedEntries.incrementAndGet();
-                int progress = (int) ((currentProgress * 100) / totalEntries);
-                progressBar.setValue(Math.min(progress, 100));
-                statusLabel.setText("创建目录: " + dirName);
+            pathStyleCheckBox.setEnabled(s3);
+            partSizeSpinner.setEnabled(s3);
+            parallelismSpinner.setEnabled(s3);
+        };
+        localRadio.addActionListener(e -> updateEnabled.run());
+        s3Radio.addActionListener(e -> updateEnabled.run());
+        updateEnabled.run();
+
+        java.util.function.Supplier<String[]> s3Settings = () -> {
+            String[] values = new String[S3_CONFIG_KEYS.length];
+            for (int i = 0; i < s3Fields.length; i++) {
+                values[i] = s3Fields[i].getText().trim();
             }
-            
-            fileEntries.parallelStream().forEach(entry -> {
-                String entryName = null;
-                synchronized (fileEntries) {
-                    entryName = entry.getName();
-                }
+            values[6] = String.valueOf(pathStyleCheckBox.isSelected());
+            values[7] = String.valueOf(partSizeSpinner.getValue());
+            values[8] = String.valueOf(parallelismSpinner.getValue());
+            return values;
+        };
+
+        JButton testButton = new JButton("测试连接");
+        testButton.addActionListener(e -> {
+            BackupTarget target;
+            try {
+                target = createBackupTarget(s3Radio.isSelected() ? BackupTarget.TYPE_S3 : BackupTarget.TYPE_LOCAL,
+                    localPathField.getText(), s3Settings.get());
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(targetDialog, ex.getMessage(), "设置错误", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            testButton.setEnabled(false);
+            HubExecutors.start("backup-target-test-" + jarRunner.getJarPath(), () -> {
+                String error = null;
                 try {
-                    File file = new File(destDir, entryName);
-                    String canonicalDestDir = destDir.getCanonicalPath();
-                    String canonicalFile = file.getCanonicalPath();
-                    
-                    if (!canonicalFile.startsWith(canonicalDestDir + File.separator) && 
-                        !canonicalFile.equals(canonicalDestDir)) {
-                        return;
-                    }
-                    
-                    file.getParentFile().mkdirs();
-                    try (InputStream is = new BufferedInputStream(zip.getInputStream(entry), 131072);
-                         FileOutputStream fos = new FileOutputStream(file)) {
-                        byte[] buffer = new byte[131072];
-                        int len;
-                        while ((len = is.read(buffer)) > 0) {
-                            fos.write(buffer, 0, len);
+                    if (target instanceof S3BackupTarget) {
+                        ((S3BackupTarget) target).testConnection();
+                    } else {
+                        File root = ((LocalBackupTarget) target).getRoot();
+                        if (!root.isDirectory() && !root.mkdirs() || !root.canWrite()) {
+                            error = "目录不可写: " + root.getAbsolutePath();
                         }
                     }
-                    synchronized (Main.this) {
-                        int currentProgress = processedEntries.incrementAndGet();
-                        int progress = (int) ((currentProgress * 100) / totalEntries);
-                        final int finalProgress = progress;
-                        final String currentEntryName = entryName;
-                        SwingUtilities.invokeLater(() -> {
-                            progressBar.setValue(Math.min(finalProgress, 100));
-                            statusLabel.setText("解压文件: " + currentEntryName);
-                        });
-                    }
-                } catch (IOException e) {
-                    Logger.error("Failed to extract file: " + entryName + " - " + e.getMessage(), "Main");
+                } catch (IOException ex) {
+                    error = ex.getMessage();
+                    Logger.warn("Backup target test failed: " + ex.getMessage(), "Main");
                 }
+                String result = error;
+                SwingUtilities.invokeLater(() -> {
+                    testButton.setEnabled(true);
+                    if (result == null) {
+                        JOptionPane.showMessageDialog(targetDialog, "连接成功: " + target.describe(), "测试连接", JOptionPane.INFORMATION_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(targetDialog, "连接失败: " + result, "测试连接", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
             });
-        }
+        });
+
+        JButton saveButton = new JButton("保存");
+        saveButton.addActionListener(e -> {
+            if (jarRunner.isBackingUp()) {
+                JOptionPane.showMessageDialog(targetDialog, "备份进行中，请稍后再修改存储位置", "提示", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            String type = s3Radio.isSelected() ? BackupTarget.TYPE_S3 : BackupTarget.TYPE_LOCAL;
+            String[] settings = s3Settings.get();
+            BackupTarget target;
+            try {
+                target = createBackupTarget(type, localPathField.getText(), settings);
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(targetDialog, ex.getMessage(), "设置错误", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            jarRunner.setBackupTarget(target);
+            saveBackupTargetConfig(jarRunner.getJarPath(), type, localPathField.getText().trim(), settings);
+            jarRunner.getOutputPanel().append("[MSH] 备份存储位置: " + target.describe() + "\n");
+            Logger.info("Backup target for " + jarRunner.getJarPath() + " set to " + type, "Main");
+            targetDialog.dispose();
+        });
+
+        JButton cancelButton = new JButton("取消");
+        cancelButton.addActionListener(e -> targetDialog.dispose());
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(testButton);
+        buttonPanel.add(saveButton);
+        buttonPanel.add(cancelButton);
+
+        targetDialog.add(formPanel, BorderLayout.CENTER);
+        targetDialog.add(buttonPanel, BorderLayout.SOUTH);
+        targetDialog.setVisible(true);
     }
-    
-    private void showBackupProgressDialog(JDialog parentDialog, JarRunner jarRunner, DefaultListModel<String> backupListModel) {
+
+    private void showBackupProgressDialog(JDialog parentDialog, JarRunner jarRunner, DefaultListModel<String> backupListModel, BackupCatalog.Filter backupFilter) {
         JDialog progressDialog = new JDialog(frame, "备份中...", true);
         progressDialog.setLayout(new BorderLayout(15, 15));
         progressDialog.setSize(400, 150);
@@ -1795,7 +2900,7 @@ public class Main {
             public void onBackupComplete(String zipPath, boolean success) {
                 SwingUtilities.invokeLater(() -> {
                     progressDialog.dispose();
-                    loadBackupList(backupListModel, jarRunner, "time");
+                    loadBackupList(backupListModel, jarRunner, "time", backupFilter);
                     if (parentDialog.isVisible()) {
                         parentDialog.toFront();
                         parentDialog.repaint();
@@ -1804,10 +2909,7 @@ public class Main {
             }
         });
 
-        Thread backupThread = new Thread(() -> {
-            jarRunner.triggerBackup();
-        });
-        backupThread.start();
+        HubExecutors.start("manual-backup-" + jarRunner.getJarPath(), jarRunner::triggerBackup);
 
         progressDialog.setVisible(true);
     }
@@ -1846,15 +2948,56 @@ public class Main {
         progressDialog.add(contentPanel);
         progressDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
 
-        Thread restoreThread = new Thread(() -> {
+        HubExecutors.start("restore-" + jarRunner.getJarPath(), () -> {
+            File download = null;
             try {
                 String serverName = sanitizeFileName(new File(jarRunner.getJarPath()).getName());
-                String backupDirPath = "MSH/backup/" + serverName;
+                String backupDirPath = jarRunner.getBackupDir().getPath();
                 File backupDir = new File(backupDirPath);
                 File zipFile = new File(backupDir, backupFileName);
                 File serverDir = new File(jarRunner.getJarPath()).getParentFile();
 
-                extractZipWithProgress(zipFile, serverDir, progressBar, statusLabel);
+                BackupCatalog catalog = BackupCatalog.forDirectory(backupDir);
+                BackupCatalog.Entry catalogEntry = catalog.get(backupFileName);
+                String checksum = catalogEntry != null ? catalogEntry.checksum : null;
+                if (catalogEntry != null && catalogEntry.isRemote()) {
+                    download = new File(backupDir, ".msh-download-" + backupFileName);
+                    zipFile = download;
+                    downloadBackup(jarRunner.getBackupTarget(), catalogEntry, serverName, download, statusLabel, progressBar);
+                }
+                BackupRestorer restorer = new BackupRestorer(BackupZipWriter.defaultWorkers());
+                restorer.protect(new File(LocalBackupTarget.DEFAULT_ROOT));
+                restorer.protect(backupDir.getParentFile());
+                BackupRestorer.ProgressListener listener = (phase, done, total, path) ->
+                    SwingUtilities.invokeLater(() -> {
+                        progressBar.setIndeterminate(total <= 0);
+                        if (total > 0) {
+                            progressBar.setValue((int) Math.min(done * 100 / total, 100));
+                        }
+                        switch (phase) {
+                            case BackupRestorer.PHASE_VERIFY:
+                                statusLabel.setText("校验备份: " + path);
+                                break;
+                            case BackupRestorer.PHASE_SWAP:
+                                statusLabel.setText("正在替换服务端文件...");
+                                break;
+                            default:
+                                statusLabel.setText("恢复文件: " + (path != null ? path : ""));
+                                break;
+                        }
+                    });
+                if (IncrementalBackupStore.isManifest(backupFileName)) {
+                    restorer.restoreIncremental(zipFile, backupDir, checksum, serverDir, listener);
+                } else {
+                    restorer.restoreZip(zipFile, checksum, serverDir, listener);
+                }
+                Logger.info(String.format("Restored %d files (%d bytes) from %s at %.1f MB/s",
+                    restorer.getRestoredFiles(), restorer.getRestoredBytes(), backupFileName, restorer.getThroughputMBps()), "Main");
+                try {
+                    catalog.markRestored(backupFileName);
+                } catch (IOException e) {
+                    Logger.warn("Failed to record restore in backup catalog: " + e.getMessage(), "Main");
+                }
 
                 SwingUtilities.invokeLater(() -> {
                     progressDialog.dispose();
@@ -1872,13 +3015,62 @@ public class Main {
                     JOptionPane.showMessageDialog(parentDialog, "恢复失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
                     Logger.error("Backup restore failed: " + ex.getMessage(), "Main");
                 });
+            } finally {
+                if (download != null && download.exists() && !download.delete()) {
+                    Logger.warn("Failed to delete downloaded backup " + download, "Main");
+                }
             }
         });
-        restoreThread.start();
 
         progressDialog.setVisible(true);
     }
     
+    private void downloadBackup(BackupTarget target, BackupCatalog.Entry entry, String serverName, File download,
+                                JLabel statusLabel, JProgressBar progressBar) throws IOException {
+        if (!entry.target.equals(target.getType())) {
+            throw new IOException("该备份保存在其他存储位置，请先切换存储位置");
+        }
+        SwingUtilities.invokeLater(() -> {
+            statusLabel.setText("正在下载备份...");
+            progressBar.setIndeterminate(entry.size <= 0);
+        });
+        byte[] buffer = new byte[262144];
+        long done = 0;
+        long reported = 0;
+        try (InputStream in = target.open(serverName, entry.id);
+             OutputStream out = new FileOutputStream(download)) {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                out.write(buffer, 0, len);
+                done += len;
+                if (entry.size > 0 && done - reported >= 4 * 1024 * 1024) {
+                    reported = done;
+                    int percent = (int) Math.min(done * 100 / entry.size, 100);
+                    SwingUtilities.invokeLater(() -> progressBar.setValue(percent));
+                }
+            }
+        }
+        Logger.info("Downloaded remote backup " + entry.id + " (" + done + " bytes)", "Main");
+    }
+
+    private static CompletableFuture<Boolean> shutdownServers(List<JarRunner> runners, long graceMillis, java.util.function.IntConsumer progress) {
+        List<JarRunner> targets = new ArrayList<>(runners);
+        java.util.concurrent.atomic.AtomicInteger remaining = new java.util.concurrent.atomic.AtomicInteger(targets.size());
+        List<CompletableFuture<Boolean>> shutdowns = new ArrayList<>();
+        for (JarRunner jarRunner : targets) {
+            CompletableFuture<Boolean> shutdown;
+            try {
+                shutdown = jarRunner.shutdownAsync(graceMillis);
+            } catch (Exception e) {
+                Logger.error("Failed to stop server " + jarRunner.getJarPath() + ": " + e.getMessage(), "Main");
+                shutdown = CompletableFuture.completedFuture(false);
+            }
+            shutdowns.add(shutdown.whenComplete((graceful, error) -> progress.accept(remaining.decrementAndGet())));
+        }
+        return CompletableFuture.allOf(shutdowns.toArray(new CompletableFuture<?>[0]))
+            .handle((v, error) -> shutdowns.stream().allMatch(f -> !f.isCompletedExceptionally() && f.join()));
+    }
+    
     private void handleWindowClosing() {
         if (shuttingDown) return;
         shuttingDown = true;
@@ -1900,98 +3092,19 @@ public class Main {
         SwingWorker<Boolean, String> worker = new SwingWorker<Boolean, String>() {
             @Override
             protected Boolean doInBackground() {
-                for (JarRunner jarRunner : jarRunners) {
-                    if (jarRunner.getStatus() == JarRunner.Status.RUNNING) {
-                        jarRunner.stop();
-                    }
-                }
-                
-                int waitCount = 0;
-                int maxWait = 30;
-                while (waitCount < maxWait) {
-                    boolean allStopped = true;
-                    for (JarRunner jarRunner : jarRunners) {
-                        if (jarRunner.getStatus() != JarRunner.Status.STOPPED) {
-                            allStopped = false;
-                            break;
-                        }
-                    }
-                    if (allStopped) return true;
-                    
-                    try {
-                        Thread.sleep(500);
-                        publish("等待服务器停止... " + (waitCount * 500 / 1000) + "/" + maxWait + " 秒");
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        return false;
-                    }
-                    waitCount++;
-                }
-                
-                for (JarRunner jarRunner : jarRunners) {
-                    if (jarRunner.getStatus() == JarRunner.Status.RUNNING) {
-                        jarRunner.stop();
-                    }
-                }
-                
-                waitCount = 0;
-                while (waitCount < 10) {
-                    boolean allStopped = true;
-                    for (JarRunner jarRunner : jarRunners) {
-                        if (jarRunner.getStatus() != JarRunner.Status.STOPPED) {
-                            allStopped = false;
-                            break;
-                        }
-                    }
-                    if (allStopped) return true;
-                    
-                    try {
-                        Thread.sleep(500);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        return false;
-                    }
-                    waitCount++;
-                }
-                
-                publish("强制停止服务器...");
-                boolean stillRunning = false;
-                for (JarRunner jarRunner : jarRunners) {
-                    if (jarRunner.getStatus() != JarRunner.Status.STOPPED) {
-                        stillRunning = true;
-                        jarRunner.forceStop();
-                    }
-                }
-                
+                publish("等待服务器停止... 剩余 " + jarRunners.size() + " 个");
+                CompletableFuture<Boolean> shutdown = shutdownServers(jarRunners, JarRunner.SHUTDOWN_GRACE_MILLIS,
+                    remaining -> publish(remaining > 0 ? "等待服务器停止... 剩余 " + remaining + " 个" : "所有服务器已停止"));
                 try {
-                    Thread.sleep(1500);
+                    boolean graceful = shutdown.get(JarRunner.SHUTDOWN_GRACE_MILLIS + SHUTDOWN_FORCE_MARGIN_MILLIS, TimeUnit.MILLISECONDS);
+                    useSystemKill[0] = !graceful;
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
-                }
-                
-                for (JarRunner jarRunner : jarRunners) {
-                    if (jarRunner.getStatus() != JarRunner.Status.STOPPED) {
-                        stillRunning = true;
-                        break;
-                    }
-                }
-                
-                if (stillRunning) {
+                    return false;
+                } catch (Exception e) {
                     useSystemKill[0] = true;
-                    publish("使用系统命令强制终止...");
-                    for (JarRunner jarRunner : jarRunners) {
-                        if (jarRunner.getStatus() != JarRunner.Status.STOPPED) {
-                            jarRunner.forceStopWithWait(true);
-                        }
-                    }
-                    
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
+                    Logger.warn("Servers did not finish stopping: " + e.getMessage(), "Main");
                 }
-                
                 return true;
             }
 
@@ -2063,15 +3176,15 @@ public class Main {
             return;
         }
         
-        jarRunner.forceStopWithWait();
-        jarRunner.checkAndKillLeftoverProcesses();
-        
-        JOptionPane.showMessageDialog(
-            frame,
-            "进程终止完成。请重新启动服务器。",
-            "操作完成",
-            JOptionPane.INFORMATION_MESSAGE
-        );
+        jarRunner.forceStopAsync(false)
+            .thenComposeAsync(v -> jarRunner.checkAndKillLeftoverProcessesAsync(),
+                task -> HubExecutors.start("kill-server-" + jarRunner.getJarPath(), task))
+            .whenComplete((killed, error) -> SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(
+                frame,
+                "进程终止完成。请重新启动服务器。",
+                "操作完成",
+                JOptionPane.INFORMATION_MESSAGE
+            )));
     }
 
     private void renameServerTab(int tabIndex) {
@@ -2158,14 +3271,8 @@ public class Main {
             );
             if (choice == JOptionPane.YES_OPTION) {
                 jarRunner.stop();
-                new Thread(() -> {
-                    try {
-                        Thread.sleep(2000);
-                        SwingUtilities.invokeLater(() -> removeTab(tabIndex));
-                    } catch (InterruptedException ex) {
-                        Thread.currentThread().interrupt();
-                    }
-                }).start();
+                HubScheduler.scheduleOnce(UI_JOB_OWNER, "remove-tab-" + jarRunner.getJarPath(),
+                    () -> SwingUtilities.invokeLater(() -> removeTab(tabIndex)), 2000);
                 return;
             } else if (choice == JOptionPane.CANCEL_OPTION) {
                 return;
@@ -2180,6 +3287,14 @@ public class Main {
         }
         JarRunner jarRunner = jarRunners.get(tabIndex - 1);
         jarRunner.cleanup();
+        HubScheduler.Job statusJob = statusJobs.remove(jarRunner);
+        if (statusJob != null) {
+            statusJob.cancel();
+        }
+        ServerLifecycle.Listener statusListener = statusListeners.remove(jarRunner);
+        if (statusListener != null) {
+            jarRunner.removeLifecycleListener(statusListener);
+        }
         jarRunners.remove(tabIndex - 1);
         if (tabIndex - 1 < tabLabels.size()) {
             tabLabels.remove(tabIndex - 1);
@@ -2227,6 +3342,9 @@ public class Main {
                 }
                 
                 config.setProperty("last_server_path", jarPath);
+                if (config.getProperty("launch." + jarPath + ".maxHeapMB") == null) {
+                    saveLaunchConfig(jarPath, LaunchProfile.newServerDefaults());
+                }
                 saveConfig();
                 Logger.info("Configuration saved successfully", "Main");
                 addServerFromPath(jarPath);
@@ -2262,7 +3380,8 @@ public class Main {
             return;
         }
         
-        ColorOutputPanel outputPanel = new ColorOutputPanel();
+        long[] consoleConfig = loadConsoleConfig(jarPath);
+        ColorOutputPanel outputPanel = new ColorOutputPanel((int) consoleConfig[0], consoleConfig[1]);
         JarRunner jarRunner = new JarRunner(jarPath, outputPanel);
 
         Object[] guardConfig = loadGuardConfig(jarPath);
@@ -2278,10 +3397,36 @@ public class Main {
             jarRunner.setBackupIntervalMinutes((Integer) backupConfig[1]);
             jarRunner.setMaxBackupCount((Integer) backupConfig[2]);
             jarRunner.setAutoDeleteDays((Integer) backupConfig[3]);
+            jarRunner.setBackupMode((String) backupConfig[4]);
+            jarRunner.setBackupMemoryLimitMB((Integer) backupConfig[5]);
+            jarRunner.setBackupCompressionLevel((Integer) backupConfig[6]);
+            jarRunner.setSnapshotBackupEnabled((Boolean) backupConfig[7]);
+            jarRunner.setSnapshotFullCopy((Boolean) backupConfig[8]);
         }
+        Object[] throttleConfig = loadBackupThrottleConfig(jarPath);
+        jarRunner.setBackupRateLimitKBps((Integer) throttleConfig[0]);
+        jarRunner.setBackupFilesPerSecond((Integer) throttleConfig[1]);
+        jarRunner.setBackupAdaptiveThrottle((Boolean) throttleConfig[2]);
+        jarRunner.setBackupLowPriority((Boolean) throttleConfig[3]);
+        jarRunner.setBackupExcludeRules(loadBackupExcludeConfig(jarPath));
+        jarRunner.setBackupTarget(loadBackupTarget(jarPath));
+        int[] retentionConfig = loadBackupRetentionConfig(jarPath);
+        jarRunner.setKeepHourlyBackups(retentionConfig[0]);
+        jarRunner.setKeepDailyBackups(retentionConfig[1]);
+        jarRunner.setKeepWeeklyBackups(retentionConfig[2]);
+        jarRunner.setKeepMonthlyBackups(retentionConfig[3]);
+        jarRunner.setBackupQuotaMB(retentionConfig[4]);
+        Object[] verifyConfig = loadBackupVerifyConfig(jarPath);
+        jarRunner.setVerifyAfterBackup((Boolean) verifyConfig[0]);
+        jarRunner.setVerifyTestRestore((Boolean) verifyConfig[1]);
+        jarRunner.setBackupScrub((Boolean) verifyConfig[2], (Integer) verifyConfig[3]);
+        jarRunner.setScheduledJobsPaused(loadSchedulerConfig(jarPath));
         
         boolean useNoGui = loadOtherConfig(jarPath);
         jarRunner.setUseNoGui(useNoGui);
+        jarRunner.setLaunchProfile(loadLaunchConfig(jarPath));
+        jarRunner.setServerVersion(config.getProperty("launch." + jarPath + ".mcVersion"));
+        jarRunner.setServerVersionListener(version -> saveDetectedMcVersion(jarPath, version));
         
         jarRunners.add(jarRunner);
         
@@ -2298,6 +3443,9 @@ public class Main {
         JLabel statusLabel = new JLabel("服务器状态: 已停止");
         statusLabel.setForeground(Color.RED);
         statusLeftPanel.add(statusLabel);
+        JLabel diskUsageLabel = new JLabel();
+        diskUsageLabel.setFont(new Font(null, Font.PLAIN, 11));
+        statusLeftPanel.add(diskUsageLabel);
         statusPanel.add(statusLeftPanel, BorderLayout.WEST);
         JPanel statusRightPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         JButton exportServerLogButton = new JButton("导出日志");
@@ -2522,13 +3670,20 @@ public class Main {
         otherSettingsButton.addActionListener(a -> {
             showOtherSettingsDialog(jarRunner);
         });
+        JButton launchSettingsButton = new JButton("启动参数");
+        launchSettingsButton.setMaximumSize(new Dimension(120, 25));
+        launchSettingsButton.addActionListener(a -> {
+            showLaunchProfileDialog(jarRunner);
+        });
         startButton.setEnabled(true);
         stopButton.setEnabled(false);
         forceStopButton.setEnabled(false);
         restartButton.setEnabled(false);
         reloadButton.setEnabled(false);
         startButton.addActionListener(a -> {
-            jarRunner.start();
+            if (confirmMemoryFits(frame, jarRunner, jarRunner.getLaunchProfile())) {
+                jarRunner.start();
+            }
         });
         stopButton.addActionListener(a -> {
             int confirm = JOptionPane.showConfirmDialog(
@@ -2591,6 +3746,7 @@ public class Main {
         controlPanel.add(gameRuleButton);
         controlPanel.add(backupSettingsButton);
         controlPanel.add(otherSettingsButton);
+        controlPanel.add(launchSettingsButton);
         JPanel bottomPanel = new JPanel(new BorderLayout());
         bottomPanel.add(controlPanel, BorderLayout.NORTH);
         bottomPanel.add(commandPanel, BorderLayout.CENTER);
@@ -2604,112 +3760,117 @@ public class Main {
         
         java.util.concurrent.atomic.AtomicBoolean shownLockDialog = new java.util.concurrent.atomic.AtomicBoolean(false);
         
-        Thread statusThread = new Thread(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(1000);
-                    JarRunner.Status currentStatus = jarRunner.getStatus();
-                    
-                    if (currentStatus == JarRunner.Status.RUNNING && !jarRunner.isProcessAlive()) {
-                        
-                        jarRunner.onProcessTerminated();
-                        currentStatus = jarRunner.getStatus();
-                        
-                        if (currentStatus == JarRunner.Status.STOPPED && shownLockDialog.compareAndSet(false, true)) {
-                             String reason = jarRunner.getTerminationReason();
-                             String error = jarRunner.getLastError();
-                             
-                             javax.swing.SwingUtilities.invokeLater(() -> {
-                                 StringBuilder message = new StringBuilder();
-                                 message.append("<html>服务器启动失败!");
-                                 
-                                 if (!reason.isEmpty()) {
-                                     message.append("<br><br><b>检测到文件锁定</b>");
-                                     message.append("<br>原因: ").append(reason);
-                                 }
-                                 
-                                 if (error != null && !error.isEmpty()) {
-                                     message.append("<br><br><b>错误信息</b>");
-                                     message.append("<br>").append(error);
-                                 }
-                                 
-                                 message.append("<br><br>是否尝试强制解除锁定并重新启动?</html>");
-                                 
-                                 int choice = JOptionPane.showConfirmDialog(
-                                     frame,
-                                     message.toString(),
-                                     "服务器启动失败",
-                                     JOptionPane.YES_NO_OPTION,
-                                     JOptionPane.WARNING_MESSAGE
-                                 );
-                                 
-                                 if (choice == JOptionPane.YES_OPTION) {
-                                     jarRunner.clearLastError();
-                                     jarRunner.forceUnlockAndRestart();
-                                 } else {
-                                     jarRunner.clearLastError();
-                                 }
-                             });
+        Runnable refreshStatus = () -> {
+            JarRunner.Status currentStatus = jarRunner.getStatus();
+            
+            if (currentStatus == JarRunner.Status.RUNNING && !jarRunner.isProcessAlive()) {
+                
+                jarRunner.onProcessTerminated();
+                currentStatus = jarRunner.getStatus();
+                
+                if (currentStatus == JarRunner.Status.STOPPED && shownLockDialog.compareAndSet(false, true)) {
+                     String reason = jarRunner.getTerminationReason();
+                     String error = jarRunner.getLastError();
+                     
+                     javax.swing.SwingUtilities.invokeLater(() -> {
+                         StringBuilder message = new StringBuilder();
+                         message.append("<html>服务器启动失败!");
+                         
+                         if (!reason.isEmpty()) {
+                             message.append("<br><br><b>检测到文件锁定</b>");
+                             message.append("<br>原因: ").append(reason);
                          }
-                    }
-                    
-                    if (currentStatus == JarRunner.Status.RUNNING) {
-                        shownLockDialog.set(false);
-                    }
-                    
-                    final JarRunner.Status finalStatus = currentStatus;
-                    final String serverVersion = jarRunner.getServerVersion();
-                    SwingUtilities.invokeLater(() -> {
-                        switch (finalStatus) {
-                            case STOPPED:
-                                statusLabel.setText("服务器状态: 已停止");
-                                statusLabel.setForeground(Color.RED);
-                                startButton.setEnabled(true);
-                                stopButton.setEnabled(false);
-                                forceStopButton.setEnabled(false);
-                                restartButton.setEnabled(false);
-                                reloadButton.setEnabled(false);
-                                break;
-                            case RUNNING:
-                                if (serverVersion != null && !serverVersion.isEmpty()) {
-                                    statusLabel.setText("服务器状态: 运行中 (MC " + serverVersion + ")");
-                                } else {
-                                    statusLabel.setText("服务器状态: 运行中");
-                                }
-                                statusLabel.setForeground(Color.GREEN);
-                                startButton.setEnabled(false);
-                                stopButton.setEnabled(true);
-                                forceStopButton.setEnabled(true);
-                                restartButton.setEnabled(true);
-                                reloadButton.setEnabled(true);
-                                break;
-                            case STARTING:
-                                statusLabel.setText("服务器状态: 启动中");
-                                statusLabel.setForeground(Color.ORANGE);
-                                startButton.setEnabled(false);
-                                stopButton.setEnabled(true);
-                                forceStopButton.setEnabled(true);
-                                restartButton.setEnabled(true);
-                                reloadButton.setEnabled(false);
-                                break;
-                            case STOPPING:
-                                statusLabel.setText("服务器状态: 停止中");
-                                statusLabel.setForeground(Color.ORANGE);
-                                startButton.setEnabled(false);
-                                stopButton.setEnabled(false);
-                                forceStopButton.setEnabled(false);
-                                restartButton.setEnabled(false);
-                                reloadButton.setEnabled(false);
-                                break;
+                         
+                         if (error != null && !error.isEmpty()) {
+                             message.append("<br><br><b>错误信息</b>");
+                             message.append("<br>").append(error);
+                         }
+                         
+                         message.append("<br><br>是否尝试强制解除锁定并重新启动?</html>");
+                         
+                         int choice = JOptionPane.showConfirmDialog(
+                             frame,
+                             message.toString(),
+                             "服务器启动失败",
+                             JOptionPane.YES_NO_OPTION,
+                             JOptionPane.WARNING_MESSAGE
+                         );
+                         
+                         if (choice == JOptionPane.YES_OPTION) {
+                             jarRunner.clearLastError();
+                             jarRunner.forceUnlockAndRestart();
+                         } else {
+                             jarRunner.clearLastError();
+                         }
+                     });
+                 }
+            }
+            
+            if (currentStatus == JarRunner.Status.RUNNING) {
+                shownLockDialog.set(false);
+            }
+            
+            final JarRunner.Status finalStatus = currentStatus;
+            final String serverVersion = jarRunner.getServerVersion();
+            DiskUsageIndex diskUsage = jarRunner.getDiskUsageIndex();
+            final String diskUsageText = diskUsage == null ? "" : diskUsage.isReady()
+                ? "| 占用: " + formatFileSize(diskUsage.getTotalBytes()) + " (" + diskUsage.getFileCount() + " 个文件)"
+                : "| 占用: 计算中...";
+            SwingUtilities.invokeLater(() -> {
+                diskUsageLabel.setText(diskUsageText);
+                switch (finalStatus) {
+                    case STOPPED:
+                        statusLabel.setText("服务器状态: 已停止");
+                        statusLabel.setForeground(Color.RED);
+                        startButton.setEnabled(true);
+                        stopButton.setEnabled(false);
+                        forceStopButton.setEnabled(false);
+                        restartButton.setEnabled(false);
+                        reloadButton.setEnabled(false);
+                        break;
+                    case RUNNING:
+                        if (serverVersion != null && !serverVersion.isEmpty()) {
+                            statusLabel.setText("服务器状态: 运行中 (MC " + serverVersion + ")");
+                        } else {
+                            statusLabel.setText("服务器状态: 运行中");
                         }
-                    });
-                } catch (InterruptedException e) {
-                    break;
+                        statusLabel.setForeground(Color.GREEN);
+                        startButton.setEnabled(false);
+                        stopButton.setEnabled(true);
+                        forceStopButton.setEnabled(true);
+                        restartButton.setEnabled(true);
+                        reloadButton.setEnabled(true);
+                        break;
+                    case STARTING:
+                        statusLabel.setText("服务器状态: 启动中");
+                        statusLabel.setForeground(Color.ORANGE);
+                        startButton.setEnabled(false);
+                        stopButton.setEnabled(true);
+                        forceStopButton.setEnabled(true);
+                        restartButton.setEnabled(true);
+                        reloadButton.setEnabled(false);
+                        break;
+                    case STOPPING:
+                        statusLabel.setText("服务器状态: 停止中");
+                        statusLabel.setForeground(Color.ORANGE);
+                        startButton.setEnabled(false);
+                        stopButton.setEnabled(false);
+                        forceStopButton.setEnabled(false);
+                        restartButton.setEnabled(false);
+                        reloadButton.setEnabled(false);
+                        break;
                 }
+            });
+        };
+        HubScheduler.Job statusJob = HubScheduler.schedulePeriodic(UI_JOB_OWNER, "status-poll-" + jarPath, refreshStatus, 1000, 1000, 0);
+        statusJobs.put(jarRunner, statusJob);
+        ServerLifecycle.Listener statusListener = (from, to) -> {
+            if (from.getStatus() != to.getStatus()) {
+                HubScheduler.scheduleOnce(UI_JOB_OWNER, "status-refresh-" + jarPath, refreshStatus, 0);
             }
-        });
-        statusThread.setDaemon(true);
-        statusThread.start();
+        };
+        jarRunner.addLifecycleListener(statusListener);
+        statusListeners.put(jarRunner, statusListener);
     }
     
 
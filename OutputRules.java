@@ -0,0 +1,318 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+public class OutputRules {
+    public static final String GROUP_STATUS = "status";
+    public static final String GROUP_ERROR = "error";
+    public static final String GROUP_ERROR_DETAIL = "error_detail";
+    public static final String GROUP_GAMERULE = "gamerule";
+    public static final String GROUP_EULA = "eula";
+
+    public static final String ACTION_STARTED = "started";
+    public static final String ACTION_STOPPING = "stopping";
+    public static final String ACTION_VERSION = "version";
+    public static final String ACTION_SAVED = "saved";
+    public static final String ACTION_LAGGING = "lagging";
+
+    private static final String RULES_FILE = "MSH/output_rules.json";
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{(\\d+)(?:\\|([^}]*))?\\}");
+    private static volatile OutputRules instance;
+
+    public static class Rule {
+        public String group;
+        public List<String> markers;
+        public String message;
+        public String extract;
+        public String fallback;
+        public String action;
+
+        private transient int[] markerIds;
+        private transient Pattern extractPattern;
+
+        public String[] extract(String line) {
+            if (extractPattern == null) {
+                return null;
+            }
+            Matcher matcher = extractPattern.matcher(line);
+            if (!matcher.find()) {
+                return null;
+            }
+            String[] groups = new String[matcher.groupCount() + 1];
+            for (int i = 0; i <= matcher.groupCount(); i++) {
+                String value = matcher.group(i);
+                groups[i] = value != null ? value.trim() : "";
+            }
+            return groups;
+        }
+
+        public String format(String line, String[] groups) {
+            String template = message;
+            if (extractPattern != null && groups == null) {
+                template = fallback;
+                groups = new String[]{line};
+            }
+            if (template == null) {
+                return null;
+            }
+            if (groups == null) {
+                groups = new String[]{line};
+            }
+            Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+            StringBuilder sb = new StringBuilder();
+            while (matcher.find()) {
+                int index = Integer.parseInt(matcher.group(1));
+                String value = index < groups.length ? groups[index] : "";
+                if (value.isEmpty() && matcher.group(2) != null) {
+                    value = matcher.group(2);
+                }
+                matcher.appendReplacement(sb, Matcher.quoteReplacement(value));
+            }
+            matcher.appendTail(sb);
+            return sb.toString();
+        }
+    }
+
+    private static class RulesFile {
+        List<Rule> rules;
+    }
+
+    private final List<Rule> rules;
+    private final Map<String, Rule[]> groups = new HashMap<>();
+    private final AhoCorasick automaton;
+    private final List<String> markers;
+    private final Map<Charset, Optional<AhoCorasick>> byteAutomatons = new ConcurrentHashMap<>();
+
+    public OutputRules(List<Rule> rules) {
+        this.rules = new ArrayList<>();
+        List<String> markers = new ArrayList<>();
+        Map<String, Integer> markerIds = new HashMap<>();
+        Map<String, List<Rule>> grouped = new HashMap<>();
+        for (Rule rule : rules) {
+            if (rule == null || rule.group == null || rule.markers == null || rule.markers.isEmpty()) {
+                continue;
+            }
+            if (rule.extract != null) {
+                try {
+                    rule.extractPattern = Pattern.compile(rule.extract);
+                } catch (PatternSyntaxException e) {
+                    Logger.warn("Invalid extract pattern in output rule, ignored: " + rule.extract, "OutputRules");
+                    continue;
+                }
+            }
+            rule.markerIds = new int[rule.markers.size()];
+            for (int i = 0; i < rule.markers.size(); i++) {
+                String marker = rule.markers.get(i);
+                Integer id = markerIds.get(marker);
+                if (id == null) {
+                    id = markers.size();
+                    markers.add(marker);
+                    markerIds.put(marker, id);
+                }
+                rule.markerIds[i] = id;
+            }
+            this.rules.add(rule);
+            grouped.computeIfAbsent(rule.group, k -> new ArrayList<>()).add(rule);
+        }
+        for (Map.Entry<String, List<Rule>> entry : grouped.entrySet()) {
+            groups.put(entry.getKey(), entry.getValue().toArray(new Rule[0]));
+        }
+        this.markers = markers;
+        automaton = AhoCorasick.forStrings(markers);
+    }
+
+    public static OutputRules getInstance() {
+        OutputRules rules = instance;
+        if (rules == null) {
+            synchronized (OutputRules.class) {
+                rules = instance;
+                if (rules == null) {
+                    rules = load();
+                    instance = rules;
+                }
+            }
+        }
+        return rules;
+    }
+
+    public static synchronized void reload() {
+        instance = load();
+    }
+
+    private static OutputRules load() {
+        List<Rule> all = new ArrayList<>(loadUserRules());
+        all.addAll(builtinRules());
+        return new OutputRules(all);
+    }
+
+    private static List<Rule> loadUserRules() {
+        File file = new File(RULES_FILE);
+        if (!file.isFile()) {
+            return new ArrayList<>();
+        }
+        try {
+            String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            RulesFile parsed = new Gson().fromJson(content, RulesFile.class);
+            if (parsed == null || parsed.rules == null) {
+                return new ArrayList<>();
+            }
+            Logger.info("Loaded " + parsed.rules.size() + " custom output rules from " + RULES_FILE, "OutputRules");
+            return parsed.rules;
+        } catch (IOException | JsonSyntaxException e) {
+            Logger.warn("Failed to load custom output rules, using built-in rules only: " + e.getMessage(), "OutputRules");
+            return new ArrayList<>();
+        }
+    }
+
+    public AhoCorasick getAutomaton() {
+        return automaton;
+    }
+
+    public AhoCorasick getByteAutomaton(Charset charset) {
+        return byteAutomatons.computeIfAbsent(charset, this::buildByteAutomaton).orElse(null);
+    }
+
+    private Optional<AhoCorasick> buildByteAutomaton(Charset charset) {
+        if (!charset.canEncode()) {
+            return Optional.empty();
+        }
+        CharsetEncoder encoder = charset.newEncoder();
+        List<byte[]> encoded = new ArrayList<>(markers.size());
+        for (String marker : markers) {
+            if (!encoder.canEncode(marker)) {
+                Logger.warn("Output marker cannot be encoded in " + charset + ", byte-level matching disabled: " + marker, "OutputRules");
+                return Optional.empty();
+            }
+            encoded.add(marker.getBytes(charset));
+        }
+        return Optional.of(AhoCorasick.forBytes(encoded));
+    }
+
+    public long[] newHitSet() {
+        return automaton.newHitSet();
+    }
+
+    public boolean scan(CharSequence line, long[] hits) {
+        return automaton.scan(line, hits);
+    }
+
+    public Rule firstMatch(String group, long[] hits) {
+        Rule[] candidates = groups.get(group);
+        if (candidates == null) {
+            return null;
+        }
+        for (Rule rule : candidates) {
+            if (matches(rule, hits)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    public boolean matchesAny(String group, long[] hits) {
+        return firstMatch(group, hits) != null;
+    }
+
+    private static boolean matches(Rule rule, long[] hits) {
+        for (int id : rule.markerIds) {
+            if (!AhoCorasick.isHit(hits, id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<Rule> getRules() {
+        return new ArrayList<>(rules);
+    }
+
+    private static Rule rule(String group, String action, String message, String extract, String... markers) {
+        Rule rule = new Rule();
+        rule.group = group;
+        rule.action = action;
+        rule.message = message;
+        rule.extract = extract;
+        rule.markers = new ArrayList<>(List.of(markers));
+        return rule;
+    }
+
+    private static List<Rule> builtinRules() {
+        List<Rule> list = new ArrayList<>();
+        list.add(rule(GROUP_EULA, null, null, null, "EULA"));
+        list.add(rule(GROUP_EULA, null, null, null, "eula.txt"));
+
+        list.add(rule(GROUP_STATUS, null, "[MSH] 服务器正在使用: {1}", "Running Java (.*)", "Running Java"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 服务器版本: {1}", "Loading Paper (.*)", "Loading Paper"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 服务器已在端口 {1} 上启动", "Starting Minecraft server on (.*)", "Starting Minecraft server on"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 警告: 您正在以管理员身份运行服务器，存在安全风险！\n[MSH] 建议：创建普通用户并以普通用户身份运行服务器，以提高安全性。\n[MSH] 安全文档：https://madelinemiller.dev/blog/root-minecraft-server/", null, "YOU ARE RUNNING THIS SERVER AS AN ADMINISTRATIVE OR ROOT USER"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 正在初始化插件...", null, "Initializing plugins"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 已加载 {1} 个插件", "Initialized\\s+(.*?)\\s*plugins", "Initialized ", " plugins"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 默认游戏模式: {1}", "Default game type:(.*)", "Default game type:"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 正在准备世界: {1}", "Preparing level(.*)", "Preparing level"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 生成区域准备完成", null, "Preparing spawn area: 100%"));
+        list.add(rule(GROUP_STATUS, ACTION_STARTED, "[MSH] 服务器已成功启动！", null, "Done ("));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 首次启动服务器，建议阅读官方文档: https://docs.papermc.io/paper/next-steps", null, "This is the first time you're starting this server"));
+        Rule players = rule(GROUP_STATUS, null, "[MSH] 在线玩家: {1}/{2} | 玩家列表: {3|无}", "There are (\\d+) of a max of (\\d+) players online:?(.*)", "There are", "players online");
+        players.fallback = "[MSH] 在线玩家: {0}";
+        list.add(players);
+        list.add(rule(GROUP_STATUS, null, "[MSH] 正在创建新的世界数据...", null, "No existing world data, creating new world"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 已加载 {1} 个配方", "Loaded\\s+(.*?)\\s*recipes", "Loaded ", " recipes"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 已加载 {1} 个成就", "Loaded\\s+(.*?)\\s*advancements", "Loaded ", " advancements"));
+        list.add(rule(GROUP_STATUS, ACTION_VERSION, "[MSH] Minecraft版本: {1}", "Starting minecraft server version(.*)", "Starting minecraft server version"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 服务器Ping样本数: {1}", "Server Ping Player Sample Count:(.*)", "Server Ping Player Sample Count:"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 使用 {1} 个线程处理网络IO", "Using\\s+(.*?)\\s*threads for Netty based IO", "Using ", " threads for Netty based IO"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 服务器线程配置已完成", null, "Paper is using ", " worker threads"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 正在生成密钥对...", null, "Generating keypair"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 正在为世界选择出生点...", null, "Selecting spawn point for world"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 正在加载世界区块...", null, "Loading ", " persistent chunks for world"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 出生点区域准备完成", null, "Prepared spawn area in"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 正在执行延迟初始化任务...", null, "Running delayed init tasks"));
+        list.add(rule(GROUP_STATUS, ACTION_STOPPING, "[MSH] 正在停止服务器...", null, "Stopping the server"));
+        list.add(rule(GROUP_STATUS, ACTION_STOPPING, "[MSH] 正在停止服务器...", null, "Stopping server"));
+        list.add(rule(GROUP_STATUS, ACTION_SAVED, null, null, "Saved the game"));
+        list.add(rule(GROUP_STATUS, ACTION_LAGGING, null, null, "Can't keep up!"));
+        list.add(rule(GROUP_STATUS, ACTION_STOPPING, "[MSH] 正在保存玩家数据...", null, "Saving players"));
+        list.add(rule(GROUP_STATUS, ACTION_STOPPING, "[MSH] 正在保存世界数据...", null, "Saving worlds"));
+        list.add(rule(GROUP_STATUS, ACTION_STOPPING, "[MSH] 正在保存区块数据...", null, "Saving chunks for level"));
+        list.add(rule(GROUP_STATUS, ACTION_STOPPING, "[MSH] 所有区块已保存", null, "All chunks are saved"));
+        list.add(rule(GROUP_STATUS, ACTION_STOPPING, "[MSH] 数据保存完成", null, "Done saving"));
+        for (String marker : new String[]{"Server stopped", "All RegionFile I/O tasks to complete", "Shutting down", "shutting down",
+                "Stopping all worlds", "Unloading world", "Unloading level", "Closing level", "Closing world", "Stopping Rcon connection"}) {
+            list.add(rule(GROUP_STATUS, ACTION_STOPPING, null, null, marker));
+        }
+        list.add(rule(GROUP_STATUS, null, "[MSH] 世界种子: {1}", "Seed:(.*)", "Seed:"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 正在检查版本，请稍候...", null, "Checking version, please wait..."));
+        list.add(rule(GROUP_STATUS, ACTION_VERSION, "[MSH] 服务器正在运行 Paper 版本: {1}", "This server is running Paper version(.*)", "This server is running Paper version"));
+        list.add(rule(GROUP_STATUS, null, "[MSH] 您正在运行最新版本", null, "You are running the latest version"));
+
+        for (String marker : new String[]{"Exception", "Error", "FAILED", "Caused by"}) {
+            list.add(rule(GROUP_ERROR, null, null, null, marker));
+        }
+        list.add(rule(GROUP_ERROR_DETAIL, null, "文件被其他程序锁定", null, "FileSystemException"));
+        list.add(rule(GROUP_ERROR_DETAIL, null, "文件被其他程序锁定", null, "另一个程序"));
+        list.add(rule(GROUP_ERROR_DETAIL, null, "文件被锁定", null, "IOException", "locked"));
+        list.add(rule(GROUP_ERROR_DETAIL, null, "内存不足", null, "OutOfMemoryError"));
+        list.add(rule(GROUP_ERROR_DETAIL, null, "权限不足", null, "Access denied"));
+        list.add(rule(GROUP_ERROR_DETAIL, null, "权限不足", null, "权限"));
+        list.add(rule(GROUP_ERROR_DETAIL, null, "端口已被占用", null, "Port", "in use"));
+        list.add(rule(GROUP_ERROR_DETAIL, null, "端口绑定失败", null, "BindException"));
+        list.add(rule(GROUP_ERROR_DETAIL, null, "启动失败", null, "Failed to start"));
+
+        list.add(rule(GROUP_GAMERULE, null, null, null, "Gamerule", "is currently set to"));
+        return list;
+    }
+}
@@ -87,4 +87,13 @@ public class PreferenceManager {
         preferences.remove("pendingDeleteOldVersion");
         savePreferences();
     }
-}
\ No newline at end of file
+
+    public boolean isByteOutputReaderEnabled() {
+        return preferences.getProperty("byteOutputReader", "true").equals("true");
+    }
+
+    public void setByteOutputReaderEnabled(boolean enabled) {
+        preferences.setProperty("byteOutputReader", String.valueOf(enabled));
+        savePreferences();
+    }
+}
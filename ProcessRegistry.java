@@ -0,0 +1,397 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// ProcessHandle.Info exposes no arguments or command line on Windows, so only processes MSH
+// launched itself (tracked in MSH/processes.properties) and their descendants can be matched
+// to a jar there; servers started outside MSH are not discovered on that platform.
+public final class ProcessRegistry {
+    public static final long DEFAULT_GRACE_MILLIS = 5000;
+    private static final String OWNED_FILE = "MSH/processes.properties";
+    private static final long CACHE_MILLIS = 1500;
+    private static final long FORCE_WAIT_MILLIS = 5000;
+    private static final Path PROC = Paths.get("/proc");
+    private static final Object SCAN_LOCK = new Object();
+    private static volatile List<JavaProcess> cached = List.of();
+    private static volatile long cachedAt;
+    private static final Map<Long, OwnedProcess> owned = new LinkedHashMap<>();
+    private static boolean ownedLoaded;
+
+    private static class OwnedProcess {
+        final long pid;
+        final long startMillis;
+        final Path jarFile;
+
+        OwnedProcess(long pid, long startMillis, Path jarFile) {
+            this.pid = pid;
+            this.startMillis = startMillis;
+            this.jarFile = jarFile;
+        }
+
+        Optional<ProcessHandle> handle() {
+            return ProcessHandle.of(pid).filter(handle -> handle.isAlive() && startMillis(handle) == startMillis);
+        }
+    }
+
+    public static class JavaProcess {
+        private final ProcessHandle handle;
+        private final List<String> arguments;
+        private final Path workingDirectory;
+        private final String commandLine;
+
+        JavaProcess(ProcessHandle handle, String command, List<String> arguments, Path workingDirectory) {
+            this.handle = handle;
+            this.arguments = arguments;
+            this.workingDirectory = workingDirectory;
+            this.commandLine = command + (arguments.isEmpty() ? "" : " " + String.join(" ", arguments));
+        }
+
+        public ProcessHandle getHandle() {
+            return handle;
+        }
+
+        public long getPid() {
+            return handle.pid();
+        }
+
+        public List<String> getArguments() {
+            return arguments;
+        }
+
+        public Path getWorkingDirectory() {
+            return workingDirectory;
+        }
+
+        public String getCommandLine() {
+            return commandLine;
+        }
+
+        public boolean runsJar(Path jarFile) {
+            for (String argument : arguments) {
+                if (!argument.toLowerCase().endsWith(".jar")) {
+                    continue;
+                }
+                Path path;
+                try {
+                    path = Paths.get(argument);
+                } catch (InvalidPathException e) {
+                    continue;
+                }
+                if (!path.isAbsolute()) {
+                    Path base = workingDirectory != null ? workingDirectory : jarFile.getParent();
+                    if (base == null) {
+                        continue;
+                    }
+                    path = base.resolve(path);
+                }
+                if (path.normalize().equals(jarFile)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private ProcessRegistry() {
+    }
+
+    public static List<JavaProcess> findByJar(String jarPath) {
+        Path jarFile = Paths.get(jarPath).toAbsolutePath().normalize();
+        Map<Long, JavaProcess> result = new LinkedHashMap<>();
+        for (JavaProcess process : snapshot()) {
+            if (process.runsJar(jarFile) && process.getHandle().isAlive()) {
+                result.put(process.getPid(), process);
+            }
+        }
+        for (OwnedProcess process : ownedProcesses()) {
+            if (!process.jarFile.equals(jarFile)) {
+                continue;
+            }
+            process.handle().ifPresent(handle -> {
+                result.putIfAbsent(handle.pid(), describe(handle, jarFile));
+                handle.descendants().filter(ProcessHandle::isAlive)
+                    .forEach(child -> result.putIfAbsent(child.pid(), describe(child, null)));
+            });
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    public static void register(ProcessHandle handle, String jarPath) {
+        long startMillis = startMillis(handle);
+        if (startMillis < 0) {
+            Logger.debug("Start time of process " + handle.pid() + " is unavailable, not tracking it", "ProcessRegistry");
+            return;
+        }
+        Path jarFile = Paths.get(jarPath).toAbsolutePath().normalize();
+        synchronized (owned) {
+            loadOwned();
+            owned.put(handle.pid(), new OwnedProcess(handle.pid(), startMillis, jarFile));
+            saveOwned();
+        }
+        handle.onExit().thenRun(() -> unregister(handle.pid(), startMillis));
+    }
+
+    private static void unregister(long pid, long startMillis) {
+        synchronized (owned) {
+            OwnedProcess process = owned.get(pid);
+            if (process != null && process.startMillis == startMillis) {
+                owned.remove(pid);
+                saveOwned();
+            }
+        }
+        invalidate();
+    }
+
+    private static List<OwnedProcess> ownedProcesses() {
+        synchronized (owned) {
+            loadOwned();
+            if (owned.values().removeIf(process -> process.handle().isEmpty())) {
+                saveOwned();
+            }
+            return new ArrayList<>(owned.values());
+        }
+    }
+
+    private static void loadOwned() {
+        if (ownedLoaded) {
+            return;
+        }
+        ownedLoaded = true;
+        File file = new File(OWNED_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        } catch (IOException e) {
+            Logger.warn("Failed to load tracked processes: " + e.getMessage(), "ProcessRegistry");
+            return;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key);
+            int separator = value.indexOf('|');
+            try {
+                long pid = Long.parseLong(key);
+                owned.put(pid, new OwnedProcess(pid, Long.parseLong(value.substring(0, separator)),
+                    Paths.get(value.substring(separator + 1))));
+            } catch (RuntimeException e) {
+                Logger.debug("Ignoring malformed tracked process entry: " + key, "ProcessRegistry");
+            }
+        }
+    }
+
+    private static void saveOwned() {
+        File file = new File(OWNED_FILE);
+        File parentDir = file.getParentFile();
+        if (parentDir != null && !parentDir.exists() && !parentDir.mkdirs()) {
+            Logger.warn("Failed to create directory for tracked processes", "ProcessRegistry");
+            return;
+        }
+        Properties properties = new Properties();
+        for (OwnedProcess process : owned.values()) {
+            properties.setProperty(String.valueOf(process.pid), process.startMillis + "|" + process.jarFile);
+        }
+        try (OutputStream output = new FileOutputStream(file)) {
+            properties.store(output, "Server processes started by MSH");
+        } catch (IOException e) {
+            Logger.warn("Failed to save tracked processes: " + e.getMessage(), "ProcessRegistry");
+        }
+    }
+
+    private static long startMillis(ProcessHandle handle) {
+        return handle.info().startInstant().map(instant -> instant.toEpochMilli()).orElse(-1L);
+    }
+
+    private static JavaProcess describe(ProcessHandle handle, Path jarFile) {
+        ProcessHandle.Info info = handle.info();
+        List<String> arguments = info.arguments().map(List::of).orElse(null);
+        if (arguments == null || arguments.isEmpty()) {
+            arguments = jarFile != null ? List.of("-jar", jarFile.toString()) : List.of();
+        }
+        return new JavaProcess(handle, info.command().orElse("java"), arguments, null);
+    }
+
+    public static List<JavaProcess> snapshot() {
+        if (System.currentTimeMillis() - cachedAt < CACHE_MILLIS) {
+            return cached;
+        }
+        synchronized (SCAN_LOCK) {
+            if (System.currentTimeMillis() - cachedAt < CACHE_MILLIS) {
+                return cached;
+            }
+            long start = System.nanoTime();
+            List<JavaProcess> processes = Files.isReadable(PROC.resolve("self").resolve("cmdline")) ? scanProc() : scanHandles();
+            cached = Collections.unmodifiableList(processes);
+            cachedAt = System.currentTimeMillis();
+            Logger.debug(String.format("Process scan found %d Java processes in %d ms",
+                processes.size(), (System.nanoTime() - start) / 1_000_000), "ProcessRegistry");
+            return cached;
+        }
+    }
+
+    public static void invalidate() {
+        cachedAt = 0;
+    }
+
+    public static boolean isAlive(long pid) {
+        return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+
+    public static CompletableFuture<Boolean> terminate(long pid, long graceMillis) {
+        Optional<ProcessHandle> handle = ProcessHandle.of(pid);
+        return handle.isPresent() ? terminate(handle.get(), graceMillis) : CompletableFuture.completedFuture(true);
+    }
+
+    public static CompletableFuture<Boolean> terminate(ProcessHandle handle, long graceMillis) {
+        if (handle.pid() == ProcessHandle.current().pid()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!handle.isAlive()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        CompletableFuture<Boolean> result;
+        if (graceMillis > 0 && handle.supportsNormalTermination() && handle.destroy()) {
+            result = handle.onExit().thenApply(exited -> true)
+                .completeOnTimeout(false, graceMillis, TimeUnit.MILLISECONDS)
+                .thenCompose(exited -> exited ? CompletableFuture.completedFuture(true) : forceKill(handle));
+        } else {
+            result = forceKill(handle);
+        }
+        return result.whenComplete((exited, error) -> invalidate());
+    }
+
+    private static CompletableFuture<Boolean> forceKill(ProcessHandle handle) {
+        if (!handle.destroyForcibly() && handle.isAlive()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        Logger.info("Forcibly terminated process " + handle.pid(), "ProcessRegistry");
+        return handle.onExit().thenApply(exited -> true)
+            .completeOnTimeout(!handle.isAlive(), FORCE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static List<JavaProcess> scanProc() {
+        List<JavaProcess> result = new ArrayList<>();
+        long self = ProcessHandle.current().pid();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(PROC)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.isEmpty() || !Character.isDigit(name.charAt(0)) || !name.chars().allMatch(Character::isDigit)) {
+                    continue;
+                }
+                long pid = Long.parseLong(name);
+                if (pid == self) {
+                    continue;
+                }
+                List<String> command;
+                try {
+                    command = splitCmdline(Files.readAllBytes(entry.resolve("cmdline")));
+                } catch (IOException | SecurityException e) {
+                    continue;
+                }
+                if (command.isEmpty() || !isJava(command.get(0))) {
+                    continue;
+                }
+                Path cwd = null;
+                try {
+                    cwd = Files.readSymbolicLink(entry.resolve("cwd")).normalize();
+                } catch (IOException | SecurityException | UnsupportedOperationException e) {
+                    Logger.debug("Cannot read working directory of process " + pid, "ProcessRegistry");
+                }
+                Optional<ProcessHandle> handle = ProcessHandle.of(pid);
+                if (handle.isPresent()) {
+                    result.add(new JavaProcess(handle.get(), command.get(0), command.subList(1, command.size()), cwd));
+                }
+            }
+        } catch (IOException e) {
+            Logger.warn("Failed to scan /proc, falling back to ProcessHandle: " + e.getMessage(), "ProcessRegistry");
+            return scanHandles();
+        }
+        return result;
+    }
+
+    private static List<JavaProcess> scanHandles() {
+        List<JavaProcess> result = new ArrayList<>();
+        long self = ProcessHandle.current().pid();
+        ProcessHandle.allProcesses().forEach(handle -> {
+            if (handle.pid() == self) {
+                return;
+            }
+            ProcessHandle.Info info = handle.info();
+            Optional<String> command = info.command();
+            if (command.isEmpty() || !isJava(command.get())) {
+                return;
+            }
+            List<String> arguments = info.arguments().map(List::of).orElse(null);
+            if (arguments == null) {
+                List<String> tokens = tokenize(info.commandLine().orElse(""));
+                arguments = tokens.isEmpty() ? List.of() : tokens.subList(1, tokens.size());
+            }
+            result.add(new JavaProcess(handle, command.get(), arguments, null));
+        });
+        return result;
+    }
+
+    private static boolean isJava(String command) {
+        String name = command.replace('\\', '/');
+        name = name.substring(name.lastIndexOf('/') + 1).toLowerCase();
+        return name.equals("java") || name.equals("javaw") || name.equals("java.exe") || name.equals("javaw.exe");
+    }
+
+    private static List<String> splitCmdline(byte[] raw) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= raw.length; i++) {
+            if (i == raw.length || raw[i] == 0) {
+                if (i > start) {
+                    parts.add(new String(raw, start, i - start));
+                }
+                start = i + 1;
+            }
+        }
+        return parts;
+    }
+
+    static List<String> tokenize(String commandLine) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+        boolean hasToken = false;
+        for (char c : commandLine.toCharArray()) {
+            if (c == '"') {
+                inQuotes = !inQuotes;
+                hasToken = true;
+            } else if (Character.isWhitespace(c) && !inQuotes) {
+                if (hasToken) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                    hasToken = false;
+                }
+            } else {
+                current.append(c);
+                hasToken = true;
+            }
+        }
+        if (hasToken) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+}
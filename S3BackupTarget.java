@@ -0,0 +1,407 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+public class S3BackupTarget implements BackupTarget {
+    public static final int MIN_PART_SIZE_MB = 5;
+    public static final int DEFAULT_PART_SIZE_MB = 16;
+    public static final int DEFAULT_PARALLELISM = 4;
+    private static final int MAX_PARTS = 10000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final String TEST_OBJECT = ".msh-connection-test";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Pattern ERROR_CODE = Pattern.compile("<Code>([^<]+)</Code>");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final URI endpoint;
+    private final String region;
+    private final String bucket;
+    private final String prefix;
+    private final String accessKey;
+    private final String secretKey;
+    private final boolean pathStyle;
+    private final int partSize;
+    private final int parallelism;
+    private final HttpClient client;
+
+    public S3BackupTarget(String endpoint, String region, String bucket, String prefix, String accessKey, String secretKey,
+                          boolean pathStyle, int partSizeMB, int parallelism) {
+        String trimmed = endpoint.trim();
+        this.endpoint = URI.create(trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+        this.region = region == null || region.isBlank() ? "us-east-1" : region.trim();
+        this.bucket = bucket.trim();
+        String normalized = prefix == null ? "" : prefix.trim().replace('\\', '/');
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        this.prefix = normalized.isEmpty() || normalized.endsWith("/") ? normalized : normalized + "/";
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.pathStyle = pathStyle;
+        this.partSize = Math.max(MIN_PART_SIZE_MB, partSizeMB) * 1024 * 1024;
+        this.parallelism = Math.max(1, parallelism);
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+    }
+
+    @Override
+    public String getType() {
+        return TYPE_S3;
+    }
+
+    @Override
+    public String describe() {
+        return "S3: " + endpoint.getHost() + "/" + bucket + "/" + prefix;
+    }
+
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
+    @Override
+    public File getLocalDirectory(String server) {
+        return new File(LocalBackupTarget.DEFAULT_ROOT, server);
+    }
+
+    @Override
+    public Upload upload(String server, String name) throws IOException {
+        String key = key(server, name);
+        Map<String, String> query = new TreeMap<>();
+        query.put("uploads", "");
+        String body = new String(send("POST", key, query, new byte[0]).body(), StandardCharsets.UTF_8);
+        Matcher matcher = UPLOAD_ID.matcher(body);
+        if (!matcher.find()) {
+            throw new IOException("S3 did not return an upload id for " + key);
+        }
+        return new MultipartUpload(key, matcher.group(1));
+    }
+
+    @Override
+    public InputStream open(String server, String name) throws IOException {
+        String key = key(server, name);
+        HttpRequest request = sign("GET", key, new TreeMap<>(), new byte[0]);
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("S3 download interrupted");
+        }
+        if (response.statusCode() != 200) {
+            byte[] error;
+            try (InputStream in = response.body()) {
+                error = in.readAllBytes();
+            }
+            throw failure("GET", key, response.statusCode(), error);
+        }
+        return response.body();
+    }
+
+    @Override
+    public void delete(String server, String name) throws IOException {
+        send("DELETE", key(server, name), new TreeMap<>(), new byte[0]);
+    }
+
+    public void testConnection() throws IOException {
+        try (Upload upload = upload("", TEST_OBJECT)) {
+            upload.write(TEST_OBJECT.getBytes(StandardCharsets.UTF_8));
+        }
+        delete("", TEST_OBJECT);
+    }
+
+    private String key(String server, String name) {
+        return prefix + (server.isEmpty() ? "" : server + "/") + name;
+    }
+
+    private HttpResponse<byte[]> send(String method, String key, Map<String, String> query, byte[] body) throws IOException {
+        IOException last = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            HttpResponse<byte[]> response = null;
+            try {
+                response = client.send(sign(method, key, query, body), HttpResponse.BodyHandlers.ofByteArray());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("S3 request interrupted");
+            } catch (IOException e) {
+                last = e;
+            }
+            if (response != null) {
+                int status = response.statusCode();
+                if (status / 100 == 2 && !new String(response.body(), StandardCharsets.UTF_8).contains("<Error>")) {
+                    return response;
+                }
+                if ("DELETE".equals(method) && status == 404) {
+                    return response;
+                }
+                last = failure(method, key, status, response.body());
+                if (status < 500) {
+                    throw last;
+                }
+            }
+            if (attempt < MAX_ATTEMPTS) {
+                Logger.warn("S3 " + method + " " + key + " failed (attempt " + attempt + "), retrying: " + last.getMessage(), "S3BackupTarget");
+                try {
+                    Thread.sleep(500L * attempt * attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("S3 request interrupted");
+                }
+            }
+        }
+        throw last;
+    }
+
+    private HttpRequest sign(String method, String key, Map<String, String> query, byte[] body) throws IOException {
+        String path = (pathStyle ? "/" + encode(bucket, false) : "") + "/" + encode(key, true);
+        String host = (pathStyle ? "" : bucket + ".") + endpoint.getHost() + (endpoint.getPort() != -1 ? ":" + endpoint.getPort() : "");
+        String canonicalQuery = canonicalQuery(query);
+        URI uri = URI.create(endpoint.getScheme() + "://" + host + path + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+        String amzDate = AMZ_DATE.format(Instant.now());
+        String payloadHash = hex(sha256(body));
+        Map<String, String> headers = new TreeMap<>();
+        headers.put("host", host);
+        headers.put("x-amz-content-sha256", payloadHash);
+        headers.put("x-amz-date", amzDate);
+        String authorization = authorization(method, path, canonicalQuery, headers, payloadHash, amzDate);
+        return HttpRequest.newBuilder(uri)
+            .timeout(Duration.ofMinutes(10))
+            .header("x-amz-content-sha256", payloadHash)
+            .header("x-amz-date", amzDate)
+            .header("Authorization", authorization)
+            .method(method, body.length > 0 ? HttpRequest.BodyPublishers.ofByteArray(body) : HttpRequest.BodyPublishers.noBody())
+            .build();
+    }
+
+    String authorization(String method, String path, String canonicalQuery, Map<String, String> headers,
+                         String payloadHash, String amzDate) throws IOException {
+        StringBuilder canonicalHeaders = new StringBuilder();
+        StringBuilder signedHeaders = new StringBuilder();
+        for (Map.Entry<String, String> header : new TreeMap<>(headers).entrySet()) {
+            canonicalHeaders.append(header.getKey()).append(':').append(header.getValue().trim()).append('\n');
+            if (signedHeaders.length() > 0) {
+                signedHeaders.append(';');
+            }
+            signedHeaders.append(header.getKey());
+        }
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery + "\n" + canonicalHeaders + "\n"
+            + signedHeaders + "\n" + payloadHash;
+        String date = amzDate.substring(0, 8);
+        String scope = date + "/" + region + "/" + SERVICE + "/aws4_request";
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n"
+            + hex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, SERVICE);
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = hex(hmac(signingKey, stringToSign));
+        return ALGORITHM + " Credential=" + accessKey + "/" + scope + ",SignedHeaders=" + signedHeaders + ",Signature=" + signature;
+    }
+
+    private static String canonicalQuery(Map<String, String> query) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(query).entrySet()) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(encode(entry.getKey(), false)).append('=').append(encode(entry.getValue(), false));
+        }
+        return sb.toString();
+    }
+
+    private static String encode(String value, boolean keepSlash) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                sb.append(c);
+            } else {
+                sb.append('%').append(Character.toUpperCase(HEX[(b >> 4) & 0xF])).append(Character.toUpperCase(HEX[b & 0xF]));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static IOException failure(String method, String key, int status, byte[] body) {
+        Matcher matcher = ERROR_CODE.matcher(new String(body, StandardCharsets.UTF_8));
+        return new IOException("S3 " + method + " " + key + " failed: HTTP " + status + (matcher.find() ? " " + matcher.group(1) : ""));
+    }
+
+    private static byte[] sha256(byte[] data) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws IOException {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (java.security.GeneralSecurityException e) {
+            throw new IOException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private final class MultipartUpload extends Upload {
+        private final String key;
+        private final String uploadId;
+        private final Semaphore inFlight = new Semaphore(parallelism);
+        private final List<CompletableFuture<String>> parts = new ArrayList<>();
+        private final ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+            Thread.ofVirtual().name("s3-upload-", 0).factory());
+        private byte[] buffer = new byte[partSize];
+        private int length;
+        private volatile IOException failure;
+        private boolean closed;
+
+        MultipartUpload(String key, String uploadId) {
+            this.key = key;
+            this.uploadId = uploadId;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int count) throws IOException {
+            while (count > 0) {
+                int n = Math.min(count, buffer.length - length);
+                System.arraycopy(data, offset, buffer, length, n);
+                length += n;
+                offset += n;
+                count -= n;
+                if (length == buffer.length) {
+                    submitPart();
+                }
+            }
+        }
+
+        private void submitPart() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            if (parts.size() >= MAX_PARTS) {
+                throw new IOException("Backup exceeds " + MAX_PARTS + " parts, increase the S3 part size");
+            }
+            byte[] part = length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+            int partNumber = parts.size() + 1;
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("S3 upload interrupted");
+            }
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    Map<String, String> query = new TreeMap<>();
+                    query.put("partNumber", String.valueOf(partNumber));
+                    query.put("uploadId", uploadId);
+                    return send("PUT", key, query, part).headers().firstValue("ETag")
+                        .orElseThrow(() -> new IOException("S3 returned no ETag for part " + partNumber));
+                } catch (IOException e) {
+                    failure = e;
+                    throw new CompletionException(e);
+                } finally {
+                    inFlight.release();
+                }
+            }, executor));
+            buffer = new byte[partSize];
+            length = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (length > 0 || parts.isEmpty()) {
+                    submitPart();
+                }
+                StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+                for (int i = 0; i < parts.size(); i++) {
+                    String etag;
+                    try {
+                        etag = parts.get(i).join();
+                    } catch (CompletionException e) {
+                        throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                    }
+                    xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(etag.replace("\"", "&quot;")).append("</ETag></Part>");
+                }
+                xml.append("</CompleteMultipartUpload>");
+                Map<String, String> query = new TreeMap<>();
+                query.put("uploadId", uploadId);
+                send("POST", key, query, xml.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                abortUpload();
+                throw e;
+            } finally {
+                executor.shutdown();
+                buffer = null;
+            }
+        }
+
+        @Override
+        public void abort() {
+            closed = true;
+            executor.shutdownNow();
+            buffer = null;
+            abortUpload();
+        }
+
+        private void abortUpload() {
+            try {
+                Map<String, String> query = new TreeMap<>();
+                query.put("uploadId", uploadId);
+                send("DELETE", key, query, new byte[0]);
+            } catch (IOException e) {
+                Logger.warn("Failed to abort S3 multipart upload " + key + ": " + e.getMessage(), "S3BackupTarget");
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+public final class ServerLifecycle {
+    private static final Map<JarRunner.Status, Set<JarRunner.Status>> TRANSITIONS = new EnumMap<>(JarRunner.Status.class);
+
+    static {
+        TRANSITIONS.put(JarRunner.Status.STOPPED, EnumSet.of(JarRunner.Status.STOPPED, JarRunner.Status.STARTING));
+        TRANSITIONS.put(JarRunner.Status.STARTING, EnumSet.of(JarRunner.Status.STARTING, JarRunner.Status.RUNNING, JarRunner.Status.STOPPING, JarRunner.Status.STOPPED));
+        TRANSITIONS.put(JarRunner.Status.RUNNING, EnumSet.of(JarRunner.Status.RUNNING, JarRunner.Status.STOPPING, JarRunner.Status.STOPPED));
+        TRANSITIONS.put(JarRunner.Status.STOPPING, EnumSet.of(JarRunner.Status.STOPPING, JarRunner.Status.STOPPED));
+    }
+
+    public static final class State {
+        private static final int NORMAL_STOP = 1;
+        private static final int FORCE_STOP = 1 << 1;
+        private static final int PENDING_RESTART = 1 << 2;
+        private static final int EULA_EXIT = 1 << 3;
+        private static final int TERMINATED = 1 << 4;
+        private static final int FULLY_STARTED = 1 << 5;
+        private static final int CLEANED_UP = 1 << 6;
+        private static final int ATTACHED = 1 << 7;
+
+        private final JarRunner.Status status;
+        private final long generation;
+        private final int flags;
+        private final CompletableFuture<Void> stopped;
+        private final long sequence;
+
+        private State(JarRunner.Status status, long generation, int flags, CompletableFuture<Void> stopped, long sequence) {
+            this.status = status;
+            this.generation = generation;
+            this.flags = flags;
+            this.stopped = stopped;
+            this.sequence = sequence;
+        }
+
+        public JarRunner.Status getStatus() {
+            return status;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public CompletableFuture<Void> getStoppedFuture() {
+            return stopped;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public boolean isNormalStop() {
+            return (flags & NORMAL_STOP) != 0;
+        }
+
+        public boolean isForceStop() {
+            return (flags & FORCE_STOP) != 0;
+        }
+
+        public boolean isPendingRestart() {
+            return (flags & PENDING_RESTART) != 0;
+        }
+
+        public boolean isEulaExit() {
+            return (flags & EULA_EXIT) != 0;
+        }
+
+        public boolean isTerminated() {
+            return (flags & TERMINATED) != 0;
+        }
+
+        public boolean isFullyStarted() {
+            return (flags & FULLY_STARTED) != 0;
+        }
+
+        public boolean isCleanedUp() {
+            return (flags & CLEANED_UP) != 0;
+        }
+
+        public boolean isAttached() {
+            return (flags & ATTACHED) != 0;
+        }
+
+        public State with(JarRunner.Status next) {
+            return next == status ? this : new State(next, generation, flags, stopped, sequence);
+        }
+
+        public State starting() {
+            return new State(JarRunner.Status.STARTING, generation + 1, 0, new CompletableFuture<>(), sequence);
+        }
+
+        public State stopped() {
+            return new State(JarRunner.Status.STOPPED, generation, flags & ~PENDING_RESTART, stopped, sequence);
+        }
+
+        public State withNormalStop(boolean value) {
+            return flag(NORMAL_STOP, value);
+        }
+
+        public State withForceStop(boolean value) {
+            return flag(FORCE_STOP, value);
+        }
+
+        public State withPendingRestart(boolean value) {
+            return flag(PENDING_RESTART, value);
+        }
+
+        public State withEulaExit(boolean value) {
+            return flag(EULA_EXIT, value);
+        }
+
+        public State withTerminated(boolean value) {
+            return flag(TERMINATED, value);
+        }
+
+        public State withFullyStarted(boolean value) {
+            return flag(FULLY_STARTED, value);
+        }
+
+        public State withCleanedUp(boolean value) {
+            return flag(CLEANED_UP, value);
+        }
+
+        public State withAttached(boolean value) {
+            return flag(ATTACHED, value);
+        }
+
+        private State sequenced(long value) {
+            return new State(status, generation, flags, stopped, value);
+        }
+
+        private State flag(int mask, boolean value) {
+            int next = value ? flags | mask : flags & ~mask;
+            return next == flags ? this : new State(status, generation, next, stopped, sequence);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(status.name()).append('#').append(generation);
+            if (isNormalStop()) sb.append(" normalStop");
+            if (isForceStop()) sb.append(" forceStop");
+            if (isPendingRestart()) sb.append(" pendingRestart");
+            if (isEulaExit()) sb.append(" eulaExit");
+            if (isTerminated()) sb.append(" terminated");
+            if (isFullyStarted()) sb.append(" fullyStarted");
+            if (isCleanedUp()) sb.append(" cleanedUp");
+            if (isAttached()) sb.append(" attached");
+            return sb.toString();
+        }
+    }
+
+    public interface Listener {
+        void onTransition(State from, State to);
+    }
+
+    private final String name;
+    private final AtomicReference<State> state = new AtomicReference<>(new State(JarRunner.Status.STOPPED, 0, 0, CompletableFuture.completedFuture(null), 0));
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentSkipListMap<Long, State[]> pendingEvents = new ConcurrentSkipListMap<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+    private long deliveredSequence;
+
+    public ServerLifecycle(String name) {
+        this.name = name;
+    }
+
+    public State get() {
+        return state.get();
+    }
+
+    public JarRunner.Status getStatus() {
+        return state.get().getStatus();
+    }
+
+    public static boolean isLegal(JarRunner.Status from, JarRunner.Status to) {
+        return TRANSITIONS.get(from).contains(to);
+    }
+
+    public State transition(UnaryOperator<State> change) {
+        while (true) {
+            State current = state.get();
+            State next = change.apply(current);
+            if (next == null) {
+                return null;
+            }
+            if (next == current) {
+                return current;
+            }
+            if (!isLegal(current.getStatus(), next.getStatus())) {
+                Logger.warn("Rejected illegal lifecycle transition " + current + " -> " + next + ": " + name, "ServerLifecycle");
+                return null;
+            }
+            State committed = next.sequenced(current.getSequence() + 1);
+            if (state.compareAndSet(current, committed)) {
+                pendingEvents.put(committed.getSequence(), new State[]{current, committed});
+                drainEvents();
+                return committed;
+            }
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void drainEvents() {
+        while (delivering.compareAndSet(false, true)) {
+            try {
+                Map.Entry<Long, State[]> event;
+                while ((event = pendingEvents.firstEntry()) != null && event.getKey() == deliveredSequence + 1) {
+                    pendingEvents.remove(event.getKey());
+                    deliveredSequence = event.getKey();
+                    fire(event.getValue()[0], event.getValue()[1]);
+                }
+            } finally {
+                delivering.set(false);
+            }
+            Map.Entry<Long, State[]> next = pendingEvents.firstEntry();
+            if (next == null || next.getKey() != deliveredSequence + 1) {
+                return;
+            }
+        }
+    }
+
+    private void fire(State from, State to) {
+        if (from.getStatus() != to.getStatus()) {
+            Logger.debug("Lifecycle " + from + " -> " + to + ": " + name, "ServerLifecycle");
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onTransition(from, to);
+            } catch (RuntimeException e) {
+                Logger.error("Lifecycle listener failed: " + e.getMessage(), "ServerLifecycle");
+            }
+        }
+    }
+}
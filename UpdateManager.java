@@ -8,7 +8,12 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -16,6 +21,7 @@ import java.util.regex.Pattern;
 public class UpdateManager {
     private static final String UPDATE_JSON_URL = "https://znpwlk.github.io/Minecraft-Server-Hub-API/version.json";
     private static final String UPDATE_DIR = "MSH";
+    private static final long STOP_TIMEOUT_MILLIS = 33000;
     private final Main main;
     private final PreferenceManager preferenceManager;
 
@@ -468,6 +474,7 @@ public class UpdateManager {
             Logger.info("Stopping all servers before update", "UpdateManager");
 
             List<JarRunner> runners = main.getJarRunners();
+            List<CompletableFuture<Boolean>> stops = new ArrayList<>();
             if (runners != null) {
                 runners.forEach(runner -> {
                     if (runner != null) {
@@ -475,36 +482,20 @@ public class UpdateManager {
                         if (status == JarRunner.Status.RUNNING || status == JarRunner.Status.STARTING) {
                             String displayName = runner.getDisplayName();
                             Logger.info("Stopping server: " + (displayName != null ? displayName : "unknown"), "UpdateManager");
-                            runner.stop();
+                            stops.add(runner.stopAsync(STOP_TIMEOUT_MILLIS));
                         }
                     }
                 });
             }
 
+            boolean[] allStopped = {false};
             try {
-                Thread.sleep(3000);
+                CompletableFuture.allOf(stops.toArray(new CompletableFuture<?>[0])).get(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                allStopped[0] = stops.stream().allMatch(CompletableFuture::join);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-            }
-
-            boolean[] allStopped = {false};
-            int waitCount = 0;
-            while (!allStopped[0] && waitCount < 30) {
-                List<JarRunner> currentRunners = main.getJarRunners();
-                allStopped[0] = currentRunners == null || currentRunners.stream().noneMatch(runner -> {
-                    if (runner == null) return false;
-                    JarRunner.Status status = runner.getStatus();
-                    return status == JarRunner.Status.RUNNING || status == JarRunner.Status.STARTING;
-                });
-                if (!allStopped[0]) {
-                    try {
-                        Thread.sleep(1000);
-                        waitCount++;
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
+            } catch (ExecutionException | TimeoutException e) {
+                Logger.warn("Servers did not stop before update: " + e.getMessage(), "UpdateManager");
             }
 
             SwingUtilities.invokeLater(() -> {
@@ -0,0 +1,135 @@
+import java.awt.Color;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+
+// Development benchmark, not part of the application. JMH is not available in this tree, so this is a
+// warm-loop harness. Build the app first, then:
+//   javac -cp <app-classes> -d <tools-classes> tools/AnsiParserBenchmark.java
+//   java -cp <app-classes>:<tools-classes> AnsiParserBenchmark [lines] [rounds]
+public final class AnsiParserBenchmark {
+    private static final PrintStream REPORT = System.err;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final String ESC = "\u001B[";
+    private static final String[] TEMPLATES = {
+        "[%s INFO]: Starting minecraft server version 1.21.1",
+        "[%s INFO]: " + ESC + "32mPreparing spawn area: %d%%" + ESC + "0m",
+        "[%s WARN]: " + ESC + "33;1mCan't keep up! Is the server overloaded? Running %dms or %d ticks behind" + ESC + "0m",
+        "[%s INFO]: [" + ESC + "36mLuckPerms" + ESC + "0m] Loading storage provider... [" + ESC + "32mH2" + ESC + "0m]",
+        "[%s INFO]: " + ESC + "38;5;208mPlayer%d" + ESC + "39m joined the game",
+        "[%s INFO]: <" + ESC + "38;2;85;255;%dmPlayer%d" + ESC + "0m> hello there",
+        "[%s ERROR]: " + ESC + "31mCould not pass event PlayerMoveEvent to Plugin%d" + ESC + "0m",
+        "[%s INFO]: Done (%d.%03ds)! For help, type \"help\"" + ESC + "K"
+    };
+    private static final Color[] BASIC = {
+        Color.BLACK, Color.RED, Color.GREEN, Color.YELLOW, Color.BLUE, Color.MAGENTA, Color.CYAN, Color.WHITE
+    };
+
+    private static long sink;
+
+    private AnsiParserBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<String> lines = generatePaperLog(lineCount, 42);
+        report(String.format("%d synthetic Paper log lines, %d templates, %d warmup + %d measured rounds",
+            lines.size(), TEMPLATES.length, WARMUP_ROUNDS, rounds));
+        report(String.format("regex path:  %,.0f lines/s", measure(lines, rounds, AnsiParserBenchmark::regexPath)));
+        report(String.format("AnsiParser:  %,.0f lines/s", measure(lines, rounds, AnsiParserBenchmark::parserPath)));
+        report("checksum " + sink);
+    }
+
+    static List<String> generatePaperLog(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String time = String.format("%02d:%02d:%02d", random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            String template = TEMPLATES[random.nextInt(TEMPLATES.length)];
+            lines.add(String.format(template, time, random.nextInt(256), random.nextInt(1000), random.nextInt(1000)) + "\n");
+        }
+        return lines;
+    }
+
+    private interface Path {
+        void run(List<String> lines);
+    }
+
+    private static double measure(List<String> lines, int rounds, Path path) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            path.run(lines);
+        }
+        long[] elapsed = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            path.run(lines);
+            elapsed[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(elapsed);
+        return lines.size() / (elapsed[rounds / 2] / 1_000_000_000.0);
+    }
+
+    private static void parserPath(List<String> lines) {
+        AnsiParser parser = new AnsiParser(Color.WHITE, Color.BLACK);
+        AnsiParser.SegmentSink segments = (text, start, end, styleId) -> sink += end - start + styleId;
+        for (String line : lines) {
+            parser.parse(line, segments);
+        }
+    }
+
+    // Mirrors the pre-AnsiParser ColorOutputPanel.appendColorText: a Pattern per call, substring per
+    // segment and a fresh attribute set per SGR sequence.
+    private static void regexPath(List<String> lines) {
+        SimpleAttributeSet normal = new SimpleAttributeSet();
+        StyleConstants.setForeground(normal, Color.WHITE);
+        SimpleAttributeSet current = normal;
+        for (String line : lines) {
+            Pattern pattern = Pattern.compile("\u001B\\[(\\d+(?:;\\d+)*)m");
+            Matcher matcher = pattern.matcher(line);
+            int lastIndex = 0;
+            while (matcher.find()) {
+                String text = line.substring(lastIndex, matcher.start());
+                sink += text.length() + current.getAttributeCount();
+                String codes = matcher.group(1);
+                if (codes != null && !codes.trim().isEmpty()) {
+                    current = applyColorCode(normal, codes.trim());
+                }
+                lastIndex = matcher.end();
+            }
+            sink += line.substring(lastIndex).length();
+        }
+    }
+
+    private static SimpleAttributeSet applyColorCode(SimpleAttributeSet normal, String colorCode) {
+        SimpleAttributeSet attr = new SimpleAttributeSet(normal);
+        for (String code : colorCode.split(";")) {
+            int value;
+            try {
+                value = Integer.parseInt(code);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (value == 0) {
+                attr = new SimpleAttributeSet(normal);
+            } else if (value >= 30 && value <= 37) {
+                StyleConstants.setForeground(attr, BASIC[value - 30]);
+            } else if (value >= 90 && value <= 97) {
+                StyleConstants.setForeground(attr, BASIC[value - 90].brighter());
+            } else if (value >= 40 && value <= 47) {
+                StyleConstants.setBackground(attr, BASIC[value - 40]);
+            }
+        }
+        return attr;
+    }
+
+    private static void report(String message) {
+        REPORT.println("[ansi-bench] " + message);
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+// Development benchmark, not part of the application. Compares the original OutputHandler
+// contains() chain with the OutputRules automaton on the same synthetic log. Build the app first, then:
+//   javac -cp <app-classes> -d <tools-classes> tools/OutputRulesBenchmark.java
+//   java -cp <app-classes>:<tools-classes>:<gson.jar> OutputRulesBenchmark [lines] [rounds]
+public final class OutputRulesBenchmark {
+    private static final PrintStream REPORT = System.err;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final Pattern GAMERULE_PATTERN = Pattern.compile("\\[\\d{2}:\\d{2}:\\d{2} (?:INFO|WARN|ERROR)\\]: Gamerule (.+?) is currently set to: (true|false|\\d+)");
+    private static final Pattern ERROR_PATTERN = Pattern.compile("(Exception|Error|FAILED|Caused by)");
+    private static final String[] TEMPLATES = {
+        "[%s INFO]: <Player%d> anyone selling diamonds? paying %d",
+        "[%s INFO]: Player%d issued server command: /home %d",
+        "[%s INFO]: [Essentials] Player%d teleported to %d, 64, -120",
+        "[%s WARN]: Can't keep up! Is the server overloaded? Running %dms or %d ticks behind",
+        "[%s INFO]: Player%d joined the game",
+        "[%s INFO]: Player%d left the game",
+        "[%s INFO]: There are %d of a max of %d players online: Steve, Alex",
+        "[%s INFO]: Loaded %d recipes",
+        "[%s INFO]: Preparing spawn area: %d%%",
+        "[%s INFO]: Done (%d.%ds)! For help, type \"help\"",
+        "[%s INFO]: Saved the game",
+        "[%s ERROR]: Could not pass event PlayerMoveEvent to Plugin%d v%d",
+        "[%s WARN]: java.net.BindException: Address already in use (port %d%d)",
+        "[%s INFO]: Gamerule keepInventory is currently set to: %s",
+        "[%s INFO]: [dynmap] %d tiles rendered, %d updated"
+    };
+
+    private static long sink;
+
+    private OutputRulesBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<String> lines = generateLog(lineCount, 42);
+        OutputRules rules = OutputRules.getInstance();
+        report(String.format("%d synthetic Paper log lines, %d templates, %d rules, %d warmup + %d measured rounds",
+            lines.size(), TEMPLATES.length, rules.getRules().size(), WARMUP_ROUNDS, rounds));
+        report(String.format("contains() chain: %,.0f lines/s", measure(lines, rounds, OutputRulesBenchmark::containsChain)));
+        report(String.format("automaton:        %,.0f lines/s", measure(lines, rounds, l -> automaton(rules, l))));
+        report("checksum " + sink);
+    }
+
+    static List<String> generateLog(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String time = String.format("%02d:%02d:%02d", random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            String template = TEMPLATES[random.nextInt(TEMPLATES.length)];
+            Object third = template.contains("keepInventory") ? String.valueOf(random.nextBoolean()) : (Object) random.nextInt(100);
+            lines.add(String.format(template, time, random.nextInt(1000), third));
+        }
+        return lines;
+    }
+
+    private interface Classifier {
+        void run(List<String> lines);
+    }
+
+    private static double measure(List<String> lines, int rounds, Classifier classifier) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            classifier.run(lines);
+        }
+        long[] elapsed = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            classifier.run(lines);
+            elapsed[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(elapsed);
+        return lines.size() / (elapsed[rounds / 2] / 1_000_000_000.0);
+    }
+
+    private static void automaton(OutputRules rules, List<String> lines) {
+        long[] hits = rules.newHitSet();
+        for (String line : lines) {
+            if (!rules.scan(line, hits)) {
+                continue;
+            }
+            OutputRules.Rule status = rules.firstMatch(OutputRules.GROUP_STATUS, hits);
+            if (status != null) {
+                sink += status.markers.size();
+            }
+            if (rules.matchesAny(OutputRules.GROUP_ERROR, hits)) {
+                OutputRules.Rule detail = rules.firstMatch(OutputRules.GROUP_ERROR_DETAIL, hits);
+                sink += detail != null ? 2 : 1;
+            }
+            if (rules.matchesAny(OutputRules.GROUP_GAMERULE, hits) && GAMERULE_PATTERN.matcher(line).find()) {
+                sink++;
+            }
+        }
+    }
+
+    // The classification part of the pre-OutputRules OutputHandler loop, in the original order.
+    private static void containsChain(List<String> lines) {
+        for (String line : lines) {
+            sink += statusBranch(line);
+            if (ERROR_PATTERN.matcher(line).find()) {
+                sink += errorBranch(line);
+            }
+            if (GAMERULE_PATTERN.matcher(line).find()) {
+                sink++;
+            } else if (line.contains("Gamerule") && line.contains("is currently set to")) {
+                sink += 2;
+            }
+        }
+    }
+
+    private static int statusBranch(String line) {
+        if (line.contains("EULA") || line.contains("eula.txt")) {
+            return 1;
+        }
+        if (line.contains("Running Java")) {
+            return 2;
+        } else if (line.contains("Loading Paper")) {
+            return 3;
+        } else if (line.contains("Starting Minecraft server on")) {
+            return 4;
+        } else if (line.contains("YOU ARE RUNNING THIS SERVER AS AN ADMINISTRATIVE OR ROOT USER")) {
+            return 5;
+        } else if (line.contains("Initializing plugins")) {
+            return 6;
+        } else if (line.contains("Initialized ") && line.contains(" plugins")) {
+            return 7;
+        } else if (line.contains("Default game type:")) {
+            return 8;
+        } else if (line.contains("Preparing level")) {
+            return 9;
+        } else if (line.contains("Preparing spawn area: 100%")) {
+            return 10;
+        } else if (line.contains("Done (")) {
+            return 11;
+        } else if (line.contains("This is the first time you're starting this server")) {
+            return 12;
+        } else if (line.contains("There are") && line.contains("players online")) {
+            return 13;
+        } else if (line.contains("No existing world data, creating new world")) {
+            return 14;
+        } else if (line.contains("Loaded ") && line.contains(" recipes")) {
+            return 15;
+        } else if (line.contains("Loaded ") && line.contains(" advancements")) {
+            return 16;
+        } else if (line.contains("Starting minecraft server version")) {
+            return 17;
+        } else if (line.contains("Server Ping Player Sample Count:")) {
+            return 18;
+        } else if (line.contains("Using ") && line.contains(" threads for Netty based IO")) {
+            return 19;
+        } else if (line.contains("Paper is using ") && line.contains(" worker threads")) {
+            return 20;
+        } else if (line.contains("Generating keypair")) {
+            return 21;
+        } else if (line.contains("Selecting spawn point for world")) {
+            return 22;
+        } else if (line.contains("Loading ") && line.contains(" persistent chunks for world")) {
+            return 23;
+        } else if (line.contains("Prepared spawn area in")) {
+            return 24;
+        } else if (line.contains("Running delayed init tasks")) {
+            return 25;
+        } else if (line.contains("Stopping the server") || line.contains("Stopping server")) {
+            return 26;
+        } else if (line.contains("Saving players")) {
+            return 27;
+        } else if (line.contains("Saving worlds")) {
+            return 28;
+        } else if (line.contains("Saving chunks for level")) {
+            return 29;
+        } else if (line.contains("All chunks are saved")) {
+            return 30;
+        } else if (line.contains("Done saving")) {
+            return 31;
+        } else if (line.contains("Server stopped")) {
+            return 32;
+        } else if (line.contains("All RegionFile I/O tasks to complete")) {
+            return 33;
+        } else if (line.contains("Shutting down") || line.contains("shutting down")) {
+            return 34;
+        } else if (line.contains("Stopping all worlds")) {
+            return 35;
+        } else if (line.contains("Unloading world") || line.contains("Unloading level")) {
+            return 36;
+        } else if (line.contains("Closing level") || line.contains("Closing world")) {
+            return 37;
+        } else if (line.contains("Stopping Rcon connection")) {
+            return 38;
+        } else if (line.contains("Seed:")) {
+            return 39;
+        } else if (line.contains("Checking version, please wait...")) {
+            return 40;
+        } else if (line.contains("This server is running Paper version")) {
+            return 41;
+        } else if (line.contains("You are running the latest version")) {
+            return 42;
+        }
+        return 0;
+    }
+
+    private static int errorBranch(String line) {
+        if (line.contains("FileSystemException") || line.contains("另一个程序")) {
+            return 1;
+        } else if (line.contains("IOException") && line.contains("locked")) {
+            return 2;
+        } else if (line.contains("OutOfMemoryError") || line.contains("java.lang.OutOfMemoryError")) {
+            return 3;
+        } else if (line.contains("Access denied") || line.contains("权限")) {
+            return 4;
+        } else if (line.contains("Port") && line.contains("in use")) {
+            return 5;
+        } else if (line.contains("BindException")) {
+            return 6;
+        } else if (line.contains("Failed to start")) {
+            return 7;
+        }
+        return 0;
+    }
+
+    private static void report(String message) {
+        REPORT.println("[rules-bench] " + message);
+    }
+}
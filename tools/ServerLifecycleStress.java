@@ -0,0 +1,221 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+// Development harness, not part of the application. Build the app first, then:
+//   javac -cp <app-classes> -d <tools-classes> tools/ServerLifecycleStress.java
+//   java -cp <app-classes>:<tools-classes> ServerLifecycleStress [runners] [threads] [seconds]
+public final class ServerLifecycleStress {
+    private static final PrintStream REPORT = System.err;
+    private static final String FAKE_SERVER_ARG = "--fake-server";
+    private static final long SETTLE_MILLIS = 8000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    private ServerLifecycleStress() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains(FAKE_SERVER_ARG)) {
+            runFakeServer();
+            return;
+        }
+        System.setProperty("java.awt.headless", "true");
+        int runnerCount = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int threadCount = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        long durationMillis = (args.length > 2 ? Long.parseLong(args[2]) : 20) * 1000;
+        Path workDir = Files.createTempDirectory("msh-lifecycle-stress");
+        int failures;
+        try {
+            failures = run(workDir, runnerCount, threadCount, durationMillis);
+        } finally {
+            deleteTree(workDir);
+        }
+        report(failures == 0 ? "PASS" : "FAIL: " + failures + " invariant violations");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static int run(Path workDir, int runnerCount, int threadCount, long durationMillis) throws Exception {
+        List<JarRunner> runners = new ArrayList<>();
+        Map<JarRunner, AtomicLong> lastSequence = new ConcurrentHashMap<>();
+        AtomicInteger transitions = new AtomicInteger();
+        AtomicInteger illegal = new AtomicInteger();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        for (int i = 0; i < runnerCount; i++) {
+            Path serverDir = Files.createDirectories(workDir.resolve("server" + i));
+            File jar = serverDir.resolve("server.jar").toFile();
+            writeFakeServerJar(jar);
+            JarRunner runner = new JarRunner(jar.getAbsolutePath(), new ColorOutputPanel());
+            runner.setLaunchProfile(new LaunchProfile("", 0, 64, LaunchProfile.GarbageCollector.DEFAULT,
+                LaunchProfile.FlagPreset.NONE, "", FAKE_SERVER_ARG, ""));
+            AtomicLong sequence = new AtomicLong();
+            lastSequence.put(runner, sequence);
+            runner.addLifecycleListener((from, to) -> {
+                transitions.incrementAndGet();
+                if (!ServerLifecycle.isLegal(from.getStatus(), to.getStatus())) {
+                    illegal.incrementAndGet();
+                }
+                if (from.getSequence() != sequence.get() || to.getSequence() != from.getSequence() + 1) {
+                    outOfOrder.incrementAndGet();
+                }
+                sequence.set(to.getSequence());
+            });
+            runners.add(runner);
+        }
+
+        AtomicInteger operations = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger duplicateProcesses = new AtomicInteger();
+        long deadline = System.currentTimeMillis() + durationMillis;
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount + 1);
+        for (int t = 0; t < threadCount; t++) {
+            pool.submit(() -> {
+                Random random = ThreadLocalRandom.current();
+                while (System.currentTimeMillis() < deadline) {
+                    JarRunner runner = runners.get(random.nextInt(runners.size()));
+                    try {
+                        switch (random.nextInt(6)) {
+                            case 0:
+                                runner.start();
+                                break;
+                            case 1:
+                                runner.stop();
+                                break;
+                            case 2:
+                                runner.restart();
+                                break;
+                            case 3:
+                                runner.forceStop();
+                                break;
+                            case 4:
+                                runner.onServerFullyStarted();
+                                break;
+                            default:
+                                runner.onProcessTerminated();
+                                break;
+                        }
+                        operations.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        errors.incrementAndGet();
+                        e.printStackTrace(REPORT);
+                    }
+                    try {
+                        Thread.sleep(random.nextInt(30));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+        pool.submit(() -> {
+            while (System.currentTimeMillis() < deadline) {
+                for (JarRunner runner : runners) {
+                    ProcessRegistry.invalidate();
+                    List<ProcessRegistry.JavaProcess> live = ProcessRegistry.findByJar(runner.getJarPath());
+                    if (live.size() > 1) {
+                        duplicateProcesses.incrementAndGet();
+                        report("Duplicate processes for " + runner.getJarPath() + ": " + live.size());
+                    }
+                }
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        pool.shutdown();
+        pool.awaitTermination(durationMillis + SHUTDOWN_TIMEOUT_SECONDS * 1000, TimeUnit.MILLISECONDS);
+        report(String.format("operations=%d errors=%d transitions=%d illegal=%d outOfOrder=%d duplicates=%d",
+            operations.get(), errors.get(), transitions.get(), illegal.get(), outOfOrder.get(), duplicateProcesses.get()));
+
+        Thread.sleep(SETTLE_MILLIS);
+        List<CompletableFuture<Boolean>> shutdowns = new ArrayList<>();
+        for (JarRunner runner : runners) {
+            shutdowns.add(runner.shutdownAsync(3000));
+        }
+        CompletableFuture.allOf(shutdowns.toArray(new CompletableFuture<?>[0])).get(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        int inconsistent = 0;
+        for (JarRunner runner : runners) {
+            ServerLifecycle.State state = runner.getLifecycleState();
+            boolean stoppedFutureDone = true;
+            try {
+                state.getStoppedFuture().get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                stoppedFutureDone = false;
+            }
+            ProcessRegistry.invalidate();
+            boolean alive = runner.isProcessAlive() || !ProcessRegistry.findByJar(runner.getJarPath()).isEmpty();
+            if (state.getStatus() != JarRunner.Status.STOPPED || !stoppedFutureDone || alive) {
+                inconsistent++;
+                report("Inconsistent " + runner.getJarPath() + ": " + state
+                    + " stoppedFuture=" + stoppedFutureDone + " alive=" + alive);
+            }
+        }
+        report("inconsistent=" + inconsistent);
+        return errors.get() + illegal.get() + outOfOrder.get() + duplicateProcesses.get() + inconsistent;
+    }
+
+    private static void runFakeServer() throws IOException {
+        System.out.println("Starting minecraft server version 1.21.1");
+        System.out.println("Done (0.1s)! For help, type \"help\"");
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().equals("stop")) {
+                System.out.println("Stopping server");
+                break;
+            }
+        }
+    }
+
+    private static void writeFakeServerJar(File jar) throws IOException, URISyntaxException {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(Attributes.Name.MAIN_CLASS, ServerLifecycleStress.class.getName());
+        attributes.put(Attributes.Name.CLASS_PATH,
+            ServerLifecycleStress.class.getProtectionDomain().getCodeSource().getLocation().toURI().toString());
+        try (OutputStream out = Files.newOutputStream(jar.toPath());
+             JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+            jarOut.flush();
+        }
+    }
+
+    private static void deleteTree(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            report("Failed to clean up " + root + ": " + e.getMessage());
+        }
+    }
+
+    private static void report(String message) {
+        REPORT.println("[stress] " + message);
+    }
+}